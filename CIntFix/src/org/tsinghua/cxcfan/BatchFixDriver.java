@@ -0,0 +1,529 @@
+package org.tsinghua.cxcfan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.sosy_lab.cpachecker.cpa.range.Range;
+import org.sosy_lab.cpachecker.cpa.range.RangeTransferRelation;
+import org.sosy_lab.cpachecker.cpa.range.TypeConstraintSolver;
+
+import com.google.common.io.ByteStreams;
+
+public class BatchFixDriver implements AutoCloseable {
+
+	// BatchFixDriver overlaps the three phases of fixing across translation units.
+	// Each worker processes one translation unit from preprocessing to fixing.
+	// In resident mode, all phases run in parallel, since each analysis has its
+	// own CPA and metadata, except that Phase 2 is serialized with a heap limit,
+	// because the limit is checked against the used heap of the whole JVM.
+	// In process mode, CPAchecker processes write metadata files shared by all
+	// translation units, thus Phase 2 and Phase 3 are serialized among workers,
+	// while Phase 1 runs in parallel.
+	// The driver owns the in-process type solver, which is closed with the driver.
+	// If precision improvement is enabled in resident mode, the ranges of the
+	// same analysis decide which variables of the source file are lifted.
+
+	public static enum Status {
+		FIXED, TIMEOUT, FAILED
+	}
+
+	public static class TranslationUnitResult {
+
+		private final String tuName;
+		private Status status = Status.FAILED;
+		private long fixNum = 0;
+		private long preprocessTime = 0;
+		private long cpaTime = 0;
+		private long fixTime = 0;
+		private String output = "";
+
+		private TranslationUnitResult(String tuName) {
+			this.tuName = tuName;
+		}
+
+		public String getTuName() {
+			return tuName;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public long getFixNum() {
+			return fixNum;
+		}
+
+		public long getPreprocessTime() {
+			return preprocessTime;
+		}
+
+		public long getCpaTime() {
+			return cpaTime;
+		}
+
+		public long getFixTime() {
+			return fixTime;
+		}
+
+		/**
+		 * Console output produced when processing this translation unit
+		 */
+		public String getOutput() {
+			return output;
+		}
+
+		private long getElapsedTime() {
+			return preprocessTime + cpaTime + fixTime;
+		}
+	}
+
+	private final int workers;
+	/**
+	 * Wall time limit in milliseconds for each translation unit. Non-positive value for no limit.
+	 * Time for waiting the analysis of other translation units (in process mode or with heap limit) is not counted.
+	 */
+	private final long timeLimit;
+	/**
+	 * In resident mode, this is the limit of used heap (MB) in analysis. Since the used heap of the whole JVM is
+	 * measured, analyses with this limit run one at a time. In process mode, this is the heap size of CPAchecker
+	 * process. Non-positive value for no limit.
+	 */
+	private final long heapLimit;
+
+	// resident mode
+	private final RangeAnalysisRunner runner;
+	private final TypeConstraintSolver typeSolver;
+	// process mode
+	private final String sh;
+	private final String cpacheckerLocation;
+	private final String fileNameWithoutExt;
+
+	private FixModule.CheckEmission checkEmission = FixModule.CheckEmission.LIBRARY;
+	/**
+	 * On-disk cache of fixing results, or null if results are not cached
+	 */
+	private FixResultCache resultCache = null;
+	/**
+	 * If it is set, a highly-precise version of the source file of each translation unit is generated after
+	 * fixing, where only variables whose ranges exceed their types are lifted. Used in resident mode only.
+	 */
+	private boolean precisionImprovement = false;
+	
+	/**
+	 * Serializes analysis and fixing in process mode, which share metadata files
+	 */
+	private final Lock metadataFileLock = new ReentrantLock();
+	/**
+	 * Serializes analysis in resident mode with heap limit, such that other analyses do not exceed the limit
+	 */
+	private final Lock heapLimitLock = new ReentrantLock();
+	/**
+	 * Workers of the last batch, which may still run after the batch if they are cancelled
+	 */
+	private ExecutorService pool = null;
+
+	/**
+	 * Extra time in milliseconds before a worker is cancelled, such that the time limit of analysis is reached first
+	 */
+	private static final long CANCEL_GRACE_TIME = 10000;
+
+	/**
+	 * Console output of each worker is buffered, and printed in the order of translation units
+	 */
+	private final ThreadLocal<ByteArrayOutputStream> outputBuffer = new ThreadLocal<>();
+
+	/**
+	 * @param typeSolver in-process solver for type constraints, or null to invoke Z3 process. It is closed by
+	 * {@link #close()}.
+	 */
+	public BatchFixDriver(RangeAnalysisRunner runner, TypeConstraintSolver typeSolver, int workers, long timeLimit, long heapLimit) {
+		this.runner = runner;
+		this.typeSolver = typeSolver;
+		this.sh = null;
+		this.cpacheckerLocation = null;
+		this.fileNameWithoutExt = null;
+		this.workers = Math.max(1, workers);
+		this.timeLimit = timeLimit;
+		this.heapLimit = heapLimit;
+	}
+
+	public BatchFixDriver(String sh, String cpacheckerLocation, String fileNameWithoutExt, int workers, long timeLimit, long heapLimit) {
+		this.runner = null;
+		this.typeSolver = null;
+		this.sh = sh;
+		this.cpacheckerLocation = cpacheckerLocation;
+		this.fileNameWithoutExt = fileNameWithoutExt;
+		this.workers = Math.max(1, workers);
+		this.timeLimit = timeLimit;
+		this.heapLimit = heapLimit;
+	}
+
+	public void setCheckEmission(FixModule.CheckEmission checkEmission) {
+		this.checkEmission = checkEmission;
+	}
+	
+	public void setResultCache(FixResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+	
+	public void setPrecisionImprovement(boolean precisionImprovement) {
+		this.precisionImprovement = precisionImprovement;
+	}
+	
+	/**
+	 * The source file of the specified translation unit, which is foo.c for foo.cil.i in the same folder
+	 */
+	public static String getSourceFileName(String tuName) {
+		String baseName = tuName.endsWith(".cil.i") ? tuName.substring(0, tuName.length() - 6) : tuName.substring(0, tuName.length() - 2);
+		return baseName + ".c";
+	}
+	
+	/**
+	 * Fix translation units in a batch. Results are in the same order of input translation units.
+	 */
+	public List<TranslationUnitResult> run(List<String> tuNames) {
+		List<TranslationUnitResult> results = new ArrayList<>();
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		System.setOut(new PrintStream(new RoutingOutputStream(stdout), true));
+		System.setErr(new PrintStream(new RoutingOutputStream(stderr), true));
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		this.pool = pool;
+		try {
+			List<Future<TranslationUnitResult>> futures = new ArrayList<>();
+			List<AtomicLong> startTimes = new ArrayList<>();
+			for(String tuName : tuNames) {
+				AtomicLong startedAt = new AtomicLong();
+				startTimes.add(startedAt);
+				futures.add(pool.submit(() -> process(tuName, startedAt)));
+			}
+			for(int i = 0; i < futures.size(); i++) {
+				TranslationUnitResult result;
+				try {
+					result = waitFor(futures.get(i), startTimes.get(i));
+				} catch(ExecutionException ex) {
+					result = new TranslationUnitResult(tuNames.get(i));
+					result.output = "Failed to process " + tuNames.get(i) + ": " + ex.getCause() + "\n";
+				} catch(TimeoutException ex) {
+					// the worker does not stop by itself, for example Phase 1 or Phase 3 takes too long
+					futures.get(i).cancel(true);
+					result = new TranslationUnitResult(tuNames.get(i));
+					result.status = Status.TIMEOUT;
+					result.output = "Processing " + tuNames.get(i) + " is cancelled since it exceeds the time limit\n";
+				}
+				stdout.print(result.output);
+				stdout.flush();
+				results.add(result);
+			}
+		} catch(InterruptedException ex) {
+			stderr.println("Batch fixing is interrupted!");
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+			System.setOut(stdout);
+			System.setErr(stderr);
+		}
+		return results;
+	}
+
+	/**
+	 * Close the type solver after the workers of the last batch stop. A cancelled worker may still be solving,
+	 * thus the solver is left open if the worker does not stop in time, since closing a solver in use is fatal.
+	 */
+	@Override
+	public void close() {
+		if(typeSolver == null) {
+			return;
+		}
+		if(pool != null) {
+			try {
+				if(!pool.awaitTermination(CANCEL_GRACE_TIME, TimeUnit.MILLISECONDS)) {
+					System.err.println("Failed to close type solver since some workers are still running.");
+					return;
+				}
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		typeSolver.close();
+	}
+
+	/**
+	 * Wait for the result of a worker. The time limit is counted from the time when the worker starts, and waiting
+	 * for a queued worker does not time out.
+	 * @param startedAt the time when the worker starts, or 0 if it is still queued
+	 */
+	private TranslationUnitResult waitFor(Future<TranslationUnitResult> future, AtomicLong startedAt)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if(timeLimit <= 0) {
+			return future.get();
+		}
+		while(true) {
+			long start = startedAt.get();
+			long remaining = start == 0 ? timeLimit : start + timeLimit + CANCEL_GRACE_TIME - System.currentTimeMillis();
+			if(remaining <= 0) {
+				throw new TimeoutException();
+			}
+			try {
+				return future.get(remaining, TimeUnit.MILLISECONDS);
+			} catch(TimeoutException ex) {
+				// the start time is updated if the worker starts or waits for another translation unit
+				if(start != 0 && startedAt.get() == start) {
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param startedAt receives the time when this translation unit starts to be processed. Waiting for other
+	 * translation units is added, since it is not counted in the time limit.
+	 */
+	private TranslationUnitResult process(String tuName, AtomicLong startedAt) {
+		startedAt.set(System.currentTimeMillis());
+		TranslationUnitResult result = new TranslationUnitResult(tuName);
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		outputBuffer.set(buffer);
+		try {
+			System.out.println("Processing: " + tuName);
+
+			// STEP 0: reuse the fixing result of a previous run if this translation unit does not change
+			String cacheKey = null;
+			if(resultCache != null) {
+				try {
+					cacheKey = resultCache.computeKey(tuName);
+				} catch(IOException ex) {
+					System.err.println("Failed to compute cache key of " + tuName + ": " + ex);
+				}
+				if(cacheKey != null) {
+					long fixNum = resultCache.restore(cacheKey, tuName);
+					if(fixNum >= 0) {
+						System.out.println("Fixing result is restored from cache!");
+						result.fixNum = fixNum;
+						result.status = Status.FIXED;
+						return result;
+					}
+				}
+			}
+
+			// STEP 1: eliminate all compound assignment and self-increment/decrement operations
+			long startTime = System.currentTimeMillis();
+			CPPFactory factory = new CPPFactory(tuName);
+			factory.process();
+			result.preprocessTime = System.currentTimeMillis() - startTime;
+			System.out.println("Phase 1 (code preprocessing): completed!");
+			if(isTimeout(result)) {
+				result.status = Status.TIMEOUT;
+				return result;
+			}
+
+			// STEP 2: perform static analysis using CPAchecker
+			// STEP 3: fix the original program
+			if(runner != null) {
+				RangeTransferRelation rangeTR;
+				Map<String, Range> varRanges = precisionImprovement ? new HashMap<>() : null;
+				if(heapLimit > 0) {
+					long waitStart = System.currentTimeMillis();
+					heapLimitLock.lock();
+					startedAt.addAndGet(System.currentTimeMillis() - waitStart);
+				}
+				try {
+					startTime = System.currentTimeMillis();
+					rangeTR = runner.analyze(tuName, getRemainingTime(result), heapLimit, varRanges);
+					result.cpaTime = System.currentTimeMillis() - startTime;
+				} finally {
+					if(heapLimit > 0) {
+						heapLimitLock.unlock();
+					}
+				}
+				if(rangeTR == null) {
+					result.status = isTimeout(result) ? Status.TIMEOUT : Status.FAILED;
+					return result;
+				}
+				System.out.println("Phase 2 (static analysis): completed!");
+				FixModule fixmod = new FixModule(tuName, rangeTR.getConstraints(), rangeTR.getName2Loc(), rangeTR.getLoc2Guide(), typeSolver);
+				runFix(fixmod, result, cacheKey);
+				if(varRanges != null) {
+					// STEP 4: lift variables of the source file by their ranges
+					runPrecisionImprovement(tuName, varRanges);
+				}
+			} else {
+				// metadata files are shared by all translation units, thus we have to fix this
+				// translation unit before the next analysis overwrites them
+				long waitStart = System.currentTimeMillis();
+				metadataFileLock.lock();
+				startedAt.addAndGet(System.currentTimeMillis() - waitStart);
+				try {
+					startTime = System.currentTimeMillis();
+					boolean analyzed = runProcess(tuName, getRemainingTime(result));
+					result.cpaTime = System.currentTimeMillis() - startTime;
+					if(!analyzed) {
+						result.status = isTimeout(result) ? Status.TIMEOUT : Status.FAILED;
+						return result;
+					}
+					System.out.println("Phase 2 (static analysis): completed!");
+					runFix(new FixModule(tuName, fileNameWithoutExt), result, cacheKey);
+				} finally {
+					metadataFileLock.unlock();
+				}
+			}
+			result.status = Status.FIXED;
+		} catch(Exception | OutOfMemoryError ex) {
+			System.err.println("Failed to process " + tuName + ": " + ex);
+			result.status = Status.FAILED;
+		} finally {
+			result.output = buffer.toString();
+			outputBuffer.remove();
+		}
+		return result;
+	}
+
+	private void runFix(FixModule fixmod, TranslationUnitResult result, String cacheKey) {
+		long startTime = System.currentTimeMillis();
+		fixmod.setCheckEmission(checkEmission);
+		result.fixNum = fixmod.run();
+		result.fixTime = System.currentTimeMillis() - startTime;
+		System.out.println("Phase 3 (code fixing): completed!");
+		if(cacheKey != null && fixmod.isCompleted()) {
+			String tuName = result.getTuName();
+			resultCache.store(cacheKey, tuName, fixmod, result.fixNum);
+			// code preprocessing rewrites the translation unit in place, thus the next run sees the
+			// rewritten content
+			try {
+				String rewrittenKey = resultCache.computeKey(tuName);
+				if(!rewrittenKey.equals(cacheKey)) {
+					resultCache.store(rewrittenKey, tuName, fixmod, result.fixNum);
+				}
+			} catch(IOException ex) {
+				System.err.println("Failed to compute cache key of " + tuName + ": " + ex);
+			}
+		}
+	}
+
+	/**
+	 * Failures are reported without affecting the fixing result of this translation unit.
+	 */
+	private void runPrecisionImprovement(String tuName, Map<String, Range> varRanges) {
+		String sourceName = getSourceFileName(tuName);
+		if(!new File(sourceName).exists()) {
+			System.err.println("Precision improvement is skipped since " + sourceName + " does not exist");
+			return;
+		}
+		try {
+			// the analyzed program is the translation unit rewritten by code preprocessing, whose variables are ranged
+			new PrecisionImprovementFactory(sourceName, tuName, varRanges).perform();
+			System.out.println("Phase 4 (precision improvement): completed!");
+		} catch(Exception ex) {
+			System.err.println("Failed to improve precision of " + sourceName + ": " + ex);
+		}
+	}
+
+	private boolean runProcess(String tuName, long remainingTime) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(sh);
+		command.add(cpacheckerLocation);
+		command.add("-rangeAnalysis");
+		command.add(tuName);
+		// metadata files are written where FixModule loads them
+		command.add("-setprop");
+		command.add("analysis.export.directory=" + fileNameWithoutExt);
+		if(heapLimit > 0) {
+			command.add("-heap");
+			command.add(String.valueOf(heapLimit).concat("M"));
+		}
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.redirectErrorStream(true);
+		Process proc = pb.start();
+		// console output of CPAchecker is discarded, but it should be consumed to prevent blocking
+		Thread drainer = new Thread(() -> {
+			try {
+				ByteStreams.copy(proc.getInputStream(), ByteStreams.nullOutputStream());
+			} catch(IOException ex) {
+				// the process is destroyed
+			}
+		});
+		drainer.setDaemon(true);
+		drainer.start();
+		try {
+			if(remainingTime > 0) {
+				if(!proc.waitFor(remainingTime, TimeUnit.MILLISECONDS)) {
+					proc.destroyForcibly();
+					System.err.println("CPAchecker exceeds the time limit on " + tuName);
+					return false;
+				}
+			} else {
+				proc.waitFor();
+			}
+		} catch(InterruptedException ex) {
+			// the worker is cancelled
+			proc.destroyForcibly();
+			throw ex;
+		}
+		if(proc.exitValue() != 0) {
+			System.err.println("CPAchecker is not executed normally!");
+			return false;
+		}
+		return true;
+	}
+
+	private long getRemainingTime(TranslationUnitResult result) {
+		if(timeLimit <= 0) {
+			return 0;
+		}
+		// at least 1 millisecond, since 0 means no limit
+		return Math.max(1, timeLimit - result.getElapsedTime());
+	}
+
+	private boolean isTimeout(TranslationUnitResult result) {
+		return timeLimit > 0 && result.getElapsedTime() >= timeLimit;
+	}
+
+	/**
+	 * Output stream that writes to the buffer of current worker, or the original stream otherwise
+	 */
+	private class RoutingOutputStream extends OutputStream {
+
+		private final OutputStream fallback;
+
+		public RoutingOutputStream(OutputStream fallback) {
+			this.fallback = fallback;
+		}
+
+		private OutputStream target() {
+			OutputStream buffer = outputBuffer.get();
+			return buffer != null ? buffer : fallback;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			target().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			target().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target().flush();
+		}
+	}
+}
@@ -9,13 +9,6 @@ import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTReturnStatement;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
-import org.eclipse.cdt.core.dom.ast.gnu.c.GCCLanguage;
-import org.eclipse.cdt.core.parser.DefaultLogService;
-import org.eclipse.cdt.core.parser.FileContent;
-import org.eclipse.cdt.core.parser.IParserLogService;
-import org.eclipse.cdt.core.parser.IScannerInfo;
-import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
-import org.eclipse.cdt.core.parser.ScannerInfo;
 
 public class CPPFactory {
 
@@ -36,11 +29,8 @@ public class CPPFactory {
 		}
 		
 		try {
-			FileContent content = FileContent.createForExternalFileLocation(tuName);
-			IScannerInfo scanner = new ScannerInfo();
-			IParserLogService log = new DefaultLogService();
-			IncludeFileContentProvider provider = IncludeFileContentProvider.getEmptyFilesProvider();
-			IASTTranslationUnit unit = GCCLanguage.getDefault().getASTTranslationUnit(content, scanner, provider, null, 8, log);
+			char[] code = TranslationUnitParser.readContent(tuName);
+			IASTTranslationUnit unit = TranslationUnitParser.parse(tuName, code);
 			MutableASTNode mast = MutableASTNode.createMutableASTFromIASTNode(unit);
 			
 			// traverse this structure and make changes to program text!
@@ -51,9 +41,16 @@ public class CPPFactory {
 			
 			// write the transformed code back to the file
 			// MODE: override mode
+			String newCode = mast.synthesize();
+			if(TranslationUnitParser.isSameContent(code, newCode)) {
+				// nothing is rewritten, the file and its cached AST remain valid for code fixing
+				return;
+			}
+			// the cached AST does not match the rewritten code, thus it should not stay in memory until Phase 3
+			TranslationUnitParser.release(tuName);
 			String backupTu = tuName;
 			BufferedWriter bw = new BufferedWriter(new FileWriter(backupTu));
-			bw.write(mast.synthesize());
+			bw.write(newCode);
 			bw.flush();
 			bw.close();
 			
@@ -67,6 +64,14 @@ public class CPPFactory {
 	private void sequentializeRetForMain(MutableASTNode mast) {
 		// (1) find the AST node corresponding to main function
 		MutableASTNode mainFunc = findMainFunctionNode(mast);
+		if(mainFunc == null) {
+			// this translation unit does not define main function
+			return;
+		}
+		if(mainFunc.getWrappedNode().getRawSignature().contains(retVarNameForMain)) {
+			// return statements have been sequentialized by a previous run, the rewrite should not be repeated
+			return;
+		}
 		// (2) insert declaration of temporary variable for return values
 		int childrenNum = mainFunc.getChildrenSize();
 		MutableASTNode funcBodyNode = mainFunc.getChild(childrenNum - 1);
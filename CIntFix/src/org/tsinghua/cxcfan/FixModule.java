@@ -7,6 +7,9 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -19,27 +22,33 @@ import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.dom.ast.IASTBinaryExpression;
 import org.eclipse.cdt.core.dom.ast.IASTCastExpression;
-import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.eclipse.cdt.core.dom.ast.IASTDoStatement;
+import org.eclipse.cdt.core.dom.ast.IASTForStatement;
 import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTParameterDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
-import org.eclipse.cdt.core.dom.ast.gnu.c.GCCLanguage;
-import org.eclipse.cdt.core.parser.DefaultLogService;
-import org.eclipse.cdt.core.parser.FileContent;
-import org.eclipse.cdt.core.parser.IParserLogService;
-import org.eclipse.cdt.core.parser.IScannerInfo;
-import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
-import org.eclipse.cdt.core.parser.ScannerInfo;
+import org.eclipse.cdt.core.dom.ast.IASTWhileStatement;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentList;
 import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+import org.sosy_lab.cpachecker.cpa.range.BinaryMetadataReader;
+import org.sosy_lab.cpachecker.cpa.range.BinaryMetadataWriter;
+import org.sosy_lab.cpachecker.cpa.range.Constraint;
+import org.sosy_lab.cpachecker.cpa.range.ConstraintGenerator;
+import org.sosy_lab.cpachecker.cpa.range.FixGuide;
 import org.sosy_lab.cpachecker.cpa.range.IntType;
+import org.sosy_lab.cpachecker.cpa.range.LocGuideGenerator;
 import org.sosy_lab.cpachecker.cpa.range.RangeTransferRelation;
+import org.sosy_lab.cpachecker.cpa.range.TypeConstraintSolver;
+import org.sosy_lab.solver.SolverException;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 
 public class FixModule {
@@ -55,11 +64,14 @@ public class FixModule {
 	private String fileNameWithoutExt;
 	
 	/**
-	 * The following three names are files output by range CPA
+	 * The following names are files output by range CPA. name2loc and loc2guide are written either in
+	 * binary (the default) or in JSON for debugging.
 	 */
 	private static final String smt2 = "constraint.smt2";
 	private static final String name2Locjson = "name2loc.json";
 	private static final String loc2Guidejson = "loc2guide.json";
+	private static final String name2Locbin = "name2loc.bin";
+	private static final String loc2Guidebin = "loc2guide.bin";
 	
 	/**
 	 * Fixed field names in JSON
@@ -76,6 +88,11 @@ public class FixModule {
 	private static final String bt = "basetype";
 	private static final String rl = "reflevel";
 	private static final String tg = "target";
+	private static final String hsl = "hoiststartline";
+	private static final String hel = "hoistendline";
+	private static final String hfn = "hoistfilename";
+	private static final String hos = "hoistoffset";
+	private static final String hlen = "hoistlength";
 	
 	// SMT solver: Z3
 	private static final String z3 = "z3";
@@ -91,35 +108,122 @@ public class FixModule {
 	
 	private static final String declarations = "typedef unsigned long size_t;\nextern int __INTCHECK_INT_S(long long signed int x);\nextern int __INTCHECK_INT_U(long long unsigned int x);\nextern unsigned int __INTCHECK_UINT_S(long long signed int x);\nextern unsigned int __INTCHECK_UINT_U(long long unsigned int x);\nextern short __INTCHECK_SHORT_S(long long signed int x);\nextern short __INTCHECK_SHORT_U(long long unsigned int x);\nextern unsigned short __INTCHECK_USHORT_S(long long signed int x);\nextern unsigned short __INTCHECK_USHORT_U(long long unsigned int x);\nextern signed char __INTCHECK_CHAR_S(long long signed int x);\nextern signed char __INTCHECK_CHAR_U(long long unsigned int x);\nextern unsigned char __INTCHECK_UCHAR_S(long long signed int x);\nextern unsigned char __INTCHECK_UCHAR_U(long long unsigned int x);\nextern long int __INTCHECK_LINT_S(long long signed int x);\nextern long int __INTCHECK_LINT_U(long long unsigned int x);\nextern long unsigned int __INTCHECK_ULINT_S(long long signed int x);\nextern long unsigned int __INTCHECK_ULINT_U(long long unsigned int x);\nextern long long int __INTCHECK_LLINT_S(long long signed int x);\nextern long long int __INTCHECK_LLINT_U(long long unsigned int x);\nextern long long unsigned int __INTCHECK_ULLINT_S(long long signed int x);\nextern long long unsigned int __INTCHECK_ULLINT_U(long long unsigned int x);\nextern size_t __INTCHECK_INDEX_S(long long signed int x);\nextern size_t __INTCHECK_INDEX_U(long long unsigned int x);\nextern long long unsigned int __INTLEFTSHIFT(long long unsigned int op1, long long unsigned int op2);\nextern long long unsigned int __INTRIGHTSHIFT(long long unsigned int op1, long long unsigned int op2);\n";
 	
+	/**
+	 * Fix metadata passed from range CPA in the same JVM. If they are set, metadata files are not loaded.
+	 */
+	private PersistentList<Constraint> constraints;
+	private Map<String, FileLocation> name2Loc;
+	private Map<FileLocation, FixGuide> loc2Guide;
+	/**
+	 * In-process solver for type constraints, which can be shared by modules. If it is not set, Z3 process is invoked.
+	 */
+	private TypeConstraintSolver typeSolver;
+	
+	/**
+	 * How sanity check functions are provided in the fixed translation unit.
+	 * LIBRARY: extern functions implemented in libargyi.
+	 * INLINE: static inline functions embedded in the translation unit (see InlineCheckGenerator).
+	 */
+	public static enum CheckEmission {
+		LIBRARY, INLINE
+	}
+	
+	private CheckEmission checkEmission = CheckEmission.LIBRARY;
+	
+	/**
+	 * The solved type of each variable and whether the translation unit is fixed, available after running
+	 */
+	private Map<String, IntType> typeModel = Collections.emptyMap();
+	private boolean completed = false;
+	
 	public FixModule(String tuName, String fileNameWithoutExt) {
 		this.tuName = tuName;
 		this.fileNameWithoutExt = fileNameWithoutExt;
 	}
 	
+	public FixModule(String tuName, PersistentList<Constraint> constraints, Map<String, FileLocation> name2Loc, Map<FileLocation, FixGuide> loc2Guide) {
+		this.tuName = tuName;
+		this.fileNameWithoutExt = null;
+		this.constraints = constraints;
+		this.name2Loc = name2Loc;
+		this.loc2Guide = loc2Guide;
+	}
+	
+	public FixModule(String tuName, PersistentList<Constraint> constraints, Map<String, FileLocation> name2Loc, Map<FileLocation, FixGuide> loc2Guide, TypeConstraintSolver typeSolver) {
+		this(tuName, constraints, name2Loc, loc2Guide);
+		this.typeSolver = typeSolver;
+	}
+	
+	public void setCheckEmission(CheckEmission checkEmission) {
+		this.checkEmission = checkEmission;
+	}
+	
+	/**
+	 * The file name of fixing result of the specified translation unit
+	 */
+	public static String getFixedFileName(String tuName) {
+		return tuName.substring(0, tuName.length() - 2) + ".fixed.i";
+	}
+	
+	public Map<String, IntType> getTypeModel() {
+		return typeModel;
+	}
+	
+	public boolean isCompleted() {
+		return completed;
+	}
+	
+	/**
+	 * Write loc2guide of this translation unit into the specified folder. The file is written in binary if the
+	 * metadata comes from range CPA, otherwise the metadata file is copied.
+	 */
+	public void exportLoc2Guide(File dir) throws IOException {
+		if(constraints != null) {
+			BinaryMetadataWriter writer = new BinaryMetadataWriter(new File(dir, loc2Guidebin).getPath());
+			writer.generateLoc2Guide(PathCopyingPersistentTreeMap.copyOf(loc2Guide));
+		} else {
+			File loc2GuideFile = new File(selectMetadataFile(loc2Guidebin, loc2Guidejson));
+			String fileName = loc2GuideFile.getName().endsWith(".bin") ? loc2Guidebin : loc2Guidejson;
+			Files.copy(loc2GuideFile.toPath(), new File(dir, fileName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
 	/**
 	 * Run this fixing module. Each module should run only once
 	 */
 	public long run() {
-		// 4 phases: (1) load two JSONs and generate the data structure
+		// 4 phases: (1) load two metadata files and generate the data structure
 		//           (2) solve SMT constraint and parse the results
 		//           (3) generate new fix guides based on constraint solving
 		//           (4) fix the translation unit according to location and fix guide information
 		
-		// STEP 1: load JSONs
-		String name2LocPath = fileNameWithoutExt + name2Locjson;
-		Map<String, FileLocation> name2Loc = loadName2LocMapping(name2LocPath);
-		String loc2GuidePath = fileNameWithoutExt + loc2Guidejson;
-		Multimap<FileLocation, FixSolution> loc2Sol = loadLoc2GuideMapping(loc2GuidePath);
+		// STEP 1: load metadata files (or convert metadata from range CPA)
+		Map<String, FileLocation> name2Loc;
+		Multimap<FileLocation, FixSolution> loc2Sol;
+		if(constraints != null) {
+			name2Loc = this.name2Loc;
+			loc2Sol = convertLoc2GuideMapping(this.loc2Guide);
+		} else {
+			String name2LocPath = selectMetadataFile(name2Locbin, name2Locjson);
+			name2Loc = loadName2LocMapping(name2LocPath);
+			String loc2GuidePath = selectMetadataFile(loc2Guidebin, loc2Guidejson);
+			loc2Sol = loadLoc2GuideMapping(loc2GuidePath);
+		}
 		
 		// STEP 2: constraint solving and parsing solving results
-		String smt2Path = fileNameWithoutExt + smt2;
 		Map<String, IntType> solveResult = new HashMap<>();
 		try {
-			solveResult = typeConstraintSolving(smt2Path);
+			if(constraints != null) {
+				solveResult = typeConstraintSolving(constraints);
+			} else {
+				String smt2Path = fileNameWithoutExt + smt2;
+				solveResult = typeConstraintSolving(smt2Path);
+			}
 		} catch(IOException ex) {
 			System.err.println("Failed to solve or parse type constraints!");
 			ex.printStackTrace();
 		}
+		typeModel = solveResult;
 		
 		// STEP3: Generate FixSolution's for specifier alternation (from constraint solving)
 		for(Entry<String, IntType> entry : solveResult.entrySet()) {
@@ -198,10 +302,11 @@ public class FixModule {
 		}
 		
 		// STEP 4: fix the translation unit
-		String newTuName = tuName.substring(0, tuName.length() - 2) + ".fixed.i";
+		String newTuName = getFixedFileName(tuName);
 		// solveResult is necessary for fixing pointer error
 		try {
 			runFix(tuName, newTuName, refinedLoc2Sol, solveResult);
+			completed = true;
 			return refinedLoc2Sol.size();
 		} catch(Exception ex) {
 			System.err.println("Failed to perform fix on translation unit!");
@@ -230,19 +335,24 @@ public class FixModule {
 		}
 		
 		// STEP 2: load the translation unit file and construct MutableASTNode for rewriting
-		FileContent content = FileContent.createForExternalFileLocation(tuName);
-		IScannerInfo scanner = new ScannerInfo();
-		IParserLogService log = new DefaultLogService();
-		IncludeFileContentProvider provider = IncludeFileContentProvider.getEmptyFilesProvider();
-		IASTTranslationUnit unit = GCCLanguage.getDefault().getASTTranslationUnit(content, scanner, provider, null, 8, log);
+		// the AST is reused if this file is not rewritten in code preprocessing
+		IASTTranslationUnit unit = TranslationUnitParser.parseFile(tuName);
+		TranslationUnitParser.release(tuName);
 		MutableASTNode mast = MutableASTNode.createMutableASTFromIASTNode(unit);
 		
 		// STEP 3: mapping the FileLocation to corresponding MutableASTNode
 		List<FileLocation> keylist = new ArrayList<>(loc2Sol.keySet());
 		Collections.sort(keylist);
-		List<FileLocation> shkeylist = new ArrayList<>(keylist);
+		MutableASTIndex astIndex = new MutableASTIndex(mast);
 		Map<FileLocation, MutableASTNode> loc2Mast = new HashMap<>();
-		createFileLocationToMutableASTNodeMapping(mast, loc2Mast, shkeylist);
+		for(FileLocation loc : keylist) {
+			MutableASTNode node = astIndex.getNode(loc);
+			if(node != null) {
+				loc2Mast.put(loc, node);
+			} else {
+				System.err.println("No AST node is found at " + loc);
+			}
+		}
 		// update type information at compile-time
 		for(Entry<FileLocation, MutableASTNode> entry : loc2Mast.entrySet()) {
 			FileLocation loc = entry.getKey();
@@ -266,18 +376,21 @@ public class FixModule {
 		mast.updateNodeType(varType, "");
 		
 		// STEP 4: perform fix by traversing loc2Sol structure
-		// now the shallow copy of keylist should be empty and keylist itself keeps untouched
+		// locations without matching AST node are skipped
+		ListMultimap<MutableASTNode, HoistedCheck> hoistedChecks = ArrayListMultimap.create();
 		for(int idx = 0; idx < keylist.size(); idx++) {
 			FileLocation loc = keylist.get(idx);		
 			MutableASTNode ast = loc2Mast.get(loc);
+			if(ast == null) {
+				continue;
+			}
 			Collection<FixSolution> sols = loc2Sol.get(loc);
 			for(FixSolution sol : sols) {
 				int fixmode = sol.getFixMode();
 				switch(fixmode) {
 				case FixSolution.SPECIFIER: {
 					// three cases: (1) declaration; (2) cast expression; (3) parameter in function definition
-					String astString = ast.synthesize();
-					if(astString.charAt(astString.length() - 1) == ';') {
+					if(ast.endsWith(';')) {
 						// this is a declaration statement
 						if(ast.getChildrenSize() < 1) {
 							throw new AssertionError("Invalid declaration AST node!");
@@ -425,6 +538,12 @@ public class FixModule {
 						} else {
 							chkName = chkName.concat("_S");
 						}
+						// a loop-invariant check is performed once before the loop
+						MutableASTNode loopNode = findHoistedLoop(sol.getHoistLocation(), ast, astIndex);
+						if(loopNode != null && ast == loc2Mast.get(loc)) {
+							hoistedChecks.put(loopNode, new HoistedCheck(chkName, ast));
+							break;
+						}
 						// insert sanity check enclosing this AST node
 						int templateSize = ast.getTemplateSize();
 						if(templateSize == 1) {
@@ -456,8 +575,7 @@ public class FixModule {
 							String firstCode = ast.getTemplateString(0);
 							String finalCode = ast.getTemplateString(ast.getTemplateSize() - 1);
 							// FIXME: check the region to be enclosed by explicit cast
-							String astString = ast.synthesize();
-							if(astString.length() == loc.getNodeLength()) {
+							if(ast.getTextLength() == loc.getNodeLength()) {
 								// we should enclose the whole AST node
 								firstCode = insertTextInSpecifiedPosition(firstCode, convStr.concat("("), 0);
 								finalCode = insertTextInSpecifiedPosition(finalCode, ")", finalCode.length());
@@ -511,19 +629,63 @@ public class FixModule {
 			System.out.println("Fixed: " + loc.toString());
 		}
 		
+		// STEP 5: insert hoisted sanity checks. The loop statement and its checks are enclosed in a block,
+		// thus they remain one statement (e.g. as the body of if-statement)
+		for(MutableASTNode loopNode : hoistedChecks.keySet()) {
+			StringBuilder checks = new StringBuilder("{ ");
+			for(HoistedCheck check : hoistedChecks.get(loopNode)) {
+				checks.append(check.chkName).append("(").append(check.expr.synthesize()).append("); ");
+			}
+			loopNode.setTemplateString(0, insertTextInSpecifiedPosition(loopNode.getTemplateString(0), checks.toString(), 0));
+			int lastIdx = loopNode.getTemplateSize() - 1;
+			String finalCode = loopNode.getTemplateString(lastIdx);
+			loopNode.setTemplateString(lastIdx, insertTextInSpecifiedPosition(finalCode, " }", finalCode.length()));
+		}
+		if(!hoistedChecks.isEmpty()) {
+			System.out.println("Hoisted " + hoistedChecks.size() + " sanity checks out of " + hoistedChecks.keySet().size() + " loops");
+		}
+		
 		// write the fixed translation unit back to the file
 		// NOTE: in order to support sanity check functions, we have to embed necessary declarations
 		//       in target .i file
 		BufferedWriter bw = new BufferedWriter(new FileWriter(newTuName));
-		String completeContent = mast.synthesize();
-		bw.write(declarations);
-		bw.write(completeContent);
+		if(checkEmission == CheckEmission.INLINE) {
+			bw.write(InlineCheckGenerator.getDefinitions());
+		} else {
+			bw.write(declarations);
+		}
+		mast.synthesize(bw);
 		bw.flush();
 		bw.close();
 		
 		System.out.println("Fix complete! Result: " + newTuName);
 	}
 	
+	/**
+	 * Find the loop statement before which the sanity check on the given expression is hoisted.
+	 * @return the loop statement, or null if the check should be performed in place
+	 */
+	private MutableASTNode findHoistedLoop(FileLocation hoistLoc, MutableASTNode expr, MutableASTIndex astIndex) {
+		if(hoistLoc == null) {
+			return null;
+		}
+		MutableASTNode loopNode = astIndex.getNode(hoistLoc);
+		if(loopNode == null) {
+			return null;
+		}
+		IASTNode wnode = loopNode.getWrappedNode();
+		if(!(wnode instanceof IASTWhileStatement || wnode instanceof IASTDoStatement || wnode instanceof IASTForStatement)) {
+			return null;
+		}
+		// the loop statement should enclose the checked expression
+		for(MutableASTNode node = expr.getParent(); node != null; node = node.getParent()) {
+			if(node == loopNode) {
+				return loopNode;
+			}
+		}
+		return null;
+	}
+	
 	private String insertTextInSpecifiedPosition(String origText, String segment, int index) {
 		if(index < 0 || index > origText.length()) {
 			throw new AssertionError("Failed to insert text in the specified position!");
@@ -614,51 +776,52 @@ public class FixModule {
 		return (target.substring(0, index).concat(target.substring(index + trimmed.length())));
 	}
 	
-	private void createFileLocationToMutableASTNodeMapping(MutableASTNode node, Map<FileLocation, MutableASTNode> loc2Mast, List<FileLocation> keylist) {
-		// if keylist is empty, then no items are to be processed any more
-		if(keylist.isEmpty()) {
-			return;
-		}
-		IASTNode currentNode = node.getWrappedNode();
-		IASTFileLocation currentLoc = currentNode.getFileLocation();
-		FileLocation procedLoc = convertFileLocation(currentLoc);
-		if(keylist.get(0).equals(procedLoc)) {
-			keylist.remove(0);
-			loc2Mast.put(procedLoc, node);
-		}
-		
-		int childrenNum = node.getChildrenSize();
-		for(int i = 0; i < childrenNum; i++) {
-			createFileLocationToMutableASTNodeMapping(node.getChild(i), loc2Mast, keylist);
-		}
-		
-		return;
-	}
-	
-	private FileLocation convertFileLocation(IASTFileLocation loc) {
-		int startLine = loc.getStartingLineNumber();
-		int endLine = loc.getEndingLineNumber();
-		int offset = loc.getNodeOffset();
-		int length = loc.getNodeLength();
-		String fileName = loc.getFileName();
-		return new FileLocation(endLine, fileName, length, offset, startLine);
-	}
-	
 	private Map<String, IntType> typeConstraintSolving(String filePath) throws IOException {
-		Map<String, IntType> solve = new HashMap<>();
 		File smt2File = new File(filePath);
 		if(!smt2File.exists()) {
 			throw new AssertionError(filePath + " is not a valid file.");
 		}
 		
-		List<String> outputStr = new ArrayList<>();
-		
 		// solve Max-SMT problem using Z3opt
 		System.out.println("Z3 starts working...");
 		
 		ProcessBuilder pb = new ProcessBuilder(z3, filePath);
 		pb.redirectErrorStream(true);
 		Process proc = pb.start();
+		return parseSolverOutput(proc);
+	}
+	
+	private Map<String, IntType> typeConstraintSolving(PersistentList<Constraint> constraints) throws IOException {
+		if(typeSolver != null) {
+			System.out.println("Solver starts working...");
+			try {
+				Map<String, IntType> solve = typeSolver.solve(constraints);
+				System.out.println("Solver finished working!");
+				return solve;
+			} catch(SolverException | InterruptedException ex) {
+				System.err.println("In-process solver failed, fall back to Z3 process.");
+				ex.printStackTrace();
+			}
+		}
+		
+		// solve Max-SMT problem using Z3opt
+		System.out.println("Z3 starts working...");
+		
+		// constraints are piped into Z3 directly, no .smt2 file is written
+		ProcessBuilder pb = new ProcessBuilder(z3, "-smt2", "-in");
+		pb.redirectErrorStream(true);
+		Process proc = pb.start();
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(proc.getOutputStream()));
+		ConstraintGenerator smtGen = new ConstraintGenerator();
+		smtGen.writeConstraints(constraints, bw);
+		bw.close();
+		return parseSolverOutput(proc);
+	}
+	
+	private Map<String, IntType> parseSolverOutput(Process proc) throws IOException {
+		Map<String, IntType> solve = new HashMap<>();
+		List<String> outputStr = new ArrayList<>();
+		
 		InputStreamReader isr = new InputStreamReader(proc.getInputStream());
 		BufferedReader br = new BufferedReader(isr);
 		String readLine = "";
@@ -764,6 +927,26 @@ public class FixModule {
 		return solve;
 	}
 	
+	private Multimap<FileLocation, FixSolution> convertLoc2GuideMapping(Map<FileLocation, FixGuide> loc2Guide) {
+		Multimap<FileLocation, FixSolution> loc2Sol = ArrayListMultimap.create();
+		for(Entry<FileLocation, FixGuide> entry : loc2Guide.entrySet()) {
+			loc2Sol.put(entry.getKey(), FixSolution.fromFixGuide(entry.getValue()));
+		}
+		return loc2Sol;
+	}
+	
+	/**
+	 * Pick the metadata file in binary or JSON. If both exist, the newer one is written by the last analysis.
+	 */
+	private String selectMetadataFile(String binName, String jsonName) {
+		File binFile = new File(fileNameWithoutExt + binName);
+		File jsonFile = new File(fileNameWithoutExt + jsonName);
+		if(binFile.exists() && (!jsonFile.exists() || binFile.lastModified() >= jsonFile.lastModified())) {
+			return binFile.getPath();
+		}
+		return jsonFile.getPath();
+	}
+	
 	private Multimap<FileLocation, FixSolution> loadLoc2GuideMapping(String filePath) {
 		Multimap<FileLocation, FixSolution> loc2Sol = ArrayListMultimap.create();
 		File loc2GuideFile = new File(filePath);
@@ -771,6 +954,22 @@ public class FixModule {
 			throw new AssertionError(filePath + " is not a valid file.");
 		}
 		
+		if(BinaryMetadataReader.isBinaryMetadata(loc2GuideFile.toPath())) {
+			try {
+				BinaryMetadataReader.readLoc2Guide(loc2GuideFile.toPath(), (loc, isIntVar, needSanityCheck, btOfGuide, refLevel, tgOfGuide, hoistLoc) -> {
+					int methodLevel = needSanityCheck ? FixSolution.SANITYCHK : FixSolution.CONVERSION;
+					String target = tgOfGuide == null ? LocGuideGenerator.nullstr : tgOfGuide;
+					FixSolution sol = new FixSolution(isIntVar, !isIntVar, methodLevel, btOfGuide, target, refLevel);
+					sol.setHoistLocation(hoistLoc);
+					loc2Sol.put(loc, sol);
+				});
+			} catch(IOException ex) {
+				System.err.println("Error in loading binary metadata.");
+				ex.printStackTrace();
+			}
+			return loc2Sol;
+		}
+		
 		List<String> contents = new ArrayList<>();
 		try {
 			BufferedReader br = new BufferedReader(new FileReader(filePath));
@@ -812,6 +1011,9 @@ public class FixModule {
 			assert (intFlag ^ ptrFlag);
 			int methodLevel = methodOfGuide.equals("check") ? FixSolution.SANITYCHK : FixSolution.CONVERSION;
 			FixSolution sol = new FixSolution(intFlag, ptrFlag, methodLevel, btOfGuide, tgOfGuide, refLevel);
+			if(obj.has(hos)) {
+				sol.setHoistLocation(new FileLocation(obj.getInt(hel), obj.getString(hfn), obj.getInt(hlen), obj.getInt(hos), obj.getInt(hsl)));
+			}
 			loc2Sol.put(loc, sol);
 		}
 		
@@ -825,6 +1027,16 @@ public class FixModule {
 			throw new AssertionError(filePath + " is not a valid file.");
 		}
 		
+		if(BinaryMetadataReader.isBinaryMetadata(name2LocFile.toPath())) {
+			try {
+				BinaryMetadataReader.readName2Loc(name2LocFile.toPath(), name2Loc::put);
+			} catch(IOException ex) {
+				System.err.println("Error in loading binary metadata.");
+				ex.printStackTrace();
+			}
+			return name2Loc;
+		}
+		
 		List<String> contents = new ArrayList<>();
 		try {
 			BufferedReader br = new BufferedReader(new FileReader(filePath));
@@ -858,4 +1070,17 @@ public class FixModule {
 		return name2Loc;
 	}
 	
+	/**
+	 * Sanity check to be inserted before a loop statement
+	 */
+	private static class HoistedCheck {
+		private final String chkName;
+		private final MutableASTNode expr;
+		
+		HoistedCheck(String chkName, MutableASTNode expr) {
+			this.chkName = chkName;
+			this.expr = expr;
+		}
+	}
+	
 }
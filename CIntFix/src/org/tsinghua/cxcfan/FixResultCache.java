@@ -0,0 +1,169 @@
+package org.tsinghua.cxcfan;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sosy_lab.cpachecker.cpa.range.IntType;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+public class FixResultCache {
+
+	// FixResultCache keeps fixing results of translation units on disk across runs.
+	// An entry is keyed by the digest of translation unit content, analysis
+	// configuration and tool version, thus an unchanged translation unit is not
+	// processed again. Each entry holds the fixed output, the solved type model and
+	// loc2guide. Solutions of type constraints are saved in the same folder, thus a
+	// changed translation unit reuses the solutions of its unchanged components.
+
+	/**
+	 * Version of fixing results. It should be updated when the same input is fixed differently.
+	 */
+	private static final String toolVersion = "argyi-1";
+
+	private static final String fixedFile = "fixed.i";
+	private static final String modelFile = "model.txt";
+	private static final String summaryFile = "summary.txt";
+	private static final String solutionsFile = "solutions.txt";
+	private static final String tempSuffix = ".tmp";
+
+	private final File cacheDir;
+	/**
+	 * Digest of tool version and configuration, shared by all keys
+	 */
+	private final String configDigest;
+
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * @param cacheDir the folder of cache entries, which is created if it does not exist
+	 * @param configFile the configuration file of range analysis, or null if it is not available
+	 * @param settings other settings that change fixing results
+	 */
+	public FixResultCache(String cacheDir, String configFile, String... settings) throws IOException {
+		this.cacheDir = new File(cacheDir);
+		if(!this.cacheDir.isDirectory() && !this.cacheDir.mkdirs()) {
+			throw new IOException("Failed to create cache folder " + cacheDir);
+		}
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(toolVersion, StandardCharsets.UTF_8).putChar('\n');
+		if(configFile != null) {
+			hasher.putBytes(Files.readAllBytes(new File(configFile).toPath())).putChar('\n');
+		}
+		for(String setting : settings) {
+			hasher.putString(setting, StandardCharsets.UTF_8).putChar('\n');
+		}
+		this.configDigest = hasher.hash().toString();
+	}
+
+	/**
+	 * Compute the key of current content of the specified translation unit
+	 */
+	public String computeKey(String tuName) throws IOException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(configDigest, StandardCharsets.UTF_8);
+		hasher.putBytes(Files.readAllBytes(new File(tuName).toPath()));
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Restore the fixed output of a translation unit from cache.
+	 * @return the number of fixes, or -1 if there is no such entry
+	 */
+	public long restore(String key, String tuName) {
+		File entryDir = new File(cacheDir, key);
+		File summary = new File(entryDir, summaryFile);
+		if(!summary.exists()) {
+			misses.incrementAndGet();
+			return -1;
+		}
+		try(BufferedReader br = new BufferedReader(new FileReader(summary))) {
+			long fixNum = Long.parseLong(br.readLine().trim());
+			Files.copy(new File(entryDir, fixedFile).toPath(), new File(FixModule.getFixedFileName(tuName)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			hits.incrementAndGet();
+			return fixNum;
+		} catch(IOException | NullPointerException | NumberFormatException ex) {
+			System.err.println("Broken cache entry " + key + ": " + ex);
+			misses.incrementAndGet();
+			return -1;
+		}
+	}
+
+	/**
+	 * Store the result of a fixed translation unit. An existing entry with the same key is kept.
+	 */
+	public void store(String key, String tuName, FixModule fixmod, long fixNum) {
+		File entryDir = new File(cacheDir, key);
+		if(entryDir.exists()) {
+			return;
+		}
+		// the entry is written in a temporary folder and then renamed, thus a partial entry is never visible
+		File tempDir = new File(cacheDir, key + tempSuffix + Thread.currentThread().getId());
+		try {
+			if(!tempDir.isDirectory() && !tempDir.mkdirs()) {
+				throw new IOException("Failed to create " + tempDir);
+			}
+			Files.copy(new File(FixModule.getFixedFileName(tuName)).toPath(), new File(tempDir, fixedFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			fixmod.exportLoc2Guide(tempDir);
+			try(BufferedWriter bw = new BufferedWriter(new FileWriter(new File(tempDir, modelFile)))) {
+				// sorted for comparing models of different runs
+				for(Map.Entry<String, IntType> entry : new TreeMap<>(fixmod.getTypeModel()).entrySet()) {
+					bw.write(entry.getKey() + "=" + entry.getValue().toOBJString());
+					bw.newLine();
+				}
+			}
+			try(BufferedWriter bw = new BufferedWriter(new FileWriter(new File(tempDir, summaryFile)))) {
+				bw.write(String.valueOf(fixNum));
+				bw.newLine();
+				bw.write(tuName);
+				bw.newLine();
+			}
+			if(!tempDir.renameTo(entryDir)) {
+				// another worker has stored the same entry
+				deleteFolder(tempDir);
+			}
+		} catch(IOException ex) {
+			System.err.println("Failed to store cache entry of " + tuName + ": " + ex);
+			deleteFolder(tempDir);
+		}
+	}
+
+	/**
+	 * The file of solutions of type constraints, shared by all translation units
+	 */
+	public Path getSolutionsFile() {
+		return new File(cacheDir, solutionsFile).toPath();
+	}
+
+	public int getHits() {
+		return hits.get();
+	}
+
+	public int getMisses() {
+		return misses.get();
+	}
+
+	private void deleteFolder(File dir) {
+		File[] files = dir.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.tsinghua.cxcfan;
 
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+import org.sosy_lab.cpachecker.cpa.range.FixGuide;
 import org.sosy_lab.cpachecker.cpa.range.IntType;
 
 public class FixSolution {
@@ -15,6 +17,8 @@ public class FixSolution {
 	// these fields are valid only if ptrFlag is set 
 	private String target;
 	private int refLevel;
+	// valid only for SANITYCHK: the check is hoisted before the loop statement at this location
+	private FileLocation hoistLocation;
 	
 	public static final int SPECIFIER = 1;
 	public static final int SANITYCHK = 2;
@@ -50,6 +54,22 @@ public class FixSolution {
 		this.refLevel = -1;
 	}
 	
+	/**
+	 * Create a fix solution from the fix guide yielded by range CPA.
+	 * It is consistent with the solution loaded from loc2guide.json.
+	 */
+	public static FixSolution fromFixGuide(FixGuide guide) {
+		boolean intFlag = guide.isIntVar();
+		int fixmode = guide.needSanityCheck() ? SANITYCHK : CONVERSION;
+		String target = guide.getTarget();
+		if(target == null) {
+			target = nullstr;
+		}
+		FixSolution sol = new FixSolution(intFlag, !intFlag, fixmode, guide.getBaseType(), target, guide.getRefLevel());
+		sol.setHoistLocation(guide.getHoistLocation());
+		return sol;
+	}
+	
 	private int checkValidMode(int mode) {
 		if(mode != SPECIFIER && mode != SANITYCHK && mode != CONVERSION) {
 			throw new AssertionError("Invalid fix mode!");
@@ -84,6 +104,14 @@ public class FixSolution {
 		return this.target;
 	}
 	
+	public FileLocation getHoistLocation() {
+		return this.hoistLocation;
+	}
+	
+	public void setHoistLocation(FileLocation loc) {
+		this.hoistLocation = loc;
+	}
+	
 	public void setBaseType(IntType type) {
 		this.baseType = type;
 	}
@@ -0,0 +1,111 @@
+package org.tsinghua.cxcfan;
+
+import org.sosy_lab.cpachecker.cpa.range.IntType;
+
+public class InlineCheckGenerator {
+
+	// InlineCheckGenerator generates the sanity check functions as static inline
+	// definitions, which are embedded in the fixed translation unit instead of the
+	// extern declarations of libargyi. Checks are specialised for each target type
+	// by GCC overflow builtins, thus the compiler can fold a check whose operand
+	// is known to fit in the target type. Only the failure path calls into
+	// libargyi (__INTCHECK_ERROR), thus the fixed program is still linked with it.
+	// The accepted values are the same as the ones of libargyi.
+
+	private static final String checkPrefix = "__INTCHECK_";
+	private static final String lshiftFuncName = "__INTLEFTSHIFT";
+	private static final String rshiftFuncName = "__INTRIGHTSHIFT";
+
+	private static final String signedArg = "long long signed int";
+	private static final String unsignedArg = "long long unsigned int";
+	private static final String inlinePrefix = "static inline __attribute__((always_inline)) ";
+
+	/**
+	 * Target types of sanity checks, in the format of OBJ string
+	 */
+	private static final String[] targetTypes = { "INT", "UINT", "SHORT", "USHORT", "CHAR", "UCHAR", "LINT", "ULINT", "LLINT", "ULLINT", "INDEX" };
+
+	private static String definitions = null;
+
+	/**
+	 * The code to be embedded at the beginning of fixed translation unit
+	 */
+	public static synchronized String getDefinitions() {
+		if(definitions == null) {
+			definitions = generate();
+		}
+		return definitions;
+	}
+
+	private static String generate() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("typedef unsigned long size_t;\n");
+		sb.append("extern void __INTCHECK_ERROR(const char *) __attribute__((noreturn, cold));\n");
+		for(String typeName : targetTypes) {
+			IntType type = IntType.fromOBJString(typeName);
+			generateCheck(sb, typeName, type, true);
+			generateCheck(sb, typeName, type, false);
+		}
+		// bit-shift operations are performed in the longest integer type, the same as libargyi
+		sb.append(inlinePrefix).append(unsignedArg).append(" ").append(lshiftFuncName).append("(").append(unsignedArg).append(" op1, ").append(unsignedArg).append(" op2) { ");
+		sb.append("if(op1 == 0) return 0; ");
+		// the number of leading zeros is exactly the number of bits allowed to shift
+		sb.append("if(__builtin_expect(op2 > (").append(unsignedArg).append(")__builtin_clzll(op1), 0)) ");
+		appendError(sb, lshiftFuncName);
+		sb.append("return op1 << op2; }\n");
+		// bits shifted beyond the bit length of op1 are zeros, thus only the width of type matters
+		sb.append(inlinePrefix).append(unsignedArg).append(" ").append(rshiftFuncName).append("(").append(unsignedArg).append(" op1, ").append(unsignedArg).append(" op2) { ");
+		sb.append("return op2 < ").append(IntType.getLongestIntSize() * 8).append(" ? op1 >> op2 : 0; }\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Generate the check function converting a value of the longest integer type with the specified signedness
+	 * to the target type.
+	 */
+	private static void generateCheck(StringBuilder sb, String typeName, IntType type, boolean argSign) {
+		String funcName = checkPrefix + typeName + (argSign ? "_S" : "_U");
+		String retType = getSpecifier(type);
+		int longestSize = IntType.getLongestIntSize();
+		sb.append(inlinePrefix).append(retType).append(" ").append(funcName).append("(").append(argSign ? signedArg : unsignedArg).append(" x) { ");
+		if(type.getSize() == longestSize && type.getSign() == argSign) {
+			// every value is representable
+			sb.append("return (").append(retType).append(")x; }\n");
+			return;
+		}
+		String operand = "x";
+		if(!argSign && type.getSign() && type.getSize() < longestSize) {
+			// libargyi accepts an unsigned value if it converts back to itself, that is, a negative value of
+			// the narrower signed type computed in unsigned arithmetic
+			operand = "(" + signedArg + ")x";
+		}
+		sb.append(retType).append(" y; ");
+		sb.append("if(__builtin_expect(__builtin_add_overflow(").append(operand).append(", 0, &y), 0)) ");
+		appendError(sb, funcName);
+		sb.append("return y; }\n");
+	}
+
+	private static void appendError(StringBuilder sb, String funcName) {
+		sb.append("__INTCHECK_ERROR(\"Error!(Failed in: ").append(funcName).append(")\\n\"); ");
+	}
+
+	private static String getSpecifier(IntType type) {
+		if(type.equals(IntType.INDEX_TYPE)) {
+			return "size_t";
+		}
+		String specifier = type.toString();
+		// the signedness of char is platform-dependent
+		if(specifier.equals("char")) {
+			return "signed char";
+		}
+		return specifier;
+	}
+
+	/**
+	 * Print the inline check functions, which can be included by native code for benchmarking.
+	 */
+	public static void main(String[] args) {
+		System.out.print(getDefinitions());
+	}
+
+}
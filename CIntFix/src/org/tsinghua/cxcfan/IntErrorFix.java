@@ -1,6 +1,13 @@
 package org.tsinghua.cxcfan;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sosy_lab.cpachecker.cpa.range.TypeConstraintSolver;
 
 public class IntErrorFix {
 	
@@ -21,20 +28,73 @@ public class IntErrorFix {
 	 */
 	private static String tuDir = "path/to/cil/files/to/be/analyzed";
 	
+	/**
+	 * If it is set, CPAchecker is created once and runs in the current JVM for all translation units.
+	 * Otherwise, we start a fresh CPAchecker process for each translation unit.
+	 */
+	private static boolean residentAnalysis = true;
+	/**
+	 * This is the configuration file for range analysis, used in resident mode only.
+	 * TODO: Please specify a valid path!
+	 */
+	private static String rangeAnalysisConfig = "path/to/cpachecker/config/rangeAnalysis.properties";
+	
 	private static String sh = "bash";
+	/**
+	 * Heap size (MB) of CPAchecker process, used in process mode only.
+	 */
 	private static int heapSize = 4000;
 	
+	/**
+	 * If it is set, type constraints are solved by an in-process solver shared by all translation units.
+	 * Otherwise, we start a Z3 process for each translation unit. Used in resident mode only.
+	 */
+	private static boolean inProcessSolver = true;
+	
+	/**
+	 * Number of translation units processed in parallel.
+	 */
+	private static int workers = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Wall time limit (ms) for each translation unit, 0 for no limit.
+	 */
+	private static long timeLimit = 0;
+	/**
+	 * Limit of used heap (MB) during the analysis, used in resident mode only. 0 for no limit.
+	 */
+	private static long heapLimit = 0;
+	
+	/**
+	 * If it is set, sanity checks are embedded in fixed translation units as static inline functions, which are
+	 * cheaper than calls to libargyi. Fixed programs should be linked with libargyi in both cases.
+	 */
+	private static boolean inlineChecks = false;
+	
+	/**
+	 * The folder of result cache. If it is set, a translation unit is not processed again if neither its content
+	 * nor the configuration changes since a previous run, and solutions of type constraints are reused across
+	 * runs. Set it to null to disable caching.
+	 */
+	private static String cacheDir = null;
+	
+	/**
+	 * If it is set, foo.hp.c is generated for the source file foo.c of each foo.cil.i, where only integer variables
+	 * whose ranges exceed their types are lifted to __int128 or GMP integer. Used in resident mode only.
+	 */
+	private static boolean precisionImprovement = false;
+	
+	/**
+	 * The configuration file used by CPAchecker process, which is config/rangeAnalysis.properties under the
+	 * CPAchecker folder, the parent of the folder of the script.
+	 */
+	private static String getProcessAnalysisConfig() {
+		File scriptDir = new File(cpacheckerLocation).getAbsoluteFile().getParentFile();
+		File cpacheckerDir = scriptDir == null ? null : scriptDir.getParentFile();
+		return new File(new File(cpacheckerDir, "config"), "rangeAnalysis.properties").getPath();
+	}
+	
 	public static void main(String[] args) {
 		
-		long preprocessTime = 0;
-		long cpaTime = 0;
-		long fixTime = 0;
-		
-		long startTime = 0, endTime = 0;
-		
-		long fixNum = 0;
-		
-		// TODO: in order to process multiple files in a batch, we can traverse all files ending with ".cil.i" and process them.
 		File workDir = new File(tuDir);
 		if(!workDir.exists()) {
 			System.err.println("Failed to locate the target folder.");
@@ -45,51 +105,107 @@ public class IntErrorFix {
 			if(file.isDirectory()) return false;
 			return file.getName().endsWith(".cil.i");
 		});
+		List<String> tuNames = new ArrayList<>();
 		for(File tu : files) {
-			String tuName = tu.getAbsolutePath();
-			System.out.println("Processing: " + tuName);
-			
-			// STEP 1: eliminate all compound assignment and self-increment/decrement operations
-			startTime = System.currentTimeMillis();
-			CPPFactory factory = new CPPFactory(tuName);
-			factory.process();
-			endTime = System.currentTimeMillis();
-			preprocessTime += (endTime - startTime);
-			System.out.println("Phase 1 (code preprocessing): completed!");
-			
-			// STEP 2: perform static analysis using CPAchecker
-			startTime = System.currentTimeMillis();
+			tuNames.add(tu.getAbsolutePath());
+		}
+		// process translation units in a deterministic order
+		Collections.sort(tuNames);
+		
+		BatchFixDriver driver;
+		TypeConstraintSolver typeSolver = null;
+		if(residentAnalysis) {
+			RangeAnalysisRunner runner = null;
 			try {
-				ProcessBuilder pb = new ProcessBuilder(sh, cpacheckerLocation, "-rangeAnalysis", tuName, "-heap", String.valueOf(heapSize).concat("M"));
-				pb.redirectErrorStream(true);
-				Process proc = pb.start();
-				if(proc != null) {
-					proc.waitFor();
-					proc.destroy();
-				}
+				runner = new RangeAnalysisRunner(rangeAnalysisConfig);
 			} catch(Exception ex) {
-				System.err.println("CPAchecker is not executed normally!");
+				System.err.println("Failed to initialize CPAchecker!");
+				ex.printStackTrace();
+				System.exit(1);
+			}
+			if(inProcessSolver) {
+				try {
+					typeSolver = runner.createTypeConstraintSolver();
+				} catch(Exception | UnsatisfiedLinkError ex) {
+					System.err.println("Failed to initialize in-process solver, Z3 process is used instead.");
+					ex.printStackTrace();
+				}
+			}
+			driver = new BatchFixDriver(runner, typeSolver, workers, timeLimit, heapLimit);
+		} else {
+			driver = new BatchFixDriver(sh, cpacheckerLocation, fileNameWithoutExt, workers, timeLimit, heapSize);
+		}
+		if(inlineChecks) {
+			driver.setCheckEmission(FixModule.CheckEmission.INLINE);
+		}
+		driver.setPrecisionImprovement(residentAnalysis && precisionImprovement);
+		FixResultCache resultCache = null;
+		if(cacheDir != null) {
+			try {
+				if(residentAnalysis) {
+					resultCache = new FixResultCache(cacheDir, rangeAnalysisConfig, "resident", "checks=" + inlineChecks, "solver=" + (typeSolver != null), "precision=" + precisionImprovement);
+				} else {
+					resultCache = new FixResultCache(cacheDir, getProcessAnalysisConfig(), "process", cpacheckerLocation, "checks=" + inlineChecks);
+				}
+				driver.setResultCache(resultCache);
+			} catch(IOException ex) {
+				System.err.println("Failed to initialize result cache, all translation units are processed.");
 				ex.printStackTrace();
 			}
-			endTime = System.currentTimeMillis();
-			cpaTime += (endTime - startTime);
-			System.out.println("Phase 2 (static analysis): completed!");
-			
-			// STEP 3: fix the original program
-			startTime = System.currentTimeMillis();
-			FixModule fixmod = new FixModule(tuName, fileNameWithoutExt);
-			// run this fix module here
-			fixNum = fixNum + fixmod.run();
-			endTime = System.currentTimeMillis();
-			fixTime += (endTime - startTime);
-			System.out.println("Phase 3 (code fixing): completed!");
 		}
-		System.out.println("Complete fixing " + files.length + " files!");
-		System.out.println("Total elapsed time: " + String.valueOf(preprocessTime + cpaTime + fixTime) + "ms.");
+		if(resultCache != null && typeSolver != null && Files.exists(resultCache.getSolutionsFile())) {
+			try {
+				typeSolver.loadSolutions(resultCache.getSolutionsFile());
+			} catch(IOException ex) {
+				System.err.println("Failed to load cached solutions of type constraints.");
+				ex.printStackTrace();
+			}
+		}
+		
+		long startTime = System.currentTimeMillis();
+		List<BatchFixDriver.TranslationUnitResult> results = driver.run(tuNames);
+		long endTime = System.currentTimeMillis();
+		if(resultCache != null && typeSolver != null) {
+			try {
+				typeSolver.saveSolutions(resultCache.getSolutionsFile());
+			} catch(IOException ex) {
+				System.err.println("Failed to save solutions of type constraints.");
+				ex.printStackTrace();
+			}
+		}
+		driver.close();
+		
+		long preprocessTime = 0;
+		long cpaTime = 0;
+		long fixTime = 0;
+		long fixNum = 0;
+		int fixed = 0, timeout = 0, failed = 0;
+		for(BatchFixDriver.TranslationUnitResult result : results) {
+			preprocessTime += result.getPreprocessTime();
+			cpaTime += result.getCpaTime();
+			fixTime += result.getFixTime();
+			fixNum += result.getFixNum();
+			switch(result.getStatus()) {
+			case FIXED:
+				fixed++;
+				break;
+			case TIMEOUT:
+				timeout++;
+				break;
+			default:
+				failed++;
+			}
+		}
+		System.out.println("Complete fixing " + fixed + " files! (" + timeout + " timeout, " + failed + " failed)");
+		System.out.println("Total elapsed time: " + String.valueOf(endTime - startTime) + "ms (" + workers + " workers).");
+		// phase time is summed over all workers
 		System.out.println("    Preprocess: " + String.valueOf(preprocessTime) + " ms;");
 		System.out.println("    CPAchecker: " + String.valueOf(cpaTime) + " ms;");
 		System.out.println("        Fixing: " + String.valueOf(fixTime) + " ms.");
 		System.out.println("Total fix performed: " + fixNum);
+		if(resultCache != null) {
+			System.out.println("Result cache: " + resultCache.getHits() + " hits, " + resultCache.getMisses() + " misses.");
+		}
 	}
 	
 }
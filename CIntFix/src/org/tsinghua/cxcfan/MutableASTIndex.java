@@ -0,0 +1,208 @@
+package org.tsinghua.cxcfan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+
+public class MutableASTIndex {
+
+	// MutableASTIndex indexes the nodes of a mutable AST by their offset intervals.
+	// Intervals of AST nodes are either nested or disjoint, thus nodes sorted by
+	// (offset ascending, length descending) have their ancestors in front of them.
+	// Each node also keeps the index of its nearest enclosing node, thus the
+	// enclosing nodes of a location can be found by walking up from a binary search
+	// result.
+
+	private final String fileName;
+	private final int[] offsets;
+	private final int[] lengths;
+	private final int[] parents;
+	private final MutableASTNode[] nodes;
+	
+	private static class Entry {
+		
+		private final int offset;
+		private final int length;
+		private final int depth;
+		private final MutableASTNode node;
+		
+		private Entry(int offset, int length, int depth, MutableASTNode node) {
+			this.offset = offset;
+			this.length = length;
+			this.depth = depth;
+			this.node = node;
+		}
+	}
+	
+	public MutableASTIndex(MutableASTNode root) {
+		List<Entry> entries = new ArrayList<>();
+		collect(root, 0, entries);
+		// outer nodes are in front of inner nodes with the same interval
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				if(e1.offset != e2.offset) {
+					return Integer.compare(e1.offset, e2.offset);
+				}
+				if(e1.length != e2.length) {
+					return Integer.compare(e2.length, e1.length);
+				}
+				return Integer.compare(e1.depth, e2.depth);
+			}
+		});
+		int size = entries.size();
+		offsets = new int[size];
+		lengths = new int[size];
+		parents = new int[size];
+		nodes = new MutableASTNode[size];
+		// the stack keeps the chain of enclosing nodes of the current node
+		int[] stack = new int[size];
+		int top = -1;
+		for(int i = 0; i < size; i++) {
+			Entry entry = entries.get(i);
+			offsets[i] = entry.offset;
+			lengths[i] = entry.length;
+			nodes[i] = entry.node;
+			while(top >= 0 && !encloses(stack[top], entry.offset, entry.length)) {
+				top--;
+			}
+			parents[i] = top >= 0 ? stack[top] : -1;
+			stack[++top] = i;
+		}
+		IASTFileLocation rootLoc = root.getWrappedNode().getFileLocation();
+		fileName = rootLoc != null ? rootLoc.getFileName() : null;
+	}
+	
+	private static void collect(MutableASTNode node, int depth, List<Entry> entries) {
+		IASTFileLocation loc = node.getWrappedNode().getFileLocation();
+		if(loc != null) {
+			entries.add(new Entry(loc.getNodeOffset(), loc.getNodeLength(), depth, node));
+		}
+		int childrenNum = node.getChildrenSize();
+		for(int i = 0; i < childrenNum; i++) {
+			collect(node.getChild(i), depth + 1, entries);
+		}
+	}
+	
+	private boolean encloses(int index, int offset, int length) {
+		return offsets[index] <= offset && offset + length <= offsets[index] + lengths[index];
+	}
+	
+	/**
+	 * @return the index of the last node in front of or at the specified interval in order, -1 if no such node
+	 */
+	private int floor(int offset, int length) {
+		int low = 0, high = offsets.length - 1;
+		int result = -1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(offsets[mid] < offset || (offsets[mid] == offset && lengths[mid] >= length)) {
+				result = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the index of the first node starting at or after the specified offset
+	 */
+	private int ceiling(int offset) {
+		int low = 0, high = offsets.length;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(offsets[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private boolean isSameFile(FileLocation loc) {
+		return fileName == null || fileName.equals(loc.getFileName());
+	}
+	
+	/**
+	 * Find the outermost node exactly at the specified location.
+	 * @return the node, or null if no node has this location
+	 */
+	public MutableASTNode getNode(FileLocation loc) {
+		if(!isSameFile(loc)) {
+			return null;
+		}
+		return getNode(loc.getNodeOffset(), loc.getNodeLength());
+	}
+	
+	public MutableASTNode getNode(int offset, int length) {
+		int index = ceiling(offset);
+		if(index < offsets.length && offsets[index] == offset) {
+			// nodes of the same offset are sorted by length descendingly
+			int low = index, high = ceiling(offset + 1) - 1;
+			while(low <= high) {
+				int mid = (low + high) >>> 1;
+				if(lengths[mid] > length) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			if(low < offsets.length && offsets[low] == offset && lengths[low] == length) {
+				return nodes[low];
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Find the innermost node enclosing the specified location.
+	 * @return the node, or null if no node encloses this location
+	 */
+	public MutableASTNode getEnclosingNode(FileLocation loc) {
+		if(!isSameFile(loc)) {
+			return null;
+		}
+		return getEnclosingNode(loc.getNodeOffset(), loc.getNodeLength());
+	}
+	
+	public MutableASTNode getEnclosingNode(int offset, int length) {
+		int index = floor(offset, length);
+		// the innermost enclosing node is the node found by binary search or one of its ancestors
+		while(index >= 0 && !encloses(index, offset, length)) {
+			index = parents[index];
+		}
+		return index >= 0 ? nodes[index] : null;
+	}
+	
+	/**
+	 * Find all the nodes within the specified location in pre-order.
+	 */
+	public List<MutableASTNode> getNodesWithin(FileLocation loc) {
+		if(!isSameFile(loc)) {
+			return Collections.emptyList();
+		}
+		return getNodesWithin(loc.getNodeOffset(), loc.getNodeLength());
+	}
+	
+	public List<MutableASTNode> getNodesWithin(int offset, int length) {
+		List<MutableASTNode> result = new ArrayList<>();
+		int end = offset + length;
+		for(int i = ceiling(offset); i < offsets.length && offsets[i] < end; i++) {
+			if(offsets[i] + lengths[i] <= end) {
+				result.add(nodes[i]);
+			}
+		}
+		return result;
+	}
+	
+	public int size() {
+		return nodes.length;
+	}
+}
@@ -1,5 +1,6 @@
 package org.tsinghua.cxcfan;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,11 @@ public class MutableASTNode {
 	private IntType nodeType;
 	private boolean typeLock;
 	
+	// length and the last character of synthesized text, which are cached until the text of this node or
+	// any of its descendants changes. A negative length denotes the invalid cache.
+	private int textLength;
+	private char lastChar;
+	
 	public MutableASTNode(IASTNode node) {
 		this.astNode = node;
 		this.parent = null;
@@ -39,10 +45,13 @@ public class MutableASTNode {
 		
 		this.nodeType = IntType.UNKNOWN;
 		this.typeLock = false;
+		
+		this.textLength = -1;
 	}
 	
 	public void makeLeafNode() {
 		template.add(astNode.getRawSignature());
+		invalidateText();
 	}
 	
 	public void addChild(MutableASTNode[] nodes) {
@@ -71,6 +80,7 @@ public class MutableASTNode {
 		template.add(rawString.substring(startPos, endPos));
 		// post-condition check
 		assert (template.size() == children.size() + 1) : "inconsistent node!";
+		invalidateText();
 	}
 	
 	public MutableASTNode getParent() {
@@ -97,6 +107,7 @@ public class MutableASTNode {
 			throw new AssertionError("Invalid visiting index!");
 		}
 		template.set(index, content);
+		invalidateText();
 	}
 	
 	public IntType getNodeType() {
@@ -115,11 +126,77 @@ public class MutableASTNode {
 	}
 	
 	public String synthesize() {
-		String result = template.get(0);
+		StringBuilder sb = new StringBuilder(getTextLength());
+		try {
+			synthesize(sb);
+		} catch(IOException ex) {
+			// StringBuilder never throws IOException
+			throw new AssertionError(ex);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Write the code text of this node to the output directly, without building intermediate strings
+	 */
+	public void synthesize(Appendable out) throws IOException {
+		out.append(template.get(0));
 		for(int i = 1; i <= children.size(); i++) {
-			result = result.concat(children.get(i - 1).synthesize()).concat(template.get(i));
+			children.get(i - 1).synthesize(out);
+			out.append(template.get(i));
+		}
+	}
+	
+	/**
+	 * @return the length of synthesized code text
+	 */
+	public int getTextLength() {
+		updateTextCache();
+		return textLength;
+	}
+	
+	/**
+	 * Check whether the synthesized code text ends with the specified character
+	 */
+	public boolean endsWith(char c) {
+		updateTextCache();
+		return textLength > 0 && lastChar == c;
+	}
+	
+	private void updateTextCache() {
+		if(textLength >= 0) {
+			return;
+		}
+		int length = template.get(0).length();
+		for(int i = 1; i <= children.size(); i++) {
+			MutableASTNode child = children.get(i - 1);
+			child.updateTextCache();
+			length += child.textLength + template.get(i).length();
+		}
+		// the last character comes from the last non-empty segment
+		char last = 0;
+		for(int i = template.size() - 1; i >= 0; i--) {
+			String segment = template.get(i);
+			if(!segment.isEmpty()) {
+				last = segment.charAt(segment.length() - 1);
+				break;
+			}
+			if(i > 0 && children.get(i - 1).textLength > 0) {
+				last = children.get(i - 1).lastChar;
+				break;
+			}
+		}
+		lastChar = last;
+		textLength = length;
+	}
+	
+	private void invalidateText() {
+		// if a node is invalid, so are its ancestors
+		MutableASTNode node = this;
+		while(node != null && node.textLength >= 0) {
+			node.textLength = -1;
+			node = node.parent;
 		}
-		return result;
 	}
 	
 	public IASTNode getWrappedNode() {
@@ -18,6 +18,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
 
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTASMDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTArrayDeclarator;
 import org.eclipse.cdt.core.dom.ast.IASTArraySubscriptExpression;
@@ -69,6 +70,7 @@ import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTTypeId;
 import org.eclipse.cdt.core.dom.ast.IASTUnaryExpression;
 import org.eclipse.cdt.core.dom.ast.IASTWhileStatement;
+import org.eclipse.cdt.core.dom.ast.IArrayType;
 import org.eclipse.cdt.core.dom.ast.IBasicType;
 import org.eclipse.cdt.core.dom.ast.IBasicType.Kind;
 import org.eclipse.cdt.core.dom.ast.IEnumeration;
@@ -93,6 +95,8 @@ import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
 import org.eclipse.cdt.internal.core.parser.scanner.Token;
 import org.eclipse.core.runtime.CoreException;
 import org.sosy_lab.common.Pair;
+import org.sosy_lab.cpachecker.cpa.range.CompInteger;
+import org.sosy_lab.cpachecker.cpa.range.Range;
 
 import com.google.common.collect.Lists;
 
@@ -164,6 +168,19 @@ public class PrecisionImprovementFactory {
 	// return: an integer (int) corresponds to the number of branch
 	private static String calc_branch = "__CALC_BRANCH_HASH(%s)";
 	
+	// conversion between GMP integer and __int128, which are defined in the output file (see int128Helpers).
+	// The check accepts -2^127, whose magnitude has 128 bits, and negates in unsigned arithmetic to avoid overflow
+	private static String set_gmp_int128 = "__SET_GMP_INT128(%s, %s)";
+	private static String check_gmp_int128 = "__CHECK_GMP_INT128(%s)";
+	private static String int128Spec = "__int128";
+	private static String int128Helpers = "static inline void __SET_GMP_INT128(mpz_t r, __int128 v) { unsigned __int128 m = v < 0 ? -(unsigned __int128)v : (unsigned __int128)v; "
+			+ "mpz_set_ui(r, (unsigned long)(m >> 64)); mpz_mul_2exp(r, r, 64); mpz_add_ui(r, r, (unsigned long)m); if(v < 0) mpz_neg(r, r); }\n"
+			+ "static inline __int128 __CHECK_GMP_INT128(mpz_t v) { mpz_t t; unsigned long lo, hi; unsigned __int128 m; mpz_init(t); mpz_abs(t, v); "
+			+ "if(mpz_sizeinbase(t, 2) > 127 && !(mpz_sgn(v) < 0 && mpz_sizeinbase(t, 2) == 128 && mpz_scan1(t, 0) == 127)) __builtin_abort(); "
+			+ "lo = mpz_get_ui(t); mpz_fdiv_q_2exp(t, t, 64); hi = mpz_get_ui(t); mpz_clear(t); "
+			+ "m = ((unsigned __int128)hi << 64) | lo; return mpz_sgn(v) < 0 ? (__int128)-m : (__int128)m; }\n";
+	private static Range int128Range = new Range(new CompInteger(BigInteger.ONE.shiftLeft(127).negate()), new CompInteger(BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE)));
+	
 	// a template for temporary variable for return expression
 	private static String ret_prefix = "__ret_value_%s";
 	
@@ -189,6 +206,35 @@ public class PrecisionImprovementFactory {
 	
 	private IASTFunctionDefinition visiting = null;
 	
+	/*
+	 * Representation of a local integer variable in the highly-precise program:
+	 * NATIVE: its range fits in its type, thus the original declaration is kept;
+	 * INT128: its range fits in __int128, thus it is declared as __int128;
+	 * GMP: otherwise, it is lifted to GMP integer.
+	 */
+	private static enum LiftTier {
+		NATIVE, INT128, GMP
+	}
+	
+	// ranges of variables by their qualified names (function::variable). If they are not set, all local integer variables are lifted
+	private Map<String, Range> varRanges = null;
+	// representations of local integer variables in current function
+	private Map<String, LiftTier> liftPlan = new HashMap<>();
+	private Set<String> int128Vars = new HashSet<>();
+	private boolean int128Used = false;
+	
+	/**
+	 * Create a factory where only variables whose ranges exceed their types are lifted.
+	 * @param preprocessedFileName the preprocessed program which range analysis is performed on
+	 * @param varRanges ranges of variables by their qualified names, computed by range analysis. A variable
+	 * without range is lifted to GMP integer
+	 */
+	public PrecisionImprovementFactory(String fileName, String preprocessedFileName, Map<String, Range> varRanges) {
+		this(fileName);
+		this.inputIFile = preprocessedFileName;
+		this.varRanges = varRanges;
+	}
+	
 	public PrecisionImprovementFactory(String fileName) {
 		this.inputCFile = fileName;
 		this.inputIFile = fileName.substring(0, fileName.length() - 1).concat("i");
@@ -332,6 +378,9 @@ public class PrecisionImprovementFactory {
 				bout.newLine();
 			}
 		}
+		if(int128Used) {
+			bout.write(int128Helpers);
+		}
 		bout.flush();
 		
 		for(int i = 0; i < outputCode.size(); i++) {
@@ -414,6 +463,7 @@ public class PrecisionImprovementFactory {
 		tempVarInScope.clear();
 		tempVarFrozen.clear();
 		reinitializeVarMap(tempVarTable);
+		planLifting(funcNode, typeAlias);
 		
 		// STEP 3: analyze function body
 		String funcBodyCode = handleFunctionBody(funcBody, typeAlias, liftedVars, indent);
@@ -484,9 +534,9 @@ public class PrecisionImprovementFactory {
 				boolean sign = entry.getValue();
 				String origName = newName.substring(tempPfLen);
 				if(sign) {
-					retStmt = retStmt.concat(indentStr).concat(String.format(mpz_set_si, newName, origName)).concat(";\n");
+					retStmt = retStmt.concat(indentStr).concat(formatMpzSet(mpz_set_si, newName, origName)).concat(";\n");
 				} else {
-					retStmt = retStmt.concat(indentStr).concat(String.format(mpz_set_ui, newName, origName)).concat(";\n");
+					retStmt = retStmt.concat(indentStr).concat(formatMpzSet(mpz_set_ui, newName, origName)).concat(";\n");
 				}
 			}
 		}
@@ -573,24 +623,24 @@ public class PrecisionImprovementFactory {
 						if(ssign) {
 							// signed
 							if(slength == 1) {
-								newCode = newCode.concat(indentStr).concat("char ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_schar, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("char ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, retVarName, retValName)).concat(";\n");
 							} else if(slength == 2) {
-								newCode = newCode.concat(indentStr).concat("short ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_sshort, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("short ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, retVarName, retValName)).concat(";\n");
 							} else if(slength == 4) {
-								newCode = newCode.concat(indentStr).concat("int ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_int, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("int ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_int, retVarName, retValName)).concat(";\n");
 							} else {
-								newCode = newCode.concat(indentStr).concat("long ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_slong, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("long ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, retVarName, retValName)).concat(";\n");
 							}
 						} else {
 							// unsigned
 							if(slength == 1) {
-								newCode = newCode.concat(indentStr).concat("unsigned char ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_uchar, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned char ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, retVarName, retValName)).concat(";\n");
 							} else if(slength == 2) {
-								newCode = newCode.concat(indentStr).concat("unsigned short ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_ushort, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned short ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, retVarName, retValName)).concat(";\n");
 							} else if(slength == 4) {
-								newCode = newCode.concat(indentStr).concat("unsigned int ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_uint, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned int ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, retVarName, retValName)).concat(";\n");
 							} else {
-								newCode = newCode.concat(indentStr).concat("unsigned long ").concat(retVarName).concat(" = ").concat(String.format(check_gmp_ulong, retValName)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned long ").concat(retVarName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, retVarName, retValName)).concat(";\n");
 							}
 						}
 					} else {
@@ -600,24 +650,24 @@ public class PrecisionImprovementFactory {
 						if(ssign) {
 							// signed
 							if(slength == 1) {
-								newCode = newCode.concat(indentStr).concat("char ").concat(retVarName).concat(" = ").concat(String.format(check_schar, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("char ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_schar, retVarName, retValName, retSign)).concat(";\n");
 							} else if(slength == 2) {
-								newCode = newCode.concat(indentStr).concat("short ").concat(retVarName).concat(" = ").concat(String.format(check_sshort, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("short ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_sshort, retVarName, retValName, retSign)).concat(";\n");
 							} else if(slength == 4) {
-								newCode = newCode.concat(indentStr).concat("int ").concat(retVarName).concat(" = ").concat(String.format(check_int, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("int ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_int, retVarName, retValName, retSign)).concat(";\n");
 							} else {
-								newCode = newCode.concat(indentStr).concat("long ").concat(retVarName).concat(" = ").concat(String.format(check_slong, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("long ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_slong, retVarName, retValName, retSign)).concat(";\n");
 							}
 						} else {
 							// unsigned
 							if(slength == 1) {
-								newCode = newCode.concat(indentStr).concat("unsigned char ").concat(retVarName).concat(" = ").concat(String.format(check_uchar, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned char ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_uchar, retVarName, retValName, retSign)).concat(";\n");
 							} else if(slength == 2) {
-								newCode = newCode.concat(indentStr).concat("unsigned short ").concat(retVarName).concat(" = ").concat(String.format(check_ushort, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned short ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_ushort, retVarName, retValName, retSign)).concat(";\n");
 							} else if(slength == 4) {
-								newCode = newCode.concat(indentStr).concat("unsigned int ").concat(retVarName).concat(" = ").concat(String.format(check_uint, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned int ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_uint, retVarName, retValName, retSign)).concat(";\n");
 							} else {
-								newCode = newCode.concat(indentStr).concat("unsigned long ").concat(retVarName).concat(" = ").concat(String.format(check_ulong, retValName, retSign)).concat(";\n");
+								newCode = newCode.concat(indentStr).concat("unsigned long ").concat(retVarName).concat(" = ").concat(formatSimpleCheck(check_ulong, retVarName, retValName, retSign)).concat(";\n");
 							}
 						}
 					}
@@ -692,9 +742,9 @@ public class PrecisionImprovementFactory {
 			Pair<Integer, Boolean> controlType = getFinalType(controller, typeAlias);
 			controlValue = getVar(tempVarTable);
 			if((controlType.getSecond() == false && controlType.getFirst() == 8) || controlType.getFirst() == -1) {
-				newCode = newCode.concat(indentStr).concat(String.format(mpz_set_ui, controlValue, controlName)).concat(";\n");
+				newCode = newCode.concat(indentStr).concat(formatMpzSet(mpz_set_ui, controlValue, controlName)).concat(";\n");
 			} else {
-				newCode = newCode.concat(indentStr).concat(String.format(mpz_set_si, controlValue, controlName)).concat(";\n");
+				newCode = newCode.concat(indentStr).concat(formatMpzSet(mpz_set_si, controlValue, controlName)).concat(";\n");
 			}
 		} else {
 			controlValue = controlName;
@@ -713,9 +763,9 @@ public class PrecisionImprovementFactory {
 				Pair<Integer, Boolean> branchType = getFinalType(branch, typeAlias);
 				branchValue = getVar(tempVarTable);
 				if((branchType.getSecond() == false && branchType.getFirst() == 8) || branchType.getFirst() == -1) {
-					newCode = newCode.concat(indentStr).concat(String.format(mpz_set_ui, branchValue, branchName)).concat(";\n");
+					newCode = newCode.concat(indentStr).concat(formatMpzSet(mpz_set_ui, branchValue, branchName)).concat(";\n");
 				} else {
-					newCode = newCode.concat(indentStr).concat(String.format(mpz_set_si, branchValue, branchName)).concat(";\n");
+					newCode = newCode.concat(indentStr).concat(formatMpzSet(mpz_set_si, branchValue, branchName)).concat(";\n");
 				}
 			} else {
 				branchValue = branchName;
@@ -1440,9 +1490,9 @@ public class PrecisionImprovementFactory {
 				} else {
 					// r-value is a ordinary numerical type
 					if(rtype.getSecond() == false && rtype.getFirst() == 8) {
-						newCode = newCode.concat(String.format(mpz_set_ui, op1Name, op2Name)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_ui, op1Name, op2Name)).concat("; ");
 					} else {
-						newCode = newCode.concat(String.format(mpz_set_si, op1Name, op2Name)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_si, op1Name, op2Name)).concat("; ");
 					}
 					newName = "1";
 				}
@@ -1457,23 +1507,23 @@ public class PrecisionImprovementFactory {
 					boolean lsign = ltype.getSecond();
 					if(lsign) {
 						if(llength == 1) {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_schar, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, origName, op1Name)).concat("; ");
 						} else if(llength == 2) {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_sshort, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, origName, op1Name)).concat("; ");
 						} else if(llength == 4) {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_int, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_int, origName, op1Name)).concat("; ");
 						} else {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_slong, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, origName, op1Name)).concat("; ");
 						}
 					} else {
 						if(llength == 1) {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_uchar, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, origName, op1Name)).concat("; ");
 						} else if(llength == 2) {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_ushort, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, origName, op1Name)).concat("; ");
 						} else if(llength == 4) {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_uint, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, origName, op1Name)).concat("; ");
 						} else {
-							newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_ulong, op1Name)).concat("; ");
+							newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, origName, op1Name)).concat("; ");
 						}
 					}
 				}
@@ -1488,24 +1538,24 @@ public class PrecisionImprovementFactory {
 					if(typeSign) {
 						// typeSign == true, it is a signed value
 						if(typeLength == 1) {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_schar, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_schar, op1Name, op2Name)).concat("; ");
 						} else if(typeLength == 2) {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_sshort, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, op1Name, op2Name)).concat("; ");
 						} else if(typeLength == 4) {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_int, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_int, op1Name, op2Name)).concat("; ");
 						} else {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_slong, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_slong, op1Name, op2Name)).concat("; ");
 						}
 					} else {
 						// unsigned value
 						if(typeLength == 1) {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uchar, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, op1Name, op2Name)).concat("; ");
 						} else if(typeLength == 2) {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ushort, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, op1Name, op2Name)).concat("; ");
 						} else if(typeLength == 4) {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uint, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uint, op1Name, op2Name)).concat("; ");
 						} else {
-							newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ulong, op2Name)).concat("; ");
+							newCode = newCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, op1Name, op2Name)).concat("; ");
 						}
 					}
 					newName = "1";
@@ -1575,23 +1625,23 @@ public class PrecisionImprovementFactory {
 						// numerical assignment
 						if(lsign) {
 							if(llength == 1) {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_schar, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_schar, op1Name, op2Name, rsign)).concat("; ");
 							} else if(llength == 2) {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_sshort, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_sshort, op1Name, op2Name, rsign)).concat("; ");
 							} else if(llength == 4) {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_int, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_int, op1Name, op2Name, rsign)).concat("; ");
 							} else {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_slong, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_slong, op1Name, op2Name, rsign)).concat("; ");
 							}
 						} else {
 							if(llength == 1) {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_uchar, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_uchar, op1Name, op2Name, rsign)).concat("; ");
 							} else if(llength == 2) {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_ushort, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_ushort, op1Name, op2Name, rsign)).concat("; ");
 							} else if(llength == 4) {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_uint, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_uint, op1Name, op2Name, rsign)).concat("; ");
 							} else {
-								newCode = newCode.concat(op1Name).concat(" = ").concat(String.format(check_ulong, op2Name, rsign)).concat("; ");
+								newCode = newCode.concat(op1Name).concat(" = ").concat(formatSimpleCheck(check_ulong, op1Name, op2Name, rsign)).concat("; ");
 							}
 						}
 						
@@ -1626,9 +1676,9 @@ public class PrecisionImprovementFactory {
 										} else if (rtype.getFirst() != -1) {
 											// then this is a numerical value, not a pointer or some other things.
 											if(rtype.getSecond() == false) {
-												newCode = newCode.concat(String.format(mpz_set_ui, derefVal, op2Name)).concat("; ");
+												newCode = newCode.concat(formatMpzSet(mpz_set_ui, derefVal, op2Name)).concat("; ");
 											} else {
-												newCode = newCode.concat(String.format(mpz_set_si, derefVal, op2Name)).concat("; ");
+												newCode = newCode.concat(formatMpzSet(mpz_set_si, derefVal, op2Name)).concat("; ");
 											}
 										}
 									}
@@ -1916,9 +1966,9 @@ public class PrecisionImprovementFactory {
 			} else {
 				Pair<Integer, Boolean> type = getFinalType(operand, typeAlias);
 				if((type.getSecond() == false && type.getFirst() == 8) || type.getFirst() == -1) {
-					newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 				} else {
-					newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 				}
 				newCode = newCode.concat(String.format(mpz_neg, newTempVar, newTempVar)).concat("; ");
 				newName = newTempVar;
@@ -1935,9 +1985,9 @@ public class PrecisionImprovementFactory {
 				String newTempVar = getVar(tempVarMap);
 				Pair<Integer, Boolean> type = getFinalType(operand, typeAlias);
 				if((type.getSecond() == false && type.getFirst() == 8) || type.getFirst() == -1) {
-					newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 				} else {
-					newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 				}
 				newName = newTempVar;
 				recycleVars(delta, tempVarMap);
@@ -1950,16 +2000,16 @@ public class PrecisionImprovementFactory {
 			String newTempVar = getVar(tempVarMap);
 			if(isHighPrecisionVar(opName, tempVarMap, liftedVars)) {
 				// FIXME: we change the value of operand, if operand is a local variable, then its value is accidentally altered
-				newCode = newCode.concat(String.format(mpz_set_si, newTempVar, String.format(mpz_cmp, opName, "0"))).concat("; ");
+				newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, String.format(mpz_cmp, opName, "0"))).concat("; ");
 				newName = String.format(mpz_cmp, newTempVar, "0") + " == 0 ? 1 : 0";
 			} else {
 				Pair<Integer, Boolean> type = getFinalType(operand, typeAlias);
 				if((type.getSecond() == false && type.getFirst() == 8) || type.getFirst() == -1) {
-					newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 				} else {
-					newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 				}
-				newCode = newCode.concat(String.format(mpz_set_si, newTempVar, String.format(mpz_cmp, newTempVar, "0"))).concat("; ");
+				newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, String.format(mpz_cmp, newTempVar, "0"))).concat("; ");
 				newName = String.format(mpz_cmp, newTempVar, "0") + " == 0 ? 1 : 0";
 			}
 			recycleVars(delta, tempVarMap);
@@ -1989,32 +2039,32 @@ public class PrecisionImprovementFactory {
 				} else {
 					// FIRST, convert operand into GMP integer and get the result
 					if((osign == false && olength == 8) || olength == -1) {
-						newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 					}
 					// SECOND, compute the result
 					newCode = newCode.concat(String.format(mpz_sub_ui, newTempVar, newTempVar, "1")).concat("; ");
 					// THIRD, pass the result back to the operand
 					if(osign) {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_schar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_sshort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_int, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_int, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_slong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, opName, newTempVar)).concat("; ");
 						}
 					} else {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uchar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ushort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uint, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ulong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, opName, newTempVar)).concat("; ");
 						}
 					}
 					newName = opName + " + 1"; // keep the original value
@@ -2040,32 +2090,32 @@ public class PrecisionImprovementFactory {
 				} else {
 					// FIRST, convert operand into GMP integer and get the result
 					if((osign == false && olength == 8) || olength == -1) {
-						newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 					}
 					// SECOND, compute the result
 					newCode = newCode.concat(String.format(mpz_add_ui, newTempVar, newTempVar, "1")).concat("; ");
 					// THIRD, pass the result back to the operand
 					if(osign) {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_schar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_sshort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_int, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_int, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_slong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, opName, newTempVar)).concat("; ");
 						}
 					} else {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uchar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ushort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uint, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ulong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, opName, newTempVar)).concat("; ");
 						}
 					}
 					newName = opName + " - 1"; // keep the original value
@@ -2090,30 +2140,30 @@ public class PrecisionImprovementFactory {
 				} else {
 					String newTempVar = getVar(tempVarMap);
 					if((osign == false && olength == 8) || olength == -1) {
-						newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 					}
 					newCode = newCode.concat(String.format(mpz_sub_ui, newTempVar, newTempVar, "1")).concat("; ");
 					if(osign) {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_schar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_sshort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_int, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_int, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_slong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, opName, newTempVar)).concat("; ");
 						}
 					} else {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uchar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ushort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uint, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ulong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, opName, newTempVar)).concat("; ");
 						}
 					}
 					newName = newTempVar;
@@ -2137,30 +2187,30 @@ public class PrecisionImprovementFactory {
 				} else {
 					String newTempVar = getVar(tempVarMap);
 					if((osign == false && olength == 8) || olength == -1) {
-						newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 					}
 					newCode = newCode.concat(String.format(mpz_add_ui, newTempVar, newTempVar, "1")).concat("; ");
 					if(osign) {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_schar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_sshort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_int, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_int, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_slong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, opName, newTempVar)).concat("; ");
 						}
 					} else {
 						if(olength == 1) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uchar, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, opName, newTempVar)).concat("; ");
 						} else if(olength == 2) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ushort, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, opName, newTempVar)).concat("; ");
 						} else if(olength == 4) {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_uint, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, opName, newTempVar)).concat("; ");
 						} else {
-							newCode = newCode.concat(opName).concat(" = ").concat(String.format(check_gmp_ulong, newTempVar)).concat("; ");
+							newCode = newCode.concat(opName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, opName, newTempVar)).concat("; ");
 						}
 					}
 					newName = newTempVar;
@@ -2235,23 +2285,23 @@ public class PrecisionImprovementFactory {
 				String origName = opName.substring(tempPfLen);
 				if(osign) {
 					if(olength == 1) {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_schar, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_schar, origName, opName)).concat("; ");
 					} else if(olength == 2) {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_sshort, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, origName, opName)).concat("; ");
 					} else if(olength == 4) {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_int, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_int, origName, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_slong, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_slong, origName, opName)).concat("; ");
 					}
 				} else {
 					if(olength == 1) {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_uchar, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, origName, opName)).concat("; ");
 					} else if(olength == 2) {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_ushort, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, origName, opName)).concat("; ");
 					} else if(olength == 4) {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_uint, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_uint, origName, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(origName).concat(" = ").concat(String.format(check_gmp_ulong, opName)).concat("; ");
+						newCode = newCode.concat(origName).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, origName, opName)).concat("; ");
 					}
 				}
 				// STEP 2: new name is associated with original version
@@ -2327,9 +2377,9 @@ public class PrecisionImprovementFactory {
 				String newTempVar = getVar(tempVarMap);
 				Pair<Integer, Boolean> negType = getFinalType(negative, typeAlias);
 				if(negType.getSecond() == false && negType.getFirst() == 8) {
-					newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, negName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, negName)).concat("; ");
 				} else {
-					newCode = newCode.concat(String.format(mpz_set_si, newTempVar, negName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, negName)).concat("; ");
 				}
 				// thus, we can demonstrate the result using only one temporary variable
 				String selectExpr = "(" + condName + ") ? " + posName + " : " + newTempVar;
@@ -2354,9 +2404,9 @@ public class PrecisionImprovementFactory {
 				String newTempVar = getVar(tempVarMap);
 				Pair<Integer, Boolean> posType = getFinalType(positive, typeAlias);
 				if(posType.getSecond() == false && posType.getFirst() == 8) {
-					newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, posName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, posName)).concat("; ");
 				} else {
-					newCode = newCode.concat(String.format(mpz_set_si, newTempVar, posName)).concat("; ");
+					newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, posName)).concat("; ");
 				}
 				String selectExpr = "(" + condName + ") ? " + newTempVar + " : " + negName;
 				newCode = newCode.concat(String.format(mpz_set, newTempVar, selectExpr)).concat("; ");
@@ -2795,16 +2845,16 @@ public class PrecisionImprovementFactory {
 					// wrap it using GMP integer
 					String newTempVar = getVar(tempVarMap);
 					if(operandType.getSecond() == false && operandType.getFirst() == 8) {
-						newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 					} else {
-						newCode = newCode.concat(String.format(mpz_set_si, newTempVar, opName)).concat("; ");
+						newCode = newCode.concat(formatMpzSet(mpz_set_si, newTempVar, opName)).concat("; ");
 					}
 					newName = newTempVar;
 				}
 			} else {
 				// case 3
 				String newTempVar = getVar(tempVarMap);
-				newCode = newCode.concat(String.format(mpz_set_ui, newTempVar, opName)).concat("; ");
+				newCode = newCode.concat(formatMpzSet(mpz_set_ui, newTempVar, opName)).concat("; ");
 				newName = newTempVar;
 			}
 		} else {
@@ -2837,7 +2887,7 @@ public class PrecisionImprovementFactory {
 		} else {
 			leftHP = false;
 			if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-				addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name));
+				addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name));
 			}
 		}
 		// right operand should be a unsigned long
@@ -2857,23 +2907,23 @@ public class PrecisionImprovementFactory {
 			int llength = ltype.getFirst();
 			if(lsign) {
 				if(llength == 1) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_schar, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_schar, op1Name, newTempVar)).concat("; ");
 				} else if(llength == 2) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_sshort, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, op1Name, newTempVar)).concat("; ");
 				} else if(llength == 4) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_int, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_int, op1Name, newTempVar)).concat("; ");
 				} else {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_slong, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_slong, op1Name, newTempVar)).concat("; ");
 				}
 			} else {
 				if(llength == 1) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uchar, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, op1Name, newTempVar)).concat("; ");
 				} else if(llength == 2) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ushort, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, op1Name, newTempVar)).concat("; ");
 				} else if(llength == 4) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uint, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uint, op1Name, newTempVar)).concat("; ");
 				} else {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ulong, newTempVar)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, op1Name, newTempVar)).concat("; ");
 				}
 			}
 		}
@@ -2900,9 +2950,9 @@ public class PrecisionImprovementFactory {
 				addName = newTempVar;
 			} else {
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op2Name)).concat("; ");
 				}
 				addCode = addCode.concat(generateBinaryOperation(newTempVar, op1Name, newTempVar, optrString)).concat("; ");
 				addName = newTempVar;
@@ -2910,9 +2960,9 @@ public class PrecisionImprovementFactory {
 		} else {
 			newTempVar = getVar(tempVarMap);
 			if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-				addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name)).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name)).concat("; ");
 			} else {
-				addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op1Name)).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op1Name)).concat("; ");
 			}
 			// SECOND, right operand should be casted to unsigned long with great care
 			String rsign = rtype.getSecond() ? "1" : "0";
@@ -2944,9 +2994,9 @@ public class PrecisionImprovementFactory {
 			} else {
 				rightName = getVar(tempVarMap);
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, rightName, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, rightName, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, rightName, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, rightName, op2Name)).concat("; ");
 				}
 				addCode = addCode.concat(generateBinaryOperation(op1Name, op1Name, rightName, optrString)).concat("; ");
 				recycleVar(rightName, tempVarMap);
@@ -2956,18 +3006,18 @@ public class PrecisionImprovementFactory {
 			// first, store the first operand into a GMP integer
 			leftName = getVar(tempVarMap);
 			if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-				addCode = addCode.concat(String.format(mpz_set_ui, leftName, op1Name)).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_ui, leftName, op1Name)).concat("; ");
 			} else {
-				addCode = addCode.concat(String.format(mpz_set_si, leftName, op1Name)).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_si, leftName, op1Name)).concat("; ");
 			}
 			if(isHighPrecisionVar(op2Name, tempVarMap, liftedVars)) {
 				addCode = addCode.concat(generateBinaryOperation(leftName, leftName, op2Name, optrString)).concat("; ");
 			} else {
 				rightName = getVar(tempVarMap);
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, rightName, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, rightName, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, rightName, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, rightName, op2Name)).concat("; ");
 				}
 				addCode = addCode.concat(generateBinaryOperation(leftName, leftName, rightName, optrString)).concat("; ");
 				recycleVar(rightName, tempVarMap);
@@ -2976,23 +3026,23 @@ public class PrecisionImprovementFactory {
 			// now leftName refers to the GMP version of result, now casting it to corresponding machine integer
 			if(lsign) {
 				if(llength == 1) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_schar, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_schar, op1Name, leftName)).concat("; ");
 				} else if(llength == 2) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_sshort, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, op1Name, leftName)).concat("; ");
 				} else if(llength == 4) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_int, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_int, op1Name, leftName)).concat("; ");
 				} else {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_slong, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_slong, op1Name, leftName)).concat("; ");
 				}
 			} else {
 				if(llength == 1) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uchar, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, op1Name, leftName)).concat("; ");
 				} else if(llength == 2) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ushort, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, op1Name, leftName)).concat("; ");
 				} else if(llength == 4) {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uint, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uint, op1Name, leftName)).concat("; ");
 				} else {
-					addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ulong, leftName)).concat("; ");
+					addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, op1Name, leftName)).concat("; ");
 				}
 			}
 			recycleVar(leftName, tempVarMap);
@@ -3018,9 +3068,9 @@ public class PrecisionImprovementFactory {
 				addName = newTempVar;
 			} else {
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op2Name)).concat("; ");
 				}
 				addCode = addCode.concat(generateBinaryOperation(newTempVar, op1Name, newTempVar, optrString)).concat("; ");
 				addName = newTempVar;
@@ -3028,9 +3078,9 @@ public class PrecisionImprovementFactory {
 		} else {
 			newTempVar = getVar(tempVarMap);
 			if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-				addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name)).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name)).concat("; ");
 			} else {
-				addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op1Name)).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op1Name)).concat("; ");
 			}
 			if(isHighPrecisionVar(op2Name, tempVarMap, liftedVars)) {
 				addCode = addCode.concat(generateBinaryOperation(newTempVar, newTempVar, op2Name, optrString)).concat("; ");
@@ -3038,9 +3088,9 @@ public class PrecisionImprovementFactory {
 			} else {
 				newTempVar2 = getVar(tempVarMap);
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar2, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar2, op2Name)).concat("; ");
 				}
 				addCode = addCode.concat(generateBinaryOperation(newTempVar, newTempVar, newTempVar2, optrString)).concat("; ");
 				addName = newTempVar;
@@ -3120,9 +3170,9 @@ public class PrecisionImprovementFactory {
 			} else {
 				leftName = getVar(tempVarMap);
 				if((lsign == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, leftName, op1Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, leftName, op1Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, leftName, op1Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, leftName, op1Name)).concat("; ");
 				}
 				leftHP = false;
 			}
@@ -3132,9 +3182,9 @@ public class PrecisionImprovementFactory {
 			} else {
 				rightName = getVar(tempVarMap);
 				if((rsign == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, rightName, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, rightName, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, rightName, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, rightName, op2Name)).concat("; ");
 				}
 			}
 			
@@ -3151,23 +3201,23 @@ public class PrecisionImprovementFactory {
 				int llength = ltype.getFirst();
 				if(!lsign) {
 					if(llength == 1) {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uchar, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uchar, op1Name, leftName)).concat("; ");
 					} else if(llength == 2) {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ushort, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ushort, op1Name, leftName)).concat("; ");
 					} else if(llength == 4) {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_uint, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_uint, op1Name, leftName)).concat("; ");
 					} else {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_ulong, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_ulong, op1Name, leftName)).concat("; ");
 					}
 				} else {
 					if(llength == 1) {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_schar, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_schar, op1Name, leftName)).concat("; ");
 					} else if(llength == 2) {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_sshort, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_sshort, op1Name, leftName)).concat("; ");
 					} else if(llength == 4) {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_int, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_int, op1Name, leftName)).concat("; ");
 					} else {
-						addCode = addCode.concat(op1Name).concat(" = ").concat(String.format(check_gmp_slong, leftName)).concat("; ");
+						addCode = addCode.concat(op1Name).concat(" = ").concat(formatGmpCheck(check_gmp_slong, op1Name, leftName)).concat("; ");
 					}
 				}
 			}
@@ -3280,9 +3330,9 @@ public class PrecisionImprovementFactory {
 				} else {
 					// sorry, the 2nd operand is not GMP integer
 					if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-						addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op2Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op2Name)).concat("; ");
 					} else {
-						addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op2Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op2Name)).concat("; ");
 					}
 					// add or minus them
 					if(isPlus) {
@@ -3295,9 +3345,9 @@ public class PrecisionImprovementFactory {
 			} else {
 				// 1st operand is not GMP integer
 				if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op1Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op1Name)).concat("; ");
 				}
 				if(isHighPrecisionVar(op2Name, tempVarMap, liftedVars)) {
 					// 2nd operand is a GMP integer
@@ -3310,9 +3360,9 @@ public class PrecisionImprovementFactory {
 					// 2nd operand is a normal integer
 					String newTempVar2 = getVar(tempVarMap);
 					if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-						addCode = addCode.concat(String.format(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
 					} else {
-						addCode = addCode.concat(String.format(mpz_set_si, newTempVar2, op2Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar2, op2Name)).concat("; ");
 					}
 					if(isPlus) {
 						addCode = addCode.concat(String.format(mpz_add, newTempVar, newTempVar, newTempVar2)).concat("; ");
@@ -3344,24 +3394,24 @@ public class PrecisionImprovementFactory {
 				addCode.concat(String.format(mpz_set, newTempVar2, op2Name)).concat("; ");
 			} else {
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode.concat(String.format(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
+					addCode.concat(formatMpzSet(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
 				} else {
-					addCode.concat(String.format(mpz_set_si, newTempVar2, op2Name)).concat("; ");
+					addCode.concat(formatMpzSet(mpz_set_si, newTempVar2, op2Name)).concat("; ");
 				}
 			}
 		} else {
 			if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-				addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name)).concat("; ");
+				addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name)).concat("; ");
 			} else {
-				addCode.concat(String.format(mpz_set_si, newTempVar, op1Name)).concat("; ");
+				addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op1Name)).concat("; ");
 			}
 			if(isHighPrecisionVar(op2Name, tempVarMap, liftedVars)) {
 				addCode.concat(String.format(mpz_set, newTempVar2, op2Name));
 			} else {
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode.concat(String.format(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
+					addCode.concat(formatMpzSet(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
 				} else {
-					addCode.concat(String.format(mpz_set_si, newTempVar2, op2Name)).concat("; ");
+					addCode.concat(formatMpzSet(mpz_set_si, newTempVar2, op2Name)).concat("; ");
 				}
 			}
 		}
@@ -3384,19 +3434,19 @@ public class PrecisionImprovementFactory {
 		if(isHighPrecisionVar(op1Name, tempVarMap, liftedVars)) {
 			if(isHighPrecisionVar(op2Name, tempVarMap, liftedVars)) {
 				newTempVar = getVar(tempVarMap);
-				addCode = addCode.concat(String.format(mpz_set_si, newTempVar, String.format(mpz_cmp, op1Name, op2Name))).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, String.format(mpz_cmp, op1Name, op2Name))).concat("; ");
 				addName = String.format(mpz_cmp_si, newTempVar, "0") + " " + optrString + " 0 ? 1 : 0";
 			} else {
 				// operand2 is a normal value, we should convert it into GMP integer first
 				newTempVar = getVar(tempVarMap);		
 				// unsigned long AND pointer type!!
 				if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op2Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op2Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op2Name)).concat("; ");
 				}
 				// OK! we can compare them!
-				addCode = addCode.concat(String.format(mpz_set_si, newTempVar, String.format(mpz_cmp, op1Name, newTempVar))).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, String.format(mpz_cmp, op1Name, newTempVar))).concat("; ");
 				addName = String.format(mpz_cmp_si, newTempVar, "0") + " " + optrString + " 0 ? 1 : 0";
 				
 			}
@@ -3406,12 +3456,12 @@ public class PrecisionImprovementFactory {
 				newTempVar = getVar(tempVarMap);
 				// if someone takes a pointer as an operand...
 				if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-					addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name)).concat("; ");
 				} else {
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op1Name)).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op1Name)).concat("; ");
 				}
 				// OK! we can compare them!
-				addCode = addCode.concat(String.format(mpz_set_si, newTempVar, String.format(mpz_cmp, newTempVar, op2Name))).concat("; ");
+				addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, String.format(mpz_cmp, newTempVar, op2Name))).concat("; ");
 				addName = String.format(mpz_cmp_si, newTempVar, "0") + " " + optrString + " 0 ? 1 : 0";
 			} else {
 				// Ooops! Two operands are neither GMP integers.
@@ -3423,17 +3473,17 @@ public class PrecisionImprovementFactory {
 					addName = op1Name + " " + optrString + " " + op2Name;
 				} else {
 					if((ltype.getSecond() == false && ltype.getFirst() == 8) || ltype.getFirst() == -1) {
-						addCode = addCode.concat(String.format(mpz_set_ui, newTempVar, op1Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar, op1Name)).concat("; ");
 					} else {
-						addCode = addCode.concat(String.format(mpz_set_si, newTempVar, op1Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, op1Name)).concat("; ");
 					}
 					if((rtype.getSecond() == false && rtype.getFirst() == 8) || rtype.getFirst() == -1) {
-						addCode = addCode.concat(String.format(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_ui, newTempVar2, op2Name)).concat("; ");
 					} else {
-						addCode = addCode.concat(String.format(mpz_set_si, newTempVar2, op2Name)).concat("; ");
+						addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar2, op2Name)).concat("; ");
 					}
 					recycleVar(newTempVar2, tempVarMap);
-					addCode = addCode.concat(String.format(mpz_set_si, newTempVar, String.format(mpz_cmp, newTempVar, newTempVar2))).concat("; ");
+					addCode = addCode.concat(formatMpzSet(mpz_set_si, newTempVar, String.format(mpz_cmp, newTempVar, newTempVar2))).concat("; ");
 					addName = String.format(mpz_cmp_si, newTempVar, "0") + " " + optrString + " 0 ? 1 : 0";
 				}
 			}
@@ -3561,7 +3611,7 @@ public class PrecisionImprovementFactory {
 		}
 		
 		if(leftHP) {
-			addCode = addCode.concat(String.format(mpz_set_ui, op1Name, leftOp + " " + optrString + " " + rightOp)).concat("; ");
+			addCode = addCode.concat(formatMpzSet(mpz_set_ui, op1Name, leftOp + " " + optrString + " " + rightOp)).concat("; ");
 		} else {
 			addCode = addCode.concat(op1Name).concat(" = ").concat(leftOp + " " + optrString + " " + rightOp).concat("; ");
 		}
@@ -3982,6 +4032,11 @@ public class PrecisionImprovementFactory {
 			IASTPointerOperator[] asterisk = declarator.getPointerOperators();
 			if(asterisk.length == 0 && intSpec) {
 				// congratulations! This is a ordinary value declarator
+				LiftTier tier = getLiftTier(declarator.getName().getRawSignature());
+				if(tier != LiftTier.GMP) {
+					newCode = newCode.concat(declareUnliftedVariable(specifier, declarator, tier, typeAlias, liftedVars));
+					continue;
+				}
 				String newName = declarator.getName().getRawSignature();
 				liftedVars.add(newName); // liftedVars contains old, ordinary name
 				newName = prefix + newName; // OK, this is the new variable name
@@ -4021,9 +4076,9 @@ public class PrecisionImprovementFactory {
 						newCode = newCode.concat(String.format(mpz_init, newName));
 						Pair<Integer, Boolean> initType = getFinalType(initExpr, typeAlias);
 						if((initType.getSecond() == false && initType.getFirst() == 8) || initType.getFirst() == -1) {
-							newCode = newCode.concat(String.format(mpz_set_ui, newName, initValue)).concat("; ");
+							newCode = newCode.concat(formatMpzSet(mpz_set_ui, newName, initValue)).concat("; ");
 						} else {
-							newCode = newCode.concat(String.format(mpz_set_si, newName, initValue)).concat("; ");
+							newCode = newCode.concat(formatMpzSet(mpz_set_si, newName, initValue)).concat("; ");
 						}
 					}
 					
@@ -4145,6 +4200,11 @@ public class PrecisionImprovementFactory {
 			}
 			IASTPointerOperator[] asterisk = declarator.getPointerOperators();
 			if(asterisk.length == 0 && signAI) {
+				LiftTier tier = getLiftTier(declarator.getName().getRawSignature());
+				if(tier != LiftTier.GMP) {
+					newCode = newCode.concat(declareUnliftedVariable(specifier, declarator, tier, typeAlias, liftedVars));
+					continue;
+				}
 				String newName = declarator.getName().getRawSignature();
 				liftedVars.add(newName);
 				newName = prefix + newName;
@@ -4177,9 +4237,9 @@ public class PrecisionImprovementFactory {
 						newCode = newCode.concat(String.format(mpz_init, newName));
 						Pair<Integer, Boolean> initType = getFinalType(initExpr, typeAlias);
 						if((initType.getSecond() == false && initType.getFirst() == 8) || initType.getFirst() == -1) {
-							newCode = newCode.concat(String.format(mpz_set_ui, newName, initValue)).concat("; ");
+							newCode = newCode.concat(formatMpzSet(mpz_set_ui, newName, initValue)).concat("; ");
 						} else {
-							newCode = newCode.concat(String.format(mpz_set_si, newName, initValue)).concat("; ");
+							newCode = newCode.concat(formatMpzSet(mpz_set_si, newName, initValue)).concat("; ");
 						}
 					}
 				} else {
@@ -4340,6 +4400,270 @@ public class PrecisionImprovementFactory {
 		return true;
 	}
 	
+	/*
+	 * Decide the representation of each local integer variable in this function by its range. A variable whose
+	 * address is taken is always lifted, since its range can be changed by pointers.
+	 */
+	private void planLifting(IASTFunctionDefinition funcNode, Map<String, String> typeAlias) {
+		liftPlan.clear();
+		int128Vars.clear();
+		if(varRanges == null) {
+			return;
+		}
+		IASTDeclarator funcDeclarator = funcNode.getDeclarator();
+		while(funcDeclarator.getNestedDeclarator() != null) {
+			funcDeclarator = funcDeclarator.getNestedDeclarator();
+		}
+		String funcName = funcDeclarator.getName().getRawSignature();
+		LiftingScanner scanner = new LiftingScanner();
+		funcNode.getBody().accept(scanner);
+		for(IASTSimpleDeclaration decl : scanner.declarations) {
+			IASTDeclSpecifier spec = decl.getDeclSpecifier();
+			if(spec.getStorageClass() == IASTDeclSpecifier.sc_typedef) {
+				continue;
+			}
+			// only these declarations are lifted, see handleSimpleDeclSpecifier and handleNamedTypeSpecifier
+			if(spec instanceof IASTSimpleDeclSpecifier) {
+				if(isNotIntegerSpecifier((IASTSimpleDeclSpecifier)spec)) {
+					continue;
+				}
+			} else if(spec instanceof IASTNamedTypeSpecifier) {
+				if(!signOfIntegerAlias((IASTNamedTypeSpecifier)spec, typeAlias)) {
+					continue;
+				}
+			} else {
+				continue;
+			}
+			Range typeRange = getTypeRange(getFinalType(spec, typeAlias));
+			// __int128 replaces the whole specifier
+			boolean plainSpec = spec.getStorageClass() != IASTDeclSpecifier.sc_static && spec.getStorageClass() != IASTDeclSpecifier.sc_extern && !spec.isConst() && !spec.isVolatile();
+			for(IASTDeclarator declarator : decl.getDeclarators()) {
+				if((declarator instanceof IASTArrayDeclarator) || (declarator instanceof IASTFieldDeclarator) || (declarator instanceof IASTFunctionDeclarator) || declarator.getPointerOperators().length > 0) {
+					continue;
+				}
+				String varName = declarator.getName().getRawSignature();
+				Range range = varRanges.get(funcName + "::" + varName);
+				LiftTier tier;
+				if(range == null || typeRange == null || scanner.addressed.contains(varName)) {
+					tier = LiftTier.GMP;
+				} else if(typeRange.contains(range)) {
+					tier = LiftTier.NATIVE;
+				} else if(plainSpec && int128Range.contains(range)) {
+					tier = LiftTier.INT128;
+				} else {
+					tier = LiftTier.GMP;
+				}
+				liftPlan.put(varName, tier);
+			}
+		}
+		// a __int128 value should flow into machine integers only through checks
+		for(IASTIdExpression use : scanner.uses) {
+			String varName = use.getName().getRawSignature();
+			if(liftPlan.get(varName) == LiftTier.INT128 && !isInt128SafeUse(use)) {
+				liftPlan.put(varName, LiftTier.GMP);
+			}
+		}
+		
+		int gmpNum = 0, int128Num = 0, nativeNum = 0;
+		for(LiftTier tier : liftPlan.values()) {
+			if(tier == LiftTier.GMP) {
+				gmpNum++;
+			} else if(tier == LiftTier.INT128) {
+				int128Num++;
+			} else {
+				nativeNum++;
+			}
+		}
+		System.out.println("Precision improvement of " + funcName + ": " + gmpNum + " lifted to GMP, " + int128Num + " lifted to __int128, " + nativeNum + " kept native");
+	}
+	
+	/*
+	 * Check if the use of __int128 variable is converted by the operation on it. Otherwise, its value is used as
+	 * a machine integer directly (e.g. as argument, index or return value).
+	 */
+	private boolean isInt128SafeUse(IASTIdExpression use) {
+		IASTNode child = use;
+		IASTNode parent = use.getParent();
+		while(parent instanceof IASTUnaryExpression && ((IASTUnaryExpression)parent).getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+			child = parent;
+			parent = parent.getParent();
+		}
+		if(parent instanceof IASTExpressionStatement || parent instanceof IASTIfStatement || parent instanceof IASTWhileStatement || parent instanceof IASTDoStatement) {
+			return true;
+		} else if(parent instanceof IASTForStatement) {
+			IASTForStatement forStmt = (IASTForStatement)parent;
+			return child == forStmt.getConditionExpression() || child == forStmt.getIterationExpression();
+		} else if(parent instanceof IASTUnaryExpression) {
+			switch(((IASTUnaryExpression)parent).getOperator()) {
+			case IASTUnaryExpression.op_minus:
+			case IASTUnaryExpression.op_plus:
+			case IASTUnaryExpression.op_not:
+				// the result is a GMP integer
+				return true;
+			case IASTUnaryExpression.op_prefixIncr:
+			case IASTUnaryExpression.op_prefixDecr:
+			case IASTUnaryExpression.op_postFixIncr:
+			case IASTUnaryExpression.op_postFixDecr: {
+				// the result refers to the operand, thus it should be discarded
+				IASTNode grandParent = parent.getParent();
+				return grandParent instanceof IASTExpressionStatement || (grandParent instanceof IASTForStatement && parent == ((IASTForStatement)grandParent).getIterationExpression());
+			}
+			default:
+				return false;
+			}
+		} else if(parent instanceof IASTBinaryExpression) {
+			IASTBinaryExpression binExpr = (IASTBinaryExpression)parent;
+			IASTExpression other = (child == binExpr.getOperand1()) ? binExpr.getOperand2() : binExpr.getOperand1();
+			switch(binExpr.getOperator()) {
+			case IASTBinaryExpression.op_assign: {
+				if(child == binExpr.getOperand1()) {
+					return true;
+				}
+				// the assigned variable should be able to hold the value
+				IASTExpression lvalue = other;
+				while(lvalue instanceof IASTUnaryExpression && ((IASTUnaryExpression)lvalue).getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+					lvalue = ((IASTUnaryExpression)lvalue).getOperand();
+				}
+				if(!(lvalue instanceof IASTIdExpression)) {
+					return false;
+				}
+				LiftTier tier = liftPlan.get(((IASTIdExpression)lvalue).getName().getRawSignature());
+				return tier == LiftTier.GMP || tier == LiftTier.INT128;
+			}
+			case IASTBinaryExpression.op_plus:
+			case IASTBinaryExpression.op_minus:
+			case IASTBinaryExpression.op_multiply:
+			case IASTBinaryExpression.op_divide:
+			case IASTBinaryExpression.op_modulo:
+			case IASTBinaryExpression.op_plusAssign:
+			case IASTBinaryExpression.op_minusAssign:
+			case IASTBinaryExpression.op_multiplyAssign:
+			case IASTBinaryExpression.op_divideAssign:
+			case IASTBinaryExpression.op_moduloAssign:
+			case IASTBinaryExpression.op_equals:
+			case IASTBinaryExpression.op_notequals:
+			case IASTBinaryExpression.op_greaterEqual:
+			case IASTBinaryExpression.op_greaterThan:
+			case IASTBinaryExpression.op_lessEqual:
+			case IASTBinaryExpression.op_lessThan:
+			case IASTBinaryExpression.op_logicalAnd:
+			case IASTBinaryExpression.op_logicalOr: {
+				// these operations are performed on GMP integers, except pointer arithmetic
+				IType otherType = other.getExpressionType();
+				return !(otherType instanceof IPointerType || otherType instanceof IArrayType);
+			}
+			default:
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	private Range getTypeRange(Pair<Integer, Boolean> type) {
+		int length = type.getFirst();
+		if(length <= 0) {
+			return null;
+		}
+		int bits = length * 8;
+		if(type.getSecond()) {
+			BigInteger bound = BigInteger.ONE.shiftLeft(bits - 1);
+			return new Range(new CompInteger(bound.negate()), new CompInteger(bound.subtract(BigInteger.ONE)));
+		} else {
+			return new Range(new CompInteger(BigInteger.ZERO), new CompInteger(BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE)));
+		}
+	}
+	
+	private LiftTier getLiftTier(String varName) {
+		LiftTier tier = liftPlan.get(varName);
+		return tier == null ? LiftTier.GMP : tier;
+	}
+	
+	/*
+	 * Declare a local integer variable which is not lifted to GMP integer. The initial value is checked if it is
+	 * computed in GMP integer.
+	 */
+	private String declareUnliftedVariable(IASTDeclSpecifier specifier, IASTDeclarator declarator, LiftTier tier, Map<String, String> typeAlias, Set<String> liftedVars) {
+		// this variable may hide a lifted variable with the same name
+		removeDeclarator(declarator, liftedVars);
+		String declName = declarator.getName().getRawSignature();
+		String specString = (tier == LiftTier.INT128) ? int128Spec : specifier.getRawSignature();
+		String newCode = "";
+		IASTInitializer initializer = declarator.getInitializer();
+		if(initializer == null) {
+			newCode = newCode.concat(specString).concat(" ").concat(declName).concat("; ");
+		} else if(!(initializer instanceof IASTEqualsInitializer) || !(((IASTEqualsInitializer)initializer).getInitializerClause() instanceof IASTExpression)) {
+			newCode = newCode.concat(specString).concat(" ").concat(declarator.getRawSignature()).concat("; ");
+		} else {
+			IASTExpression initExpr = (IASTExpression)((IASTEqualsInitializer)initializer).getInitializerClause();
+			Pair<String, String> evalInit = scanExpressionInDFS(initExpr, typeAlias, tempVarTable, liftedVars);
+			String initValue = evalInit.getSecond();
+			if(isHighPrecisionVar(initValue, tempVarTable, liftedVars)) {
+				if(tier == LiftTier.INT128) {
+					initValue = String.format(check_gmp_int128, initValue);
+				} else {
+					initValue = formatGmpToNative(getFinalType(specifier, typeAlias), initValue);
+				}
+			}
+			reinitializeVarMap(tempVarTable);
+			newCode = newCode.concat(evalInit.getFirst());
+			newCode = newCode.concat(specString).concat(" ").concat(declName).concat(" = ").concat(initValue).concat("; ");
+		}
+		if(tier == LiftTier.INT128) {
+			int128Vars.add(declName);
+			int128Used = true;
+		}
+		return newCode;
+	}
+	
+	private String formatGmpToNative(Pair<Integer, Boolean> type, String gmpName) {
+		int length = type.getFirst();
+		if(type.getSecond()) {
+			if(length == 1) {
+				return String.format(check_gmp_schar, gmpName);
+			} else if(length == 2) {
+				return String.format(check_gmp_sshort, gmpName);
+			} else if(length == 4) {
+				return String.format(check_gmp_int, gmpName);
+			} else {
+				return String.format(check_gmp_slong, gmpName);
+			}
+		} else {
+			if(length == 1) {
+				return String.format(check_gmp_uchar, gmpName);
+			} else if(length == 2) {
+				return String.format(check_gmp_ushort, gmpName);
+			} else if(length == 4) {
+				return String.format(check_gmp_uint, gmpName);
+			} else {
+				return String.format(check_gmp_ulong, gmpName);
+			}
+		}
+	}
+	
+	// convert a machine integer into GMP integer. A __int128 value cannot be passed as long
+	private String formatMpzSet(String setPattern, String gmpName, String value) {
+		if(int128Vars.contains(value)) {
+			return String.format(set_gmp_int128, gmpName, value);
+		}
+		return String.format(setPattern, gmpName, value);
+	}
+	
+	// convert a GMP integer to be assigned to the specified variable
+	private String formatGmpCheck(String checkPattern, String lvalue, String gmpName) {
+		if(int128Vars.contains(lvalue)) {
+			return String.format(check_gmp_int128, gmpName);
+		}
+		return String.format(checkPattern, gmpName);
+	}
+	
+	// convert a machine integer to be assigned to the specified variable. Any machine integer fits in __int128
+	private String formatSimpleCheck(String checkPattern, String lvalue, String value, String sign) {
+		if(int128Vars.contains(lvalue)) {
+			return value;
+		}
+		return String.format(checkPattern, value, sign);
+	}
+	
 	private String destroyGenerate(String indentStr) {
 		// FIXME: besides them, we should destroy GMP variables in current scope, too!!
 		Set<String> totalLocalVarSet = new HashSet<>();
@@ -4497,6 +4821,45 @@ public class PrecisionImprovementFactory {
 		
 	}
 	
+	/*
+	 * Collect local declarations, uses of variables and variables whose addresses are taken in a function body
+	 */
+	private class LiftingScanner extends ASTVisitor {
+		
+		private List<IASTSimpleDeclaration> declarations = new ArrayList<>();
+		private List<IASTIdExpression> uses = new ArrayList<>();
+		private Set<String> addressed = new HashSet<>();
+		
+		public LiftingScanner() {
+			shouldVisitDeclarations = true;
+			shouldVisitExpressions = true;
+		}
+		
+		@Override
+		public int visit(IASTDeclaration declaration) {
+			if(declaration instanceof IASTSimpleDeclaration) {
+				declarations.add((IASTSimpleDeclaration)declaration);
+			}
+			return PROCESS_CONTINUE;
+		}
+		
+		@Override
+		public int visit(IASTExpression expression) {
+			if(expression instanceof IASTIdExpression) {
+				uses.add((IASTIdExpression)expression);
+			} else if(expression instanceof IASTUnaryExpression && ((IASTUnaryExpression)expression).getOperator() == IASTUnaryExpression.op_amper) {
+				IASTExpression operand = ((IASTUnaryExpression)expression).getOperand();
+				while(operand instanceof IASTUnaryExpression && ((IASTUnaryExpression)operand).getOperator() == IASTUnaryExpression.op_bracketedPrimary) {
+					operand = ((IASTUnaryExpression)operand).getOperand();
+				}
+				if(operand instanceof IASTIdExpression) {
+					addressed.add(((IASTIdExpression)operand).getName().getRawSignature());
+				}
+			}
+			return PROCESS_CONTINUE;
+		}
+	}
+	
 	private class CFormatStringParseResult {
 		
 		public static final int f_neg = 1;
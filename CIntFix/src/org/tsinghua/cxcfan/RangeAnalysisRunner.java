@@ -0,0 +1,191 @@
+package org.tsinghua.cxcfan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.converters.FileTypeConverter;
+import org.sosy_lab.common.log.BasicLogManager;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.core.CPAchecker;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.range.Range;
+import org.sosy_lab.cpachecker.cpa.range.RangeCPA;
+import org.sosy_lab.cpachecker.cpa.range.RangeState;
+import org.sosy_lab.cpachecker.cpa.range.RangeTransferRelation;
+import org.sosy_lab.cpachecker.cpa.range.TypeConstraintSolver;
+import org.sosy_lab.cpachecker.util.AbstractStates;
+import org.sosy_lab.cpachecker.util.CPAs;
+import org.sosy_lab.cpachecker.util.resources.HeapUsageLimit;
+import org.sosy_lab.cpachecker.util.resources.ResourceLimit;
+import org.sosy_lab.cpachecker.util.resources.ResourceLimitChecker;
+import org.sosy_lab.cpachecker.util.resources.WalltimeLimit;
+
+public class RangeAnalysisRunner {
+
+	// RangeAnalysisRunner keeps one CPAchecker instance resident in the current
+	// JVM and runs range analysis on translation units. The
+	// analysis metadata is taken from the transfer relation directly, thus no
+	// metadata file is written or re-parsed. The CPA is taken from the result of
+	// each run instead of the global info of CPAchecker, thus several translation
+	// units can be analyzed concurrently.
+
+	private final Configuration config;
+	private final LogManager logger;
+	private final ShutdownNotifier shutdownNotifier;
+	private final CPAchecker cpachecker;
+
+	public RangeAnalysisRunner(String configFile) throws IOException, InvalidConfigurationException {
+		Configuration typeConverterConfig = Configuration.builder()
+				.setOption("output.disable", "true")
+				.build();
+		FileTypeConverter fileTypeConverter = FileTypeConverter.create(typeConverterConfig);
+		Configuration.getDefaultConverters().put(FileOption.class, fileTypeConverter);
+		this.config = Configuration.builder()
+				.addConverter(FileOption.class, fileTypeConverter)
+				.loadFromFile(configFile)
+				.setOption("output.disable", "true")
+				.setOption("cpa.range.exportMetadata", "false")
+				.build();
+		this.logger = new BasicLogManager(config);
+		this.shutdownNotifier = ShutdownNotifier.create();
+		this.cpachecker = new CPAchecker(config, logger, shutdownNotifier);
+	}
+
+	/**
+	 * Create an in-process solver for type constraints, which shares the configuration and logger of CPAchecker.
+	 * The solver can be reused across translation units.
+	 */
+	public TypeConstraintSolver createTypeConstraintSolver() throws InvalidConfigurationException {
+		return new TypeConstraintSolver(config, logger, shutdownNotifier);
+	}
+	
+	/**
+	 * Run range analysis on the specified translation unit.
+	 * @param tuName the path of translation unit
+	 * @return the transfer relation holding fix metadata, or null if the analysis is not performed
+	 */
+	public RangeTransferRelation analyze(String tuName) {
+		return analyze(tuName, cpachecker, shutdownNotifier, null);
+	}
+	
+	/**
+	 * Run range analysis on the specified translation unit with resource limits.
+	 * @param tuName the path of translation unit
+	 * @param timeLimit wall time limit in milliseconds, non-positive value for no limit
+	 * @param heapLimit limit of used heap in MB, non-positive value for no limit. The used heap of the whole JVM
+	 * is measured, thus the caller should not run other analyses concurrently
+	 * @return the transfer relation holding fix metadata, or null if the analysis is not performed or stopped by limits
+	 */
+	public RangeTransferRelation analyze(String tuName, long timeLimit, long heapLimit) throws InvalidConfigurationException {
+		return analyze(tuName, timeLimit, heapLimit, null);
+	}
+	
+	/**
+	 * Run range analysis on the specified translation unit with resource limits, and join the ranges of each
+	 * variable over all reached states.
+	 * @param varRanges receives ranges of variables by their qualified names (function::variable) if it is not
+	 * null. A variable is absent from a state when its range is unbounded there, thus such variable is unbounded.
+	 * @see #analyze(String, long, long)
+	 */
+	public RangeTransferRelation analyze(String tuName, long timeLimit, long heapLimit, Map<String, Range> varRanges) throws InvalidConfigurationException {
+		if(timeLimit <= 0 && heapLimit <= 0) {
+			return analyze(tuName, cpachecker, shutdownNotifier, varRanges);
+		}
+		// a shutdown request cannot be revoked, thus each analysis with limits has its own notifier
+		ShutdownNotifier notifier = ShutdownNotifier.createWithParent(shutdownNotifier);
+		List<ResourceLimit> limits = new ArrayList<>();
+		if(timeLimit > 0) {
+			limits.add(WalltimeLimit.fromNowOn(timeLimit, TimeUnit.MILLISECONDS));
+		}
+		if(heapLimit > 0) {
+			limits.add(HeapUsageLimit.ofMegabytes(heapLimit));
+		}
+		ResourceLimitChecker limitChecker = new ResourceLimitChecker(notifier, limits);
+		CPAchecker limitedChecker = new CPAchecker(config, logger, notifier);
+		limitChecker.start();
+		try {
+			return analyze(tuName, limitedChecker, notifier, varRanges);
+		} finally {
+			limitChecker.cancel();
+		}
+	}
+	
+	private RangeTransferRelation analyze(String tuName, CPAchecker checker, ShutdownNotifier notifier, Map<String, Range> varRanges) {
+		CPAcheckerResult result = checker.run(tuName);
+		logger.flush();
+		if(notifier.shouldShutdown()) {
+			System.err.println("CPAchecker stopped on " + tuName + ": " + notifier.getReason());
+			return null;
+		}
+		if(result.getResult() == Result.NOT_YET_STARTED) {
+			// CPA is not created for this translation unit, for example the parsing failed
+			System.err.println("CPAchecker failed to analyze " + tuName);
+			return null;
+		}
+		ConfigurableProgramAnalysis cpa = result.getCPA();
+		if(cpa == null) {
+			return null;
+		}
+		RangeCPA rangeCPA = CPAs.retrieveCPA(cpa, RangeCPA.class);
+		if(rangeCPA == null) {
+			System.err.println("Range analysis is not enabled in the configuration!");
+			return null;
+		}
+		if(varRanges != null) {
+			collectVariableRanges(result.getReached(), varRanges);
+		}
+		return (RangeTransferRelation) rangeCPA.getTransferRelation();
+	}
+	
+	/**
+	 * Join the ranges of each variable over all reached states. A variable missing from the result has no
+	 * known range, thus it should be treated as unbounded.
+	 */
+	private static void collectVariableRanges(UnmodifiableReachedSet reached, Map<String, Range> varRanges) {
+		if(reached == null) {
+			return;
+		}
+		List<RangeState> states = new ArrayList<>();
+		Set<String> varNames = new HashSet<>();
+		for(AbstractState state : reached) {
+			RangeState rangeState = AbstractStates.extractStateByType(state, RangeState.class);
+			if(rangeState == null) {
+				continue;
+			}
+			states.add(rangeState);
+			varNames.addAll(rangeState.getRangeMap().keySet());
+		}
+		for(String varName : varNames) {
+			Range joined = null;
+			for(RangeState rangeState : states) {
+				// a variable untracked in this state is unbounded
+				Range range = rangeState.getRange(varName);
+				if(range.isEmpty()) {
+					// the state is unreachable for this variable
+					continue;
+				}
+				joined = joined == null ? range : joined.union(range);
+				if(joined.isUnbound()) {
+					break;
+				}
+			}
+			if(joined != null) {
+				varRanges.put(varName, joined);
+			}
+		}
+	}
+
+}
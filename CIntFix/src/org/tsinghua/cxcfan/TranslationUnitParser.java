@@ -0,0 +1,108 @@
+package org.tsinghua.cxcfan;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.gnu.c.GCCLanguage;
+import org.eclipse.cdt.core.parser.DefaultLogService;
+import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IParserLogService;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
+import org.eclipse.cdt.core.parser.ScannerInfo;
+import org.eclipse.core.runtime.CoreException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+public class TranslationUnitParser {
+
+	// TranslationUnitParser parses translation units with CDT and caches the
+	// results by file name. A cached AST is reused only if the content hash of the
+	// file is unchanged, thus a translation unit which is not rewritten in Phase 1
+	// is parsed only once for Phase 1 and Phase 3. Phase 3 needs the AST of the
+	// rewritten code, thus the AST of Phase 1 cannot be reused once Phase 1 changes
+	// anything: on first processing this is the case for every translation unit
+	// defining main (its return statements are sequentialized) or containing
+	// compound assignments, increments, decrements or logical negations. Reuse
+	// mainly pays off for translation units that are already preprocessed, for
+	// example when a batch is fixed again without result cache.
+	// CPAchecker loads CDT in its own class loader, thus its AST cannot be shared.
+	// Cached ASTs should be used by one thread at a time, since CDT resolves
+	// bindings lazily.
+
+	private static final int maxCachedUnits = 16;
+	
+	private static final Cache<String, CachedUnit> cache = CacheBuilder.newBuilder()
+			.maximumSize(maxCachedUnits)
+			.softValues()
+			.build();
+	
+	private static class CachedUnit {
+		
+		private final HashCode contentHash;
+		private final IASTTranslationUnit unit;
+		
+		private CachedUnit(HashCode contentHash, IASTTranslationUnit unit) {
+			this.contentHash = contentHash;
+			this.unit = unit;
+		}
+	}
+	
+	private TranslationUnitParser() {
+	}
+	
+	/**
+	 * Read and parse the specified translation unit, or reuse the cached AST if the file is not changed.
+	 */
+	public static IASTTranslationUnit parseFile(String tuName) throws IOException, CoreException {
+		return parse(tuName, readContent(tuName));
+	}
+	
+	/**
+	 * Parse the specified code of translation unit, or reuse the cached AST if the code is not changed.
+	 */
+	public static IASTTranslationUnit parse(String tuName, char[] code) throws CoreException {
+		HashCode contentHash = hash(code);
+		CachedUnit cached = cache.getIfPresent(tuName);
+		if(cached != null && cached.contentHash.equals(contentHash)) {
+			return cached.unit;
+		}
+		FileContent content = FileContent.create(tuName, code);
+		IScannerInfo scanner = new ScannerInfo();
+		IParserLogService log = new DefaultLogService();
+		IncludeFileContentProvider provider = IncludeFileContentProvider.getEmptyFilesProvider();
+		IASTTranslationUnit unit = GCCLanguage.getDefault().getASTTranslationUnit(content, scanner, provider, null, 8, log);
+		cache.put(tuName, new CachedUnit(contentHash, unit));
+		return unit;
+	}
+	
+	/**
+	 * Release the cached AST of the specified translation unit after the last phase.
+	 */
+	public static void release(String tuName) {
+		cache.invalidate(tuName);
+	}
+	
+	public static char[] readContent(String tuName) throws IOException {
+		return Files.toString(new File(tuName), Charset.defaultCharset()).toCharArray();
+	}
+	
+	/**
+	 * Check whether the synthesized code is identical to the original code
+	 */
+	public static boolean isSameContent(char[] code, String newCode) {
+		return code.length == newCode.length() && Arrays.equals(code, newCode.toCharArray());
+	}
+	
+	private static HashCode hash(char[] code) {
+		return Hashing.sha256().newHasher(code.length * 2).putUnencodedChars(CharBuffer.wrap(code)).hash();
+	}
+}
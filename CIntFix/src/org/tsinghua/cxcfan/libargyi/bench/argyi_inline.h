@@ -0,0 +1,26 @@
+typedef unsigned long size_t;
+extern void __INTCHECK_ERROR(const char *) __attribute__((noreturn, cold));
+static inline __attribute__((always_inline)) int __INTCHECK_INT_S(long long signed int x) { int y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_INT_S)\n"); return y; }
+static inline __attribute__((always_inline)) int __INTCHECK_INT_U(long long unsigned int x) { int y; if(__builtin_expect(__builtin_add_overflow((long long signed int)x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_INT_U)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned int __INTCHECK_UINT_S(long long signed int x) { unsigned int y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_UINT_S)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned int __INTCHECK_UINT_U(long long unsigned int x) { unsigned int y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_UINT_U)\n"); return y; }
+static inline __attribute__((always_inline)) short __INTCHECK_SHORT_S(long long signed int x) { short y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_SHORT_S)\n"); return y; }
+static inline __attribute__((always_inline)) short __INTCHECK_SHORT_U(long long unsigned int x) { short y; if(__builtin_expect(__builtin_add_overflow((long long signed int)x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_SHORT_U)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned short __INTCHECK_USHORT_S(long long signed int x) { unsigned short y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_USHORT_S)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned short __INTCHECK_USHORT_U(long long unsigned int x) { unsigned short y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_USHORT_U)\n"); return y; }
+static inline __attribute__((always_inline)) signed char __INTCHECK_CHAR_S(long long signed int x) { signed char y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_CHAR_S)\n"); return y; }
+static inline __attribute__((always_inline)) signed char __INTCHECK_CHAR_U(long long unsigned int x) { signed char y; if(__builtin_expect(__builtin_add_overflow((long long signed int)x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_CHAR_U)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned char __INTCHECK_UCHAR_S(long long signed int x) { unsigned char y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_UCHAR_S)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned char __INTCHECK_UCHAR_U(long long unsigned int x) { unsigned char y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_UCHAR_U)\n"); return y; }
+static inline __attribute__((always_inline)) long __INTCHECK_LINT_S(long long signed int x) { return (long)x; }
+static inline __attribute__((always_inline)) long __INTCHECK_LINT_U(long long unsigned int x) { long y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_LINT_U)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned long __INTCHECK_ULINT_S(long long signed int x) { unsigned long y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_ULINT_S)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned long __INTCHECK_ULINT_U(long long unsigned int x) { return (unsigned long)x; }
+static inline __attribute__((always_inline)) long long __INTCHECK_LLINT_S(long long signed int x) { return (long long)x; }
+static inline __attribute__((always_inline)) long long __INTCHECK_LLINT_U(long long unsigned int x) { long long y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_LLINT_U)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned long long __INTCHECK_ULLINT_S(long long signed int x) { unsigned long long y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_ULLINT_S)\n"); return y; }
+static inline __attribute__((always_inline)) unsigned long long __INTCHECK_ULLINT_U(long long unsigned int x) { return (unsigned long long)x; }
+static inline __attribute__((always_inline)) size_t __INTCHECK_INDEX_S(long long signed int x) { size_t y; if(__builtin_expect(__builtin_add_overflow(x, 0, &y), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTCHECK_INDEX_S)\n"); return y; }
+static inline __attribute__((always_inline)) size_t __INTCHECK_INDEX_U(long long unsigned int x) { return (size_t)x; }
+static inline __attribute__((always_inline)) long long unsigned int __INTLEFTSHIFT(long long unsigned int op1, long long unsigned int op2) { if(op1 == 0) return 0; if(__builtin_expect(op2 > (long long unsigned int)__builtin_clzll(op1), 0)) __INTCHECK_ERROR("Error!(Failed in: __INTLEFTSHIFT)\n"); return op1 << op2; }
+static inline __attribute__((always_inline)) long long unsigned int __INTRIGHTSHIFT(long long unsigned int op1, long long unsigned int op2) { return op2 < 64 ? op1 >> op2 : 0; }
@@ -0,0 +1,98 @@
+/* Micro benchmark of sanity check emission modes. The kernels are loops in the
+ * shape of fixed programs (e.g. test/programs/loops and test/programs/olden),
+ * where checks are inserted by FixModule as below. Build with -DARGYI_INLINE to
+ * use the inline checks embedded by CheckEmission.INLINE, otherwise checks are
+ * calls to libargyi. */
+#include <stdio.h>
+#include <stdlib.h>
+#include <time.h>
+
+#ifdef ARGYI_INLINE
+#include "argyi_inline.h"
+#else
+#include "../argyi.h"
+#endif
+
+#define SIZE 4096
+#define ROUNDS 5000
+
+static int data[SIZE];
+static unsigned int hashes[SIZE];
+
+/* accumulation checked against the type of accumulator */
+static int sum(int n)
+{
+	int s = 0;
+	int i;
+	for(i = 0; i < n; i = __INTCHECK_INT_S((long long)i + 1))
+	{
+		s = __INTCHECK_INT_S((long long)s + (long long)(data[__INTCHECK_INDEX_S(i)] & 0xff));
+	}
+	return s;
+}
+
+/* hashing with checked left shifts */
+static unsigned int hash(int n)
+{
+	unsigned int h = 0;
+	int i;
+	for(i = 0; i < n; i++)
+	{
+		h = (unsigned int)__INTLEFTSHIFT(h & 0xffffff, 4) + (unsigned int)data[i];
+		hashes[__INTCHECK_INDEX_S(i)] = __INTCHECK_UINT_U((long long unsigned int)(h >> 3));
+	}
+	return h;
+}
+
+/* narrowing conversions */
+static long narrow(int n)
+{
+	long r = 0;
+	int i;
+	for(i = 0; i < n; i++)
+	{
+		short s = __INTCHECK_SHORT_S((long long)(data[i] % 30000));
+		unsigned char c = __INTCHECK_UCHAR_U((long long unsigned int)(hashes[i] & 0x7f));
+		r += s + c + (long)__INTRIGHTSHIFT((long long unsigned int)hashes[i], 2);
+	}
+	return r;
+}
+
+static double elapsed(struct timespec *start)
+{
+	struct timespec end;
+	clock_gettime(CLOCK_MONOTONIC, &end);
+	return (end.tv_sec - start->tv_sec) * 1e3 + (end.tv_nsec - start->tv_nsec) / 1e6;
+}
+
+int main(void)
+{
+	struct timespec start;
+	long check = 0;
+	int i, r;
+	for(i = 0; i < SIZE; i++)
+	{
+		data[i] = rand() % 100000;
+	}
+	clock_gettime(CLOCK_MONOTONIC, &start);
+	for(r = 0; r < ROUNDS; r++)
+	{
+		check += sum(SIZE);
+	}
+	printf("sum:    %8.1f ms\n", elapsed(&start));
+	clock_gettime(CLOCK_MONOTONIC, &start);
+	for(r = 0; r < ROUNDS; r++)
+	{
+		check += hash(SIZE);
+	}
+	printf("hash:   %8.1f ms\n", elapsed(&start));
+	clock_gettime(CLOCK_MONOTONIC, &start);
+	for(r = 0; r < ROUNDS; r++)
+	{
+		check += narrow(SIZE);
+	}
+	printf("narrow: %8.1f ms\n", elapsed(&start));
+	/* keep the results alive */
+	printf("checksum: %ld\n", check);
+	return 0;
+}
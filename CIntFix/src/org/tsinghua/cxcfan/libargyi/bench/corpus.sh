@@ -0,0 +1,46 @@
+#!/bin/bash
+# Compare the overhead of sanity check emission modes on fixed programs, e.g. the
+# runnable programs of test/programs/olden fixed twice by IntErrorFix, once with
+# inlineChecks unset and once with it set.
+# usage: corpus.sh <dir of library-mode .fixed.i> <dir of inline-mode .fixed.i> [runs]
+
+if [ $# -lt 2 ]; then
+	echo "usage: $0 <library-mode dir> <inline-mode dir> [runs]"
+	exit 1
+fi
+LIBDIR=$1
+INLINEDIR=$2
+RUNS=${3:-5}
+CC=${CC:-gcc}
+CFLAGS=${CFLAGS:--O2 -w}
+ARGYI=$(cd "$(dirname "$0")/.." && pwd)/argyi.c
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+$CC $CFLAGS -c "$ARGYI" -o "$WORK/argyi.o" || exit 1
+
+# total wall time (ms) of running the executable for $RUNS times
+measure() {
+	local start end
+	start=$(date +%s%N)
+	for ((i = 0; i < RUNS; i++)); do
+		"$1" > /dev/null 2>&1
+	done
+	end=$(date +%s%N)
+	echo $(((end - start) / 1000000))
+}
+
+printf "%-32s %12s %12s\n" "program" "library(ms)" "inline(ms)"
+for lib in "$LIBDIR"/*.fixed.i; do
+	name=$(basename "$lib")
+	inl="$INLINEDIR/$name"
+	if [ ! -f "$inl" ]; then
+		continue
+	fi
+	if ! $CC $CFLAGS -x c "$lib" -x none "$WORK/argyi.o" -lm -o "$WORK/lib.out" || \
+		! $CC $CFLAGS -x c "$inl" -x none "$WORK/argyi.o" -lm -o "$WORK/inline.out"; then
+		echo "$name: failed to compile"
+		continue
+	fi
+	printf "%-32s %12s %12s\n" "$name" "$(measure "$WORK/lib.out")" "$(measure "$WORK/inline.out")"
+done
@@ -0,0 +1,167 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Microbenchmark of the 64-bit fast path of {@link CompInteger}.
+ *
+ * The same mix of operations as in range arithmetic (add, subtract, multiply,
+ * compare, min/max) is timed on
+ *  (a) CompInteger with operands that fit 64 bits (fast path),
+ *  (b) CompInteger with operands that do not fit 64 bits (BigInteger path), and
+ *  (c) plain BigInteger with the operands of (a), which is how CompInteger stored
+ *      all integers before the fast path.
+ *
+ * Usage: ant build-microbenchmarks, then
+ *   java -cp bin:bin-microbenchmark:lib/java/runtime/* org.sosy_lab.cpachecker.cpa.range.CompIntegerBenchmark [operands] [rounds]
+ * It prints the best time per operation of each variant over all rounds, and the bytes
+ * allocated per operation.
+ */
+public class CompIntegerBenchmark {
+
+  private static final int DEFAULT_OPERANDS = 4096;
+  private static final int DEFAULT_ROUNDS = 20;
+  private static final int REPETITIONS = 50;
+  private static final int OPS_PER_PAIR = 6;
+
+  private static final AllocationCounter allocations = new AllocationCounter();
+
+  // results are accumulated here, such that the JIT cannot eliminate the operations
+  private static long sink = 0;
+
+  static long[] randomValues(int count) {
+    // bounds of variables and constants in C programs, mostly small and some near the type limits
+    Random random = new Random(0);
+    long[] values = new long[count];
+    for(int i = 0; i < count; i++) {
+      switch(random.nextInt(4)) {
+      case 0:
+        values[i] = random.nextInt(256) - 128;
+        break;
+      case 1:
+        values[i] = random.nextInt();
+        break;
+      case 2:
+        values[i] = random.nextBoolean() ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        break;
+      default:
+        values[i] = random.nextLong() >> 16;
+      }
+    }
+    return values;
+  }
+
+  public static void main(String[] args) {
+    int operands = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPERANDS;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+    long[] values = randomValues(operands);
+    CompInteger[] small = new CompInteger[operands];
+    CompInteger[] large = new CompInteger[operands];
+    BigInteger[] plain = new BigInteger[operands];
+    BigInteger offset = BigInteger.ONE.shiftLeft(Long.SIZE);
+    for(int i = 0; i < operands; i++) {
+      small[i] = CompInteger.valueOf(values[i]);
+      plain[i] = BigInteger.valueOf(values[i]);
+      large[i] = CompInteger.valueOf(plain[i].add(values[i] < 0 ? offset.negate() : offset));
+    }
+
+    long bestSmall = Long.MAX_VALUE;
+    long bestLarge = Long.MAX_VALUE;
+    long bestPlain = Long.MAX_VALUE;
+    // the first rounds also warm up the JIT
+    for(int round = 0; round < rounds; round++) {
+      bestSmall = Math.min(bestSmall, time(small));
+      bestLarge = Math.min(bestLarge, time(large));
+      bestPlain = Math.min(bestPlain, time(plain));
+    }
+
+    // allocations are measured after warm-up, since escape analysis of the JIT removes some of them
+    long allocSmall = allocations.allocatedBytes();
+    time(small);
+    allocSmall = allocations.allocatedBytes() - allocSmall;
+    long allocLarge = allocations.allocatedBytes();
+    time(large);
+    allocLarge = allocations.allocatedBytes() - allocLarge;
+    long allocPlain = allocations.allocatedBytes();
+    time(plain);
+    allocPlain = allocations.allocatedBytes() - allocPlain;
+
+    long ops = (long) (operands - 1) * REPETITIONS * OPS_PER_PAIR;
+    print("CompInteger, 64-bit operands:    ", bestSmall, allocSmall, ops);
+    print("CompInteger, BigInteger operands:", bestLarge, allocLarge, ops);
+    print("BigInteger, 64-bit operands:     ", bestPlain, allocPlain, ops);
+    System.out.printf("Speedup of the fast path over BigInteger: %.2fx%n", (double) bestPlain / bestSmall);
+    System.out.println("(checksum " + sink + ")");
+  }
+
+  static void print(String name, long time, long allocated, long ops) {
+    if(allocations.isSupported()) {
+      System.out.printf("%s %6.2f ns/op %7.2f B/op%n", name, (double) time / ops, (double) allocated / ops);
+    } else {
+      System.out.printf("%s %6.2f ns/op%n", name, (double) time / ops);
+    }
+  }
+
+  private static long time(CompInteger[] vals) {
+    long start = System.nanoTime();
+    long acc = 0;
+    for(int r = 0; r < REPETITIONS; r++) {
+      for(int i = 1; i < vals.length; i++) {
+        CompInteger a = vals[i - 1];
+        CompInteger b = vals[i];
+        CompInteger sum = a.add(b);
+        CompInteger diff = a.subtract(b);
+        CompInteger prod = a.multiply(b);
+        acc += a.compareTo(b);
+        acc += sum.min(diff).signum() + prod.max(diff).signum();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    sink += acc;
+    return elapsed;
+  }
+
+  private static long time(BigInteger[] vals) {
+    long start = System.nanoTime();
+    long acc = 0;
+    for(int r = 0; r < REPETITIONS; r++) {
+      for(int i = 1; i < vals.length; i++) {
+        BigInteger a = vals[i - 1];
+        BigInteger b = vals[i];
+        BigInteger sum = a.add(b);
+        BigInteger diff = a.subtract(b);
+        BigInteger prod = a.multiply(b);
+        acc += a.compareTo(b);
+        acc += sum.min(diff).signum() + prod.max(diff).signum();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    sink += acc;
+    return elapsed;
+  }
+}
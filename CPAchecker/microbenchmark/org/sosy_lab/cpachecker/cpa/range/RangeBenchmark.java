@@ -0,0 +1,99 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+/**
+ * Microbenchmark of the arithmetic of {@link Range} in the transfer relation and the join of states.
+ *
+ * Each of {@link Range#plus(Range)}, {@link Range#times(Range)} and {@link Range#union(Range)} is timed
+ * on ranges whose bounds are the operands of {@link CompIntegerBenchmark}, and the bytes allocated
+ * per operation are counted, since each result is a new range with new bounds unless it is shared.
+ *
+ * Usage: ant build-microbenchmarks, then
+ *   java -cp bin:bin-microbenchmark:lib/java/runtime/* org.sosy_lab.cpachecker.cpa.range.RangeBenchmark [operands] [rounds]
+ */
+public class RangeBenchmark {
+
+  private static final int DEFAULT_OPERANDS = 4096;
+  private static final int DEFAULT_ROUNDS = 20;
+  private static final int REPETITIONS = 50;
+
+  private static final AllocationCounter allocations = new AllocationCounter();
+
+  private static enum Operation {
+    PLUS, TIMES, UNION
+  }
+
+  // results are accumulated here, such that the JIT cannot eliminate the operations
+  private static long sink = 0;
+
+  public static void main(String[] args) {
+    int operands = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPERANDS;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+    long[] values = CompIntegerBenchmark.randomValues(operands + 1);
+    Range[] ranges = new Range[operands];
+    for(int i = 0; i < operands; i++) {
+      ranges[i] = new Range(Math.min(values[i], values[i + 1]), Math.max(values[i], values[i + 1]));
+    }
+
+    long ops = (long) (operands - 1) * REPETITIONS;
+    for(Operation operation : Operation.values()) {
+      long best = Long.MAX_VALUE;
+      // the first rounds also warm up the JIT
+      for(int round = 0; round < rounds; round++) {
+        best = Math.min(best, time(ranges, operation));
+      }
+      long allocated = allocations.allocatedBytes();
+      time(ranges, operation);
+      allocated = allocations.allocatedBytes() - allocated;
+      CompIntegerBenchmark.print(String.format("Range.%-6s", operation.name().toLowerCase()), best, allocated, ops);
+    }
+    System.out.println("(checksum " + sink + ")");
+  }
+
+  private static long time(Range[] ranges, Operation operation) {
+    long start = System.nanoTime();
+    long acc = 0;
+    for(int r = 0; r < REPETITIONS; r++) {
+      for(int i = 1; i < ranges.length; i++) {
+        Range result;
+        switch(operation) {
+        case PLUS:
+          result = ranges[i - 1].plus(ranges[i]);
+          break;
+        case TIMES:
+          result = ranges[i - 1].times(ranges[i]);
+          break;
+        default:
+          result = ranges[i - 1].union(ranges[i]);
+        }
+        acc += result.getLow().signum() + result.getHigh().signum();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    sink += acc;
+    return elapsed;
+  }
+}
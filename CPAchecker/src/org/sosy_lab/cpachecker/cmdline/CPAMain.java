@@ -149,6 +149,8 @@ public class CPAMain {
       logManager.logUserException(Level.WARNING, e, "Could not write statistics to file");
     }
 
+    result.waitForExport();
+
     System.out.flush();
     System.err.flush();
     logManager.flush();
@@ -0,0 +1,137 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.sosy_lab.common.concurrency.Threads;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.FileOption;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.io.Path;
+import org.sosy_lab.common.io.Paths;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.core.interfaces.AnalysisResultExporter;
+import org.sosy_lab.cpachecker.core.interfaces.AnalysisResultExporter.ResultWriter;
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.util.CPAs;
+
+/**
+ * Class that collects the {@link ResultWriter}s of all {@link AnalysisResultExporter}s
+ * after the analysis and executes them.
+ */
+@Options(prefix="analysis.export")
+public class AnalysisResultExportManager {
+
+  @Option(secure=true, name="directory",
+      description="directory where CPAs write the result of the analysis, e.g., the metadata of range analysis")
+  @FileOption(FileOption.Type.OUTPUT_FILE)
+  private Path outputDirectory = Paths.get("metadata");
+
+  @Option(secure=true, description="write the result of the analysis on separate threads, "
+      + "such that it overlaps with printing statistics")
+  private boolean async = true;
+
+  private final LogManager logger;
+
+  private final List<Thread> exportThreads = new ArrayList<>();
+
+  public AnalysisResultExportManager(Configuration pConfig, LogManager pLogger)
+      throws InvalidConfigurationException {
+    pConfig.inject(this);
+    logger = pLogger;
+  }
+
+  /**
+   * Collect the writers of all CPAs and start writing. This should be called once per analysis.
+   */
+  public void export(ConfigurableProgramAnalysis pCpa, UnmodifiableReachedSet pReached) {
+    if (outputDirectory == null) {
+      return;
+    }
+
+    Collection<ResultWriter> writers = new ArrayList<>();
+    for (ConfigurableProgramAnalysis cpa : CPAs.asIterable(pCpa)) {
+      if (cpa instanceof AnalysisResultExporter) {
+        ((AnalysisResultExporter) cpa).collectResultWriters(pReached, writers);
+      }
+    }
+    if (writers.isEmpty()) {
+      return;
+    }
+
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+      logger.log(Level.WARNING, "Could not create directory", outputDirectory, "for the analysis result");
+      return;
+    }
+
+    for (final ResultWriter writer : writers) {
+      if (async) {
+        // running writers in parallel is thread-safe because their data is not modified anymore
+        Thread thread = Threads.newThread(new Runnable() {
+          @Override
+          public void run() {
+            write(writer);
+          }
+        }, "Result export thread (" + writer.getName() + ")");
+        exportThreads.add(thread);
+        thread.start();
+      } else {
+        write(writer);
+      }
+    }
+  }
+
+  private void write(ResultWriter pWriter) {
+    try {
+      pWriter.write(outputDirectory);
+      logger.log(Level.FINE, "Wrote", pWriter.getName(), "to", outputDirectory);
+    } catch (IOException e) {
+      logger.logUserException(Level.WARNING, e, "Could not write " + pWriter.getName());
+    }
+  }
+
+  /**
+   * Block until all writers started by {@link #export(ConfigurableProgramAnalysis, UnmodifiableReachedSet)}
+   * have finished.
+   */
+  public void waitForExport() {
+    try {
+      for (Thread thread : exportThreads) {
+        thread.join();
+      }
+      exportThreads.clear();
+    } catch (InterruptedException e) {
+      logger.log(Level.WARNING, "Interrupted while writing the result of the analysis");
+      Thread.currentThread().interrupt();
+    }
+  }
+}
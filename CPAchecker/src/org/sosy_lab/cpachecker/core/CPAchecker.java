@@ -175,6 +175,7 @@ public class CPAchecker {
   private final Configuration config;
   private final ShutdownNotifier shutdownNotifier;
   private final CoreComponentsFactory factory;
+  private final AnalysisResultExportManager exportManager;
 
   // The content of this String is read from a file that is created by the
   // ant task "init".
@@ -214,6 +215,7 @@ public class CPAchecker {
 
     config.inject(this);
     factory = new CoreComponentsFactory(pConfiguration, pLogManager, shutdownNotifier);
+    exportManager = new AnalysisResultExportManager(pConfiguration, pLogManager);
   }
 
   public CPAcheckerResult run(String programDenotation) {
@@ -224,6 +226,7 @@ public class CPAchecker {
     ReachedSet reached = null;
     Result result = Result.NOT_YET_STARTED;
     String violatedPropertyDescription = "";
+    ConfigurableProgramAnalysis cpa = null;
 
     final ShutdownRequestListener interruptThreadOnShutdown = interruptCurrentThreadOnShutdown();
     shutdownNotifier.register(interruptThreadOnShutdown);
@@ -252,7 +255,7 @@ public class CPAchecker {
             ? SpecAutomatonCompositionType.BACKWARD_TO_ENTRY_SPEC
             : SpecAutomatonCompositionType.TARGET_SPEC;
 
-        ConfigurableProgramAnalysis cpa = factory.createCPA(
+        cpa = factory.createCPA(
             cfa, stats,
             speComposition);
         GlobalInfo.getInstance().setUpInfoFromCPA(cpa);
@@ -275,7 +278,7 @@ public class CPAchecker {
 
       if (disableAnalysis) {
         return new CPAcheckerResult(Result.NOT_YET_STARTED,
-            violatedPropertyDescription, null, stats);
+            violatedPropertyDescription, null, cpa, stats, null);
       }
 
       // run analysis
@@ -283,6 +286,11 @@ public class CPAchecker {
 
       AlgorithmStatus status = runAlgorithm(algorithm, reached, stats);
 
+      if (cpa != null) {
+        // the writers run in parallel to printing statistics, cf. CPAcheckerResult#waitForExport
+        exportManager.export(cpa, reached);
+      }
+
       violatedPropertyDescription = findViolatedProperties(reached);
       if (violatedPropertyDescription != null) {
         if (!status.isPrecise()) {
@@ -329,7 +337,7 @@ public class CPAchecker {
       shutdownNotifier.unregister(interruptThreadOnShutdown);
     }
     return new CPAcheckerResult(result,
-        violatedPropertyDescription, reached, stats);
+        violatedPropertyDescription, reached, cpa, stats, exportManager);
   }
 
   private void checkIfOneValidFile(String fileDenotation) throws InvalidConfigurationException {
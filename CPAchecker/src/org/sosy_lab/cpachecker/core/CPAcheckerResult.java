@@ -29,6 +29,7 @@ import java.io.PrintStream;
 
 import javax.annotation.Nullable;
 
+import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
 import org.sosy_lab.cpachecker.core.interfaces.Statistics;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
@@ -52,17 +53,25 @@ public class CPAcheckerResult {
 
   private final @Nullable ReachedSet reached;
 
+  private final @Nullable ConfigurableProgramAnalysis cpa;
+
   private final @Nullable Statistics stats;
 
   private @Nullable Statistics proofGeneratorStats = null;
 
+  private final @Nullable AnalysisResultExportManager exportManager;
+
   CPAcheckerResult(Result result,
         String violatedPropertyDescription,
-        @Nullable ReachedSet reached, @Nullable Statistics stats) {
+        @Nullable ReachedSet reached, @Nullable ConfigurableProgramAnalysis cpa,
+        @Nullable Statistics stats,
+        @Nullable AnalysisResultExportManager exportManager) {
     this.violatedPropertyDescription = checkNotNull(violatedPropertyDescription);
     this.result = checkNotNull(result);
     this.reached = reached;
+    this.cpa = cpa;
     this.stats = stats;
+    this.exportManager = exportManager;
   }
 
   /**
@@ -79,6 +88,15 @@ public class CPAcheckerResult {
     return reached;
   }
 
+  /**
+   * Return the CPA of the analysis, or null if it was not created.
+   * Unlike {@link org.sosy_lab.cpachecker.util.globalinfo.GlobalInfo},
+   * this is not overwritten by other analyses running in the same JVM.
+   */
+  public @Nullable ConfigurableProgramAnalysis getCPA() {
+    return cpa;
+  }
+
   public void addProofGeneratorStatistics(Statistics pProofGeneratorStatistics) {
     proofGeneratorStats = pProofGeneratorStatistics;
   }
@@ -96,6 +114,16 @@ public class CPAcheckerResult {
     }
   }
 
+  /**
+   * Wait until the result of the analysis is written to files
+   * (cf. {@link org.sosy_lab.cpachecker.core.interfaces.AnalysisResultExporter}).
+   */
+  public void waitForExport() {
+    if (exportManager != null) {
+      exportManager.waitForExport();
+    }
+  }
+
   public void printResult(PrintStream out) {
     if (result == Result.NOT_YET_STARTED) {
       return;
@@ -27,7 +27,12 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import javax.annotation.Nullable;
@@ -48,6 +53,7 @@ import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.AlgorithmIterationListener;
 import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysis;
 import org.sosy_lab.cpachecker.core.interfaces.ForcedCovering;
+import org.sosy_lab.cpachecker.core.interfaces.ForkableTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.MergeOperator;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
 import org.sosy_lab.cpachecker.core.interfaces.PrecisionAdjustment;
@@ -59,17 +65,16 @@ import org.sosy_lab.cpachecker.core.interfaces.StopOperator;
 import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
 import org.sosy_lab.cpachecker.cpa.arg.ARGMergeJoinCPAEnabledAnalysis;
+import org.sosy_lab.cpachecker.cpa.arg.ARGState;
 import org.sosy_lab.cpachecker.cpa.arg.ARGTransferRelation;
 import org.sosy_lab.cpachecker.cpa.composite.CompositeTransferRelation;
-import org.sosy_lab.cpachecker.cpa.range.ConstraintGenerator;
-import org.sosy_lab.cpachecker.cpa.range.LocGuideGenerator;
-import org.sosy_lab.cpachecker.cpa.range.NameLocGenerator;
-import org.sosy_lab.cpachecker.cpa.range.RangeTransferRelation;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.util.AbstractStates;
 
 import com.google.common.base.Functions;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 public class CPAAlgorithm implements Algorithm, StatisticsProvider {
@@ -84,6 +89,9 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
     private Timer stopTimer          = new Timer();
     private Timer addTimer           = new Timer();
     private Timer forcedCoveringTimer = new Timer();
+    private Timer parallelTimer      = new Timer();
+    // time spent by all threads in computing successors in parallel
+    private final AtomicLong parallelTaskTime = new AtomicLong();
 
     private int   countIterations   = 0;
     private int   maxWaitlistSize   = 0;
@@ -93,6 +101,8 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
     private int   countMerge        = 0;
     private int   countStop         = 0;
     private int   countBreak        = 0;
+    private int   countBatches      = 0;
+    private int   parallelThreads   = 0;
 
     @Override
     public String getName() {
@@ -116,6 +126,15 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       out.println("Number of times merged:          " + countMerge);
       out.println("Number of times stopped:         " + countStop);
       out.println("Number of times breaked:         " + countBreak);
+      if (countBatches > 0) {
+        out.println("Number of parallel batches:      " + countBatches
+            + " (avg. size " + countIterations / countBatches + ", " + parallelThreads + " threads)");
+        long wallTime = parallelTimer.getSumTime().asNanos() * parallelThreads;
+        if (wallTime > 0) {
+          // ratio of time that the threads actually spent in the transfer relation
+          out.println("Parallel efficiency:             " + (100 * parallelTaskTime.get() / wallTime) + "%");
+        }
+      }
       out.println();
       out.println("Total time for CPA algorithm:     " + totalTimer + " (Max: " + totalTimer.getMaxTime().formatAs(TimeUnit.SECONDS) + ")");
       out.println("  Time for choose from waitlist:  " + chooseTimer);
@@ -124,6 +143,9 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       }
       out.println("  Time for precision adjustment:  " + precisionTimer);
       out.println("  Time for transfer relation:     " + transferTimer);
+      if (parallelTimer.getNumberOfIntervals() > 0) {
+        out.println("    Time for parallel successors: " + parallelTimer);
+      }
       if (mergeTimer.getNumberOfIntervals() > 0) {
         out.println("  Time for merge operator:        " + mergeTimer);
       }
@@ -144,6 +166,19 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
         + " Useful for incomplete analysis with no counterexample checking.")
     private boolean reportFalseAsUnknown = false;
 
+    @Option(secure=true, description="Number of threads computing successors of waitlist states in parallel,"
+        + " 0 or 1 to compute them sequentially. Every transfer relation needs to be forkable"
+        + " (see ForkableTransferRelation), otherwise successors are computed sequentially."
+        + " Merge, stop and adding to the reached set are performed sequentially in the order of the waitlist."
+        + " If a transfer relation shares information across states, results can differ from the sequential mode."
+        + " Currently only the location, callstack, loopstack, automaton and range analyses are forkable,"
+        + " thus e.g. the value analysis stays sequential.")
+    private int successorThreads = 0;
+
+    @Option(secure=true, description="Maximal number of states taken from the waitlist at once,"
+        + " if successors are computed in parallel.")
+    private int successorBatchSize = 64;
+
     private final ForcedCovering forcedCovering;
 
     private final ConfigurableProgramAnalysis cpa;
@@ -172,7 +207,8 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
     }
 
     public CPAAlgorithm newInstance() {
-      return new CPAAlgorithm(cpa, logger, shutdownNotifier, forcedCovering, iterationListener, reportFalseAsUnknown);
+      return new CPAAlgorithm(cpa, logger, shutdownNotifier, forcedCovering, iterationListener, reportFalseAsUnknown,
+          successorThreads, successorBatchSize);
     }
   }
 
@@ -204,11 +240,17 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
 
   private final AlgorithmStatus status;
 
+  private final int successorThreads;
+
+  private final int successorBatchSize;
+
   private CPAAlgorithm(ConfigurableProgramAnalysis cpa, LogManager logger,
       ShutdownNotifier pShutdownNotifier,
       ForcedCovering pForcedCovering,
       AlgorithmIterationListener pIterationListener,
-      boolean pIsImprecise) {
+      boolean pIsImprecise,
+      int pSuccessorThreads,
+      int pSuccessorBatchSize) {
 
     this.cpa = cpa;
     this.logger = logger;
@@ -216,6 +258,8 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
     this.forcedCovering = pForcedCovering;
     this.iterationListener = pIterationListener;
     status = AlgorithmStatus.SOUND_AND_PRECISE.withPrecise(!pIsImprecise);
+    successorThreads = pSuccessorThreads;
+    successorBatchSize = Math.max(1, pSuccessorBatchSize);
   }
 
   @Override
@@ -232,234 +276,378 @@ public class CPAAlgorithm implements Algorithm, StatisticsProvider {
       stats.stopTimer.stopIfRunning();
       stats.addTimer.stopIfRunning();
       stats.forcedCoveringTimer.stopIfRunning();
+      stats.parallelTimer.stopIfRunning();
     }
   }
 
   private AlgorithmStatus run0(final ReachedSet reachedSet) throws CPAException, InterruptedException {
     final TransferRelation transferRelation = cpa.getTransferRelation();
-    final MergeOperator mergeOperator = cpa.getMergeOperator();
-    final StopOperator stopOperator = cpa.getStopOperator();
-    final PrecisionAdjustment precisionAdjustment =
-        cpa.getPrecisionAdjustment();
 
-    while (reachedSet.hasWaitingState()) {
-      shutdownNotifier.shutdownIfNecessary();
-
-      stats.countIterations++;
+    boolean parallel = false;
+    if (successorThreads > 1) {
+      if (forcedCovering != null) {
+        logger.log(Level.WARNING, "Successors are computed sequentially since forced covering is used.");
+      } else if (forkTransferRelation(transferRelation) == null) {
+        logger.log(Level.WARNING, "Successors are computed sequentially since the transfer relation cannot be forked.");
+      } else {
+        parallel = true;
+      }
+    }
 
-      // Pick next state using strategy
-      // BFS, DFS or top sort according to the configuration
-      int size = reachedSet.getWaitlist().size();
-      if (size >= stats.maxWaitlistSize) {
-        stats.maxWaitlistSize = size;
+    if (parallel) {
+      if (runParallel(reachedSet, transferRelation)) {
+        return status;
       }
-      stats.countWaitlistSize += size;
+    } else {
+      while (reachedSet.hasWaitingState()) {
+        shutdownNotifier.shutdownIfNecessary();
 
-      stats.chooseTimer.start();
-      final AbstractState state = reachedSet.popFromWaitlist();
-      final Precision precision = reachedSet.getPrecision(state);
-      stats.chooseTimer.stop();
+        stats.countIterations++;
 
-      logger.log(Level.FINER, "Retrieved state from waitlist");
-      logger.log(Level.ALL, "Current state is", state, "with precision",
-          precision);
+        // Pick next state using strategy
+        // BFS, DFS or top sort according to the configuration
+        int size = reachedSet.getWaitlist().size();
+        if (size >= stats.maxWaitlistSize) {
+          stats.maxWaitlistSize = size;
+        }
+        stats.countWaitlistSize += size;
 
-      if (forcedCovering != null) {
-        stats.forcedCoveringTimer.start();
-        try {
-          boolean stop = forcedCovering.tryForcedCovering(state, precision, reachedSet);
+        stats.chooseTimer.start();
+        final AbstractState state = reachedSet.popFromWaitlist();
+        final Precision precision = reachedSet.getPrecision(state);
+        stats.chooseTimer.stop();
 
-          if (stop) {
-            // TODO: remove state from reached set?
-            continue;
+        logger.log(Level.FINER, "Retrieved state from waitlist");
+        logger.log(Level.ALL, "Current state is", state, "with precision",
+            precision);
+
+        if (forcedCovering != null) {
+          stats.forcedCoveringTimer.start();
+          try {
+            boolean stop = forcedCovering.tryForcedCovering(state, precision, reachedSet);
+
+            if (stop) {
+              // TODO: remove state from reached set?
+              continue;
+            }
+          } finally {
+            stats.forcedCoveringTimer.stop();
           }
+        }
+
+        stats.transferTimer.start();
+        Collection<? extends AbstractState> successors;
+        try {
+          successors = transferRelation.getAbstractSuccessors(state, precision);
         } finally {
-          stats.forcedCoveringTimer.stop();
+          stats.transferTimer.stop();
+        }
+        // TODO When we have a nice way to mark the analysis result as incomplete,
+        // we could continue analysis on a CPATransferException with the next state from waitlist.
+
+        if (handleSuccessors(state, precision, successors, reachedSet)) {
+          return status;
+        }
+
+        if (iterationListener != null) {
+          iterationListener.afterAlgorithmIteration(this, reachedSet);
         }
       }
+    }
+
+    return status;
+  }
+
+  /**
+   * Apply precision adjustment, merge and stop to the successors of a state, and add them to the reached set.
+   *
+   * @return Whether the analysis should stop because a BREAK is signalled.
+   */
+  private boolean handleSuccessors(final AbstractState state, final Precision precision,
+      final Collection<? extends AbstractState> successors, final ReachedSet reachedSet)
+      throws CPAException, InterruptedException {
+    final MergeOperator mergeOperator = cpa.getMergeOperator();
+    final StopOperator stopOperator = cpa.getStopOperator();
+    final PrecisionAdjustment precisionAdjustment =
+        cpa.getPrecisionAdjustment();
+
+    int numSuccessors = successors.size();
+    logger.log(Level.FINER, "Current state has", numSuccessors,
+        "successors");
+    stats.countSuccessors += numSuccessors;
+    stats.maxSuccessors = Math.max(numSuccessors, stats.maxSuccessors);
 
-      stats.transferTimer.start();
-      Collection<? extends AbstractState> successors;
+    for (AbstractState successor : Iterables.consumingIterable(successors)) {
+      logger.log(Level.FINER, "Considering successor of current state");
+      logger.log(Level.ALL, "Successor of", state, "\nis", successor);
+
+      stats.precisionTimer.start();
+      PrecisionAdjustmentResult precAdjustmentResult;
       try {
-        successors = transferRelation.getAbstractSuccessors(state, precision);
+        Optional<PrecisionAdjustmentResult> precAdjustmentOptional =
+            precisionAdjustment.prec(
+                successor, precision, reachedSet,
+                Functions.<AbstractState>identity(),
+                successor);
+        if (!precAdjustmentOptional.isPresent()) {
+          continue;
+        }
+        precAdjustmentResult = precAdjustmentOptional.get();
       } finally {
-        stats.transferTimer.stop();
+        stats.precisionTimer.stop();
       }
-      // TODO When we have a nice way to mark the analysis result as incomplete,
-      // we could continue analysis on a CPATransferException with the next state from waitlist.
 
-      int numSuccessors = successors.size();
-      logger.log(Level.FINER, "Current state has", numSuccessors,
-          "successors");
-      stats.countSuccessors += numSuccessors;
-      stats.maxSuccessors = Math.max(numSuccessors, stats.maxSuccessors);
+      successor = precAdjustmentResult.abstractState();
+      Precision successorPrecision = precAdjustmentResult.precision();
+      Action action = precAdjustmentResult.action();
 
-      for (AbstractState successor : Iterables.consumingIterable(successors)) {
-        logger.log(Level.FINER, "Considering successor of current state");
-        logger.log(Level.ALL, "Successor of", state, "\nis", successor);
-
-        stats.precisionTimer.start();
-        PrecisionAdjustmentResult precAdjustmentResult;
+      if (action == Action.BREAK) {
+        stats.stopTimer.start();
+        boolean stop;
         try {
-          Optional<PrecisionAdjustmentResult> precAdjustmentOptional =
-              precisionAdjustment.prec(
-                  successor, precision, reachedSet,
-                  Functions.<AbstractState>identity(),
-                  successor);
-          if (!precAdjustmentOptional.isPresent()) {
-            continue;
-          }
-          precAdjustmentResult = precAdjustmentOptional.get();
+          stop = stopOperator.stop(successor, reachedSet.getReached(successor), successorPrecision);
         } finally {
-          stats.precisionTimer.stop();
+          stats.stopTimer.stop();
         }
 
-        successor = precAdjustmentResult.abstractState();
-        Precision successorPrecision = precAdjustmentResult.precision();
-        Action action = precAdjustmentResult.action();
+        if (AbstractStates.isTargetState(successor) && stop) {
+          // don't signal BREAK for covered states
+          // no need to call merge and stop either, so just ignore this state
+          // and handle next successor
+          stats.countStop++;
+          logger.log(Level.FINER,
+              "Break was signalled but ignored because the state is covered.");
+          continue;
 
-        if (action == Action.BREAK) {
-          stats.stopTimer.start();
-          boolean stop;
-          try {
-            stop = stopOperator.stop(successor, reachedSet.getReached(successor), successorPrecision);
-          } finally {
-            stats.stopTimer.stop();
-          }
+        } else {
+          stats.countBreak++;
+          logger.log(Level.FINER, "Break signalled, CPAAlgorithm will stop.");
 
-          if (AbstractStates.isTargetState(successor) && stop) {
-            // don't signal BREAK for covered states
-            // no need to call merge and stop either, so just ignore this state
-            // and handle next successor
-            stats.countStop++;
-            logger.log(Level.FINER,
-                "Break was signalled but ignored because the state is covered.");
-            continue;
+          // add the new state
+          reachedSet.add(successor, successorPrecision);
 
-          } else {
-            stats.countBreak++;
-            logger.log(Level.FINER, "Break signalled, CPAAlgorithm will stop.");
+          if (!successors.isEmpty()) {
+            // re-add the old state to the waitlist, there are unhandled
+            // successors left that otherwise would be forgotten
+            reachedSet.reAddToWaitlist(state);
+          }
 
-            // add the new state
-            reachedSet.add(successor, successorPrecision);
+          return true;
+        }
+      }
+      assert action == Action.CONTINUE : "Enum Action has unhandled values!";
+
+      Collection<AbstractState> reached = reachedSet.getReached(successor);
 
-            if (!successors.isEmpty()) {
-              // re-add the old state to the waitlist, there are unhandled
-              // successors left that otherwise would be forgotten
-              reachedSet.reAddToWaitlist(state);
+      // An optimization, we don't bother merging if we know that the
+      // merge operator won't do anything (i.e., it is merge-sep).
+      if (mergeOperator != MergeSepOperator.getInstance() && !reached.isEmpty()) {
+        stats.mergeTimer.start();
+        try {
+          List<AbstractState> toRemove = new ArrayList<>();
+          List<Pair<AbstractState, Precision>> toAdd = new ArrayList<>();
+
+          logger.log(Level.FINER, "Considering", reached.size(),
+              "states from reached set for merge");
+          for (AbstractState reachedState : reached) {
+            AbstractState mergedState =
+                mergeOperator.merge(successor, reachedState,
+                    successorPrecision);
+
+            if (!mergedState.equals(reachedState)) {
+              logger.log(Level.FINER,
+                  "Successor was merged with state from reached set");
+              logger.log(Level.ALL, "Merged", successor, "\nand",
+                  reachedState, "\n-->", mergedState);
+              stats.countMerge++;
+
+              toRemove.add(reachedState);
+              toAdd.add(Pair.of(mergedState, successorPrecision));
             }
+          }
+          reachedSet.removeAll(toRemove);
+          reachedSet.addAll(toAdd);
 
-            return status;
+          if (mergeOperator instanceof ARGMergeJoinCPAEnabledAnalysis) {
+            ((ARGMergeJoinCPAEnabledAnalysis)mergeOperator).cleanUp(reachedSet);
           }
+
+        } finally {
+          stats.mergeTimer.stop();
         }
-        assert action == Action.CONTINUE : "Enum Action has unhandled values!";
+      }
+
+      stats.stopTimer.start();
+      boolean stop;
+      try {
+        stop = stopOperator.stop(successor, reached, successorPrecision);
+      } finally {
+        stats.stopTimer.stop();
+      }
 
-        Collection<AbstractState> reached = reachedSet.getReached(successor);
+      if (stop) {
+        logger.log(Level.FINER,
+            "Successor is covered or unreachable, not adding to waitlist");
+        stats.countStop++;
 
-        // An optimization, we don't bother merging if we know that the
-        // merge operator won't do anything (i.e., it is merge-sep).
-        if (mergeOperator != MergeSepOperator.getInstance() && !reached.isEmpty()) {
-          stats.mergeTimer.start();
-          try {
-            List<AbstractState> toRemove = new ArrayList<>();
-            List<Pair<AbstractState, Precision>> toAdd = new ArrayList<>();
-
-            logger.log(Level.FINER, "Considering", reached.size(),
-                "states from reached set for merge");
-            for (AbstractState reachedState : reached) {
-              AbstractState mergedState =
-                  mergeOperator.merge(successor, reachedState,
-                      successorPrecision);
-
-              if (!mergedState.equals(reachedState)) {
-                logger.log(Level.FINER,
-                    "Successor was merged with state from reached set");
-                logger.log(Level.ALL, "Merged", successor, "\nand",
-                    reachedState, "\n-->", mergedState);
-                stats.countMerge++;
-
-                toRemove.add(reachedState);
-                toAdd.add(Pair.of(mergedState, successorPrecision));
-              }
-            }
-            reachedSet.removeAll(toRemove);
-            reachedSet.addAll(toAdd);
+      } else {
+        logger.log(Level.FINER,
+            "No need to stop, adding successor to waitlist");
 
-            if (mergeOperator instanceof ARGMergeJoinCPAEnabledAnalysis) {
-              ((ARGMergeJoinCPAEnabledAnalysis)mergeOperator).cleanUp(reachedSet);
-            }
+        stats.addTimer.start();
+        reachedSet.add(successor, successorPrecision);
+        stats.addTimer.stop();
+      }
+    }
+    return false;
+  }
 
-          } finally {
-            stats.mergeTimer.stop();
+  /**
+   * Compute successors of states in batches. The states of a batch are taken from the waitlist at once,
+   * and their successors are computed in parallel by forks of the transfer relation. Afterwards the
+   * successors are handled sequentially in the order of the batch, thus the reached set is modified
+   * by this thread only.
+   *
+   * @return Whether the analysis stopped because a BREAK is signalled.
+   */
+  private boolean runParallel(final ReachedSet reachedSet, final TransferRelation transferRelation)
+      throws CPAException, InterruptedException {
+    // each thread computes successors with its own fork, since transfer relations are stateful
+    final ThreadLocal<TransferRelation> forks = new ThreadLocal<TransferRelation>() {
+      @Override
+      protected TransferRelation initialValue() {
+        return forkTransferRelation(transferRelation);
+      }
+    };
+    stats.parallelThreads = successorThreads;
+    ForkJoinPool pool = new ForkJoinPool(successorThreads);
+    try {
+      while (reachedSet.hasWaitingState()) {
+        shutdownNotifier.shutdownIfNecessary();
+
+        stats.chooseTimer.start();
+        final List<AbstractState> batch = new ArrayList<>();
+        final List<Precision> precisions = new ArrayList<>();
+        while (batch.size() < successorBatchSize && reachedSet.hasWaitingState()) {
+          int size = reachedSet.getWaitlist().size();
+          if (size >= stats.maxWaitlistSize) {
+            stats.maxWaitlistSize = size;
           }
-        }
+          stats.countWaitlistSize += size;
 
-        stats.stopTimer.start();
-        boolean stop;
+          AbstractState state = reachedSet.popFromWaitlist();
+          batch.add(state);
+          precisions.add(reachedSet.getPrecision(state));
+        }
+        stats.chooseTimer.stop();
+        stats.countBatches++;
+        logger.log(Level.FINER, "Retrieved", batch.size(), "states from waitlist");
+
+        stats.parallelTimer.start();
+        List<Future<Collection<? extends AbstractState>>> futures = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+          final AbstractState state = batch.get(i);
+          final Precision precision = precisions.get(i);
+          futures.add(pool.submit(new Callable<Collection<? extends AbstractState>>() {
+            @Override
+            public Collection<? extends AbstractState> call() throws CPAException, InterruptedException {
+              long start = System.nanoTime();
+              try {
+                return forks.get().getAbstractSuccessors(state, precision);
+              } finally {
+                stats.parallelTaskTime.addAndGet(System.nanoTime() - start);
+              }
+            }
+          }));
+        }
+        List<Collection<? extends AbstractState>> successorsOfBatch = new ArrayList<>(batch.size());
         try {
-          stop = stopOperator.stop(successor, reached, successorPrecision);
+          for (Future<Collection<? extends AbstractState>> future : futures) {
+            successorsOfBatch.add(future.get());
+          }
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          Throwables.propagateIfPossible(cause, CPAException.class, InterruptedException.class);
+          throw new CPAException("Computing successors failed: " + cause.getMessage(), cause);
         } finally {
-          stats.stopTimer.stop();
+          for (Future<?> future : futures) {
+            future.cancel(true);
+          }
+          stats.parallelTimer.stop();
         }
 
-        if (stop) {
-          logger.log(Level.FINER,
-              "Successor is covered or unreachable, not adding to waitlist");
-          stats.countStop++;
-
-        } else {
-          logger.log(Level.FINER,
-              "No need to stop, adding successor to waitlist");
+        for (int i = 0; i < batch.size(); i++) {
+          AbstractState state = batch.get(i);
+          if (!reachedSet.contains(state)) {
+            // removed while handling a previous state of this batch (e.g., by merge)
+            removeUncommittedSuccessors(successorsOfBatch.get(i));
+            continue;
+          }
+          logger.log(Level.ALL, "Current state is", state, "with precision", precisions.get(i));
+          stats.countIterations++;
+
+          if (handleSuccessors(state, precisions.get(i), successorsOfBatch.get(i), reachedSet)) {
+            // states of this batch that are not handled yet have to be explored later
+            for (int j = i + 1; j < batch.size(); j++) {
+              removeUncommittedSuccessors(successorsOfBatch.get(j));
+              if (reachedSet.contains(batch.get(j))) {
+                reachedSet.reAddToWaitlist(batch.get(j));
+              }
+            }
+            return true;
+          }
 
-          stats.addTimer.start();
-          reachedSet.add(successor, successorPrecision);
-          stats.addTimer.stop();
+          if (iterationListener != null) {
+            iterationListener.afterAlgorithmIteration(this, reachedSet);
+          }
         }
       }
+    } finally {
+      pool.shutdownNow();
+    }
+    return false;
+  }
 
-      if (iterationListener != null) {
-        iterationListener.afterAlgorithmIteration(this, reachedSet);
+  /**
+   * Remove successors that are computed in parallel but never handled from the ARG.
+   * {@link ARGTransferRelation} attaches a successor to its parent when it is created,
+   * thus otherwise the ARG would have children that are not in the reached set.
+   * A successor may have been moved to another parent by merge, and it is detached from it.
+   */
+  private static void removeUncommittedSuccessors(Collection<? extends AbstractState> successors) {
+    for (AbstractState successor : successors) {
+      if (successor instanceof ARGState && !((ARGState) successor).isDestroyed()) {
+        ((ARGState) successor).removeFromARG();
       }
     }
+  }
 
-    // TODO: CPA analysis finished, output analysis result to files
-    String fileNameWithoutExt = "/home/cxcfan/Research/IntFix/metadata/";
-    String smt2 = "constraint.smt2";
-    String name2Locjson = "name2loc.json";
-    String loc2Guidejson = "loc2guide.json";
-
-    if(transferRelation instanceof ARGTransferRelation) {
-      ARGTransferRelation argTR = (ARGTransferRelation)transferRelation;
-      TransferRelation innerTR = argTR.getTransferRelation();
-      if(innerTR instanceof CompositeTransferRelation) {
-        int size = ((CompositeTransferRelation) innerTR).getTransferRelationSize();
-        for(int i = 0; i < size; i++) {
-          TransferRelation subTR = ((CompositeTransferRelation) innerTR).getTransferRelation(i);
-          if(subTR instanceof RangeTransferRelation) {
-            //FIRST: .smt2 file for constraint solving
-            String smt2file = fileNameWithoutExt.concat(smt2);
-            ConstraintGenerator smtGen = new ConstraintGenerator(smt2file);
-            smtGen.generateConstraints(((RangeTransferRelation) subTR).getConstraints());
-            System.out.println(smt2file + " has been successfully generated!");
-
-            // SECOND: .json file for mapping name to location
-            String name2LocFile = fileNameWithoutExt.concat(name2Locjson);
-            NameLocGenerator name2LocGen = new NameLocGenerator(name2LocFile);
-            name2LocGen.generateName2Loc(((RangeTransferRelation) subTR).getName2Loc());
-            System.out.println(name2LocFile + " has been successfully generated!");
-
-            // THIRD: .json file for mapping location to fix guide
-            String loc2GuideFile = fileNameWithoutExt.concat(loc2Guidejson);
-            LocGuideGenerator loc2GuideGen = new LocGuideGenerator(loc2GuideFile);
-            loc2GuideGen.generateLoc2Guide(((RangeTransferRelation) subTR).getLoc2Guide());
-            System.out.println(loc2GuideFile + " has been successfully generated!");
-            break;
-          }
+  /**
+   * Create a fork of a transfer relation that can be used concurrently with the given one.
+   *
+   * @return The fork, or null if the transfer relation (or one of its components) is not forkable.
+   */
+  private static TransferRelation forkTransferRelation(TransferRelation pTransferRelation) {
+    if (pTransferRelation instanceof ARGTransferRelation) {
+      TransferRelation inner = forkTransferRelation(((ARGTransferRelation) pTransferRelation).getTransferRelation());
+      return inner == null ? null : new ARGTransferRelation(inner);
+
+    } else if (pTransferRelation instanceof CompositeTransferRelation) {
+      CompositeTransferRelation composite = (CompositeTransferRelation) pTransferRelation;
+      ImmutableList.Builder<TransferRelation> components = ImmutableList.builder();
+      for (int i = 0; i < composite.getTransferRelationSize(); i++) {
+        TransferRelation component = forkTransferRelation(composite.getTransferRelation(i));
+        if (component == null) {
+          return null;
         }
+        components.add(component);
       }
-    }
+      return composite.withTransferRelations(components.build());
 
-    return status;
+    } else if (pTransferRelation instanceof ForkableTransferRelation) {
+      return ((ForkableTransferRelation) pTransferRelation).fork();
+    }
+    return null;
   }
 
   @Override
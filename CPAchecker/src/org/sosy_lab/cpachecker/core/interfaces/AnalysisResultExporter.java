@@ -0,0 +1,66 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.interfaces;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.sosy_lab.common.io.Path;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+
+/**
+ * Interface for CPAs that write the result of the analysis to files,
+ * e.g., metadata for tools consuming the analysis result.
+ *
+ * The writers are collected exactly once after the analysis has terminated
+ * (and not after each run of the algorithm), and they are executed
+ * asynchronously while the statistics are printed.
+ */
+public interface AnalysisResultExporter {
+
+  /**
+   * Add {@link ResultWriter}s for the result of this analysis to a collection.
+   *
+   * This method is called on the thread of the analysis, thus all data
+   * that is written should be fetched here. The writers themselves are executed
+   * on another thread and should only access data that is not modified anymore.
+   *
+   * @param pReached The final reached set.
+   * @param pWriters The collection where the writers are added.
+   */
+  public void collectResultWriters(UnmodifiableReachedSet pReached, Collection<ResultWriter> pWriters);
+
+  public static interface ResultWriter {
+
+    /**
+     * Write (a part of) the analysis result into the given directory, which already exists.
+     */
+    public void write(Path pOutputDirectory) throws IOException;
+
+    /**
+     * A short description of what is written, for log messages.
+     */
+    public String getName();
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.core.interfaces;
+
+/**
+ * Interface for transfer relations which can compute successors on several threads at the same time,
+ * if each thread uses its own fork of the transfer relation.
+ *
+ * A fork shares everything collected by the analysis (e.g., metadata) with the original transfer relation,
+ * while state that is only valid during one call of the transfer relation is kept per fork.
+ * A transfer relation without such state can return itself.
+ */
+public interface ForkableTransferRelation extends TransferRelation {
+
+  /**
+   * Create a transfer relation for the exclusive use of one thread.
+   *
+   * @return A transfer relation computing the same successors as this one.
+   */
+  TransferRelation fork();
+}
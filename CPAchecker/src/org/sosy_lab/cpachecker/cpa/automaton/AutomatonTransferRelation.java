@@ -50,7 +50,9 @@ import org.sosy_lab.cpachecker.cfa.model.CFAEdgeType;
 import org.sosy_lab.cpachecker.cfa.model.MultiEdge;
 import org.sosy_lab.cpachecker.core.defaults.SingleEdgeTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ForkableTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.cpa.automaton.AutomatonExpression.ResultValue;
 import org.sosy_lab.cpachecker.cpa.automaton.AutomatonState.AutomatonUnknownState;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
@@ -69,7 +71,7 @@ import com.google.common.collect.Sets;
  * and strengthens an {@link AutomatonState.AutomatonUnknownState}.
  */
 @Options(prefix = "cpa.automaton")
-class AutomatonTransferRelation extends SingleEdgeTransferRelation {
+class AutomatonTransferRelation extends SingleEdgeTransferRelation implements ForkableTransferRelation {
 
   @Option(secure=true, description = "Collect information about matched (and traversed) tokens.")
   private boolean collectTokenInformation = false;
@@ -91,6 +93,20 @@ class AutomatonTransferRelation extends SingleEdgeTransferRelation {
     this.logger = pLogger;
   }
 
+  /**
+   * A fork has its own timers, which are not thread-safe. Its statistics are not reported.
+   */
+  private AutomatonTransferRelation(AutomatonTransferRelation pOriginal) {
+    this.collectTokenInformation = pOriginal.collectTokenInformation;
+    this.cpa = pOriginal.cpa;
+    this.logger = pOriginal.logger;
+  }
+
+  @Override
+  public TransferRelation fork() {
+    return new AutomatonTransferRelation(this);
+  }
+
   @Override
   public Collection<? extends AbstractState> getAbstractSuccessorsForEdge(
                       AbstractState pElement, Precision pPrecision, CFAEdge pCfaEdge)
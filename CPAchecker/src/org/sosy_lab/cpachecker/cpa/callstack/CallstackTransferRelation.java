@@ -53,7 +53,9 @@ import org.sosy_lab.cpachecker.cfa.postprocessing.global.singleloop.CFASingleLoo
 import org.sosy_lab.cpachecker.cfa.postprocessing.global.singleloop.ProgramCounterValueAssumeEdge;
 import org.sosy_lab.cpachecker.core.defaults.SingleEdgeTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ForkableTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 import org.sosy_lab.cpachecker.exceptions.UnsupportedCodeException;
 import org.sosy_lab.cpachecker.util.CFAUtils;
@@ -62,7 +64,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 
 @Options(prefix="cpa.callstack")
-public class CallstackTransferRelation extends SingleEdgeTransferRelation {
+public class CallstackTransferRelation extends SingleEdgeTransferRelation implements ForkableTransferRelation {
 
   // set of functions that may not appear in the source code
   // the value of the map entry is the explanation for the user
@@ -102,6 +104,24 @@ public class CallstackTransferRelation extends SingleEdgeTransferRelation {
     logger = new LogManagerWithoutDuplicates(pLogger);
   }
 
+  /**
+   * Copy the configuration of another transfer relation, see {@link #fork()}.
+   * Each copy has its own logger since the set of logged messages is not thread-safe.
+   */
+  protected CallstackTransferRelation(CallstackTransferRelation pOriginal) {
+    recursionBoundDepth = pOriginal.recursionBoundDepth;
+    skipRecursion = pOriginal.skipRecursion;
+    isRecursiveContext = pOriginal.isRecursiveContext;
+    skipFunctionPointerRecursion = pOriginal.skipFunctionPointerRecursion;
+    skipVoidRecursion = pOriginal.skipVoidRecursion;
+    logger = new LogManagerWithoutDuplicates(pOriginal.logger);
+  }
+
+  @Override
+  public TransferRelation fork() {
+    return new CallstackTransferRelation(this);
+  }
+
   @Override
   public Collection<? extends AbstractState> getAbstractSuccessorsForEdge(
       AbstractState pElement, Precision pPrecision, CFAEdge pEdge)
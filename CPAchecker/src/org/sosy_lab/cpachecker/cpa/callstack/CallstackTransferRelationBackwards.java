@@ -46,6 +46,7 @@ import org.sosy_lab.cpachecker.cfa.model.c.CFunctionSummaryStatementEdge;
 import org.sosy_lab.cpachecker.cfa.postprocessing.global.singleloop.ProgramCounterValueAssumeEdge;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 import org.sosy_lab.cpachecker.exceptions.UnrecognizedCodeException;
 import org.sosy_lab.cpachecker.exceptions.UnsupportedCCodeException;
@@ -58,6 +59,15 @@ public class CallstackTransferRelationBackwards extends CallstackTransferRelatio
     super(pConfig, pLogger);
   }
 
+  private CallstackTransferRelationBackwards(CallstackTransferRelationBackwards pOriginal) {
+    super(pOriginal);
+  }
+
+  @Override
+  public TransferRelation fork() {
+    return new CallstackTransferRelationBackwards(this);
+  }
+
   @Override
   public Collection<? extends AbstractState> getAbstractSuccessorsForEdge(
       AbstractState pElement, Precision pPrecision, CFAEdge pEdge)
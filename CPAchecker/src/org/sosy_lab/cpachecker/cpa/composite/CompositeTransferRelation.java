@@ -88,6 +88,24 @@ public final class CompositeTransferRelation implements TransferRelation {
     }
   }
 
+  private CompositeTransferRelation(CompositeTransferRelation pOriginal,
+      ImmutableList<TransferRelation> pTransferRelations) {
+    Preconditions.checkArgument(pTransferRelations.size() == pOriginal.size);
+    splitMultiEdges = pOriginal.splitMultiEdges;
+    transferRelations = pTransferRelations;
+    size = pOriginal.size;
+    assumptionIndex = pOriginal.assumptionIndex;
+    predicatesIndex = pOriginal.predicatesIndex;
+  }
+
+  /**
+   * Create a transfer relation with the same configuration as this one, which delegates to the given
+   * transfer relations instead (e.g., forks of the component transfer relations).
+   */
+  public CompositeTransferRelation withTransferRelations(ImmutableList<TransferRelation> pTransferRelations) {
+    return new CompositeTransferRelation(this, pTransferRelations);
+  }
+
   public int getTransferRelationSize() {
     return transferRelations.size();
   }
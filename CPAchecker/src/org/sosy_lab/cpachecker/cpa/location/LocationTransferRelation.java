@@ -32,13 +32,14 @@ import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
 import org.sosy_lab.cpachecker.cfa.model.CFANode;
 import org.sosy_lab.cpachecker.cfa.model.MultiEdge;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ForkableTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
 import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.cpa.location.LocationState.LocationStateFactory;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 import org.sosy_lab.cpachecker.util.CFAUtils;
 
-public class LocationTransferRelation implements TransferRelation {
+public class LocationTransferRelation implements ForkableTransferRelation {
 
   private final LocationStateFactory factory;
 
@@ -46,6 +47,12 @@ public class LocationTransferRelation implements TransferRelation {
     factory = pFactory;
   }
 
+  @Override
+  public TransferRelation fork() {
+    // states are created by the factory in advance, there is nothing to be copied
+    return this;
+  }
+
   @Override
   public Collection<LocationState> getAbstractSuccessorsForEdge(
       AbstractState element, Precision prec, CFAEdge cfaEdge) {
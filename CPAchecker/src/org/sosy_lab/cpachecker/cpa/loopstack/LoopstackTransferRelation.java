@@ -37,7 +37,9 @@ import org.sosy_lab.cpachecker.cfa.model.c.CFunctionCallEdge;
 import org.sosy_lab.cpachecker.cfa.model.c.CFunctionReturnEdge;
 import org.sosy_lab.cpachecker.core.defaults.SingleEdgeTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ForkableTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 import org.sosy_lab.cpachecker.util.LoopStructure;
 import org.sosy_lab.cpachecker.util.LoopStructure.Loop;
@@ -52,7 +54,7 @@ import com.google.common.collect.Multimap;
  *  pop from the stack if we are leaving the loop,
  *  identity otherwise.
  */
-public class LoopstackTransferRelation extends SingleEdgeTransferRelation {
+public class LoopstackTransferRelation extends SingleEdgeTransferRelation implements ForkableTransferRelation {
 
   private Map<CFAEdge, Loop> loopEntryEdges = null;
   private Map<CFAEdge, Loop> loopExitEdges = null;
@@ -95,6 +97,12 @@ public class LoopstackTransferRelation extends SingleEdgeTransferRelation {
     loopHeads = heads.build();
   }
 
+  @Override
+  public TransferRelation fork() {
+    // loop information is immutable after construction
+    return this;
+  }
+
 
   @Override
   public Collection<? extends AbstractState> getAbstractSuccessorsForEdge(
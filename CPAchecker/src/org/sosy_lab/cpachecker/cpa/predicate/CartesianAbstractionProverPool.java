@@ -0,0 +1,224 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.sosy_lab.common.Appenders;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.util.predicates.Solver;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.FormulaManagerView;
+import org.sosy_lab.solver.SolverException;
+import org.sosy_lab.solver.api.BooleanFormula;
+import org.sosy_lab.solver.api.ProverEnvironment;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * This class checks the predicates of a Cartesian abstraction in parallel.
+ *
+ * Solver contexts are not thread-safe, thus each worker owns a separate
+ * solver instance, which is kept for all abstractions of the analysis.
+ * Formulas are transferred into the context of a worker as SMT-LIB text.
+ * The predicates are split among the workers, and the results are merged
+ * in the order of the predicates, thus the result does not depend on
+ * the scheduling of the workers.
+ */
+final class CartesianAbstractionProverPool implements AutoCloseable {
+
+  private final FormulaManagerView fmgr;
+  private final LogManager logger;
+  private final List<Solver> solvers;
+  private final ExecutorService executor;
+
+  /**
+   * @param pThreads the number of workers
+   * @param pSolverName the solver used by the workers, or an empty string for the solver of the analysis
+   * @param pFmgr the formula manager of the analysis
+   */
+  CartesianAbstractionProverPool(int pThreads, String pSolverName, FormulaManagerView pFmgr,
+      Configuration pConfig, LogManager pLogger, ShutdownNotifier pShutdownNotifier)
+          throws InvalidConfigurationException {
+    checkArgument(pThreads > 1, "a pool of provers needs at least two workers");
+    fmgr = pFmgr;
+    logger = pLogger;
+
+    Configuration poolConfig = pConfig;
+    if (!pSolverName.isEmpty()) {
+      poolConfig = Configuration.builder()
+          .copyFrom(pConfig)
+          .setOption("solver.solver", pSolverName)
+          .build();
+    }
+
+    solvers = new ArrayList<>(pThreads);
+    for (int i = 0; i < pThreads; i++) {
+      solvers.add(Solver.create(poolConfig, pLogger, pShutdownNotifier));
+    }
+    executor = Executors.newFixedThreadPool(pThreads,
+        new ThreadFactoryBuilder().setNameFormat("cartesian-abstraction-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Check for each of the given (instantiated) predicates whether it is implied
+   * or contradicted by the given formula.
+   *
+   * @return for each predicate at the same index, 1 if it is true, -1 if it is false,
+   *         and 0 if it is neither true nor false
+   * @throws SolverException if a worker fails for any reason except for interruption
+   */
+  byte[] checkPredicates(BooleanFormula pFormula, List<BooleanFormula> pPredicates)
+      throws SolverException, InterruptedException {
+    // the formula manager of the analysis is only used by the calling thread
+    final String formula = Appenders.toString(fmgr.dumpFormula(pFormula));
+    final List<String> predicates = new ArrayList<>(pPredicates.size());
+    for (BooleanFormula predicate : pPredicates) {
+      predicates.add(Appenders.toString(fmgr.dumpFormula(predicate)));
+    }
+
+    final byte[] result = new byte[predicates.size()];
+    final int workers = Math.min(solvers.size(), predicates.size());
+    List<Future<?>> futures = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      final Solver solver = solvers.get(i);
+      final int first = i;
+      // the predicates are assigned round-robin, because the hard queries are often adjacent
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws SolverException, InterruptedException {
+          checkPredicates(solver, formula, predicates, first, workers, result);
+          return null;
+        }
+      }));
+    }
+
+    // All workers are awaited even if one fails or this thread is interrupted, such that
+    // no worker uses its solver after returning (the solvers may be closed afterwards,
+    // or used by the next abstraction). On shutdown the workers stop by themselves,
+    // because their solvers share the shutdown notifier of the analysis.
+    ExecutionException failure = null;
+    for (Future<?> future : futures) {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+
+    if (failure != null) {
+      Throwable cause = failure.getCause();
+      Throwables.propagateIfInstanceOf(cause, Error.class);
+      Throwables.propagateIfInstanceOf(cause, InterruptedException.class);
+      Throwables.propagateIfInstanceOf(cause, SolverException.class);
+      // e.g., the solver of a worker cannot parse the formulas
+      throw new SolverException("Parallel Cartesian abstraction failed: " + cause, cause);
+    }
+    return result;
+  }
+
+  private static void checkPredicates(Solver pSolver, String pFormula, List<String> pPredicates,
+      int pFirst, int pStep, byte[] pResult) throws SolverException, InterruptedException {
+    FormulaManagerView wfmgr = pSolver.getFormulaManager();
+
+    try (ProverEnvironment thmProver = pSolver.newProverEnvironment()) {
+      thmProver.push(wfmgr.parse(pFormula));
+
+      for (int i = pFirst; i < pPredicates.size(); i += pStep) {
+        BooleanFormula predTrue = wfmgr.parse(pPredicates.get(i));
+        BooleanFormula predFalse = wfmgr.getBooleanFormulaManager().not(predTrue);
+
+        byte predVal = 0; // pred is neither true nor false
+
+        thmProver.push(predFalse);
+        boolean isTrue = thmProver.isUnsat();
+        thmProver.pop();
+
+        if (isTrue) {
+          predVal = 1;
+        } else {
+          thmProver.push(predTrue);
+          boolean isFalse = thmProver.isUnsat();
+          thmProver.pop();
+
+          if (isFalse) {
+            predVal = -1;
+          }
+        }
+        // each index is written by exactly one worker, and read after all workers have finished
+        pResult[i] = predVal;
+      }
+    }
+  }
+
+  /**
+   * Stop the workers and close their solvers.
+   * The solvers are closed only after all workers have terminated, because a
+   * worker may still be inside a query (closing a native solver then would be fatal).
+   * Failures while closing a solver are only logged, such that all solvers are closed.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (Solver solver : solvers) {
+      try {
+        solver.close();
+      } catch (Exception e) {
+        logger.logDebugException(e, "Could not close solver of parallel Cartesian abstraction");
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.log.TestLogManager;
+import org.sosy_lab.cpachecker.util.predicates.Solver;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.BooleanFormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.FormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.NumeralFormulaManagerView;
+import org.sosy_lab.solver.api.BooleanFormula;
+import org.sosy_lab.solver.api.NumeralFormula.IntegerFormula;
+
+import com.google.common.collect.ImmutableList;
+
+public class CartesianAbstractionProverPoolTest {
+
+  private Configuration config;
+  private LogManager logger;
+  private ShutdownNotifier shutdownNotifier;
+  private Solver solver;
+  private FormulaManagerView fmgr;
+  private BooleanFormulaManagerView bfmgr;
+  private NumeralFormulaManagerView<IntegerFormula, IntegerFormula> ifmgr;
+
+  @Before
+  public void setUp() throws Exception {
+    config = Configuration.defaultConfiguration();
+    logger = TestLogManager.getInstance();
+    shutdownNotifier = ShutdownNotifier.create();
+    solver = Solver.create(config, logger, shutdownNotifier);
+    fmgr = solver.getFormulaManager();
+    bfmgr = fmgr.getBooleanFormulaManager();
+    ifmgr = fmgr.getIntegerFormulaManager();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    solver.close();
+  }
+
+  /**
+   * Check the predicates one after another like the sequential Cartesian abstraction.
+   */
+  private byte[] checkSequentially(BooleanFormula f, List<BooleanFormula> predicates) throws Exception {
+    byte[] result = new byte[predicates.size()];
+    for (int i = 0; i < predicates.size(); i++) {
+      BooleanFormula predicate = predicates.get(i);
+      if (solver.implies(f, predicate)) {
+        result[i] = 1;
+      } else if (solver.implies(f, bfmgr.not(predicate))) {
+        result[i] = -1;
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void parallelAgreesWithSequential() throws Exception {
+    IntegerFormula x = ifmgr.makeVariable("x");
+    IntegerFormula y = ifmgr.makeVariable("y");
+    IntegerFormula z = ifmgr.makeVariable("z");
+
+    // x > 0 && y = x + 1 && z <= 5
+    BooleanFormula f = bfmgr.and(ImmutableList.of(
+        ifmgr.greaterThan(x, ifmgr.makeNumber(0)),
+        ifmgr.equal(y, ifmgr.add(x, ifmgr.makeNumber(1))),
+        ifmgr.lessOrEquals(z, ifmgr.makeNumber(5))));
+
+    // more predicates than workers, such that each worker checks several of them
+    List<BooleanFormula> predicates = ImmutableList.of(
+        ifmgr.greaterOrEquals(x, ifmgr.makeNumber(1)),
+        ifmgr.lessOrEquals(y, ifmgr.makeNumber(0)),
+        ifmgr.equal(z, ifmgr.makeNumber(3)),
+        ifmgr.greaterThan(y, x),
+        ifmgr.equal(x, ifmgr.makeNumber(0)),
+        ifmgr.greaterThan(z, ifmgr.makeNumber(10)),
+        ifmgr.lessThan(x, z));
+
+    byte[] sequential = checkSequentially(f, predicates);
+    assertThat(sequential).isEqualTo(new byte[] { 1, -1, 0, 1, -1, -1, 0 });
+
+    try (CartesianAbstractionProverPool pool =
+        new CartesianAbstractionProverPool(3, "", fmgr, config, logger, shutdownNotifier)) {
+      assertThat(pool.checkPredicates(f, predicates)).isEqualTo(sequential);
+      // the pool is reused across abstractions
+      assertThat(pool.checkPredicates(bfmgr.not(f), predicates.subList(0, 2)))
+          .isEqualTo(checkSequentially(bfmgr.not(f), predicates.subList(0, 2)));
+    }
+  }
+}
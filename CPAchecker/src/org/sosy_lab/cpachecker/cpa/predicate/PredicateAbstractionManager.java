@@ -36,7 +36,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +55,7 @@ import org.sosy_lab.common.time.NestedTimer;
 import org.sosy_lab.common.time.TimeSpan;
 import org.sosy_lab.common.time.Timer;
 import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.cpa.predicate.persistence.PersistentAbstractionCache;
 import org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicateAbstractionsStorage;
 import org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicateAbstractionsStorage.AbstractionNode;
 import org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicatePersistenceUtils.PredicateParsingFailedException;
@@ -65,6 +65,7 @@ import org.sosy_lab.cpachecker.util.precondition.segkro.rules.LinCombineRule;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionFormula;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionManager;
 import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
+import org.sosy_lab.cpachecker.util.predicates.BoundedCacheFactory;
 import org.sosy_lab.cpachecker.util.predicates.Solver;
 import org.sosy_lab.solver.api.BooleanFormula;
 import org.sosy_lab.solver.api.Formula;
@@ -85,6 +86,8 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
@@ -167,6 +170,25 @@ public class PredicateAbstractionManager {
   @Option(secure=true, name = "abs.useCache", description = "use caching of abstractions")
   private boolean useCache = true;
 
+  @Option(secure=true, name = "abs.persistentCache",
+      description = "file of a cache of abstractions that is reused across runs of CPAchecker, "
+          + "e.g., for re-verification of slightly changed programs (disabled if not set). "
+          + "The file is created if it does not exist, and new abstractions are appended. "
+          + "It should only be shared by runs with the same configuration of the solver and encoding.")
+  @FileOption(FileOption.Type.OPTIONAL_INPUT_FILE)
+  private Path persistentCacheFile = null;
+
+  @Option(secure=true, name = "abstraction.cartesianThreads",
+      description = "number of threads that check the predicates of a Cartesian abstraction in parallel, "
+          + "each with a separate solver instance (0 or 1 for sequential checks)")
+  private int cartesianThreads = 0;
+
+  @Option(secure=true, name = "abstraction.cartesianSolver",
+      description = "solver used for parallel checks of the predicates of a Cartesian abstraction "
+          + "(the solver of the analysis if empty). If it fails (e.g., cannot parse the formulas "
+          + "of the analysis), the predicates are checked sequentially for the rest of the analysis.")
+  private String cartesianSolver = "";
+
   @Option(secure=true, name="refinement.splitItpAtoms",
       description="split each arithmetic equality into two inequalities when extracting predicates from interpolants")
   private boolean splitItpAtoms = false;
@@ -187,20 +209,35 @@ public class PredicateAbstractionManager {
 
   private boolean abstractionReuseDisabledBecauseOfAmbiguity = false;
 
-  private final Map<Pair<BooleanFormula, ImmutableSet<AbstractionPredicate>>, AbstractionFormula> abstractionCache;
+  private final Cache<Pair<BooleanFormula, ImmutableSet<AbstractionPredicate>>, AbstractionFormula> abstractionCache;
 
   // Cache for satisfiability queries: if formula is contained, it is unsat
-  private final Set<BooleanFormula> unsatisfiabilityCache;
+  private final Cache<BooleanFormula, Boolean> unsatisfiabilityCache;
 
   //cache for cartesian abstraction queries. For each predicate, the values
   // are -1: predicate is false, 0: predicate is don't care,
   // 1: predicate is true
-  private final Map<Pair<BooleanFormula, AbstractionPredicate>, Byte> cartesianAbstractionCache;
+  private final Cache<Pair<BooleanFormula, AbstractionPredicate>, Byte> cartesianAbstractionCache;
+
+  // the weight of a cached abstraction is the number of its predicates
+  private static final Weigher<Pair<BooleanFormula, ImmutableSet<AbstractionPredicate>>, AbstractionFormula>
+      ABSTRACTION_WEIGHER = new Weigher<Pair<BooleanFormula, ImmutableSet<AbstractionPredicate>>, AbstractionFormula>() {
+        @Override
+        public int weigh(Pair<BooleanFormula, ImmutableSet<AbstractionPredicate>> pKey, AbstractionFormula pValue) {
+          return pKey.getSecond().size() + 1;
+        }
+      };
 
   private final BooleanFormulaManagerView bfmgr;
 
   private final PredicateAbstractionsStorage abstractionStorage;
 
+  // null if abstractions are not stored across runs
+  private final PersistentAbstractionCache persistentCache;
+
+  // null if predicates of Cartesian abstractions are checked sequentially
+  private CartesianAbstractionProverPool cartesianProverPool; // null if disabled
+
   private Optional<LiveVariables> liveVars;
 
   public PredicateAbstractionManager(
@@ -232,20 +269,39 @@ public class PredicateAbstractionManager {
       warnedOfCartesianAbstraction = true; // warning is not necessary
     }
 
+    BoundedCacheFactory cacheFactory = new BoundedCacheFactory(config);
     if (useCache) {
-      abstractionCache = new HashMap<>();
-      unsatisfiabilityCache = new HashSet<>();
+      abstractionCache = cacheFactory.newCache(ABSTRACTION_WEIGHER);
+      unsatisfiabilityCache = cacheFactory.newCache();
     } else {
       abstractionCache = null;
       unsatisfiabilityCache = null;
     }
 
     if (useCache && (abstractionType != AbstractionType.BOOLEAN)) {
-      cartesianAbstractionCache = new HashMap<>();
+      cartesianAbstractionCache = cacheFactory.newCache();
     } else {
       cartesianAbstractionCache = null;
     }
 
+    if (persistentCacheFile != null && abstractionType != AbstractionType.ELIMINATION) {
+      // abstractions computed by quantifier elimination depend on the location
+      persistentCache = new PersistentAbstractionCache(persistentCacheFile,
+          abstractionType + " " + identifyTrivialPredicates + " " + simplifyAbstractionFormula,
+          fmgr, logger);
+    } else {
+      persistentCache = null;
+    }
+
+    if (cartesianThreads > 1
+        && abstractionType != AbstractionType.BOOLEAN
+        && abstractionType != AbstractionType.ELIMINATION) {
+      cartesianProverPool = new CartesianAbstractionProverPool(cartesianThreads, cartesianSolver,
+          fmgr, config, logger, shutdownNotifier);
+    } else {
+      cartesianProverPool = null;
+    }
+
     abstractionStorage = new PredicateAbstractionsStorage(reuseAbstractionsFrom, logger, fmgr, null);
     SSAMap extractionSsa = SSAMap.emptySSAMap().withDefault(1);
     for (AbstractionNode an : abstractionStorage.getAbstractions().values()) {
@@ -254,6 +310,37 @@ public class PredicateAbstractionManager {
     }
   }
 
+  /**
+   * Hits, misses and evictions of the abstraction caches, or null if caching is disabled.
+   */
+  String getAbstractionCacheStatistics() {
+    if (!useCache) {
+      return null;
+    }
+    return BoundedCacheFactory.formatStatistics(abstractionCache, unsatisfiabilityCache);
+  }
+
+  /**
+   * Hits and misses of the cache of abstractions stored across runs, or null if it is not used.
+   */
+  String getPersistentCacheStatistics() {
+    if (persistentCache == null) {
+      return null;
+    }
+    return persistentCache.getHits() + " hits, " + persistentCache.getMisses() + " misses, "
+        + persistentCache.getWrittenEntries() + " written";
+  }
+
+  /**
+   * Hits, misses and evictions of the cache of Cartesian abstraction, or null if it is not used.
+   */
+  String getCartesianAbstractionCacheStatistics() {
+    if (cartesianAbstractionCache == null) {
+      return null;
+    }
+    return BoundedCacheFactory.formatStatistics(cartesianAbstractionCache);
+  }
+
   /**
    * Compute an abstraction of the conjunction of an AbstractionFormula and
    * a PathFormula. The AbstractionFormula will be used in its instantiated form,
@@ -384,7 +471,7 @@ public class PredicateAbstractionManager {
     Pair<BooleanFormula, ImmutableSet<AbstractionPredicate>> absKey = null;
     if (useCache) {
       absKey = Pair.of(f, predicates);
-      AbstractionFormula result = abstractionCache.get(absKey);
+      AbstractionFormula result = abstractionCache.getIfPresent(absKey);
 
       if (result != null) {
         // create new abstraction object to have a unique abstraction id
@@ -401,8 +488,8 @@ public class PredicateAbstractionManager {
         return result;
       }
 
-      boolean unsatisfiable = unsatisfiabilityCache.contains(symbFormula)
-                            || unsatisfiabilityCache.contains(f);
+      boolean unsatisfiable = unsatisfiabilityCache.getIfPresent(symbFormula) != null
+                            || unsatisfiabilityCache.getIfPresent(f) != null;
       if (unsatisfiable) {
         // block is infeasible
         logger.log(Level.FINEST, "Block feasibility of abstraction", stats.numCallsAbstraction, "was cached and is false.");
@@ -413,7 +500,24 @@ public class PredicateAbstractionManager {
       }
     }
 
-
+    String persistentKey = null;
+    if (persistentCache != null) {
+      persistentKey = persistentCache.computeKey(f, ssa, predicates);
+      BooleanFormula stateFormula = persistentCache.get(persistentKey);
+
+      if (stateFormula != null) {
+        Region region = amgr.buildRegionFromFormulaWithUnknownAtoms(stateFormula);
+        AbstractionFormula result = new AbstractionFormula(fmgr, region, stateFormula,
+            fmgr.instantiate(stateFormula, ssa), pathFormula, noAbstractionReuse);
+        if (useCache) {
+          abstractionCache.put(absKey, result);
+        }
+        logger.log(Level.FINEST, "Abstraction", stats.numCallsAbstraction, "was stored by a previous run");
+        logger.log(Level.ALL, "Abstraction result is", result.asFormula());
+        stats.numCallsAbstractionCached++;
+        return result;
+      }
+    }
 
     // We update statistics here because we want to ignore calls
     // where the result was in the cache.
@@ -504,9 +608,12 @@ public class PredicateAbstractionManager {
       abstractionCache.put(absKey, result);
 
       if (result.isFalse()) {
-        unsatisfiabilityCache.add(f);
+        unsatisfiabilityCache.put(f, Boolean.TRUE);
       }
     }
+    if (persistentCache != null) {
+      persistentCache.put(persistentKey, result.asFormula());
+    }
 
     long abstractionTime = TimeSpan.sum(stats.abstractionSolveTime.getLengthOfLastInterval(),
                                         stats.abstractionEnumTime.getLengthOfLastOuterInterval())
@@ -794,13 +901,26 @@ public class PredicateAbstractionManager {
     try {
       Region absbdd = rmgr.makeTrue();
 
+      // values of uncached predicates that were checked in parallel
+      Map<AbstractionPredicate, Byte> checkedPredVals = Collections.emptyMap();
+      if (cartesianProverPool != null) {
+        checkedPredVals = checkPredicatesInParallel(f, ssa, predicates);
+      }
+
       // check whether each of the predicate is implied in the next state...
 
       for (AbstractionPredicate p : predicates) {
         Pair<BooleanFormula, AbstractionPredicate> cacheKey = Pair.of(f, p);
-        if (useCache && cartesianAbstractionCache.containsKey(cacheKey)) {
-          byte predVal = cartesianAbstractionCache.get(cacheKey);
-          stats.numCartesianAbsPredicatesCached++;
+        // a single lookup, because the entry may be evicted between two lookups
+        Byte cachedPredVal = useCache ? cartesianAbstractionCache.getIfPresent(cacheKey) : null;
+        Byte knownPredVal = cachedPredVal != null ? cachedPredVal : checkedPredVals.get(p);
+        if (knownPredVal != null) {
+          byte predVal = knownPredVal;
+          if (cachedPredVal != null) {
+            stats.numCartesianAbsPredicatesCached++;
+          } else if (useCache) {
+            cartesianAbstractionCache.put(cacheKey, predVal);
+          }
 
           stats.abstractionEnumTime.getCurentInnerTimer().start();
           Region v = p.getAbstractVariable();
@@ -871,6 +991,58 @@ public class PredicateAbstractionManager {
     }
   }
 
+  /**
+   * Check the predicates of a Cartesian abstraction that are not cached
+   * with the pool of provers.
+   * The regions are not built here, because the region manager is not thread-safe.
+   */
+  private Map<AbstractionPredicate, Byte> checkPredicatesInParallel(final BooleanFormula f,
+      final SSAMap ssa, Collection<AbstractionPredicate> predicates)
+          throws SolverException, InterruptedException {
+    List<AbstractionPredicate> uncheckedPredicates = new ArrayList<>();
+    List<BooleanFormula> instantiatedPredicates = new ArrayList<>();
+    for (AbstractionPredicate p : predicates) {
+      if (!useCache || cartesianAbstractionCache.getIfPresent(Pair.of(f, p)) == null) {
+        uncheckedPredicates.add(p);
+        instantiatedPredicates.add(fmgr.instantiate(p.getSymbolicAtom(), ssa));
+      }
+    }
+    if (uncheckedPredicates.size() < 2) {
+      // not worth the transfer into other solver contexts
+      return Collections.emptyMap();
+    }
+
+    stats.abstractionSolveTime.start();
+    byte[] predVals;
+    try {
+      predVals = cartesianProverPool.checkPredicates(f, instantiatedPredicates);
+    } catch (SolverException e) {
+      // e.g., cpa.predicate.abstraction.cartesianSolver cannot parse the formulas of the analysis
+      logger.logUserException(Level.WARNING, e,
+          "Checking predicates in parallel failed, continuing with sequential Cartesian abstraction");
+      cartesianProverPool.close();
+      cartesianProverPool = null;
+      return Collections.emptyMap();
+    } finally {
+      stats.abstractionSolveTime.stop();
+    }
+
+    Map<AbstractionPredicate, Byte> result = new HashMap<>();
+    for (int i = 0; i < predVals.length; i++) {
+      result.put(uncheckedPredicates.get(i), predVals[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Release the provers that check predicates of Cartesian abstractions in parallel.
+   */
+  void close() {
+    if (cartesianProverPool != null) {
+      cartesianProverPool.close();
+    }
+  }
+
   private BooleanFormula buildFormula(BooleanFormula symbFormula) {
 
     if (fmgr.useBitwiseAxioms()) {
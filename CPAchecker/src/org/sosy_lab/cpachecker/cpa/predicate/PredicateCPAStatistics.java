@@ -328,6 +328,19 @@ class PredicateCPAStatistics extends AbstractStatistics {
       int pathFormulaCacheHits = pfMgr.pathFormulaCacheHits;
       int totalPathFormulaComputations = pfMgr.pathFormulaComputationTimer.getNumberOfIntervals() + pathFormulaCacheHits;
       out.println("Number of path formula cache hits:   " + pathFormulaCacheHits + " (" + toPercent(pathFormulaCacheHits, totalPathFormulaComputations) + ")");
+      out.println("  Path formula caches:               " + pfMgr.getCacheStatistics());
+    }
+    String abstractionCacheStats = amgr.getAbstractionCacheStatistics();
+    if (abstractionCacheStats != null) {
+      out.println("Abstraction caches:                  " + abstractionCacheStats);
+    }
+    String cartesianCacheStats = amgr.getCartesianAbstractionCacheStatistics();
+    if (cartesianCacheStats != null) {
+      out.println("Cartesian abstraction cache:         " + cartesianCacheStats);
+    }
+    String persistentCacheStats = amgr.getPersistentCacheStatistics();
+    if (persistentCacheStats != null) {
+      out.println("Persistent abstraction cache:        " + persistentCacheStats);
     }
 
     out.println();
@@ -0,0 +1,237 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate.persistence;
+
+import static org.sosy_lab.cpachecker.cpa.predicate.persistence.PredicatePersistenceUtils.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.annotation.Nullable;
+
+import org.sosy_lab.common.Appenders;
+import org.sosy_lab.common.Pair;
+import org.sosy_lab.common.io.Files;
+import org.sosy_lab.common.io.Path;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.FormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.pathformula.SSAMap;
+import org.sosy_lab.solver.api.BooleanFormula;
+
+import com.google.common.base.Function;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.FileWriteMode;
+
+/**
+ * A cache of abstractions that is stored in a file and reused across runs of CPAchecker.
+ *
+ * An entry maps the hash of a block formula and a set of predicates to the
+ * (uninstantiated) abstraction formula in SMT-LIB2. Before hashing, the SSA index
+ * of each variable in the block formula is replaced by its distance to the current
+ * index of the variable, such that the same block reached with different indices
+ * (e.g., because code before it has changed) has the same key.
+ *
+ * The file consists of entries separated by blank lines. Each entry starts with
+ * a line "key: HASH", followed by the declarations and the assertion of the abstraction.
+ * New entries are appended to the file immediately.
+ */
+public class PersistentAbstractionCache {
+
+  private static final String KEY_PREFIX = "key: ";
+
+  private final Path file;
+  private final FormulaManagerView fmgr;
+  private final LogManager logger;
+  private final String keyPrefix;
+
+  // hash of the key -> SMT-LIB2 string of the abstraction
+  private final Map<String, String> entries = new HashMap<>();
+
+  private int hits = 0;
+  private int misses = 0;
+  private int writtenEntries = 0;
+
+  /**
+   * @param pFile The file of the cache, which is created if it does not exist.
+   * @param pKeyPrefix Part of every key that identifies the configuration the abstractions depend on.
+   */
+  public PersistentAbstractionCache(Path pFile, String pKeyPrefix,
+      FormulaManagerView pFmgr, LogManager pLogger) {
+    file = pFile;
+    keyPrefix = pKeyPrefix;
+    fmgr = pFmgr;
+    logger = pLogger;
+
+    if (file.exists()) {
+      try {
+        readEntries();
+      } catch (IOException e) {
+        logger.logUserException(Level.WARNING, e, "Could not read persistent abstraction cache");
+      }
+      logger.log(Level.FINE, "Loaded", entries.size(), "abstractions from", file);
+    }
+  }
+
+  private void readEntries() throws IOException {
+    try (BufferedReader reader = file.asCharSource(StandardCharsets.US_ASCII).openBufferedStream()) {
+      String currentKey = null;
+      List<String> currentLines = new ArrayList<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("//")) {
+          continue;
+        }
+        if (line.startsWith(KEY_PREFIX)) {
+          currentKey = line.substring(KEY_PREFIX.length()).trim();
+          currentLines.clear();
+        } else if (currentKey != null) {
+          currentLines.add(line);
+          if (line.startsWith("(assert ")) {
+            // the assertion completes an entry, an incomplete entry at the end of file is ignored
+            entries.put(currentKey, LINE_JOINER.join(currentLines));
+            currentKey = null;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compute the key of the abstraction of a block formula w.r.t. a set of predicates.
+   *
+   * @param pBlockFormula The instantiated block formula.
+   * @param pSsa The SSA map with the current indices of the variables.
+   * @param pPredicates The predicates used for abstraction.
+   */
+  public String computeKey(BooleanFormula pBlockFormula, final SSAMap pSsa,
+      Collection<AbstractionPredicate> pPredicates) {
+    BooleanFormula normalized = fmgr.renameFreeVariablesAndUFs(pBlockFormula, new Function<String, String>() {
+      @Override
+      public String apply(String pName) {
+        Pair<String, Integer> parsed;
+        try {
+          parsed = FormulaManagerView.parseName(pName);
+        } catch (IllegalArgumentException e) {
+          return pName;
+        }
+        if (parsed.getSecond() == null) {
+          return pName;
+        }
+        String variable = parsed.getFirst();
+        if (!pSsa.containsVariable(variable)) {
+          return variable + "@#" + parsed.getSecond();
+        }
+        return variable + "@" + (pSsa.getIndex(variable) - parsed.getSecond());
+      }
+    });
+
+    // predicates are not ordered, thus they are sorted by their textual representation
+    List<String> predicateStrings = new ArrayList<>(pPredicates.size());
+    for (AbstractionPredicate predicate : pPredicates) {
+      predicateStrings.add(Appenders.toString(fmgr.dumpFormula(predicate.getSymbolicAtom())));
+    }
+    Collections.sort(predicateStrings);
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(keyPrefix, StandardCharsets.UTF_8).putChar('\n');
+    hasher.putString(Appenders.toString(fmgr.dumpFormula(normalized)), StandardCharsets.UTF_8).putChar('\n');
+    for (String predicate : predicateStrings) {
+      hasher.putString(predicate, StandardCharsets.UTF_8).putChar('\n');
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Get the uninstantiated abstraction formula stored for a key.
+   *
+   * @return The abstraction formula, or null if there is no such entry.
+   */
+  public @Nullable BooleanFormula get(String pKey) {
+    String entry = entries.get(pKey);
+    if (entry != null) {
+      try {
+        BooleanFormula result = fmgr.parse(entry);
+        hits++;
+        return result;
+      } catch (IllegalArgumentException e) {
+        logger.logDebugException(e, "Invalid entry in persistent abstraction cache");
+        entries.remove(pKey);
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Store the uninstantiated abstraction formula for a key, and append it to the file.
+   */
+  public void put(String pKey, BooleanFormula pAbstraction) {
+    if (entries.containsKey(pKey)) {
+      return;
+    }
+    Pair<String, List<String>> p = splitFormula(fmgr, pAbstraction);
+    List<String> lines = new ArrayList<>(p.getSecond());
+    lines.add(p.getFirst());
+    String entry = LINE_JOINER.join(lines);
+    entries.put(pKey, entry);
+
+    try {
+      Files.createParentDirs(file);
+    } catch (IOException e) {
+      logger.logUserException(Level.WARNING, e, "Could not write to persistent abstraction cache");
+      return;
+    }
+    try (Writer w = file.asCharSink(StandardCharsets.US_ASCII, FileWriteMode.APPEND).openBufferedStream()) {
+      w.append(KEY_PREFIX).append(pKey).append('\n');
+      w.append(entry).append("\n\n");
+      writtenEntries++;
+    } catch (IOException e) {
+      logger.logUserException(Level.WARNING, e, "Could not write to persistent abstraction cache");
+    }
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  public int getWrittenEntries() {
+    return writtenEntries;
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.predicate.persistence;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.io.Files;
+import org.sosy_lab.common.io.Files.DeleteOnCloseFile;
+import org.sosy_lab.common.io.Path;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.log.TestLogManager;
+import org.sosy_lab.cpachecker.cfa.types.c.CNumericTypes;
+import org.sosy_lab.cpachecker.util.predicates.AbstractionManager;
+import org.sosy_lab.cpachecker.util.predicates.AbstractionPredicate;
+import org.sosy_lab.cpachecker.util.predicates.Solver;
+import org.sosy_lab.cpachecker.util.predicates.SymbolicRegionManager;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.BooleanFormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.FormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.interfaces.view.NumeralFormulaManagerView;
+import org.sosy_lab.cpachecker.util.predicates.pathformula.SSAMap;
+import org.sosy_lab.solver.api.BooleanFormula;
+import org.sosy_lab.solver.api.FormulaType;
+import org.sosy_lab.solver.api.NumeralFormula.IntegerFormula;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.FileWriteMode;
+
+public class PersistentAbstractionCacheTest {
+
+  private static final String KEY_PREFIX = "CARTESIAN true true";
+
+  private LogManager logger;
+  private Solver solver;
+  private FormulaManagerView fmgr;
+  private BooleanFormulaManagerView bfmgr;
+  private NumeralFormulaManagerView<IntegerFormula, IntegerFormula> ifmgr;
+  private AbstractionManager amgr;
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration config = Configuration.defaultConfiguration();
+    logger = TestLogManager.getInstance();
+    solver = Solver.create(config, logger, ShutdownNotifier.create());
+    fmgr = solver.getFormulaManager();
+    bfmgr = fmgr.getBooleanFormulaManager();
+    ifmgr = fmgr.getIntegerFormulaManager();
+    amgr = new AbstractionManager(new SymbolicRegionManager(fmgr, solver), fmgr, config, logger, solver);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    solver.close();
+  }
+
+  private IntegerFormula var(String name, int idx) {
+    return fmgr.makeVariable(FormulaType.IntegerType, name, idx);
+  }
+
+  private SSAMap ssa(int xIdx, int yIdx) {
+    return SSAMap.emptySSAMap().builder()
+        .setIndex("x", CNumericTypes.INT, xIdx)
+        .setIndex("y", CNumericTypes.INT, yIdx)
+        .build();
+  }
+
+  /** The block formula "x = x + 1; y = x" with the given indices before the block. */
+  private BooleanFormula block(int xIdx, int yIdx) {
+    return bfmgr.and(
+        ifmgr.equal(var("x", xIdx + 1), ifmgr.add(var("x", xIdx), ifmgr.makeNumber(1))),
+        ifmgr.equal(var("y", yIdx + 1), var("x", xIdx + 1)));
+  }
+
+  private Collection<AbstractionPredicate> predicates(int... bounds) {
+    ImmutableList.Builder<AbstractionPredicate> result = ImmutableList.builder();
+    for (int bound : bounds) {
+      result.add(amgr.makePredicate(ifmgr.greaterThan(
+          fmgr.makeVariable(FormulaType.IntegerType, "y"), ifmgr.makeNumber(bound))));
+    }
+    return result.build();
+  }
+
+  @Test
+  public void entriesAreReadByFreshInstance() throws Exception {
+    BooleanFormula abstraction = ifmgr.greaterThan(
+        fmgr.makeVariable(FormulaType.IntegerType, "y"), ifmgr.makeNumber(0));
+
+    try (DeleteOnCloseFile tempFile = Files.createTempFile("abstractions", ".smt2")) {
+      PersistentAbstractionCache cache = new PersistentAbstractionCache(tempFile.toPath(), KEY_PREFIX, fmgr, logger);
+      String key = cache.computeKey(block(1, 1), ssa(2, 2), predicates(0));
+      assertThat(cache.get(key)).isNull();
+      cache.put(key, abstraction);
+      assertThat(cache.getWrittenEntries()).isEqualTo(1);
+
+      PersistentAbstractionCache reloaded = new PersistentAbstractionCache(tempFile.toPath(), KEY_PREFIX, fmgr, logger);
+      assertThat(reloaded.get(key)).isEqualTo(abstraction);
+      assertThat(reloaded.getHits()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void keyIsIndependentOfShiftedIndices() throws Exception {
+    try (DeleteOnCloseFile tempFile = Files.createTempFile("abstractions", ".smt2")) {
+      PersistentAbstractionCache cache = new PersistentAbstractionCache(tempFile.toPath(), KEY_PREFIX, fmgr, logger);
+      // the same block reached with other indices, e.g., after code before it has changed
+      assertThat(cache.computeKey(block(4, 7), ssa(5, 8), predicates(0, 5)))
+          .isEqualTo(cache.computeKey(block(1, 1), ssa(2, 2), predicates(0, 5)));
+      // predicates are not ordered
+      assertThat(cache.computeKey(block(1, 1), ssa(2, 2), predicates(5, 0)))
+          .isEqualTo(cache.computeKey(block(1, 1), ssa(2, 2), predicates(0, 5)));
+    }
+  }
+
+  @Test
+  public void keyDependsOnPredicatesAndPrefix() throws Exception {
+    try (DeleteOnCloseFile tempFile = Files.createTempFile("abstractions", ".smt2")) {
+      Path file = tempFile.toPath();
+      PersistentAbstractionCache cache = new PersistentAbstractionCache(file, KEY_PREFIX, fmgr, logger);
+      String key = cache.computeKey(block(1, 1), ssa(2, 2), predicates(0));
+
+      assertThat(cache.computeKey(block(1, 1), ssa(2, 2), predicates(1))).isNotEqualTo(key);
+      assertThat(cache.computeKey(block(1, 1), ssa(2, 2), predicates(0, 1))).isNotEqualTo(key);
+      // the indices of the variables after the block differ
+      assertThat(cache.computeKey(block(1, 1), ssa(2, 3), predicates(0))).isNotEqualTo(key);
+
+      PersistentAbstractionCache otherConfig = new PersistentAbstractionCache(file, "BOOLEAN true true", fmgr, logger);
+      assertThat(otherConfig.computeKey(block(1, 1), ssa(2, 2), predicates(0))).isNotEqualTo(key);
+    }
+  }
+
+  @Test
+  public void truncatedEntryIsIgnored() throws Exception {
+    BooleanFormula abstraction = ifmgr.greaterThan(
+        fmgr.makeVariable(FormulaType.IntegerType, "y"), ifmgr.makeNumber(0));
+
+    try (DeleteOnCloseFile tempFile = Files.createTempFile("abstractions", ".smt2")) {
+      Path file = tempFile.toPath();
+      PersistentAbstractionCache cache = new PersistentAbstractionCache(file, KEY_PREFIX, fmgr, logger);
+      String key = cache.computeKey(block(1, 1), ssa(2, 2), predicates(0));
+      String truncatedKey = cache.computeKey(block(1, 1), ssa(2, 2), predicates(1));
+      String brokenKey = cache.computeKey(block(1, 1), ssa(2, 2), predicates(2));
+      cache.put(key, abstraction);
+
+      // an entry whose assertion is cut off within the line, and an entry without assertion,
+      // as if CPAchecker was killed while appending them
+      file.asCharSink(StandardCharsets.US_ASCII, FileWriteMode.APPEND).write(
+          "key: " + brokenKey + "\n(declare-fun |y| () Int)\n(assert (> |y|\n\n"
+          + "key: " + truncatedKey + "\n(declare-fun |y| () Int)\n");
+
+      PersistentAbstractionCache reloaded = new PersistentAbstractionCache(file, KEY_PREFIX, fmgr, logger);
+      assertThat(reloaded.get(key)).isEqualTo(abstraction);
+      assertThat(reloaded.get(truncatedKey)).isNull();
+      assertThat(reloaded.get(brokenKey)).isNull();
+
+      // the truncated entry can be written again
+      reloaded.put(truncatedKey, abstraction);
+      assertThat(reloaded.getWrittenEntries()).isEqualTo(1);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+
+/**
+ * Streaming reader of metadata files written by {@link BinaryMetadataWriter}.
+ *
+ * The file is memory-mapped and records are decoded from the mapping one by one, thus no
+ * intermediate document is built. Each string of the string table is decoded once and shared by
+ * all records referring to it.
+ */
+public class BinaryMetadataReader {
+
+  static final int MAGIC = 0x49465844; // "IFXD"
+  // version 2 adds locations of hoisted sanity checks
+  static final int VERSION = 2;
+  static final int KIND_NAME2LOC = 1;
+  static final int KIND_LOC2GUIDE = 2;
+
+  static final int FLAG_INT = 0x1;
+  static final int FLAG_CHECK = 0x2;
+  static final int FLAG_HOISTED = 0x4;
+
+  public static interface Name2LocVisitor {
+    void visit(String varName, FileLocation loc);
+  }
+
+  /**
+   * The fields of a fix guide are passed as they are stored, so the consumer can build its own
+   * representation. The base type is in the form of {@link IntType#toOBJString()}, the target is
+   * null if the guide has no target, and the hoist location is null unless the sanity check is
+   * hoisted before a loop (see {@link FixGuide#getHoistLocation()}).
+   */
+  public static interface Loc2GuideVisitor {
+    void visit(FileLocation loc, boolean isIntVar, boolean needSanityCheck, String baseType, int refLevel,
+        String target, FileLocation hoistLocation);
+  }
+
+  private BinaryMetadataReader() { }
+
+  /**
+   * Check whether the file starts with the header of binary metadata.
+   */
+  public static boolean isBinaryMetadata(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(4);
+      while(header.hasRemaining() && channel.read(header) >= 0) { }
+      header.flip();
+      return header.remaining() == 4 && header.getInt() == MAGIC;
+    } catch(IOException ex) {
+      return false;
+    }
+  }
+
+  public static void readName2Loc(Path file, Name2LocVisitor visitor) throws IOException {
+    ByteBuffer buffer = map(file, KIND_NAME2LOC);
+    try {
+      String[] strings = readStringTable(buffer);
+      int size = readVarInt(buffer);
+      LocationDecoder locations = new LocationDecoder(strings);
+      for(int i = 0; i < size; i++) {
+        String varName = strings[readVarInt(buffer)];
+        visitor.visit(varName, locations.read(buffer));
+      }
+    } catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+        | NegativeArraySizeException ex) {
+      throw new IOException(file + " is truncated or corrupted", ex);
+    }
+  }
+
+  public static void readLoc2Guide(Path file, Loc2GuideVisitor visitor) throws IOException {
+    ByteBuffer buffer = map(file, KIND_LOC2GUIDE);
+    try {
+      String[] strings = readStringTable(buffer);
+      int size = readVarInt(buffer);
+      LocationDecoder locations = new LocationDecoder(strings);
+      for(int i = 0; i < size; i++) {
+        FileLocation loc = locations.read(buffer);
+        int flags = buffer.get();
+        String baseType = strings[readVarInt(buffer)];
+        int refLevel = unZigZag(readVarInt(buffer));
+        int targetIndex = readVarInt(buffer);
+        String target = targetIndex == 0 ? null : strings[targetIndex - 1];
+        FileLocation hoistLoc = null;
+        if((flags & FLAG_HOISTED) != 0) {
+          hoistLoc = new LocationDecoder(strings).read(buffer);
+        }
+        visitor.visit(loc, (flags & FLAG_INT) != 0, (flags & FLAG_CHECK) != 0, baseType, refLevel, target, hoistLoc);
+      }
+    } catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+        | NegativeArraySizeException ex) {
+      throw new IOException(file + " is truncated or corrupted", ex);
+    }
+  }
+
+  private static ByteBuffer map(Path file, int kind) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // the mapping remains valid after the channel is closed
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    if(buffer.remaining() < 6 || buffer.getInt() != MAGIC) {
+      throw new IOException(file + " is not a binary metadata file");
+    }
+    int version = buffer.get();
+    if(version < 1 || version > VERSION) {
+      throw new IOException("Unsupported version " + version + " of binary metadata in " + file);
+    }
+    int fileKind = buffer.get();
+    if(fileKind != kind) {
+      throw new IOException("Unexpected kind " + fileKind + " of binary metadata in " + file);
+    }
+    return buffer;
+  }
+
+  private static String[] readStringTable(ByteBuffer buffer) {
+    String[] strings = new String[readVarInt(buffer)];
+    for(int i = 0; i < strings.length; i++) {
+      int length = readVarInt(buffer);
+      ByteBuffer slice = buffer.slice();
+      slice.limit(length);
+      strings[i] = StandardCharsets.UTF_8.decode(slice).toString();
+      buffer.position(buffer.position() + length);
+    }
+    return strings;
+  }
+
+  static int readVarInt(ByteBuffer buffer) {
+    int value = 0;
+    for(int shift = 0; shift < 35; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if(b >= 0) {
+        return value;
+      }
+    }
+    throw new BufferUnderflowException();
+  }
+
+  static int unZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static class LocationDecoder {
+
+    private final String[] strings;
+    private int lastLine = 0;
+    private int lastOffset = 0;
+
+    LocationDecoder(String[] strings) {
+      this.strings = strings;
+    }
+
+    FileLocation read(ByteBuffer buffer) {
+      String fileName = strings[readVarInt(buffer)];
+      int startLine = lastLine + unZigZag(readVarInt(buffer));
+      int endLine = startLine + unZigZag(readVarInt(buffer));
+      int offset = lastOffset + unZigZag(readVarInt(buffer));
+      int length = readVarInt(buffer);
+      lastLine = startLine;
+      lastOffset = offset;
+      return new FileLocation(endLine, fileName, length, offset, startLine);
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentMap;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+import org.sosy_lab.cpachecker.cpa.range.BinaryMetadataReader.Loc2GuideVisitor;
+import org.sosy_lab.cpachecker.cpa.range.BinaryMetadataReader.Name2LocVisitor;
+
+public class BinaryMetadataReaderTest {
+
+  private static final FileLocation LOC1 = new FileLocation(3, "a.c", 12, 40, 3);
+  private static final FileLocation LOC2 = new FileLocation(9, "a.c", 5, 20, 7);
+  private static final FileLocation LOC3 = new FileLocation(2, "b.c", 8, 10, 1);
+  private static final FileLocation LOOP = new FileLocation(10, "a.c", 60, 15, 6);
+
+  @Test
+  public void testName2LocRoundTrip() throws IOException {
+    PersistentMap<String, FileLocation> name2Loc = PathCopyingPersistentTreeMap.<String, FileLocation>of()
+        .putAndCopy("x", LOC1).putAndCopy("y", LOC2).putAndCopy("z", LOC3);
+    Path file = Files.createTempFile("name2loc", ".bin");
+    try {
+      new BinaryMetadataWriter(file.toString()).generateName2Loc(name2Loc);
+      Assert.assertTrue(BinaryMetadataReader.isBinaryMetadata(file));
+
+      final List<String> names = new ArrayList<>();
+      final List<FileLocation> locs = new ArrayList<>();
+      BinaryMetadataReader.readName2Loc(file, new Name2LocVisitor() {
+        @Override
+        public void visit(String varName, FileLocation loc) {
+          names.add(varName);
+          locs.add(loc);
+        }
+      });
+      Assert.assertEquals(3, names.size());
+      for(int i = 0; i < names.size(); i++) {
+        assertSameLocation(name2Loc.get(names.get(i)), locs.get(i));
+      }
+      // file names are decoded once from the string table
+      Assert.assertSame(locs.get(names.indexOf("x")).getFileName(), locs.get(names.indexOf("y")).getFileName());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testLoc2GuideRoundTrip() throws IOException {
+    PersistentMap<FileLocation, FixGuide> loc2Guide = PathCopyingPersistentTreeMap.<FileLocation, FixGuide>of()
+        .putAndCopy(LOC1, new FixGuide(true, false, true, IntType.INDEX_TYPE, 0, null))
+        .putAndCopy(LOC2, new FixGuide(false, true, false, IntType.LSHIFT_TYPE, RangeTransferRelation.shiftLeftLevel, "p"))
+        .putAndCopy(LOC3, new FixGuide(true, false, true, IntType.INDEX_TYPE, -1, null).hoistTo(LOOP));
+    Path file = Files.createTempFile("loc2guide", ".bin");
+    try {
+      new BinaryMetadataWriter(file.toString()).generateLoc2Guide(loc2Guide);
+
+      final List<FileLocation> locs = new ArrayList<>();
+      final List<String> records = new ArrayList<>();
+      final List<FileLocation> hoistLocs = new ArrayList<>();
+      BinaryMetadataReader.readLoc2Guide(file, new Loc2GuideVisitor() {
+        @Override
+        public void visit(FileLocation loc, boolean isIntVar, boolean needSanityCheck, String baseType,
+            int refLevel, String target, FileLocation hoistLoc) {
+          locs.add(loc);
+          records.add(isIntVar + " " + needSanityCheck + " " + baseType + " " + refLevel + " " + target);
+          hoistLocs.add(hoistLoc);
+        }
+      });
+      Assert.assertEquals(3, locs.size());
+      // locations are sorted by lines, so offsets are encoded as negative deltas
+      assertSameLocation(LOC3, locs.get(0));
+      assertSameLocation(LOC1, locs.get(1));
+      assertSameLocation(LOC2, locs.get(2));
+      Assert.assertEquals("true true INDEX -1 null", records.get(0));
+      Assert.assertEquals("true true INDEX 0 null", records.get(1));
+      Assert.assertEquals("false false SHIFT_LEFT -10 p", records.get(2));
+      assertSameLocation(LOOP, hoistLocs.get(0));
+      Assert.assertNull(hoistLocs.get(1));
+      Assert.assertNull(hoistLocs.get(2));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testWrongKind() throws IOException {
+    Path file = Files.createTempFile("name2loc", ".bin");
+    try {
+      new BinaryMetadataWriter(file.toString()).generateName2Loc(
+          PathCopyingPersistentTreeMap.<String, FileLocation>of().putAndCopy("x", LOC1));
+      BinaryMetadataReader.readLoc2Guide(file, new Loc2GuideVisitor() {
+        @Override
+        public void visit(FileLocation loc, boolean isIntVar, boolean needSanityCheck, String baseType,
+            int refLevel, String target, FileLocation hoistLoc) {
+        }
+      });
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void assertSameLocation(FileLocation expected, FileLocation actual) {
+    Assert.assertEquals(expected.getFileName(), actual.getFileName());
+    Assert.assertEquals(expected.getStartingLineNumber(), actual.getStartingLineNumber());
+    Assert.assertEquals(expected.getEndingLineNumber(), actual.getEndingLineNumber());
+    Assert.assertEquals(expected.getNodeOffset(), actual.getNodeOffset());
+    Assert.assertEquals(expected.getNodeLength(), actual.getNodeLength());
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.sosy_lab.common.collect.PersistentMap;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+
+/**
+ * Writer of name2loc and loc2guide in the compact binary format read by {@link BinaryMetadataReader}.
+ *
+ * A file consists of a header (magic, version and kind), a string table holding every file name,
+ * variable name, base type and target once, and a sequence of records that refer to strings by
+ * their indices. All integers are varint-encoded. Starting lines and offsets are stored as deltas
+ * to the previous record, which are small since records are written in the order of their
+ * locations (loc2guide is keyed by locations, and name2loc is sorted by locations before writing).
+ */
+public class BinaryMetadataWriter {
+
+  private final String filePath;
+
+  public BinaryMetadataWriter(String filePath) {
+    this.filePath = filePath;
+  }
+
+  public void generateName2Loc(PersistentMap<String, FileLocation> name2Loc) {
+    StringTable strings = new StringTable();
+    for(Entry<String, FileLocation> entry : name2Loc.entrySet()) {
+      strings.add(entry.getKey());
+      strings.add(entry.getValue().getFileName());
+    }
+
+    // name2loc is ordered by names, thus entries are sorted by locations to keep deltas small
+    List<Entry<String, FileLocation>> entries = new ArrayList<>(name2Loc.entrySet());
+    Collections.sort(entries, new Comparator<Entry<String, FileLocation>>() {
+      @Override
+      public int compare(Entry<String, FileLocation> e1, Entry<String, FileLocation> e2) {
+        return e1.getValue().compareTo(e2.getValue());
+      }
+    });
+
+    try (DataOutputStream out = open(BinaryMetadataReader.KIND_NAME2LOC)) {
+      strings.write(out);
+      writeVarInt(out, entries.size());
+      LocationEncoder locations = new LocationEncoder(strings);
+      for(Entry<String, FileLocation> entry : entries) {
+        writeVarInt(out, strings.indexOf(entry.getKey()));
+        locations.write(out, entry.getValue());
+      }
+    } catch(IOException ex) {
+      System.err.println("Binary metadata writer failed!");
+      ex.printStackTrace();
+    }
+  }
+
+  public void generateLoc2Guide(PersistentMap<FileLocation, FixGuide> loc2Guide) {
+    StringTable strings = new StringTable();
+    for(Entry<FileLocation, FixGuide> entry : loc2Guide.entrySet()) {
+      FixGuide guide = entry.getValue();
+      strings.add(entry.getKey().getFileName());
+      strings.add(guide.getBaseType().toOBJString());
+      if(guide.getTarget() != null) {
+        strings.add(guide.getTarget());
+      }
+      if(guide.getHoistLocation() != null) {
+        strings.add(guide.getHoistLocation().getFileName());
+      }
+    }
+
+    try (DataOutputStream out = open(BinaryMetadataReader.KIND_LOC2GUIDE)) {
+      strings.write(out);
+      writeVarInt(out, loc2Guide.size());
+      LocationEncoder locations = new LocationEncoder(strings);
+      for(Entry<FileLocation, FixGuide> entry : loc2Guide.entrySet()) {
+        FixGuide guide = entry.getValue();
+        locations.write(out, entry.getKey());
+        int flags = 0;
+        if(guide.isIntVar()) {
+          flags |= BinaryMetadataReader.FLAG_INT;
+        }
+        if(guide.needSanityCheck()) {
+          flags |= BinaryMetadataReader.FLAG_CHECK;
+        }
+        if(guide.getHoistLocation() != null) {
+          flags |= BinaryMetadataReader.FLAG_HOISTED;
+        }
+        out.writeByte(flags);
+        writeVarInt(out, strings.indexOf(guide.getBaseType().toOBJString()));
+        writeVarInt(out, zigZag(guide.getRefLevel()));
+        // index 0 is reserved for the null target
+        String target = guide.getTarget();
+        writeVarInt(out, target == null ? 0 : strings.indexOf(target) + 1);
+        if(guide.getHoistLocation() != null) {
+          // the loop location is not in the sorted order, thus it is not delta-encoded
+          new LocationEncoder(strings).write(out, guide.getHoistLocation());
+        }
+      }
+    } catch(IOException ex) {
+      System.err.println("Binary metadata writer failed!");
+      ex.printStackTrace();
+    }
+  }
+
+  private DataOutputStream open(int kind) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)));
+    out.writeInt(BinaryMetadataReader.MAGIC);
+    out.writeByte(BinaryMetadataReader.VERSION);
+    out.writeByte(kind);
+    return out;
+  }
+
+  static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  /**
+   * Strings in the order of their first occurrence
+   */
+  private static class StringTable {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    void add(String str) {
+      if(!indices.containsKey(str)) {
+        indices.put(str, strings.size());
+        strings.add(str);
+      }
+    }
+
+    int indexOf(String str) {
+      return indices.get(str);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      writeVarInt(out, strings.size());
+      for(String str : strings) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Encodes file locations relative to the previously written one
+   */
+  private static class LocationEncoder {
+
+    private final StringTable strings;
+    private int lastLine = 0;
+    private int lastOffset = 0;
+
+    LocationEncoder(StringTable strings) {
+      this.strings = strings;
+    }
+
+    void write(DataOutputStream out, FileLocation loc) throws IOException {
+      int startLine = loc.getStartingLineNumber();
+      int offset = loc.getNodeOffset();
+      writeVarInt(out, strings.indexOf(loc.getFileName()));
+      writeVarInt(out, zigZag(startLine - lastLine));
+      writeVarInt(out, zigZag(loc.getEndingLineNumber() - startLine));
+      writeVarInt(out, zigZag(offset - lastOffset));
+      writeVarInt(out, loc.getNodeLength());
+      lastLine = startLine;
+      lastOffset = offset;
+    }
+  }
+
+}
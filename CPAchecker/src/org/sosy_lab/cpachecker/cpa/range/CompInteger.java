@@ -23,11 +23,21 @@
  */
 package org.sosy_lab.cpachecker.cpa.range;
 
+import java.io.Serializable;
 import java.math.BigInteger;
 
-public class CompInteger implements Comparable<CompInteger> {
+public class CompInteger implements Serializable, Comparable<CompInteger> {
 
-  private BigInteger value;
+  private static final long serialVersionUID = 4920137305562871048L;
+
+  /**
+   * Most integers in the analysis fit 64 bits. Such an integer is stored in {@link #small}, while {@link #big}
+   * is null. An integer is stored as a BigInteger only if it cannot fit 64 bits. Arithmetic operations are
+   * performed on longs with overflow detection, and the result is promoted to BigInteger only when overflow
+   * happens.
+   */
+  private final long small;
+  private final BigInteger big;
 
   /**
    * status denotes the special status of this integer, it can be
@@ -43,86 +53,149 @@ public class CompInteger implements Comparable<CompInteger> {
    *    (c) NaN > -\infty
    *    (d) NaN == x (x is a normal integer constant)
    */
-  private int status;
+  private final int status;
 
   private final static int NORM = 0;
   private final static int NINF = 1;
   private final static int PINF = 2;
   private final static int NAN = 3;
 
-  public static final CompInteger infpos = new CompInteger(PINF);
-  public static final CompInteger infneg = new CompInteger(NINF);
-  public static final CompInteger nan = new CompInteger(NAN);
-  public static final CompInteger zero = new CompInteger(BigInteger.ZERO);
-  public static final CompInteger one = new CompInteger(BigInteger.ONE);
+  private static final long CACHE_LOW = -128;
+  private static final long CACHE_HIGH = 1024;
+  // small integers are interned, since they are frequently created in range arithmetic
+  private static final CompInteger[] cache = new CompInteger[(int) (CACHE_HIGH - CACHE_LOW + 1)];
+
+  static {
+    for(int i = 0; i < cache.length; i++) {
+      cache[i] = new CompInteger(CACHE_LOW + i);
+    }
+  }
+
+  public static final CompInteger infpos = new CompInteger(PINF, 0L);
+  public static final CompInteger infneg = new CompInteger(NINF, 0L);
+  public static final CompInteger nan = new CompInteger(NAN, 0L);
+  public static final CompInteger zero = valueOf(0L);
+  public static final CompInteger one = valueOf(1L);
 
   public CompInteger()
   {
-    this.value = BigInteger.ZERO;
-    this.status = NORM;
+    this(0L);
   }
 
-  public CompInteger(int status) {
-    this.value = BigInteger.ZERO;
+  private CompInteger(int status, long val) {
+    this.small = val;
+    this.big = null;
     this.status = status;
   }
 
   public CompInteger(BigInteger val) {
-    this.value = val;
+    if(val.bitLength() < Long.SIZE) {
+      this.small = val.longValue();
+      this.big = null;
+    } else {
+      this.small = 0;
+      this.big = val;
+    }
     this.status = NORM;
   }
 
   public CompInteger(long val) {
-    this.value = new BigInteger(String.valueOf(val));
+    this.small = val;
+    this.big = null;
     this.status = NORM;
   }
 
+  public static CompInteger valueOf(long val) {
+    if(val >= CACHE_LOW && val <= CACHE_HIGH) {
+      return cache[(int) (val - CACHE_LOW)];
+    }
+    return new CompInteger(val);
+  }
+
+  public static CompInteger valueOf(BigInteger val) {
+    if(val.bitLength() < Long.SIZE) {
+      return valueOf(val.longValue());
+    }
+    return new CompInteger(val);
+  }
+
+  private static CompInteger ofStatus(int status) {
+    switch(status) {
+    case NINF:
+      return infneg;
+    case PINF:
+      return infpos;
+    case NAN:
+      return nan;
+    default:
+      return zero;
+    }
+  }
+
   public int getStatus() {
     return this.status;
   }
 
   public BigInteger getValue() {
-    return this.value;
+    return big != null ? big : BigInteger.valueOf(small);
+  }
+
+  /**
+   * @return true if this is a normal integer fitting 64 bits
+   */
+  private boolean isSmall() {
+    return status == NORM && big == null;
+  }
+
+  boolean isNaN() {
+    return status == NAN;
   }
 
   // Add support for program arithmetic operations
   public CompInteger add(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NORM) {
-        return new CompInteger(this.value.add(val.value));
+        if(this.isSmall() && val.isSmall()) {
+          long r = this.small + val.small;
+          // overflow iff both operands have the sign different from the result
+          if(((this.small ^ r) & (val.small ^ r)) >= 0) {
+            return valueOf(r);
+          }
+        }
+        return valueOf(this.getValue().add(val.getValue()));
       } else {
-        return new CompInteger(val.status);
+        return ofStatus(val.status);
       }
     } else if(this.status == NINF) {
       if(val.status == NORM || val.status == NINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else if(this.status == PINF) {
       if(val.status == NORM || val.status == PINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
   public CompInteger abs() {
     if(this.status == NORM) {
-      return new CompInteger(this.value.abs());
+      return signum() < 0 ? negate() : this;
     } else if(this.status == PINF || this.status == NINF) {
-      return new CompInteger(PINF);
+      return infpos;
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
   public int signum() {
     if(this.status == NORM) {
-      return this.value.signum();
+      return big != null ? big.signum() : Long.signum(small);
     } else if(this.status == NINF) {
       return -1;
     } else if(this.status == PINF) {
@@ -135,72 +208,74 @@ public class CompInteger implements Comparable<CompInteger> {
   public CompInteger divide(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NAN) {
-        return new CompInteger(NAN);
+        return nan;
       } else if(val.status == NINF || val.status == PINF) {
-        return new CompInteger(BigInteger.ZERO);
+        return zero;
       } else {
-        if(val.value.compareTo(BigInteger.ZERO) == 0) {
-          return new CompInteger(NAN);
+        if(val.signum() == 0) {
+          return nan;
+        } else if(this.isSmall() && val.isSmall() && !(this.small == Long.MIN_VALUE && val.small == -1)) {
+          return valueOf(this.small / val.small);
         } else {
-          return new CompInteger(this.value.divide(val.value));
+          return valueOf(this.getValue().divide(val.getValue()));
         }
       }
     } else if(this.status == NINF) {
       if(val.status == PINF || val.status == NINF || val.status == NAN) {
-        return new CompInteger(NAN);
+        return nan;
       } else {
-        switch(val.value.compareTo(BigInteger.ZERO)) {
+        switch(val.signum()) {
         case 0:
-          return new CompInteger(NAN);
+          return nan;
         case -1:
-          return new CompInteger(PINF);
+          return infpos;
         default:
-          return new CompInteger(NINF);
+          return infneg;
         }
       }
     } else if(this.status == PINF) {
       if(val.status == PINF || val.status == NINF || val.status == NAN) {
-        return new CompInteger(NAN);
+        return nan;
       } else {
-        switch(val.value.compareTo(BigInteger.ZERO)) {
+        switch(val.signum()) {
         case 0:
-          return new CompInteger(NAN);
+          return nan;
         case 1:
-          return new CompInteger(PINF);
+          return infpos;
         default:
-          return new CompInteger(NINF);
+          return infneg;
         }
       }
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
   public CompInteger max(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NORM) {
-        return new CompInteger(this.value.max(val.value));
+        return this.compareTo(val) >= 0 ? this : val;
       } else if(val.status == PINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else {
         // a normal constant compares with NaN. NaN's value is undetermined
-        return new CompInteger(this.value);
+        return this;
       }
     } else if(this.status == NINF) {
       if(val.status == NORM) {
-        return new CompInteger(val.value);
+        return val;
       } else if(val.status == PINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else {
-        return new CompInteger(NINF);
+        return infneg;
       }
     } else if(this.status == PINF) {
-      return new CompInteger(PINF);
+      return infpos;
     } else {
       if(val.status == NORM) {
-        return new CompInteger(val.value);
+        return val;
       } else {
-        return new CompInteger(val.status);
+        return ofStatus(val.status);
       }
     }
   }
@@ -208,27 +283,27 @@ public class CompInteger implements Comparable<CompInteger> {
   public CompInteger min(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NORM) {
-        return new CompInteger(this.value.min(val.value));
+        return this.compareTo(val) <= 0 ? this : val;
       } else if(val.status == NINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(this.value);
+        return this;
       }
     } else if(this.status == NINF) {
-      return new CompInteger(NINF);
+      return infneg;
     } else if(this.status == PINF) {
       if(val.status == NORM) {
-        return new CompInteger(val.value);
+        return val;
       } else if(val.status == NINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(PINF);
+        return infpos;
       }
     } else {
       if(val.status == NORM) {
-        return new CompInteger(val.value);
+        return val;
       } else {
-        return new CompInteger(val.status);
+        return ofStatus(val.status);
       }
     }
   }
@@ -239,101 +314,117 @@ public class CompInteger implements Comparable<CompInteger> {
   public CompInteger mod(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NORM) {
-        if(val.value.compareTo(BigInteger.ZERO) == 0) {
-          return new CompInteger(NAN);
+        if(val.signum() == 0) {
+          return nan;
+        } else if(this.isSmall() && val.isSmall() && val.small > 0) {
+          long r = this.small % val.small;
+          return valueOf(r < 0 ? r + val.small : r);
         } else {
-          return new CompInteger(this.value.mod(val.value));
+          return valueOf(this.getValue().mod(val.getValue()));
         }
       } else if(val.status == NINF || val.status == PINF) {
-        return new CompInteger(this.value);
+        return this;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
   public CompInteger multiply(CompInteger val) {
     if(this.status == NORM) {
-      int sig = this.value.signum();
+      int sig = this.signum();
       if(val.status == NORM) {
-        return new CompInteger(this.value.multiply(val.value));
+        if(this.isSmall() && val.isSmall()) {
+          long x = this.small;
+          long y = val.small;
+          long r = x * y;
+          // the same overflow check as Math.multiplyExact
+          if(((Math.abs(x) | Math.abs(y)) >>> 31 == 0)
+              || ((y == 0 || r / y == x) && !(x == Long.MIN_VALUE && y == -1))) {
+            return valueOf(r);
+          }
+        }
+        return valueOf(this.getValue().multiply(val.getValue()));
       } else if(val.status == NINF) {
         if(sig == 1) {
-          return new CompInteger(NINF);
+          return infneg;
         } else if(sig == 0) {
-          return new CompInteger(BigInteger.ZERO);
+          return zero;
         } else {
-          return new CompInteger(PINF);
+          return infpos;
         }
       } else if(val.status == PINF) {
         if(sig == 1) {
-          return new CompInteger(PINF);
+          return infpos;
         } else if(sig == 0) {
-          return new CompInteger(BigInteger.ZERO);
+          return zero;
         } else {
-          return new CompInteger(NINF);
+          return infneg;
         }
       } else {
         if(sig == 0) {
-          return new CompInteger(BigInteger.ZERO);
+          return zero;
         } else {
-          return new CompInteger(NAN);
+          return nan;
         }
       }
     } else if(this.status == NINF) {
       if(val.status == NORM) {
-        int sig = val.value.signum();
+        int sig = val.signum();
         if(sig == 0) {
-          return new CompInteger(BigInteger.ZERO);
+          return zero;
         } else if(sig == 1) {
-          return new CompInteger(NINF);
+          return infneg;
         } else {
-          return new CompInteger(PINF);
+          return infpos;
         }
       } else if(val.status == NINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else if(val.status == PINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else if(this.status == PINF) {
       if(val.status == NORM) {
-        int sig = val.value.signum();
+        int sig = val.signum();
         if(sig == 0) {
-          return new CompInteger(BigInteger.ZERO);
+          return zero;
         } else if(sig == 1) {
-          return new CompInteger(PINF);
+          return infpos;
         } else {
-          return new CompInteger(NINF);
+          return infneg;
         }
       } else if(val.status == NINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else if(val.status == PINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else {
-      if(val.status == NORM && val.value.signum() == 0) {
-        return new CompInteger(BigInteger.ZERO);
+      if(val.status == NORM && val.signum() == 0) {
+        return zero;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     }
   }
 
   public CompInteger negate() {
     if(this.status == NORM) {
-      return new CompInteger(this.value.negate());
+      if(this.isSmall() && this.small != Long.MIN_VALUE) {
+        return valueOf(-this.small);
+      }
+      return valueOf(this.getValue().negate());
     } else if(this.status == NINF) {
-      return new CompInteger(PINF);
+      return infpos;
     } else if(this.status == PINF) {
-      return new CompInteger(NINF);
+      return infneg;
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
@@ -344,48 +435,57 @@ public class CompInteger implements Comparable<CompInteger> {
   public CompInteger remainder(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NORM) {
-        if(val.value.signum() == 0) {
-          return new CompInteger(NAN);
+        if(val.signum() == 0) {
+          return nan;
+        } else if(this.isSmall() && val.isSmall()) {
+          return valueOf(this.small % val.small);
         } else {
-          return new CompInteger(this.value.remainder(val.value));
+          return valueOf(this.getValue().remainder(val.getValue()));
         }
       } else if(val.status == PINF) {
-        return new CompInteger(this.value);
+        return this;
       } else if(val.status == NINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
   public CompInteger subtract(CompInteger val) {
     if(this.status == NORM) {
       if(val.status == NORM) {
-        return new CompInteger(this.value.subtract(val.value));
+        if(this.isSmall() && val.isSmall()) {
+          long r = this.small - val.small;
+          // overflow iff the operands have different signs and the sign of result differs from the minuend
+          if(((this.small ^ val.small) & (this.small ^ r)) >= 0) {
+            return valueOf(r);
+          }
+        }
+        return valueOf(this.getValue().subtract(val.getValue()));
       } else if(val.status == NINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else if(val.status == PINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else if(this.status == NINF) {
       if(val.status == NORM || val.status == PINF) {
-        return new CompInteger(NINF);
+        return infneg;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else if(this.status == PINF) {
       if(val.status == NORM || val.status == NINF) {
-        return new CompInteger(PINF);
+        return infpos;
       } else {
-        return new CompInteger(NAN);
+        return nan;
       }
     } else {
-      return new CompInteger(NAN);
+      return nan;
     }
   }
 
@@ -393,11 +493,14 @@ public class CompInteger implements Comparable<CompInteger> {
     // in C, if n is negative, the behavior of shift operation is undefined
     // TODO: an inappropriate bitwise shift may produce a result exceeding the capacity of BigInteger
     if(this.status == NORM) {
+      if(this.isSmall() && n >= 0 && n < Long.SIZE && ((this.small << n) >> n) == this.small) {
+        return valueOf(this.small << n);
+      }
       try {
-        CompInteger output = new CompInteger(this.value.shiftLeft(n));
+        CompInteger output = valueOf(this.getValue().shiftLeft(n));
         return output;
       } catch(ArithmeticException ex) {
-        if(this.value.signum() > 0) {
+        if(this.signum() > 0) {
           return CompInteger.infpos;
         } else {
           // signum() == 0 is impossible, otherwise exception should not be triggered
@@ -405,24 +508,28 @@ public class CompInteger implements Comparable<CompInteger> {
         }
       }
     } else {
-      return new CompInteger(this.status);
+      return ofStatus(this.status);
     }
   }
 
   public CompInteger shiftRight(int n) {
     if(this.status == NORM) {
+      if(this.isSmall() && n >= 0) {
+        // arithmetic shift rounds towards negative infinity, the same as BigInteger
+        return valueOf(this.small >> Math.min(n, Long.SIZE - 1));
+      }
       try {
-        CompInteger output = new CompInteger(this.value.shiftRight(n));
+        CompInteger output = valueOf(this.getValue().shiftRight(n));
         return output;
       } catch(ArithmeticException ex) {
-        if(this.value.signum() > 0) {
+        if(this.signum() > 0) {
           return CompInteger.infpos;
         } else {
           return CompInteger.infneg;
         }
       }
     } else {
-      return new CompInteger(this.status);
+      return ofStatus(this.status);
     }
   }
 
@@ -431,15 +538,8 @@ public class CompInteger implements Comparable<CompInteger> {
    * @return value
    */
   public Integer intValue() {
-    if(this.status == NORM) {
-      BigInteger val = this.value;
-      BigInteger int_max = BigInteger.valueOf(Integer.MAX_VALUE);
-      BigInteger int_min = BigInteger.valueOf(Integer.MIN_VALUE);
-      if(val.compareTo(int_max) <= 0 && val.compareTo(int_min) >= 0) {
-        return val.intValue();
-      } else {
-        return null;
-      }
+    if(this.isSmall() && this.small <= Integer.MAX_VALUE && this.small >= Integer.MIN_VALUE) {
+      return (int) this.small;
     } else {
       return null;
     }
@@ -448,7 +548,7 @@ public class CompInteger implements Comparable<CompInteger> {
   @Override
   public String toString() {
     if(this.status == NORM) {
-      return this.value.toString();
+      return big != null ? big.toString() : Long.toString(small);
     } else if(this.status == NINF) {
       return new String("-inf");
     } else if(this.status == PINF) {
@@ -486,8 +586,13 @@ public class CompInteger implements Comparable<CompInteger> {
         return -1;
       } else if(other.status == NAN) {
         throw new RuntimeException("NaN is not comparable to any other values.");
+      } else if(this.big == null && other.big == null) {
+        return Long.compare(this.small, other.small);
+      } else if(this.big != null && other.big != null) {
+        return this.big.compareTo(other.big);
       } else {
-        return (this.value.compareTo(other.value));
+        // a BigInteger value is always out of the range of long
+        return this.big != null ? this.big.signum() : -other.big.signum();
       }
     }
   }
@@ -500,7 +605,7 @@ public class CompInteger implements Comparable<CompInteger> {
     } else if(this.status == NAN) {
       throw new RuntimeException("NaN is not comparable to any other values.");
     } else {
-      return this.value.compareTo(bigint);
+      return this.getValue().compareTo(bigint);
     }
   }
 
@@ -511,13 +616,17 @@ public class CompInteger implements Comparable<CompInteger> {
    */
   @Override
   public boolean equals(Object other) {
+    if(this == other) {
+      return true;
+    }
     if(other != null && getClass().equals(other.getClass())) {
       CompInteger another = (CompInteger)other;
       if(this.status != another.status) {
         return false;
       }
       if(this.status == NORM) {
-        return this.value.equals(another.value);
+        // the representation is unique, since a value fitting 64 bits is never stored as BigInteger
+        return this.small == another.small && (this.big == null ? another.big == null : this.big.equals(another.big));
       }
       return true;
     } else {
@@ -527,8 +636,10 @@ public class CompInteger implements Comparable<CompInteger> {
 
   @Override
   public int hashCode() {
-    // TODO Auto-generated method stub
-    return super.hashCode();
+    if(this.status != NORM) {
+      return this.status;
+    }
+    return big != null ? big.hashCode() : (int) (small ^ (small >>> 32));
   }
 
-}
\ No newline at end of file
+}
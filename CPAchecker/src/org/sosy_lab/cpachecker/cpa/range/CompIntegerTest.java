@@ -0,0 +1,102 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.math.BigInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompIntegerTest {
+
+  private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+  private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+  @Test
+  public void testAddOverflow() {
+    CompInteger max = CompInteger.valueOf(Long.MAX_VALUE);
+    Assert.assertEquals(LONG_MAX.add(BigInteger.ONE), max.add(CompInteger.one).getValue());
+    Assert.assertEquals(max, max.add(CompInteger.one).subtract(CompInteger.one));
+  }
+
+  @Test
+  public void testSubtractOverflow() {
+    CompInteger min = CompInteger.valueOf(Long.MIN_VALUE);
+    Assert.assertEquals(LONG_MIN.subtract(BigInteger.ONE), min.subtract(CompInteger.one).getValue());
+    Assert.assertEquals(LONG_MIN.subtract(LONG_MAX), min.subtract(CompInteger.valueOf(Long.MAX_VALUE)).getValue());
+  }
+
+  @Test
+  public void testMultiplyOverflow() {
+    CompInteger large = CompInteger.valueOf(3037000500L);
+    Assert.assertEquals(BigInteger.valueOf(3037000500L).pow(2), large.multiply(large).getValue());
+    CompInteger min = CompInteger.valueOf(Long.MIN_VALUE);
+    CompInteger minusOne = CompInteger.valueOf(-1);
+    Assert.assertEquals(LONG_MIN.negate(), min.multiply(minusOne).getValue());
+    Assert.assertEquals(LONG_MIN.negate(), min.divide(minusOne).getValue());
+    Assert.assertEquals(LONG_MIN.negate(), min.negate().getValue());
+    Assert.assertEquals(LONG_MIN.negate(), min.abs().getValue());
+  }
+
+  @Test
+  public void testShift() {
+    CompInteger one = CompInteger.one;
+    Assert.assertEquals(BigInteger.ONE.shiftLeft(63), one.shiftLeft(63).getValue());
+    Assert.assertEquals(BigInteger.ONE.shiftLeft(100), one.shiftLeft(100).getValue());
+    Assert.assertEquals(CompInteger.valueOf(-1), CompInteger.valueOf(-5).shiftRight(100));
+  }
+
+  @Test
+  public void testMixedRepresentation() {
+    CompInteger big = CompInteger.valueOf(LONG_MAX.add(BigInteger.ONE));
+    CompInteger small = CompInteger.valueOf(Long.MAX_VALUE);
+    Assert.assertTrue(big.compareTo(small) > 0);
+    Assert.assertTrue(small.compareTo(big) < 0);
+    Assert.assertEquals(CompInteger.valueOf(Long.MIN_VALUE), big.negate());
+    // values fitting 64 bits have a unique representation
+    CompInteger demoted = big.subtract(CompInteger.one);
+    Assert.assertEquals(small, demoted);
+    Assert.assertEquals(small.hashCode(), demoted.hashCode());
+    Assert.assertEquals(new CompInteger(LONG_MAX), small);
+  }
+
+  @Test
+  public void testInterning() {
+    Assert.assertSame(CompInteger.zero, CompInteger.valueOf(0));
+    Assert.assertSame(CompInteger.one, CompInteger.one.multiply(CompInteger.one));
+    Assert.assertSame(CompInteger.nan, CompInteger.one.divide(CompInteger.zero));
+    Assert.assertSame(Range.UNBOUND, Range.UNBOUND.plus(Range.UNBOUND));
+    Assert.assertSame(Range.BOOL, Range.ONE.minus(Range.BOOL).negate().plus(Range.ONE));
+  }
+
+  @Test
+  public void testRangeArithmetic() {
+    Range r = new Range(-3, 5);
+    Assert.assertEquals(new Range(-15, 25), r.times(new Range(5)));
+    Assert.assertEquals(new Range(-25, 15), r.times(new Range(-5)));
+    Assert.assertEquals(new Range(-1, 2), r.divide(new Range(2)));
+    Assert.assertEquals(Range.UNBOUND, Range.UNBOUND.plus(new Range(1)));
+  }
+
+}
@@ -25,6 +25,7 @@ package org.sosy_lab.cpachecker.cpa.range;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.sosy_lab.common.Triple;
 import org.sosy_lab.common.collect.PersistentList;
@@ -36,10 +37,16 @@ public class Constraint {
    */
   private List<Triple<String, String, String>> predicates;
   private boolean softness;
+  /**
+   * multiplier of the weight of soft constraint. Equal constraints are interned and their weights are merged.
+   * NOTE: weight is not a part of equality.
+   */
+  private int weight;
 
   public Constraint() {
     predicates = new ArrayList<>();
     softness = false; // false means this constraint must be satisfied
+    weight = 1;
   }
 
   public void addConstraint(String op, String pred1, String pred2) {
@@ -60,6 +67,14 @@ public class Constraint {
     this.softness = soft;
   }
 
+  public int getWeight() {
+    return weight;
+  }
+
+  public void setWeight(int weight) {
+    this.weight = weight;
+  }
+
   public int getPredicateSize() {
     return predicates.size();
   }
@@ -71,4 +86,26 @@ public class Constraint {
     return predicates.get(index);
   }
 
+  @Override
+  public int hashCode() {
+    return Objects.hash(predicates, softness);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if(this == obj) {
+      return true;
+    }
+    if(!(obj instanceof Constraint)) {
+      return false;
+    }
+    Constraint other = (Constraint) obj;
+    return softness == other.softness && predicates.equals(other.predicates);
+  }
+
+  @Override
+  public String toString() {
+    return (softness ? "soft" : "hard") + predicates;
+  }
+
 }
@@ -26,6 +26,7 @@ package org.sosy_lab.cpachecker.cpa.range;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -78,11 +79,28 @@ public class ConstraintGenerator {
     this.restrictions = new ArrayList<>();
   }
 
+  public ConstraintGenerator() {
+    this(null);
+  }
+
   public void generateConstraints(PersistentList<Constraint> constraints) {
+    // **NOTE: file path should be a specific .smt2 file
+    try {
+      BufferedWriter bout = new BufferedWriter(new FileWriter(filePath));
+      writeConstraints(constraints, bout);
+      bout.close();
+    } catch(IOException e) {
+      System.err.println("Invalid specified fila path for .smt2 file!");
+    }
+  }
+
+  /**
+   * Generate the SMT-LIB2 text of type constraints and write it to the given writer.
+   * The writer is flushed but not closed.
+   */
+  public void writeConstraints(PersistentList<Constraint> constraints, Writer writer) throws IOException {
     // STEP 1: read the constraints and generate assertions
     for(Constraint assertion : constraints) {
-      boolean isEq = false;
-      boolean isDecl = false;
       boolean soft = assertion.getSoftness();
       int size = assertion.getPredicateSize();
       if(size <= 0) {
@@ -94,36 +112,17 @@ public class ConstraintGenerator {
         String leftName = postProcess(pair.getSecond());
         String rightName = postProcess(pair.getThird());
         String pred = pair.getFirst();
-        if(pred.equals(predP)) {
+        if(pred.equals(predP) || pred.equals(predDP)) {
           clauses.add(String.format(predPAssert, leftName, rightName));
         } else if(pred.equals(predEq)) {
-          isEq = true;
           clauses.add(String.format(predEqAssert, leftName, rightName));
-        } else if(pred.equals(predDP)) {
-          isDecl = true;
-          clauses.add(String.format(predPAssert, leftName, rightName));
         }
       }
-      if(size == 1) {
-        if(soft) {
-          if(isEq) {
-            assertions.add(String.format(assertSoft, clauses.get(0), String.valueOf(eqweight)));
-          } else if(isDecl) {
-            assertions.add(String.format(assertSoft, clauses.get(0), String.valueOf(pdweight)));
-          } else {
-            assertions.add(String.format(assertSoft, clauses.get(0), String.valueOf(pweight)));
-          }
-        } else {
-          assertions.add(String.format(assertHard, clauses.get(0)));
-        }
+      String clause = size == 1 ? clauses.get(0) : String.format(or, joiner.join(clauses));
+      if(soft) {
+        assertions.add(String.format(assertSoft, clause, String.valueOf(getSoftWeight(assertion))));
       } else {
-        // size > 1
-        String orExpr = String.format(or, joiner.join(clauses));
-        if(soft) {
-          assertions.add(String.format(assertSoft, orExpr, String.valueOf(pweight)));
-        } else {
-          assertions.add(String.format(assertHard, orExpr));
-        }
+        assertions.add(String.format(assertHard, clause));
       }
     }
 
@@ -134,44 +133,58 @@ public class ConstraintGenerator {
       restrictions.add(String.format(assertHard, String.format(NOTOVERLONG, varName)));
     }
 
-    // STEP 4: generate file by the given path
-    // **NOTE: file path should be a specific .smt2 file
-    try {
-      BufferedWriter bout = new BufferedWriter(new FileWriter(filePath));
-      // STEP 4.1: datatype and predicate definition
-      bout.write(typeDeclaration);
-      bout.newLine();
-      bout.write(predDefinition);
+    // STEP 4: write constraints
+    BufferedWriter bout = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+    // STEP 4.1: datatype and predicate definition
+    bout.write(typeDeclaration);
+    bout.newLine();
+    bout.write(predDefinition);
+    bout.newLine();
+    bout.flush();
+    // STEP 4.2: variable declarations
+    for(String declaration : declarations) {
+      bout.write(declaration);
       bout.newLine();
-      bout.flush();
-      // STEP 4.2: variable declarations
-      for(String declaration : declarations) {
-        bout.write(declaration);
-        bout.newLine();
-      }
-      bout.flush();
-      // STEP 4.3: assertions
-      for(String assertion : assertions) {
-        bout.write(assertion);
-        bout.newLine();
-      }
-      bout.flush();
-      // STEP 4.4: restrictions
-      for(String restriction : restrictions) {
-        bout.write(restriction);
-        bout.newLine();
-      }
-      bout.flush();
-      // STEP 4.5: some necessary commands
-      bout.write(checkSat);
+    }
+    bout.flush();
+    // STEP 4.3: assertions
+    for(String assertion : assertions) {
+      bout.write(assertion);
       bout.newLine();
-      bout.write(getModel);
+    }
+    bout.flush();
+    // STEP 4.4: restrictions
+    for(String restriction : restrictions) {
+      bout.write(restriction);
       bout.newLine();
-      bout.write(exit);
-      bout.close();
-    } catch(IOException e) {
-      System.err.println("Invalid specified fila path for .smt2 file!");
     }
+    bout.flush();
+    // STEP 4.5: some necessary commands
+    bout.write(checkSat);
+    bout.newLine();
+    bout.write(getModel);
+    bout.newLine();
+    bout.write(exit);
+    bout.newLine();
+    bout.flush();
+  }
+
+  /**
+   * Weight of a soft constraint in Max-SMT problem. Single equality and declaration predicates have
+   * their own weights, while other constraints (including disjunctions) use the weight of P.
+   */
+  static int getSoftWeight(Constraint assertion) {
+    // duplicate constraints are merged into one with larger weight
+    int weight = assertion.getWeight();
+    if(assertion.getPredicateSize() == 1) {
+      String pred = assertion.getPredicate(0).getFirst();
+      if(pred.equals(predEq)) {
+        return eqweight * weight;
+      } else if(pred.equals(predDP)) {
+        return pdweight * weight;
+      }
+    }
+    return pweight * weight;
   }
 
   /**
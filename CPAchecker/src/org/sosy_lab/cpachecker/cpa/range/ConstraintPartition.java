@@ -0,0 +1,146 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sosy_lab.common.Triple;
+
+/**
+ * This class partitions type constraints into independent components. Two constraints are in the
+ * same component iff they are connected by shared variables, thus components can be solved separately
+ * and their models can be merged. Type constants (such as INT) do not connect constraints.
+ */
+class ConstraintPartition {
+
+  /**
+   * Union-find over variable names
+   */
+  private final Map<String, String> parent = new HashMap<>();
+  private final Map<String, Integer> rank = new HashMap<>();
+
+  private ConstraintPartition() { }
+
+  /**
+   * Partition constraints into independent components. Components are ordered by their first constraints in
+   * the input, and constraints keep their input order in each component. Constraints without variables are
+   * collected into one component.
+   */
+  static List<List<Constraint>> partition(Iterable<Constraint> constraints) {
+    ConstraintPartition uf = new ConstraintPartition();
+    for(Constraint constraint : constraints) {
+      String first = null;
+      for(String name : variablesOf(constraint)) {
+        uf.add(name);
+        if(first == null) {
+          first = name;
+        } else {
+          uf.union(first, name);
+        }
+      }
+    }
+
+    Map<String, List<Constraint>> components = new LinkedHashMap<>();
+    List<Constraint> ground = new ArrayList<>();
+    for(Constraint constraint : constraints) {
+      List<String> names = variablesOf(constraint);
+      if(names.isEmpty()) {
+        ground.add(constraint);
+        continue;
+      }
+      String root = uf.find(names.get(0));
+      List<Constraint> component = components.get(root);
+      if(component == null) {
+        component = new ArrayList<>();
+        components.put(root, component);
+      }
+      component.add(constraint);
+    }
+
+    List<List<Constraint>> result = new ArrayList<>(components.values());
+    if(!ground.isEmpty()) {
+      result.add(ground);
+    }
+    return result;
+  }
+
+  private static List<String> variablesOf(Constraint constraint) {
+    List<String> names = new ArrayList<>();
+    for(int i = 0; i < constraint.getPredicateSize(); i++) {
+      Triple<String, String, String> pred = constraint.getPredicate(i);
+      if(!TypeConstraintSolver.isTypeConstant(pred.getSecond())) {
+        names.add(pred.getSecond());
+      }
+      if(!TypeConstraintSolver.isTypeConstant(pred.getThird())) {
+        names.add(pred.getThird());
+      }
+    }
+    return names;
+  }
+
+  private void add(String name) {
+    if(!parent.containsKey(name)) {
+      parent.put(name, name);
+      rank.put(name, 0);
+    }
+  }
+
+  private String find(String name) {
+    String root = name;
+    while(!parent.get(root).equals(root)) {
+      root = parent.get(root);
+    }
+    // path compression
+    String current = name;
+    while(!current.equals(root)) {
+      String next = parent.get(current);
+      parent.put(current, root);
+      current = next;
+    }
+    return root;
+  }
+
+  private void union(String name1, String name2) {
+    String root1 = find(name1);
+    String root2 = find(name2);
+    if(root1.equals(root2)) {
+      return;
+    }
+    int rank1 = rank.get(root1);
+    int rank2 = rank.get(root2);
+    if(rank1 < rank2) {
+      parent.put(root1, root2);
+    } else if(rank1 > rank2) {
+      parent.put(root2, root1);
+    } else {
+      parent.put(root2, root1);
+      rank.put(root1, rank1 + 1);
+    }
+  }
+
+}
@@ -23,6 +23,7 @@
  */
 package org.sosy_lab.cpachecker.cpa.range;
 
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
 
 public class FixGuide {
 
@@ -41,6 +42,11 @@ public class FixGuide {
   private IntType baseType;
   private int referenceLevel;
   private String target;
+  /**
+   * Location of the loop statement before which the sanity check is hoisted, or null if the check
+   * is performed in place
+   */
+  private FileLocation hoistLocation;
 
   public FixGuide() {
     intFlag = false;
@@ -92,6 +98,19 @@ public class FixGuide {
     return this.baseType;
   }
 
+  public FileLocation getHoistLocation() {
+    return this.hoistLocation;
+  }
+
+  /**
+   * Copy this guide, with the sanity check hoisted before the loop statement at the given location
+   */
+  public FixGuide hoistTo(FileLocation loopLocation) {
+    FixGuide guide = new FixGuide(intFlag, ptrFlag, sanityCheckFlag, baseType, referenceLevel, target);
+    guide.hoistLocation = loopLocation;
+    return guide;
+  }
+
   public FixGuide merge(FixGuide other) {
     if(this.intFlag == other.intFlag && this.ptrFlag == other.ptrFlag && this.sanityCheckFlag == other.sanityCheckFlag && this.referenceLevel == other.referenceLevel) {
       IntType newType = this.baseType.mergeWith(other.baseType);
@@ -0,0 +1,235 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentLinkedList;
+import org.sosy_lab.common.collect.PersistentList;
+import org.sosy_lab.common.collect.PersistentMap;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+
+/**
+ * This class collects fix metadata (constraints, name2loc and loc2guide) and the pointer relation
+ * yielded by one range analysis. Each transfer relation owns its collector, thus several range
+ * analyses can run in the same JVM.
+ *
+ * All methods are thread-safe. Metadata is stored in persistent data structures, thus getters
+ * return consistent snapshots without copying. The only exception is the weight of an interned
+ * constraint, which is updated in place when a duplicate is added.
+ */
+public class FixMetadataCollector {
+
+  /**
+   * How the weights of duplicate soft constraints are merged.
+   * SUM keeps the Max-SMT objective of emitting each duplicate separately, while MAX counts
+   * a constraint once no matter how many paths generate it.
+   */
+  public static enum WeightMerge {
+    SUM, MAX
+  }
+
+  /**
+   * Format of exported name2loc and loc2guide files.
+   * BINARY is compact and fast to load, JSON is human-readable for debugging.
+   */
+  public static enum MetadataFormat {
+    BINARY, JSON
+  }
+
+  /**
+   * Pointer relation of identifiers. See {@link RangeTransferRelation} for details.
+   */
+  private volatile PersistentMap<String, String> pointRel = PathCopyingPersistentTreeMap.of();
+
+  /**
+   * This counter is for generating names for intermediate variables only
+   */
+  private final AtomicLong nameCounter = new AtomicLong();
+
+  /**
+   * Constraints are interned: only the first instance of equal constraints is kept in the list,
+   * and weights of later instances are merged into it.
+   */
+  private volatile PersistentList<Constraint> constraints = PersistentLinkedList.of();
+  private final Map<Constraint, Constraint> constraintTable = new HashMap<>();
+  private final WeightMerge weightMerge;
+  private long generatedConstraints = 0;
+
+  private volatile PersistentMap<String, FileLocation> name2Loc = PathCopyingPersistentTreeMap.of();
+  private volatile PersistentMap<FileLocation, FixGuide> loc2Guide = PathCopyingPersistentTreeMap.of();
+  /**
+   * Expressions enclosed by sanity checks and their ranges, for removing the checks proven redundant
+   */
+  private volatile PersistentMap<FileLocation, SanityCheckSite> checkSites = PathCopyingPersistentTreeMap.of();
+
+  /**
+   * This structure records all integer variables for pointer analysis
+   */
+  private final Set<String> intNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  public FixMetadataCollector(WeightMerge weightMerge) {
+    this.weightMerge = weightMerge;
+  }
+
+  public FixMetadataCollector() {
+    this(WeightMerge.SUM);
+  }
+
+  public PersistentList<Constraint> getConstraints() {
+    return constraints;
+  }
+
+  public PersistentMap<String, FileLocation> getName2Loc() {
+    return name2Loc;
+  }
+
+  public PersistentMap<FileLocation, FixGuide> getLoc2Guide() {
+    return loc2Guide;
+  }
+
+  PersistentMap<FileLocation, SanityCheckSite> getCheckSites() {
+    return checkSites;
+  }
+
+  public PersistentMap<String, String> getPointRel() {
+    return pointRel;
+  }
+
+  public long nextNameIndex() {
+    return nameCounter.getAndIncrement();
+  }
+
+  public void addIntName(String name) {
+    intNames.add(name);
+  }
+
+  public boolean isIntName(String name) {
+    return intNames.contains(name);
+  }
+
+  public synchronized void setPointTarget(String pointer, String target) {
+    pointRel = pointRel.putAndCopy(pointer, target);
+  }
+
+  /**
+   * Number of constraints generated by the analysis, including duplicates
+   */
+  public synchronized long getGeneratedConstraintCount() {
+    return generatedConstraints;
+  }
+
+  /**
+   * Number of distinct constraints
+   */
+  public synchronized int getUniqueConstraintCount() {
+    return constraintTable.size();
+  }
+
+  public synchronized void addConstraint(Constraint constraint) {
+    internConstraint(constraint);
+  }
+
+  public synchronized void addName2Loc(String name, FileLocation loc) {
+    name2Loc = name2Loc.putAndCopy(name, loc);
+  }
+
+  public synchronized void addFixGuide(FileLocation loc, FixGuide guide) {
+    insertNewFixGuide(loc, guide);
+  }
+
+  synchronized void addCheckSite(FileLocation loc, SanityCheckSite site) {
+    insertNewCheckSite(loc, site);
+  }
+
+  /**
+   * Merge metadata accumulated locally (e.g. by an expression visitor) under a single lock.
+   */
+  synchronized void addAll(PersistentList<Constraint> pConstraints,
+      PersistentMap<String, FileLocation> pName2Loc, PersistentMap<FileLocation, FixGuide> pLoc2Guide,
+      PersistentMap<FileLocation, SanityCheckSite> pCheckSites) {
+    for(Constraint constraint : pConstraints) {
+      internConstraint(constraint);
+    }
+    for(Entry<String, FileLocation> entry : pName2Loc.entrySet()) {
+      name2Loc = name2Loc.putAndCopy(entry.getKey(), entry.getValue());
+    }
+    for(Entry<FileLocation, FixGuide> entry : pLoc2Guide.entrySet()) {
+      insertNewFixGuide(entry.getKey(), entry.getValue());
+    }
+    for(Entry<FileLocation, SanityCheckSite> entry : pCheckSites.entrySet()) {
+      insertNewCheckSite(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void internConstraint(Constraint constraint) {
+    generatedConstraints++;
+    Constraint canonical = constraintTable.get(constraint);
+    if(canonical == null) {
+      constraintTable.put(constraint, constraint);
+      constraints = constraints.with(constraint);
+      return;
+    }
+    if(canonical == constraint || !canonical.getSoftness()) {
+      // the same instance is added again, or a hard constraint is duplicated
+      return;
+    }
+    switch(weightMerge) {
+    case SUM:
+      canonical.setWeight(canonical.getWeight() + constraint.getWeight());
+      break;
+    case MAX:
+      canonical.setWeight(Math.max(canonical.getWeight(), constraint.getWeight()));
+      break;
+    default:
+      throw new AssertionError("unknown weight merge: " + weightMerge);
+    }
+  }
+
+  private void insertNewCheckSite(FileLocation loc, SanityCheckSite site) {
+    SanityCheckSite prev = checkSites.get(loc);
+    SanityCheckSite merged = prev == null ? site : prev.merge(site);
+    if(merged != prev) {
+      checkSites = checkSites.putAndCopy(loc, merged);
+    }
+  }
+
+  private void insertNewFixGuide(FileLocation loc, FixGuide guide) {
+    FixGuide prev = loc2Guide.get(loc);
+    if(prev != null) {
+      // we should merge existing solution with the new coming one
+      loc2Guide = loc2Guide.putAndCopy(loc, prev.merge(guide));
+    } else {
+      loc2Guide = loc2Guide.putAndCopy(loc, guide);
+    }
+  }
+
+}
@@ -269,15 +269,15 @@ public class IntType implements Serializable {
     // getCSimpleType can be sure to be called safely
     CSimpleType thisType = getCSimpleType();
     CompInteger lowerBound, upperBound;
-    lowerBound = new CompInteger(machineModel.getMinimalIntegerValue(thisType));
-    upperBound = new CompInteger(machineModel.getMaximalIntegerValue(thisType));
+    lowerBound = CompInteger.valueOf(machineModel.getMinimalIntegerValue(thisType));
+    upperBound = CompInteger.valueOf(machineModel.getMaximalIntegerValue(thisType));
     return new Range(lowerBound, upperBound);
   }
 
   public static Range getTypeRange(CSimpleType t) {
     CompInteger lower, upper;
-    lower = new CompInteger(machineModel.getMinimalIntegerValue(t));
-    upper = new CompInteger(machineModel.getMaximalIntegerValue(t));
+    lower = CompInteger.valueOf(machineModel.getMinimalIntegerValue(t));
+    upper = CompInteger.valueOf(machineModel.getMaximalIntegerValue(t));
     return new Range(lower, upper);
   }
 
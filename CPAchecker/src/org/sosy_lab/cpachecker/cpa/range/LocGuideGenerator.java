@@ -52,6 +52,12 @@ public class LocGuideGenerator {
   private static final String bt = "basetype";
   private static final String rl = "reflevel";
   private static final String tg = "target";
+  // >> location of the loop statement, only for hoisted sanity checks
+  private static final String hsl = "hoiststartline";
+  private static final String hel = "hoistendline";
+  private static final String hfn = "hoistfilename";
+  private static final String hos = "hoistoffset";
+  private static final String hlen = "hoistlength";
   public static final String nullstr = "$NULLSTR$";
 
   public LocGuideGenerator(String filePath) {
@@ -95,8 +101,16 @@ public class LocGuideGenerator {
         .key(method).value(methodOfGuide)
         .key(bt).value(btOfGuide)
         .key(rl).value(refLevel)
-        .key(tg).value(tgOfGuide)
-        .endObject();
+        .key(tg).value(tgOfGuide);
+      FileLocation hoistLoc = guide.getHoistLocation();
+      if(hoistLoc != null) {
+        jwriter.key(hsl).value(hoistLoc.getStartingLineNumber())
+          .key(hel).value(hoistLoc.getEndingLineNumber())
+          .key(hfn).value(hoistLoc.getFileName())
+          .key(hos).value(hoistLoc.getNodeOffset())
+          .key(hlen).value(hoistLoc.getNodeLength());
+      }
+      jwriter.endObject();
     }
 
     // STEP 3: after traversing the structure, close the writer
@@ -24,11 +24,6 @@
 package org.sosy_lab.cpachecker.cpa.range;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
-import scala.actors.threadpool.Arrays;
 
 public class Range implements Serializable {
 
@@ -47,8 +42,8 @@ public class Range implements Serializable {
   public static final Range UNBOUND = new Range(CompInteger.infneg, CompInteger.infpos);
 
   public Range(long value) {
-    this.low = new CompInteger(value);
-    this.high = new CompInteger(value);
+    this.low = CompInteger.valueOf(value);
+    this.high = this.low;
     isSane();
   }
 
@@ -60,11 +55,11 @@ public class Range implements Serializable {
 
   public Range(long low, long high) {
     if(low <= high) {
-      this.low = new CompInteger(low);
-      this.high = new CompInteger(high);
+      this.low = CompInteger.valueOf(low);
+      this.high = CompInteger.valueOf(high);
     } else {
-      this.low = new CompInteger(high);
-      this.high = new CompInteger(low);
+      this.low = CompInteger.valueOf(high);
+      this.high = CompInteger.valueOf(low);
     }
     isSane();
   }
@@ -142,6 +137,28 @@ public class Range implements Serializable {
     return !isEmpty() && low.equals(CompInteger.infneg) && high.equals(CompInteger.infpos);
   }
 
+  /**
+   * Create a range with the given bounds. Shared instances are returned for common ranges, which avoids
+   * allocation in range arithmetic.
+   */
+  static Range valueOf(CompInteger low, CompInteger high) {
+    if(low.isNaN() || high.isNaN()) {
+      return UNBOUND;
+    }
+    if(low.equals(high)) {
+      if(low.equals(CompInteger.zero)) {
+        return ZERO;
+      } else if(low.equals(CompInteger.one)) {
+        return ONE;
+      }
+    } else if(low.equals(CompInteger.zero) && high.equals(CompInteger.one)) {
+      return BOOL;
+    } else if(low.equals(CompInteger.infneg) && high.equals(CompInteger.infpos)) {
+      return UNBOUND;
+    }
+    return new Range(low, high);
+  }
+
   public static Range createLowerBoundedRange(CompInteger lowerbound) {
     return new Range(lowerbound, CompInteger.infpos);
   }
@@ -173,8 +190,30 @@ public class Range implements Serializable {
     } else if(low.compareTo(other.low) >= 0 && high.compareTo(other.high) <= 0) {
       return other;
     } else {
-      return new Range(low.min(other.low), high.max(other.high));
+      return valueOf(low.min(other.low), high.max(other.high));
+    }
+  }
+
+  /**
+   * Widen this range by the next range. A bound that grows is moved to the nearest threshold beyond it,
+   * while a stable bound is kept.
+   */
+  Range widen(Range next, RangeWideningThresholds thresholds) {
+    if(isEmpty() || next.isEmpty()) {
+      return union(next);
+    }
+    CompInteger newLow = low;
+    CompInteger newHigh = high;
+    if(next.low.compareTo(low) < 0) {
+      newLow = thresholds.below(next.low);
+    }
+    if(next.high.compareTo(high) > 0) {
+      newHigh = thresholds.above(next.high);
     }
+    if(newLow == low && newHigh == high) {
+      return this;
+    }
+    return new Range(newLow, newHigh);
   }
 
   public boolean intersects(Range other) {
@@ -189,7 +228,7 @@ public class Range implements Serializable {
 
   public Range intersect(Range other) {
     if(this.intersects(other)) {
-      return new Range(low.max(other.low), high.min(other.high));
+      return valueOf(low.max(other.low), high.min(other.high));
     } else {
       return Range.EMPTY;
     }
@@ -286,11 +325,15 @@ public class Range implements Serializable {
       return Range.EMPTY;
     }
 
-    return new Range(low.add(other.low), high.add(other.high));
+    return valueOf(low.add(other.low), high.add(other.high));
   }
 
   public Range plus(Long offset) {
-    return plus(new Range(offset, offset));
+    if(isEmpty()) {
+      return Range.EMPTY;
+    }
+    CompInteger value = CompInteger.valueOf(offset);
+    return valueOf(low.add(value), high.add(value));
   }
 
   public Range minus(Range other) {
@@ -301,29 +344,38 @@ public class Range implements Serializable {
     return plus(-offset);
   }
 
-  private CompInteger[] removeNaN(CompInteger[] complist) {
-    List<CompInteger> newlist = new ArrayList<>();
-    for(CompInteger compint : complist) {
-      if(compint.equals(CompInteger.nan)) {
-        continue;
-      }
-      newlist.add(compint);
+  /**
+   * Create the smallest range containing the given values, where NaN values are ignored.
+   * If all the values are NaN, the result is undetermined.
+   */
+  private static Range hull(CompInteger v1, CompInteger v2, CompInteger v3, CompInteger v4) {
+    CompInteger min = lesser(lesser(lesser(lesser(null, v1), v2), v3), v4);
+    CompInteger max = greater(greater(greater(greater(null, v1), v2), v3), v4);
+    if(min == null) {
+      return UNBOUND;
+    }
+    return valueOf(min, max);
+  }
+
+  private static CompInteger lesser(CompInteger current, CompInteger value) {
+    if(value.isNaN()) {
+      return current;
+    }
+    return (current == null || value.compareTo(current) < 0) ? value : current;
+  }
+
+  private static CompInteger greater(CompInteger current, CompInteger value) {
+    if(value.isNaN()) {
+      return current;
     }
-    return newlist.toArray(new CompInteger[newlist.size()]);
+    return (current == null || value.compareTo(current) > 0) ? value : current;
   }
 
   public Range times(Range other) {
     if(isEmpty() || other.isEmpty()) {
       return Range.EMPTY;
     }
-    CompInteger[] values = { low.multiply(other.low), low.multiply(other.high), high.multiply(other.low), high.multiply(other.high) };
-    values = removeNaN(values);
-    // if we reach here, values shouldn't be empty
-    @SuppressWarnings("unchecked")
-    CompInteger min = Collections.min(Arrays.asList(values));
-    @SuppressWarnings("unchecked")
-    CompInteger max = Collections.max(Arrays.asList(values));
-    return new Range(min, max);
+    return hull(low.multiply(other.low), low.multiply(other.high), high.multiply(other.low), high.multiply(other.high));
   }
 
   public Range divide(Range other) {
@@ -339,14 +391,7 @@ public class Range implements Serializable {
         return new Range(upper.negate(), upper);
       }
     } else {
-      CompInteger[] values = { low.divide(other.low), low.divide(other.high), high.divide(other.low), high.divide(other.high) };
-      values = removeNaN(values);
-      // if we reach here, values shouldn't be empty
-      @SuppressWarnings("unchecked")
-      CompInteger min = Collections.min(Arrays.asList(values));
-      @SuppressWarnings("unchecked")
-      CompInteger max = Collections.max(Arrays.asList(values));
-      return new Range(min, max);
+      return hull(low.divide(other.low), low.divide(other.high), high.divide(other.low), high.divide(other.high));
     }
   }
 
@@ -468,7 +513,7 @@ public class Range implements Serializable {
     if(isEmpty()) {
       return Range.EMPTY;
     }
-    return new Range(high.negate(), low.negate());
+    return valueOf(high.negate(), low.negate());
   }
 
   @Override
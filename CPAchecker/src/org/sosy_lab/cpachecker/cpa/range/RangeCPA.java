@@ -23,17 +23,28 @@
  */
 package org.sosy_lab.cpachecker.cpa.range;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
 
 import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.collect.PersistentList;
+import org.sosy_lab.common.collect.PersistentMap;
 import org.sosy_lab.common.configuration.Configuration;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
 import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.io.Files;
+import org.sosy_lab.common.io.Path;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
 import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
 import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.core.CPAcheckerResult.Result;
 import org.sosy_lab.cpachecker.core.defaults.AutomaticCPAFactory;
 import org.sosy_lab.cpachecker.core.defaults.DelegateAbstractDomain;
 import org.sosy_lab.cpachecker.core.defaults.MergeJoinOperator;
@@ -43,6 +54,7 @@ import org.sosy_lab.cpachecker.core.defaults.StaticPrecisionAdjustment;
 import org.sosy_lab.cpachecker.core.defaults.StopSepOperator;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractDomain;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.AnalysisResultExporter;
 import org.sosy_lab.cpachecker.core.interfaces.CPAFactory;
 import org.sosy_lab.cpachecker.core.interfaces.ConfigurableProgramAnalysisWithBAM;
 import org.sosy_lab.cpachecker.core.interfaces.MergeOperator;
@@ -50,38 +62,70 @@ import org.sosy_lab.cpachecker.core.interfaces.Precision;
 import org.sosy_lab.cpachecker.core.interfaces.PrecisionAdjustment;
 import org.sosy_lab.cpachecker.core.interfaces.Reducer;
 import org.sosy_lab.cpachecker.core.interfaces.StateSpacePartition;
+import org.sosy_lab.cpachecker.core.interfaces.Statistics;
+import org.sosy_lab.cpachecker.core.interfaces.StatisticsProvider;
 import org.sosy_lab.cpachecker.core.interfaces.StopOperator;
 import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.pcc.ProofChecker;
+import org.sosy_lab.cpachecker.core.reachedset.ReachedSet;
+import org.sosy_lab.cpachecker.core.reachedset.UnmodifiableReachedSet;
+import org.sosy_lab.cpachecker.cpa.range.FixMetadataCollector.MetadataFormat;
 import org.sosy_lab.cpachecker.exceptions.CPAException;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
+import org.sosy_lab.cpachecker.util.statistics.StatisticsWriter;
 
 @Options(prefix="cpa.range")
-public class RangeCPA implements ConfigurableProgramAnalysisWithBAM, ProofChecker {
+public class RangeCPA implements ConfigurableProgramAnalysisWithBAM, ProofChecker, StatisticsProvider,
+    AnalysisResultExporter {
 
   public static CPAFactory factory() {
     return AutomaticCPAFactory.forType(RangeCPA.class);
   }
 
-  @Option(secure=true, name="merge", toUppercase=true, values={"SEP", "JOIN"},
-      description="which type of merge operator to use for RangeAnalysis")
+  @Option(secure=true, name="merge", toUppercase=true, values={"SEP", "JOIN", "WIDENING"},
+      description="which type of merge operator to use for RangeAnalysis. "
+          + "WIDENING joins states and widens ranges at loop heads, thus loops need not be unrolled")
   private String mergeType = "SEP";
 
+  @Option(secure=true, description="use integer constants in the program as widening thresholds "
+      + "in addition to bounds of integer types")
+  private boolean wideningThresholds = true;
+
   private AbstractDomain abstractDomain;
   private MergeOperator mergeOperator;
   private StopOperator stopOperator;
-  private TransferRelation transferRelation;
+  private RangeTransferRelation transferRelation;
   private PrecisionAdjustment precisionAdjustment;
   private final RangeReducer reducer;
+  private final SanityCheckOptimizer checkOptimizer;
+  // variable identifiers shared by all the states of this analysis
+  private final VariableIdRegistry variableIds = new VariableIdRegistry();
+
+  // names of exported metadata files
+  private static final String smt2File = "constraint.smt2";
+  private static final String name2LocFile = "name2loc";
+  private static final String loc2GuideFile = "loc2guide";
 
   private RangeCPA(Configuration config, LogManager logger, ShutdownNotifier shutdownNotifier, CFA cfa) throws InvalidConfigurationException {
     config.inject(this);
     abstractDomain = DelegateAbstractDomain.getInstance();
-    mergeOperator = mergeType.equals("SEP") ? MergeSepOperator.getInstance() : new MergeJoinOperator(abstractDomain);
+    Set<CFANode> loopHeads = Collections.emptySet();
+    if(mergeType.equals("SEP")) {
+      mergeOperator = MergeSepOperator.getInstance();
+    } else if(mergeType.equals("JOIN")) {
+      mergeOperator = new MergeJoinOperator(abstractDomain);
+    } else {
+      if(!cfa.getAllLoopHeads().isPresent()) {
+        throw new InvalidConfigurationException("Widening in range analysis requires loop structure of the CFA");
+      }
+      loopHeads = cfa.getAllLoopHeads().get();
+      mergeOperator = new RangeMergeWideningOperator(config, new RangeWideningThresholds(cfa, wideningThresholds));
+    }
     stopOperator = new StopSepOperator(abstractDomain);
-    transferRelation = new RangeTransferRelation(config);
+    checkOptimizer = new SanityCheckOptimizer(config, logger, cfa);
+    transferRelation = new RangeTransferRelation(config, loopHeads, checkOptimizer);
     precisionAdjustment = StaticPrecisionAdjustment.getInstance();
-    reducer = new RangeReducer();
+    reducer = new RangeReducer(variableIds);
   }
 
   @Override
@@ -117,7 +161,7 @@ public class RangeCPA implements ConfigurableProgramAnalysisWithBAM, ProofChecke
   @Override
   public AbstractState getInitialState(CFANode pNode, StateSpacePartition pPartition) {
     // TODO Auto-generated method stub
-    return new RangeState();
+    return new RangeState(variableIds);
   }
 
   @Override
@@ -164,4 +208,96 @@ public class RangeCPA implements ConfigurableProgramAnalysisWithBAM, ProofChecke
     return abstractDomain.isLessOrEqual(pState, pOtherState);
   }
 
+  @Override
+  public void collectStatistics(Collection<Statistics> pStatsCollection) {
+    pStatsCollection.add(new Statistics() {
+
+      @Override
+      public void printStatistics(PrintStream out, Result result, ReachedSet reached) {
+        FixMetadataCollector metadata = transferRelation.getMetadata();
+        long generated = metadata.getGeneratedConstraintCount();
+        int unique = metadata.getUniqueConstraintCount();
+        StatisticsWriter writer = StatisticsWriter.writingStatisticsTo(out);
+        writer.put("Number of generated type constraints", generated)
+            .put("Number of unique type constraints", unique);
+        if(generated > 0) {
+          writer.put("Dedup ratio of type constraints", String.format("%.2f", (double) generated / unique));
+        }
+        writer.put("Number of sanity checks", checkOptimizer.getCheckCount())
+            .put("Number of sanity checks removed", checkOptimizer.getRemovedChecks())
+            .put("Number of sanity checks hoisted", checkOptimizer.getHoistedChecks());
+      }
+
+      @Override
+      public String getName() {
+        return "RangeCPA";
+      }
+    });
+  }
+
+  @Override
+  public void collectResultWriters(UnmodifiableReachedSet pReached, Collection<ResultWriter> pWriters) {
+    if(!transferRelation.isMetadataExportEnabled()) {
+      // metadata is fetched from the transfer relation directly
+      return;
+    }
+    // persistent collections are snapshots, thus they can be written on other threads
+    final PersistentList<Constraint> constraints = transferRelation.getConstraints();
+    final PersistentMap<String, FileLocation> name2Loc = transferRelation.getName2Loc();
+    final PersistentMap<FileLocation, FixGuide> loc2Guide = transferRelation.getLoc2Guide();
+    final boolean binary = transferRelation.getMetadataFormat() == MetadataFormat.BINARY;
+    final String ext = binary ? ".bin" : ".json";
+
+    // FIRST: .smt2 file for constraint solving
+    pWriters.add(new ResultWriter() {
+      @Override
+      public void write(Path pOutputDirectory) throws IOException {
+        try (Writer w = Files.openOutputFile(pOutputDirectory.resolve(smt2File))) {
+          new ConstraintGenerator().writeConstraints(constraints, w);
+        }
+      }
+
+      @Override
+      public String getName() {
+        return smt2File;
+      }
+    });
+
+    // SECOND: mapping name to location
+    pWriters.add(new ResultWriter() {
+      @Override
+      public void write(Path pOutputDirectory) throws IOException {
+        String file = pOutputDirectory.resolve(name2LocFile + ext).getAbsolutePath();
+        if(binary) {
+          new BinaryMetadataWriter(file).generateName2Loc(name2Loc);
+        } else {
+          new NameLocGenerator(file).generateName2Loc(name2Loc);
+        }
+      }
+
+      @Override
+      public String getName() {
+        return name2LocFile + ext;
+      }
+    });
+
+    // THIRD: mapping location to fix guide
+    pWriters.add(new ResultWriter() {
+      @Override
+      public void write(Path pOutputDirectory) throws IOException {
+        String file = pOutputDirectory.resolve(loc2GuideFile + ext).getAbsolutePath();
+        if(binary) {
+          new BinaryMetadataWriter(file).generateLoc2Guide(loc2Guide);
+        } else {
+          new LocGuideGenerator(file).generateLoc2Guide(loc2Guide);
+        }
+      }
+
+      @Override
+      public String getName() {
+        return loc2GuideFile + ext;
+      }
+    });
+  }
+
 }
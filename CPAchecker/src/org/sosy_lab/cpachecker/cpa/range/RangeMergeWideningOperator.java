@@ -0,0 +1,126 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.util.concurrent.ConcurrentMap;
+
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.MergeOperator;
+import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.exceptions.CPAException;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Merge operator of range analysis with widening. States are joined at ordinary locations. At loop heads,
+ * the first few merges are joins, and then ranges are widened with thresholds so that the analysis
+ * reaches a fixpoint without unrolling loops.
+ *
+ * After widening, a bounded number of narrowing steps recovers precision: when an incoming state is already
+ * covered by the widened state, the widened state is replaced by the join of all states merged into it so far.
+ * This join covers every state the widened state has covered, thus narrowing is sound.
+ */
+@Options(prefix="cpa.range")
+public class RangeMergeWideningOperator implements MergeOperator {
+
+  @Option(secure=true, description="number of joins at a loop head before widening is applied")
+  private int wideningDelay = 1;
+
+  @Option(secure=true, description="maximum number of narrowing steps at a loop head after widening")
+  private int narrowingSteps = 1;
+
+  /**
+   * Bookkeeping of loop-head states produced by this operator
+   */
+  private static class LoopHeadInfo {
+
+    // join of all states merged into this state, without widening
+    private final RangeState incoming;
+    private final int joins;
+    private final int narrowings;
+
+    private LoopHeadInfo(RangeState incoming, int joins, int narrowings) {
+      this.incoming = incoming;
+      this.joins = joins;
+      this.narrowings = narrowings;
+    }
+  }
+
+  private final RangeWideningThresholds thresholds;
+  // states are compared by identity, and replaced states can be collected
+  private final ConcurrentMap<RangeState, LoopHeadInfo> loopHeadInfos = new MapMaker().weakKeys().makeMap();
+
+  public RangeMergeWideningOperator(Configuration config, RangeWideningThresholds thresholds) throws InvalidConfigurationException {
+    config.inject(this);
+    this.thresholds = thresholds;
+  }
+
+  @Override
+  public AbstractState merge(AbstractState state1, AbstractState state2, Precision precision) throws CPAException, InterruptedException {
+    RangeState successor = (RangeState) state1;
+    RangeState reached = (RangeState) state2;
+    if(!(successor.isLoopHead() && reached.isLoopHead())) {
+      return successor.join(reached);
+    }
+
+    LoopHeadInfo info = loopHeadInfos.get(reached);
+    if(info == null) {
+      info = new LoopHeadInfo(reached, 0, 0);
+    }
+    RangeState incoming = successor.join(info.incoming);
+
+    if(successor.isLessOrEqual(reached)) {
+      // the successor is covered, try to narrow the reached state
+      if(info.narrowings < narrowingSteps && !reached.isLessOrEqual(incoming)) {
+        return register(incoming, new LoopHeadInfo(incoming, info.joins, info.narrowings + 1));
+      }
+      loopHeadInfos.put(reached, new LoopHeadInfo(incoming, info.joins, info.narrowings));
+      return reached;
+    }
+
+    RangeState merged;
+    if(info.joins < wideningDelay) {
+      merged = successor.join(reached);
+    } else {
+      merged = successor.widen(reached, thresholds);
+    }
+    LoopHeadInfo mergedInfo = new LoopHeadInfo(incoming, info.joins + 1, info.narrowings);
+    if(merged == reached) {
+      loopHeadInfos.put(reached, mergedInfo);
+      return reached;
+    }
+    return register(merged, mergedInfo);
+  }
+
+  private RangeState register(RangeState state, LoopHeadInfo info) {
+    RangeState loopHeadState = state.asLoopHead();
+    loopHeadInfos.put(loopHeadState, info);
+    return loopHeadState;
+  }
+
+}
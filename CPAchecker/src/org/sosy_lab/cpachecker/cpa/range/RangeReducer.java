@@ -23,6 +23,9 @@
  */
 package org.sosy_lab.cpachecker.cpa.range;
 
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentMap;
+
 import org.sosy_lab.common.Pair;
 import org.sosy_lab.cpachecker.cfa.blocks.Block;
 import org.sosy_lab.cpachecker.cfa.blocks.ReferencedVariable;
@@ -32,29 +35,35 @@ import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
 import org.sosy_lab.cpachecker.core.interfaces.Reducer;
 
+import com.google.common.collect.MapMaker;
+
 public class RangeReducer implements Reducer {
 
-  private boolean occursInBlock(Block pBlock, String pVar) {
-    for(ReferencedVariable refVar : pBlock.getReferencedVariables()) {
-      if(refVar.getName().equals(pVar)) {
-        return true;
+  private final VariableIdRegistry variableIds;
+  // identifiers of variables referenced in each block, blocks are compared by identity
+  private final ConcurrentMap<Block, BitSet> blockVariables = new MapMaker().weakKeys().makeMap();
+
+  RangeReducer(VariableIdRegistry variableIds) {
+    this.variableIds = variableIds;
+  }
+
+  private BitSet getBlockVariables(Block pBlock) {
+    BitSet variables = blockVariables.get(pBlock);
+    if(variables == null) {
+      variables = new BitSet();
+      for(ReferencedVariable refVar : pBlock.getReferencedVariables()) {
+        variables.set(variableIds.intern(refVar.getName()));
       }
+      blockVariables.put(pBlock, variables);
     }
-    return false;
+    return variables;
   }
 
   @Override
   public AbstractState getVariableReducedState(AbstractState pExpandedState, Block pContext, CFANode pCallNode) {
     // TODO Auto-generated method stub
     RangeState expandedState = (RangeState)pExpandedState;
-    RangeState clonedElement = RangeState.copyOf(expandedState);
-    for(String trackedVar : expandedState.getRangeMap().keySet()) {
-      if(!occursInBlock(pContext, trackedVar)) {
-        clonedElement.removeRange(trackedVar);
-      }
-    }
-
-    return clonedElement;
+    return expandedState.retainRanges(getBlockVariables(pContext));
   }
 
   @Override
@@ -63,15 +72,7 @@ public class RangeReducer implements Reducer {
     // TODO Auto-generated method stub
     RangeState rootState = (RangeState)pRootState;
     RangeState reducedState = (RangeState)pReducedState;
-    RangeState diffElement = RangeState.copyOf(reducedState);
-
-    for(String trackedVar : rootState.getRangeMap().keySet()) {
-      if(!occursInBlock(pReducedContext, trackedVar)) {
-        diffElement.addRange(trackedVar, rootState.getRange(trackedVar), rootState.getType(trackedVar));
-      }
-    }
-
-    return diffElement;
+    return reducedState.copyRangesFrom(rootState, getBlockVariables(pReducedContext));
   }
 
   @Override
@@ -91,7 +92,7 @@ public class RangeReducer implements Reducer {
   public Object getHashCodeForState(AbstractState pStateKey, Precision pPrecisionKey) {
     // TODO Auto-generated method stub
     RangeState stateKey = (RangeState)pStateKey;
-    return Pair.of(stateKey.getRangeMap(), pPrecisionKey);
+    return Pair.of(stateKey.getRangeKey(), pPrecisionKey);
   }
 
   @Override
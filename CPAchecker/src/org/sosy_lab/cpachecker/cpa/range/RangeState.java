@@ -25,12 +25,10 @@ package org.sosy_lab.cpachecker.cpa.range;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
-import org.sosy_lab.common.collect.PersistentMap;
 import org.sosy_lab.cpachecker.cfa.model.FunctionExitNode;
 import org.sosy_lab.cpachecker.core.defaults.LatticeAbstractState;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractQueryableState;
@@ -46,17 +44,29 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
 
   private static final Splitter propertySplitter = Splitter.on("<=").trimResults();
 
+  /**
+   * Variables are keyed by identifiers interned in the registry, thus states are compared by scanning
+   * arrays of integers instead of comparing qualified names.
+   */
+  private final VariableIdRegistry variableIds;
+
   // FIXME: we should not place point-to relation in range state because incremental property
   //        cannot be guaranteed
-  private PersistentMap<String, Range> ranges;
-  private PersistentMap<String, IntType> types;
+  private VariableIdMap<Range> ranges;
+  private VariableIdMap<IntType> types;
 
-  public RangeState() {
-    ranges = PathCopyingPersistentTreeMap.of();
-    types = PathCopyingPersistentTreeMap.of();
+  /**
+   * Whether this state is at a loop head. This flag is set by transfer relation for widening, and it is
+   * not a part of equality.
+   */
+  private transient boolean loopHead = false;
+
+  RangeState(VariableIdRegistry variableIds) {
+    this(variableIds, VariableIdMap.<Range>of(), VariableIdMap.<IntType>of());
   }
 
-  public RangeState(PersistentMap<String, Range> ranges, PersistentMap<String, IntType> types) {
+  private RangeState(VariableIdRegistry variableIds, VariableIdMap<Range> ranges, VariableIdMap<IntType> types) {
+    this.variableIds = variableIds;
     this.ranges = ranges;
     this.types = types;
   }
@@ -68,7 +78,8 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
    * @return range
    */
   public Range getRange(String varName) {
-    return ranges.containsKey(varName) ? ranges.get(varName) : Range.UNBOUND;
+    Range range = ranges.get(variableIds.lookup(varName));
+    return range != null ? range : Range.UNBOUND;
   }
 
   /**
@@ -77,11 +88,22 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
    * @return type
    */
   public IntType getType(String varName) {
-    return types.containsKey(varName) ? types.get(varName) : IntType.UNKNOWN;
+    IntType type = types.get(variableIds.lookup(varName));
+    return type != null ? type : IntType.UNKNOWN;
+  }
+
+  private Range getRange(int id) {
+    Range range = ranges.get(id);
+    return range != null ? range : Range.UNBOUND;
+  }
+
+  private IntType getType(int id) {
+    IntType type = types.get(id);
+    return type != null ? type : IntType.UNKNOWN;
   }
 
   public boolean contains(String varName) {
-    return ranges.containsKey(varName);
+    return ranges.containsKey(variableIds.lookup(varName));
   }
 
   public RangeState addRange(String varName, Range range, IntType type) {
@@ -89,30 +111,97 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
       removeRange(varName);
       return this;
     }
+    return addRange(variableIds.intern(varName), range, type);
+  }
 
-    if(!ranges.containsKey(varName) || !ranges.get(varName).equals(range)) {
+  private RangeState addRange(int id, Range range, IntType type) {
+    if(range.isUnbound()) {
+      ranges = ranges.removeAndCopy(id);
+      return this;
+    }
+
+    Range oldRange = ranges.get(id);
+    if(oldRange == null || !oldRange.equals(range)) {
       // then it is necessary to update range for this variable
-      ranges = ranges.putAndCopy(varName, range);
-      types = types.putAndCopy(varName, type);
+      ranges = ranges.putAndCopy(id, range);
+      types = types.putAndCopy(id, type);
     }
 
     return this;
   }
 
   public RangeState removeRange(String varName) {
-    if(ranges.containsKey(varName)) {
-      ranges = ranges.removeAndCopy(varName);
-    }
-
+    ranges = ranges.removeAndCopy(variableIds.lookup(varName));
     return this;
   }
 
   public void dropFrame(String pCalledFuncName) {
-    for(String varName : ranges.keySet()) {
-      if(varName.startsWith(pCalledFuncName + "::")) {
-        removeRange(varName);
+    int frame = variableIds.lookupFrame(pCalledFuncName);
+    if(frame < 0) {
+      // no variable of this function has been tracked
+      return;
+    }
+    VariableIdMap.Builder<Range> builder = null;
+    for(int i = 0; i < ranges.size(); i++) {
+      int id = ranges.keyAt(i);
+      if(variableIds.getFrame(id) == frame) {
+        if(builder == null) {
+          // copy the variables before the first dropped one
+          builder = new VariableIdMap.Builder<>(ranges.size());
+          for(int j = 0; j < i; j++) {
+            builder.add(ranges.keyAt(j), ranges.valueAt(j));
+          }
+        }
+      } else if(builder != null) {
+        builder.add(id, ranges.valueAt(i));
+      }
+    }
+    if(builder != null) {
+      ranges = builder.build();
+    }
+  }
+
+  /**
+   * Get a copy of this state which only keeps the ranges of the given variables.
+   * @param variables identifiers of variables to be kept
+   */
+  RangeState retainRanges(BitSet variables) {
+    VariableIdMap.Builder<Range> builder = new VariableIdMap.Builder<>(ranges.size());
+    for(int i = 0; i < ranges.size(); i++) {
+      if(variables.get(ranges.keyAt(i))) {
+        builder.add(ranges.keyAt(i), ranges.valueAt(i));
+      }
+    }
+    VariableIdMap<Range> retained = builder.build();
+    return new RangeState(variableIds, retained.size() == ranges.size() ? ranges : retained, types);
+  }
+
+  /**
+   * Get a copy of this state where ranges of the variables not in the given set are taken from another state.
+   * @param other the state providing ranges and types
+   * @param excluded identifiers of variables whose ranges are kept in this state
+   */
+  RangeState copyRangesFrom(RangeState other, BitSet excluded) {
+    VariableIdMap.Builder<Range> rangeUpdates = new VariableIdMap.Builder<>(other.ranges.size());
+    VariableIdMap.Builder<IntType> typeUpdates = new VariableIdMap.Builder<>(other.ranges.size());
+    for(int i = 0; i < other.ranges.size(); i++) {
+      int varId = other.ranges.keyAt(i);
+      Range range = other.ranges.valueAt(i);
+      if(!excluded.get(varId) && !range.equals(ranges.get(varId))) {
+        rangeUpdates.add(varId, range);
+        typeUpdates.add(varId, other.getType(varId));
       }
     }
+    return new RangeState(variableIds, ranges.putAllAndCopy(rangeUpdates.build()),
+        types.putAllAndCopy(typeUpdates.build()));
+  }
+
+  /**
+   * Get an object identifying the ranges of this state, which is used as a key of cached blocks. Its hash
+   * code is computed only once.
+   */
+  Object getRangeKey() {
+    return ranges;
   }
 
   private IntType mergeType(IntType t1, IntType t2) {
@@ -126,44 +215,86 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
   @Override
   public RangeState join(RangeState reachedState) {
     boolean changed = false;
-    PersistentMap<String, Range> new_range = PathCopyingPersistentTreeMap.of();
-    PersistentMap<String, IntType> new_type = PathCopyingPersistentTreeMap.of();
+    VariableIdMap<Range> reachedRanges = reachedState.ranges;
+    VariableIdMap.Builder<Range> new_range = new VariableIdMap.Builder<>(reachedRanges.size());
+    VariableIdMap.Builder<IntType> new_type = new VariableIdMap.Builder<>(reachedRanges.size());
 
     Range mergedRange;
     IntType newType;
 
-    for(String varName : reachedState.ranges.keySet()) {
-      if(ranges.containsKey(varName)) {
-        mergedRange = getRange(varName).union(reachedState.getRange(varName));
-        if(mergedRange != reachedState.getRange(varName)) {
+    // both maps are sorted by identifiers, thus we scan them simultaneously
+    int i = 0;
+    for(int j = 0; j < reachedRanges.size(); j++) {
+      int varId = reachedRanges.keyAt(j);
+      Range reachedRange = reachedRanges.valueAt(j);
+      while(i < ranges.size() && ranges.keyAt(i) < varId) {
+        i++;
+      }
+      if(i < ranges.size() && ranges.keyAt(i) == varId) {
+        mergedRange = ranges.valueAt(i).union(reachedRange);
+        if(mergedRange != reachedRange) {
           changed = true;
         }
 
         if(!mergedRange.isUnbound()) {
-          new_range = new_range.putAndCopy(varName, mergedRange);
+          new_range.add(varId, mergedRange);
         }
 
-        newType = mergeType(reachedState.getType(varName), getType(varName));
-        if(!newType.equals(reachedState.getType(varName))) {
+        newType = mergeType(reachedState.getType(varId), getType(varId));
+        if(!newType.equals(reachedState.getType(varId))) {
           changed = true;
-          new_type = new_type.putAndCopy(varName, newType);
+          new_type.add(varId, newType);
         } else {
-          new_type = new_type.putAndCopy(varName, reachedState.getType(varName));
+          new_type.add(varId, reachedState.getType(varId));
         }
       } else {
         // why we do this? Please refer to CPA algorithm in CAV 07' paper
-        new_type = new_type.putAndCopy(varName, reachedState.getType(varName));
+        new_type.add(varId, reachedState.getType(varId));
         changed = true; // why? because varName is defined in reached state, but is unbound in new state, thus in resulting state the range is also unbound
       }
     }
 
     if(changed) {
-      return new RangeState(new_range, new_type);
+      return new RangeState(variableIds, new_range.build(), new_type.build());
     } else {
       return reachedState;
     }
   }
 
+  /**
+   * Widen the reached state by this state. Variables are handled as in {@link #join(RangeState)}, except that
+   * growing bounds are widened to thresholds.
+   */
+  public RangeState widen(RangeState reachedState, RangeWideningThresholds thresholds) {
+    VariableIdMap<Range> reachedRanges = reachedState.ranges;
+    VariableIdMap.Builder<Range> new_range = new VariableIdMap.Builder<>(reachedRanges.size());
+    VariableIdMap.Builder<IntType> new_type = new VariableIdMap.Builder<>(reachedRanges.size());
+
+    int i = 0;
+    for(int j = 0; j < reachedRanges.size(); j++) {
+      int varId = reachedRanges.keyAt(j);
+      while(i < ranges.size() && ranges.keyAt(i) < varId) {
+        i++;
+      }
+      if(i < ranges.size() && ranges.keyAt(i) == varId) {
+        Range widenedRange = reachedRanges.valueAt(j).widen(ranges.valueAt(i), thresholds);
+        if(!widenedRange.isUnbound()) {
+          new_range.add(varId, widenedRange);
+        }
+        new_type.add(varId, mergeType(reachedState.getType(varId), getType(varId)));
+      } else {
+        // the variable is unbound in this state
+        new_type.add(varId, reachedState.getType(varId));
+      }
+    }
+
+    RangeState widened = new RangeState(variableIds, new_range.build(), new_type.build());
+    if(widened.equals(reachedState) && widened.types.equals(reachedState.types)) {
+      return reachedState;
+    }
+    return widened;
+  }
+
   @Override
   public boolean isLessOrEqual(RangeState reachedState) throws CPAException, InterruptedException {
     if(ranges.equals(reachedState.ranges)) {
@@ -171,11 +302,17 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
     }
     // why?
     // every variable is defined while so-called undefined one has unbound range in fact
-    if(ranges.size() < reachedState.ranges.size()) {
+    VariableIdMap<Range> reachedRanges = reachedState.ranges;
+    if(ranges.size() < reachedRanges.size()) {
       return false;
     }
-    for(String varName : reachedState.ranges.keySet()) {
-      if(!ranges.containsKey(varName) || !reachedState.getRange(varName).contains(getRange(varName))) {
+    int i = 0;
+    for(int j = 0; j < reachedRanges.size(); j++) {
+      int varId = reachedRanges.keyAt(j);
+      while(i < ranges.size() && ranges.keyAt(i) < varId) {
+        i++;
+      }
+      if(i == ranges.size() || ranges.keyAt(i) != varId || !reachedRanges.valueAt(j).contains(ranges.valueAt(i))) {
         return false;
       }
     }
@@ -184,29 +321,53 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
   }
 
   public static RangeState copyOf(RangeState old) {
-    return new RangeState(old.ranges, old.types);
+    return new RangeState(old.variableIds, old.ranges, old.types);
+  }
+
+  public boolean isLoopHead() {
+    return loopHead;
+  }
+
+  /**
+   * Get a copy of this state which is marked as a loop-head state.
+   */
+  public RangeState asLoopHead() {
+    if(loopHead) {
+      return this;
+    }
+    RangeState copy = copyOf(this);
+    copy.loopHead = true;
+    return copy;
   }
 
+  /**
+   * Get an unmodifiable view of the ranges of tracked variables by their qualified names. The view is not
+   * affected by later updates of this state.
+   */
   public Map<String, Range> getRangeMap() {
-    return ranges;
+    return ranges.asNameMap(variableIds);
   }
 
   public RangeState rebuildStateAfterFunctionCall(final RangeState callState, final FunctionExitNode funcExitNode) {
     final RangeState rebuildState = RangeState.copyOf(callState);
-    for(final String trackedVar : callState.ranges.keySet()) {
-      if(!trackedVar.contains("::")) {
-        rebuildState.removeRange(trackedVar);
+    for(int i = 0; i < callState.ranges.size(); i++) {
+      int trackedVar = callState.ranges.keyAt(i);
+      if(variableIds.isGlobal(trackedVar)) {
+        rebuildState.ranges = rebuildState.ranges.removeAndCopy(trackedVar);
       }
     }
 
-    for(final String trackedVar : this.ranges.keySet()) {
-      if(!trackedVar.contains("::")) {
-        rebuildState.addRange(trackedVar, this.getRange(trackedVar), this.getType(trackedVar));
-      } else if(funcExitNode.getEntryNode().getReturnVariable().isPresent() && funcExitNode.getEntryNode().getReturnVariable().get().getQualifiedName().equals(trackedVar)) {
-        assert (!rebuildState.contains(trackedVar));
-        if(this.contains(trackedVar)) {
-          rebuildState.addRange(trackedVar, this.getRange(trackedVar), this.getType(trackedVar));
-        }
+    int returnVar = -1;
+    if(funcExitNode.getEntryNode().getReturnVariable().isPresent()) {
+      returnVar = variableIds.lookup(funcExitNode.getEntryNode().getReturnVariable().get().getQualifiedName());
+    }
+    for(int i = 0; i < this.ranges.size(); i++) {
+      int trackedVar = this.ranges.keyAt(i);
+      if(variableIds.isGlobal(trackedVar)) {
+        rebuildState.addRange(trackedVar, this.ranges.valueAt(i), this.getType(trackedVar));
+      } else if(trackedVar == returnVar) {
+        assert (!rebuildState.ranges.containsKey(trackedVar));
+        rebuildState.addRange(trackedVar, this.ranges.valueAt(i), this.getType(trackedVar));
       }
     }
 
@@ -224,17 +385,7 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
     }
 
     RangeState otherElement = (RangeState)other;
-    if(ranges.size() != otherElement.ranges.size()) {
-      return false;
-    }
-
-    for(Entry<String, Range> varName : ranges.entrySet()) {
-      if(!otherElement.ranges.containsKey(varName.getKey()) || !otherElement.ranges.get(varName.getKey()).equals(varName.getValue())) {
-        return false;
-      }
-    }
-
-    return true;
+    return ranges.equals(otherElement.ranges);
   }
 
   @Override
@@ -295,7 +446,7 @@ public class RangeState implements Serializable, LatticeAbstractState<RangeState
     StringBuilder sb = new StringBuilder();
     sb.append("[\n");
 
-    for(Map.Entry<String, Range> entry : ranges.entrySet()) {
+    for(Map.Entry<String, Range> entry : getRangeMap().entrySet()) {
       String key = entry.getKey();
       sb.append(" <");
       sb.append(key);
@@ -29,7 +29,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.sosy_lab.common.Pair;
@@ -73,6 +72,7 @@ import org.sosy_lab.cpachecker.cfa.ast.c.CVariableDeclaration;
 import org.sosy_lab.cpachecker.cfa.ast.c.DefaultCExpressionVisitor;
 import org.sosy_lab.cpachecker.cfa.model.BlankEdge;
 import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
 import org.sosy_lab.cpachecker.cfa.model.FunctionExitNode;
 import org.sosy_lab.cpachecker.cfa.model.MultiEdge;
 import org.sosy_lab.cpachecker.cfa.model.c.CAssumeEdge;
@@ -93,21 +93,39 @@ import org.sosy_lab.cpachecker.cfa.types.c.CType;
 import org.sosy_lab.cpachecker.cfa.types.c.CTypedefType;
 import org.sosy_lab.cpachecker.core.defaults.ForwardingTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.AbstractState;
+import org.sosy_lab.cpachecker.core.interfaces.ForkableTransferRelation;
 import org.sosy_lab.cpachecker.core.interfaces.Precision;
+import org.sosy_lab.cpachecker.core.interfaces.TransferRelation;
+import org.sosy_lab.cpachecker.cpa.range.FixMetadataCollector.MetadataFormat;
+import org.sosy_lab.cpachecker.cpa.range.FixMetadataCollector.WeightMerge;
 import org.sosy_lab.cpachecker.exceptions.CPATransferException;
 import org.sosy_lab.cpachecker.exceptions.UnrecognizedCCodeException;
 
 import com.google.common.base.Optional;
 
 @Options(prefix="cpa.range")
-public class RangeTransferRelation extends ForwardingTransferRelation<Collection<RangeState>, RangeState, Precision> {
+public class RangeTransferRelation extends ForwardingTransferRelation<Collection<RangeState>, RangeState, Precision>
+    implements ForkableTransferRelation {
 
   @Option(secure=true, description="split intervals")
   private boolean splitIntervals = false;
 
+  @Option(secure=true, description="write constraints, name2loc and loc2guide to files after the analysis. "
+      + "Disable this when the metadata is consumed in the same JVM.")
+  private boolean exportMetadata = true;
+
+  @Option(secure=true, description="format of exported name2loc and loc2guide files. "
+      + "BINARY is compact and fast to load, JSON is human-readable for debugging.")
+  private MetadataFormat metadataFormat = MetadataFormat.BINARY;
+
+  @Option(secure=true, description="how to merge weights of duplicate soft type constraints. "
+      + "SUM preserves the Max-SMT objective, MAX counts each distinct constraint once.")
+  private WeightMerge constraintWeightMerge = WeightMerge.SUM;
+
   /**
-   * This mapping stores pointer relation of identifiers.
-   * NOTE: in pointRel we have a special virtual node "!!notid".
+   * Fix metadata and pointer relation collected by this analysis.
+   *
+   * NOTE: in the pointer relation we have a special virtual node "!!notid".
    * First, no variable can have the same name as this virtual node, by C11 standard;
    * Second, operation on pointer is dynamic, if we specify a pointer to point to array subscript or field reference,
    * this pointer will be actually specified to virtual node and the structure of other pointers that point to this pointer keeps.
@@ -116,14 +134,13 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
    * UPDATE: all nodes in point-to graph correspond to left-hand expressions, including variables, array subscripts, field references
    * Although pointer expression is also lvalue, it can be replaced with the three types of expressions listed above.
    */
-  private static PersistentMap<String, String> pointRel;
-  private static String dumbnode = "!!notid";
-
-  /**
-   * This counter is for generating names for intermediate variables only
-   */
-  private static long nameCounter;
-  private static String intermPrefix = "!INTERM_";
+  private final FixMetadataCollector metadata;
+  // states at these nodes are marked for widening
+  private final Set<CFANode> loopHeads;
+  // post-analysis pass over loc2Guide, or null if sanity checks are exported as they are
+  private final SanityCheckOptimizer checkOptimizer;
+  private static final String dumbnode = "!!notid";
+  static final String intermPrefix = "!INTERM_";
 
   /**
    * These special reference levels are for left-shift/right-shift operations
@@ -131,18 +148,6 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
   public static final int shiftLeftLevel = -10;
   public static final int shiftRightLevel = -11;
 
-  /**
-   * They are total fix metadata. Metadata yielded from ExpressionValueVistor will be appended to this data structure.
-   */
-  private static PersistentList<Constraint> totalConstraints;
-  private static PersistentMap<String, FileLocation> totalName2Loc;
-  private static PersistentMap<FileLocation, FixGuide> totalLoc2Guide;
-
-  /**
-   * This structure records all integer variables for pointer analysis
-   */
-  private static Set<String> totalIntNames;
-
   // File processing
   private static final String predDP = "dp";
   private static final String predP = "p";
@@ -150,45 +155,81 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
 
 
   public RangeTransferRelation(Configuration config) throws InvalidConfigurationException {
+    this(config, Collections.<CFANode>emptySet());
+  }
+
+  public RangeTransferRelation(Configuration config, Set<CFANode> loopHeads) throws InvalidConfigurationException {
+    this(config, loopHeads, null);
+  }
+
+  RangeTransferRelation(Configuration config, Set<CFANode> loopHeads, SanityCheckOptimizer checkOptimizer)
+      throws InvalidConfigurationException {
     config.inject(this);
+    this.loopHeads = loopHeads;
+    this.checkOptimizer = checkOptimizer;
 
     // TODO: this is the constructor of transfer relation. Any initialization work can be done here
-    pointRel = PathCopyingPersistentTreeMap.of();
-    nameCounter = 0;
+    metadata = new FixMetadataCollector(constraintWeightMerge);
+  }
 
-    totalConstraints = PersistentLinkedList.of();
-    totalName2Loc = PathCopyingPersistentTreeMap.of();
-    totalLoc2Guide = PathCopyingPersistentTreeMap.of();
+  /**
+   * A fork has its own edge and state of the current call, while metadata is shared and thread-safe.
+   */
+  private RangeTransferRelation(RangeTransferRelation pOriginal) {
+    splitIntervals = pOriginal.splitIntervals;
+    exportMetadata = pOriginal.exportMetadata;
+    metadataFormat = pOriginal.metadataFormat;
+    constraintWeightMerge = pOriginal.constraintWeightMerge;
+    metadata = pOriginal.metadata;
+    loopHeads = pOriginal.loopHeads;
+    checkOptimizer = pOriginal.checkOptimizer;
+  }
 
-    totalIntNames = new HashSet<>();
+  @Override
+  public TransferRelation fork() {
+    return new RangeTransferRelation(this);
+  }
+
+  public boolean isMetadataExportEnabled() {
+    return exportMetadata;
+  }
+
+  public MetadataFormat getMetadataFormat() {
+    return metadataFormat;
+  }
+
+  public FixMetadataCollector getMetadata() {
+    return metadata;
   }
 
   public PersistentList<Constraint> getConstraints() {
-    return totalConstraints;
+    return metadata.getConstraints();
   }
 
   public PersistentMap<String, FileLocation> getName2Loc() {
-    return totalName2Loc;
+    return metadata.getName2Loc();
   }
 
+  /**
+   * Fix guides with redundant sanity checks optimized. This should be called after the analysis terminates.
+   */
   public PersistentMap<FileLocation, FixGuide> getLoc2Guide() {
-    return totalLoc2Guide;
-  }
-
-  private PersistentMap<FileLocation, FixGuide> insertNewFixGuide(FileLocation loc, FixGuide guide) {
-    FixGuide prev = totalLoc2Guide.get(loc);
-    if(prev != null) {
-      // we should merge existing solution with the new coming one
-      FixGuide nouveau = prev.merge(guide);
-      return totalLoc2Guide.putAndCopy(loc, nouveau);
-    } else {
-      return totalLoc2Guide.putAndCopy(loc, guide);
+    if(checkOptimizer == null) {
+      return metadata.getLoc2Guide();
     }
+    return checkOptimizer.optimize(metadata.getLoc2Guide(), metadata.getCheckSites());
   }
 
   @Override
   protected Collection<RangeState> postProcessing(Collection<RangeState> successors) {
-    return new HashSet<>(successors);
+    if(!loopHeads.contains(edge.getSuccessor())) {
+      return new HashSet<>(successors);
+    }
+    Set<RangeState> result = new HashSet<>();
+    for(RangeState successor : successors) {
+      result.add(successor.asLoopHead());
+    }
+    return result;
   }
 
   @Override
@@ -236,7 +277,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
           Constraint assertion = new Constraint();
           assertion.setSoftness(true);
           assertion.addConstraint(predP, leftTarget, thisType.toOBJString());
-          totalConstraints = totalConstraints.with(assertion);
+          metadata.addConstraint(assertion);
         }
       } else {
         // _ret is not in the RangeState
@@ -245,12 +286,12 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         if(ct instanceof CPointerType) {
           String retName = retVar.get().getQualifiedName();
           String leftName = findLeftHandNode(funcExp.getLeftHandSide());
-          String successor = pointRel.get(retName);
+          String successor = metadata.getPointRel().get(retName);
           if(leftName != null && successor != null) {
             // we can assign this to the left hand side
-            pointRel = pointRel.putAndCopy(leftName, successor);
+            metadata.setPointTarget(leftName, successor);
           } else if(leftName != null) {
-            pointRel = pointRel.putAndCopy(leftName, dumbnode);
+            metadata.setPointTarget(leftName, dumbnode);
           }
         } else {
           // nothing to do
@@ -281,6 +322,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       Range argRange = eval.getRange();
       CType paramOrigType = params.get(i).getType().getCanonicalType();
       IntType paramType = evaluateType(paramOrigType);
+      SanityCheckSite argSite = SanityCheckSite.of(edge, args.get(i), argRange, eval.getType());
       Range typeRange = paramType.getTypeRange();
       if(!typeRange.contains(argRange)) {
         // since we can ensure the value of argument does not exceed type restriction
@@ -293,7 +335,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         newState.addRange(fName, argRange, paramType);
 
         // Don't forget to record this name of integer
-        totalIntNames.add(fName);
+        metadata.addIntName(fName);
 
         // then, we output fix guide metadata here
         // PART I: constraint
@@ -301,26 +343,27 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         Constraint assertion = new Constraint();
         assertion.setSoftness(true);
         assertion.addConstraint(predP, fName, paramType.toOBJString());
-        totalConstraints = totalConstraints.with(assertion);
+        metadata.addConstraint(assertion);
         Constraint assertion2 = new Constraint();
         assertion2.setSoftness(true);
         // but we don't want to change types so much
         assertion2.addConstraint(predEq, fName, paramType.toOBJString());
-        totalConstraints = totalConstraints.with(assertion2);
+        metadata.addConstraint(assertion2);
         // PART II: name2Loc
-        totalName2Loc = totalName2Loc.putAndCopy(fName, params.get(i).getFileLocation());
+        metadata.addName2Loc(fName, params.get(i).getFileLocation());
         // PART III: argument should be enclosed with sanitization routine
         FixGuide guide = new FixGuide(true, false, true, paramType, -1, "");
-        totalLoc2Guide = insertNewFixGuide(args.get(i).getFileLocation(), guide);
+        metadata.addFixGuide(args.get(i).getFileLocation(), guide);
+        metadata.addCheckSite(args.get(i).getFileLocation(), argSite);
       } else if(paramOrigType instanceof CPointerType) {
         // it is OK even if this is not an pointer relation
         // well-typeness is guaranteed anyway
         String fName = params.get(i).getQualifiedName();
         String target = findNextNode(args.get(i));
         if(target == null) {
-          pointRel = pointRel.putAndCopy(fName, dumbnode);
+          metadata.setPointTarget(fName, dumbnode);
         } else {
-          pointRel = pointRel.putAndCopy(fName, target);
+          metadata.setPointTarget(fName, target);
         }
 
       } // otherwise, we do nothing
@@ -353,10 +396,12 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         // ONLY integer return variable is appended into range state
         Range typeRange = retType.getTypeRange();
         if(!typeRange.contains(retRange)) {
-          retRange = retRange.intersect(typeRange);
           // return expression seems to have risks of overflow
           FixGuide guide = new FixGuide(true, false, true, retType, -1, "");
-          totalLoc2Guide = insertNewFixGuide(ass.getRightHandSide().getFileLocation(), guide);
+          metadata.addFixGuide(ass.getRightHandSide().getFileLocation(), guide);
+          metadata.addCheckSite(ass.getRightHandSide().getFileLocation(),
+              SanityCheckSite.of(edge, ass.getRightHandSide(), retRange, evalRet.getType()));
+          retRange = retRange.intersect(typeRange);
         }
         newState.addRange(retvar, retRange, retType);
       }
@@ -392,11 +437,11 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       // corresponding to empty locations
       FileLocation loc1 = op1.getFileLocation();
       if(!loc1.equals(FileLocation.DUMMY)) {
-        totalLoc2Guide = insertNewFixGuide(op1.getFileLocation(), guide);
+        metadata.addFixGuide(op1.getFileLocation(), guide);
       }
       FileLocation loc2 = op2.getFileLocation();
       if(!loc2.equals(FileLocation.DUMMY)) {
-        totalLoc2Guide = insertNewFixGuide(op2.getFileLocation(), guide);
+        metadata.addFixGuide(op2.getFileLocation(), guide);
       }
     }
 
@@ -572,13 +617,13 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
           // initExpr must be a pointer expression
           String target = findNextNode(initExpr);
           if(target == null) {
-            pointRel = pointRel.putAndCopy(qName, dumbnode);
+            metadata.setPointTarget(qName, dumbnode);
           } else {
-            pointRel = pointRel.putAndCopy(qName, target);
+            metadata.setPointTarget(qName, target);
           }
         } else {
           // this pointer is not initialized
-          pointRel = pointRel.putAndCopy(qName, dumbnode);
+          metadata.setPointTarget(qName, dumbnode);
         }
         return soleSuccessor(newState);
       }
@@ -594,24 +639,24 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         IntType declIntType = evaluateType(declType);
         if(!declIntType.isNotInt()) {
           // integer type
-          totalIntNames.add(qName);
+          metadata.addIntName(qName);
           // constraint PART I: type of this variable should have a larger type than the declared one
           Constraint assertion = new Constraint();
           assertion.addConstraint(predDP, qName, declIntType.toOBJString());
           assertion.setSoftness(true);
-          totalConstraints = totalConstraints.with(assertion);
+          metadata.addConstraint(assertion);
           Constraint assertion3 = new Constraint();
           assertion3.addConstraint(predEq, qName, declIntType.toOBJString());
           assertion3.setSoftness(true);
-          totalConstraints = totalConstraints.with(assertion3);
+          metadata.addConstraint(assertion3);
           // constraint PART II: type of this variable should be larger than the range of initializer
           IntType updType = new IntType(initRange);
           Constraint assertion2 = new Constraint();
           assertion2.addConstraint(predP, qName, updType.toOBJString());
           assertion2.setSoftness(true);
-          totalConstraints = totalConstraints.with(assertion2);
+          metadata.addConstraint(assertion2);
           // name2Loc: add location information for this declaration
-          totalName2Loc = totalName2Loc.putAndCopy(qName, vardecl.getFileLocation());
+          metadata.addName2Loc(qName, vardecl.getFileLocation());
           // most importantly, add the range information of this variable
           newState.addRange(qName, initRange, info.getType());
         } else {
@@ -624,16 +669,16 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         Range initRange = Range.UNBOUND;
         if(!declIntType.isNotInt()) {
           // integer type
-          totalIntNames.add(qName);
+          metadata.addIntName(qName);
           CStorageClass storcls = vardecl.getCStorageClass();
           if(storcls == CStorageClass.EXTERN) {
             // add a hard constraint: extern int declaration cannot be altered
             Constraint assertion = new Constraint();
             assertion.addConstraint(predEq, qName, declIntType.toOBJString());
             assertion.setSoftness(false);
-            totalConstraints = totalConstraints.with(assertion);
+            metadata.addConstraint(assertion);
             // name2Loc
-            totalName2Loc = totalName2Loc.putAndCopy(qName, vardecl.getFileLocation());
+            metadata.addName2Loc(qName, vardecl.getFileLocation());
             // since we couldn't change external variable, we can derive its range precisely by its type
             initRange = declIntType.getTypeRange();
           } else {
@@ -641,13 +686,13 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
             Constraint assertion = new Constraint();
             assertion.addConstraint(predDP, qName, declIntType.toOBJString());
             assertion.setSoftness(true);
-            totalConstraints = totalConstraints.with(assertion);
+            metadata.addConstraint(assertion);
             Constraint assertion2 = new Constraint();
             assertion2.addConstraint(predEq, qName, declIntType.toOBJString());
             assertion2.setSoftness(true);
-            totalConstraints = totalConstraints.with(assertion2);
+            metadata.addConstraint(assertion2);
             // name2Loc
-            totalName2Loc = totalName2Loc.putAndCopy(qName, vardecl.getFileLocation());
+            metadata.addName2Loc(qName, vardecl.getFileLocation());
           }
           newState.addRange(qName, initRange, declIntType);
         } else {
@@ -681,10 +726,10 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
         }
         String rightName = findNextNode((CExpression)op2);
         if(leftName != null && rightName != null) {
-          pointRel = pointRel.putAndCopy(leftName, rightName);
+          metadata.setPointTarget(leftName, rightName);
         } else if(leftName != null) {
           // now the right-hand expression is an integer pointer points to some other locations
-          pointRel = pointRel.putAndCopy(leftName, dumbnode);
+          metadata.setPointTarget(leftName, dumbnode);
         }
         return soleSuccessor(newState);
       }
@@ -701,7 +746,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
           Constraint assertion = new Constraint();
           assertion.addConstraint(predP, leftName, updType.toOBJString());
           assertion.setSoftness(true);
-          totalConstraints = totalConstraints.with(assertion);
+          metadata.addConstraint(assertion);
           // name2Loc: none
           // loc2Fix: none
           // most importantly, add the range information
@@ -711,7 +756,8 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
           // such as field reference and array subscript
           // the value of right-hand side expression should be sanity-checked
           FixGuide guide = new FixGuide(true, false, true, baseOprdType, -1, "");
-          totalLoc2Guide = insertNewFixGuide(op2.getFileLocation(), guide);
+          metadata.addFixGuide(op2.getFileLocation(), guide);
+          metadata.addCheckSite(op2.getFileLocation(), SanityCheckSite.of(edge, op2, rightRange, info.getType()));
           return soleSuccessor(newState);
         }
       } else {
@@ -739,15 +785,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     ExpressionInfo eval = expr.accept(visitor);
 
     // merge metadata here
-    totalConstraints = totalConstraints.withAll(visitor.getConstraints());
-    PersistentMap<String, FileLocation> localName2Loc = visitor.getName2Loc();
-    for(Entry<String, FileLocation> entry : localName2Loc.entrySet()) {
-      totalName2Loc = totalName2Loc.putAndCopy(entry.getKey(), entry.getValue());
-    }
-    PersistentMap<FileLocation, FixGuide> localLoc2Fix = visitor.getLoc2Guide();
-    for(Entry<FileLocation, FixGuide> entry : localLoc2Fix.entrySet()) {
-      totalLoc2Guide = insertNewFixGuide(entry.getKey(), entry.getValue());
-    }
+    metadata.addAll(visitor.getConstraints(), visitor.getName2Loc(), visitor.getLoc2Guide(), visitor.getCheckSites());
 
     return eval;
   }
@@ -763,10 +801,8 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     }
   }
 
-  private static String generateIntermName() {
-    String name = intermPrefix.concat(String.valueOf(nameCounter));
-    nameCounter++;
-    return name;
+  private String generateIntermName() {
+    return intermPrefix.concat(String.valueOf(metadata.nextNameIndex()));
   }
 
   private Collection<RangeState> soleSuccessor(RangeState successor) {
@@ -797,12 +833,13 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     }
   }
 
-  private static Pair<Integer, String> distanceComp(CExpression ptr) {
+  private Pair<Integer, String> distanceComp(CExpression ptr) {
+    PersistentMap<String, String> pointRel = metadata.getPointRel();
     if(ptr instanceof CIdExpression) {
       String qName = ((CIdExpression) ptr).getDeclaration().getQualifiedName();
       // in the following we calculate the distance
       // FIRST, this name is an integer
-      if(totalIntNames.contains(qName)) {
+      if(metadata.isIntName(qName)) {
         return Pair.of(0, qName);
       }
 
@@ -857,11 +894,12 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     }
   }
 
-  private static String findNextNode(CExpression ptr) {
+  private String findNextNode(CExpression ptr) {
+    PersistentMap<String, String> pointRel = metadata.getPointRel();
     // the input ptr is a pointer expression in principle
     if(ptr instanceof CIdExpression) {
       String qName = ((CIdExpression) ptr).getDeclaration().getQualifiedName();
-      if(totalIntNames.contains(qName)) {
+      if(metadata.isIntName(qName)) {
         return qName;
       }
       return pointRel.get(qName);
@@ -889,11 +927,12 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     }
   }
 
-  private static String findLeftHandNode(CLeftHandSide leftExpr) {
+  private String findLeftHandNode(CLeftHandSide leftExpr) {
+    PersistentMap<String, String> pointRel = metadata.getPointRel();
     String name = "";
     if(leftExpr instanceof CIdExpression) {
       name = ((CIdExpression) leftExpr).getDeclaration().getQualifiedName();
-      if(totalIntNames.contains(name) || pointRel.containsKey(name)) {
+      if(metadata.isIntName(name) || pointRel.containsKey(name)) {
         return name;
       } else {
         return null;
@@ -933,7 +972,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     return null;
   }
 
-  private static class ExpressionValueVisitor
+  private class ExpressionValueVisitor
     extends DefaultCExpressionVisitor<ExpressionInfo, UnrecognizedCCodeException>
     implements CRightHandSideVisitor<ExpressionInfo, UnrecognizedCCodeException> {
 
@@ -948,6 +987,8 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
     private PersistentMap<String, FileLocation> name2Loc;  // variable and its declaration location
     // this structure records expressions that are strictly constrained
     private PersistentMap<FileLocation, FixGuide> loc2Guide;
+    // expressions enclosed by sanity checks in loc2Guide and their ranges
+    private PersistentMap<FileLocation, SanityCheckSite> checkSites;
     // expression and its location, for (1) expressions that are constrained externally (intolerable error in COMPSAC 16 paper)
     //                                  (2) pointer expressions requiring explicit conversion (such as converting an integer pointer to long pointer)
 
@@ -958,6 +999,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       constraints = PersistentLinkedList.of();
       name2Loc = PathCopyingPersistentTreeMap.of();
       loc2Guide = PathCopyingPersistentTreeMap.of();
+      checkSites = PathCopyingPersistentTreeMap.of();
     }
 
     public PersistentList<Constraint> getConstraints() {
@@ -972,6 +1014,16 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       return loc2Guide;
     }
 
+    public PersistentMap<FileLocation, SanityCheckSite> getCheckSites() {
+      return checkSites;
+    }
+
+    private void addCheckSite(CExpression expr, ExpressionInfo info) {
+      SanityCheckSite site = SanityCheckSite.of(cfaEdge, expr, info.getRange(), info.getType());
+      SanityCheckSite prev = checkSites.get(expr.getFileLocation());
+      checkSites = checkSites.putAndCopy(expr.getFileLocation(), prev == null ? site : prev.merge(site));
+    }
+
     @Override
     public ExpressionInfo visit(CArraySubscriptExpression arrExpr) throws UnrecognizedCCodeException {
       // (1) constraint is not necessary
@@ -982,7 +1034,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       CExpression idxExpr = arrExpr.getSubscriptExpression();
       // after "accept" method, more items will be inserted into constraints list
       arrayExpr.accept(this);
-      idxExpr.accept(this);
+      ExpressionInfo idxInfo = idxExpr.accept(this);
       // the value of array element cannot be elevated since it corresponds to a fixed size of memory block
       // its range is constrained by the type of array element
       CType elemType = arrExpr.getExpressionType().getCanonicalType();
@@ -993,6 +1045,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       FileLocation idxLoc = idxExpr.getFileLocation();
       FixGuide guide = new FixGuide(true, false, true, IntType.INDEX_TYPE, -1, "");
       loc2Guide = loc2Guide.putAndCopy(idxLoc, guide);
+      addCheckSite(idxExpr, idxInfo);
 
       Range resultRange = resultType.getTypeRange();
 
@@ -1324,7 +1377,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       if(args.size() == types.size()) {
         // this is an ordinary function
         for(int i = 0; i < args.size(); i++) {
-          args.get(i).accept(this);
+          ExpressionInfo argInfo = args.get(i).accept(this);
           CType thisType = types.get(i);
           // convert CType into IntType
           IntType intType = evaluateType(thisType);
@@ -1333,6 +1386,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
             // this argument is integer, we should add sanity check to protect this value
             FixGuide guide = new FixGuide(true, false, true, intType, -1, "");
             loc2Guide = loc2Guide.putAndCopy(args.get(i).getFileLocation(), guide);
+            addCheckSite(args.get(i), argInfo);
           }
         }
       } else {
@@ -1366,7 +1420,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
       }
       assert (constType instanceof CSimpleType) : "integer constant should have simple type!";
       IntType realType = new IntType((CSimpleType)constType);
-      Range realRange = new Range(new CompInteger(realValue));
+      Range realRange = new Range(CompInteger.valueOf(realValue));
       return new ExpressionInfo(realRange, realType);
     }
 
@@ -1489,7 +1543,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
           if(!intType.isNotInt()) {
             // integers, its type could only be elevated
             int intLength = intType.getSize();
-            resultRange = new Range(new CompInteger(intLength), new CompInteger(IntType.getLongestIntSize()));
+            resultRange = new Range(CompInteger.valueOf(intLength), CompInteger.valueOf(IntType.getLongestIntSize()));
           } else {
             // others, we can give the precise range at the compile time
             resultRange = new Range(IntType.getSize(oprdType));
@@ -1501,7 +1555,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
             if(!intType.isNotInt()) {
               // integers
               int intLength = intType.getSize();
-              resultRange = new Range(new CompInteger(intLength), new CompInteger(IntType.getLongestIntSize()));
+              resultRange = new Range(CompInteger.valueOf(intLength), CompInteger.valueOf(IntType.getLongestIntSize()));
             } else {
               resultRange = new Range(IntType.getSize(realType));
             }
@@ -1524,7 +1578,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
             // integers
             // NOTE: for integers, the results of alignof and sizeof are the same
             int intLength = intType.getSize();
-            resultRange = new Range(new CompInteger(intLength), new CompInteger(IntType.getLongestIntSize()));
+            resultRange = new Range(CompInteger.valueOf(intLength), CompInteger.valueOf(IntType.getLongestIntSize()));
           } else {
             resultRange = new Range(IntType.getAlignof(oprdType));
           }
@@ -1535,7 +1589,7 @@ public class RangeTransferRelation extends ForwardingTransferRelation<Collection
             if(!intType.isNotInt()) {
               // integers
               int intLength = intType.getSize();
-              resultRange = new Range(new CompInteger(intLength), new CompInteger(IntType.getLongestIntSize()));
+              resultRange = new Range(CompInteger.valueOf(intLength), CompInteger.valueOf(IntType.getLongestIntSize()));
             } else {
               resultRange = new Range(IntType.getAlignof(realType));
             }
@@ -0,0 +1,163 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.cfa.ast.c.CBinaryExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CCastExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CExpressionAssignmentStatement;
+import org.sosy_lab.cpachecker.cfa.ast.c.CExpressionStatement;
+import org.sosy_lab.cpachecker.cfa.ast.c.CInitializer;
+import org.sosy_lab.cpachecker.cfa.ast.c.CInitializerExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CIntegerLiteralExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CStatement;
+import org.sosy_lab.cpachecker.cfa.ast.c.CUnaryExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CUnaryExpression.UnaryOperator;
+import org.sosy_lab.cpachecker.cfa.ast.c.CVariableDeclaration;
+import org.sosy_lab.cpachecker.cfa.ast.c.DefaultCExpressionVisitor;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.cfa.model.c.CAssumeEdge;
+import org.sosy_lab.cpachecker.cfa.model.c.CDeclarationEdge;
+import org.sosy_lab.cpachecker.cfa.model.c.CStatementEdge;
+import org.sosy_lab.cpachecker.cfa.types.c.CNumericTypes;
+import org.sosy_lab.cpachecker.cfa.types.c.CSimpleType;
+import org.sosy_lab.cpachecker.util.CFAUtils;
+
+/**
+ * Thresholds for widening ranges. Instead of jumping to infinity, a widened bound stops at the nearest
+ * threshold, which keeps ranges finite for most loops. Thresholds are bounds of integer types and,
+ * optionally, integer constants in the program (typically loop bounds).
+ */
+class RangeWideningThresholds {
+
+  private static final CSimpleType[] integerTypes = {
+    CNumericTypes.SIGNED_CHAR, CNumericTypes.UNSIGNED_CHAR,
+    CNumericTypes.SHORT_INT, CNumericTypes.UNSIGNED_SHORT_INT,
+    CNumericTypes.INT, CNumericTypes.UNSIGNED_INT,
+    CNumericTypes.LONG_INT, CNumericTypes.UNSIGNED_LONG_INT,
+    CNumericTypes.LONG_LONG_INT, CNumericTypes.UNSIGNED_LONG_LONG_INT
+  };
+
+  private final NavigableSet<CompInteger> thresholds = new TreeSet<>();
+
+  RangeWideningThresholds(CFA cfa, boolean collectConstants) {
+    for(CSimpleType type : integerTypes) {
+      Range typeRange = IntType.getTypeRange(type);
+      thresholds.add(typeRange.getLow());
+      thresholds.add(typeRange.getHigh());
+    }
+    if(collectConstants) {
+      ConstantCollector collector = new ConstantCollector();
+      for(CFANode node : cfa.getAllNodes()) {
+        for(CFAEdge edge : CFAUtils.leavingEdges(node)) {
+          collectConstants(edge, collector);
+        }
+      }
+    }
+  }
+
+  /**
+   * The largest threshold not greater than the given value, or negative infinity
+   */
+  CompInteger below(CompInteger value) {
+    CompInteger threshold = thresholds.floor(value);
+    return threshold == null ? CompInteger.infneg : threshold;
+  }
+
+  /**
+   * The smallest threshold not less than the given value, or positive infinity
+   */
+  CompInteger above(CompInteger value) {
+    CompInteger threshold = thresholds.ceiling(value);
+    return threshold == null ? CompInteger.infpos : threshold;
+  }
+
+  int size() {
+    return thresholds.size();
+  }
+
+  private void collectConstants(CFAEdge edge, ConstantCollector collector) {
+    if(edge instanceof CAssumeEdge) {
+      ((CAssumeEdge) edge).getExpression().accept(collector);
+    } else if(edge instanceof CStatementEdge) {
+      CStatement statement = ((CStatementEdge) edge).getStatement();
+      if(statement instanceof CExpressionAssignmentStatement) {
+        ((CExpressionAssignmentStatement) statement).getRightHandSide().accept(collector);
+      } else if(statement instanceof CExpressionStatement) {
+        ((CExpressionStatement) statement).getExpression().accept(collector);
+      }
+    } else if(edge instanceof CDeclarationEdge) {
+      if(((CDeclarationEdge) edge).getDeclaration() instanceof CVariableDeclaration) {
+        CInitializer init = ((CVariableDeclaration) ((CDeclarationEdge) edge).getDeclaration()).getInitializer();
+        if(init instanceof CInitializerExpression) {
+          ((CInitializerExpression) init).getExpression().accept(collector);
+        }
+      }
+    }
+  }
+
+  private class ConstantCollector extends DefaultCExpressionVisitor<Void, RuntimeException> {
+
+    @Override
+    protected Void visitDefault(CExpression exp) {
+      return null;
+    }
+
+    @Override
+    public Void visit(CIntegerLiteralExpression exp) {
+      thresholds.add(new CompInteger(exp.getValue()));
+      return null;
+    }
+
+    @Override
+    public Void visit(CBinaryExpression exp) {
+      exp.getOperand1().accept(this);
+      exp.getOperand2().accept(this);
+      return null;
+    }
+
+    @Override
+    public Void visit(CUnaryExpression exp) {
+      CExpression operand = exp.getOperand();
+      if(exp.getOperator() == UnaryOperator.MINUS && operand instanceof CIntegerLiteralExpression) {
+        thresholds.add(new CompInteger(((CIntegerLiteralExpression) operand).getValue().negate()));
+      } else {
+        operand.accept(this);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(CCastExpression exp) {
+      exp.getOperand().accept(this);
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,407 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.sosy_lab.common.collect.PersistentMap;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.cpachecker.cfa.CFA;
+import org.sosy_lab.cpachecker.cfa.ast.FileLocation;
+import org.sosy_lab.cpachecker.cfa.ast.c.CAssignment;
+import org.sosy_lab.cpachecker.cfa.ast.c.CBinaryExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CCastExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CCharLiteralExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CDeclaration;
+import org.sosy_lab.cpachecker.cfa.ast.c.CExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionCall;
+import org.sosy_lab.cpachecker.cfa.ast.c.CIdExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CIntegerLiteralExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CLeftHandSide;
+import org.sosy_lab.cpachecker.cfa.ast.c.CParameterDeclaration;
+import org.sosy_lab.cpachecker.cfa.ast.c.CSimpleDeclaration;
+import org.sosy_lab.cpachecker.cfa.ast.c.CStatement;
+import org.sosy_lab.cpachecker.cfa.ast.c.CUnaryExpression;
+import org.sosy_lab.cpachecker.cfa.ast.c.CUnaryExpression.UnaryOperator;
+import org.sosy_lab.cpachecker.cfa.ast.c.CVariableDeclaration;
+import org.sosy_lab.cpachecker.cfa.ast.c.DefaultCExpressionVisitor;
+import org.sosy_lab.cpachecker.cfa.model.BlankEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdgeType;
+import org.sosy_lab.cpachecker.cfa.model.CFANode;
+import org.sosy_lab.cpachecker.cfa.model.c.CDeclarationEdge;
+import org.sosy_lab.cpachecker.cfa.model.c.CStatementEdge;
+import org.sosy_lab.cpachecker.util.CFAUtils;
+import org.sosy_lab.cpachecker.util.LoopStructure;
+import org.sosy_lab.cpachecker.util.LoopStructure.Loop;
+import org.sosy_lab.cpachecker.util.VariableClassification;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * Post-analysis pass over loc2Guide that reduces the runtime cost of sanity checks.
+ *
+ * (1) A check is removed if the ranges of its expression, joined over all evaluations, fit in the
+ * checked type. This is the same criterion used for return statements when the guide is generated.
+ * (2) A check on a loop-invariant expression is hoisted before the innermost loop statement
+ * enclosing it, if the check is evaluated in the first iteration whenever the loop is entered.
+ * Otherwise a hoisted check could fail on executions that never reach the original one.
+ *
+ * The pass is conservative: hoisting is given up for loops containing function calls, and for loops
+ * writing memory through pointers unless the variables of the expression are locals whose addresses
+ * are never taken.
+ */
+@Options(prefix="cpa.range")
+class SanityCheckOptimizer {
+
+  @Option(secure=true, description="remove sanity checks whose expressions are proven by the analysis "
+      + "to be in the range of the checked type")
+  private boolean removeProvenChecks = true;
+
+  @Option(secure=true, description="hoist sanity checks on loop-invariant expressions before loops")
+  private boolean hoistInvariantChecks = true;
+
+  /**
+   * Maximum number of initialization edges between a for-statement and its loop head
+   */
+  private static final int MAX_INIT_EDGES = 8;
+
+  private static final ImmutableSet<String> LOOP_STATEMENTS = ImmutableSet.of("while", "do", "for");
+
+  private final LogManager logger;
+  private final Optional<LoopStructure> loopStructure;
+  private final Optional<VariableClassification> varClassification;
+
+  // metadata is usually fetched once after the analysis, but the result is cached for repeated calls
+  private PersistentMap<FileLocation, FixGuide> lastInput = null;
+  private PersistentMap<FileLocation, FixGuide> lastOutput = null;
+
+  private int checkCount = 0;
+  private int removedChecks = 0;
+  private int hoistedChecks = 0;
+
+  SanityCheckOptimizer(Configuration config, LogManager logger, CFA cfa) throws InvalidConfigurationException {
+    config.inject(this);
+    this.logger = logger;
+    this.loopStructure = cfa.getLoopStructure();
+    this.varClassification = cfa.getVarClassification();
+  }
+
+  synchronized PersistentMap<FileLocation, FixGuide> optimize(PersistentMap<FileLocation, FixGuide> loc2Guide,
+      PersistentMap<FileLocation, SanityCheckSite> checkSites) {
+    if(loc2Guide == lastInput) {
+      return lastOutput;
+    }
+    checkCount = 0;
+    removedChecks = 0;
+    hoistedChecks = 0;
+    PersistentMap<FileLocation, FixGuide> result = loc2Guide;
+    for(Entry<FileLocation, FixGuide> entry : loc2Guide.entrySet()) {
+      FileLocation loc = entry.getKey();
+      FixGuide guide = entry.getValue();
+      if(!guide.isIntVar() || !guide.needSanityCheck() || guide.getRefLevel() != -1) {
+        // bit-shift fixes are not sanity checks on values
+        continue;
+      }
+      checkCount++;
+      SanityCheckSite site = checkSites.get(loc);
+      if(site == null) {
+        continue;
+      }
+      if(removeProvenChecks && site.isProvenSafe(guide.getBaseType())) {
+        result = result.removeAndCopy(loc);
+        removedChecks++;
+      } else if(hoistInvariantChecks && loopStructure.isPresent()) {
+        FileLocation loopLoc = findHoistLocation(loc, site);
+        if(loopLoc != null) {
+          result = result.putAndCopy(loc, guide.hoistTo(loopLoc));
+          hoistedChecks++;
+        }
+      }
+    }
+    logger.log(Level.INFO, "Sanity checks:", checkCount, "in total,", removedChecks, "removed,",
+        hoistedChecks, "hoisted out of loops");
+    lastInput = loc2Guide;
+    lastOutput = result;
+    return result;
+  }
+
+  synchronized int getCheckCount() {
+    return checkCount;
+  }
+
+  synchronized int getRemovedChecks() {
+    return removedChecks;
+  }
+
+  synchronized int getHoistedChecks() {
+    return hoistedChecks;
+  }
+
+  /**
+   * Find the location of the loop statement before which the check can be hoisted.
+   * @return the location, or null if the check cannot be hoisted
+   */
+  private FileLocation findHoistLocation(FileLocation loc, SanityCheckSite site) {
+    if(!(site.getExpression() instanceof CExpression)) {
+      return null;
+    }
+    InvariantCandidateVisitor visitor = new InvariantCandidateVisitor();
+    if(!((CExpression) site.getExpression()).accept(visitor)) {
+      return null;
+    }
+
+    // the check is performed on leaving any of these nodes
+    Set<CFANode> checkNodes = new HashSet<>();
+    for(CFAEdge edge : site.getEdges()) {
+      checkNodes.add(edge.getPredecessor());
+    }
+    for(CFANode node : checkNodes) {
+      if(!site.getEdges().containsAll(CFAUtils.leavingEdges(node).toSet())) {
+        return null;
+      }
+    }
+    Loop loop = findInnermostLoop(checkNodes);
+    if(loop == null || loop.getIncomingEdges().size() != 1) {
+      return null;
+    }
+
+    // walk back from the loop entry to the edge of loop statement, passing initializers of for-loop
+    CFAEdge entryEdge = Iterables.getOnlyElement(loop.getIncomingEdges());
+    List<CFAEdge> initEdges = new ArrayList<>();
+    CFAEdge anchor = entryEdge;
+    while(!isLoopStatementEdge(anchor)) {
+      initEdges.add(anchor);
+      CFANode pred = anchor.getPredecessor();
+      if(initEdges.size() > MAX_INIT_EDGES || pred.getNumEnteringEdges() != 1 || pred.getNumLeavingEdges() != 1) {
+        return null;
+      }
+      anchor = pred.getEnteringEdge(0);
+    }
+    FileLocation loopLoc = anchor.getFileLocation();
+    if(!loopLoc.getFileName().equals(loc.getFileName()) || loopLoc.getNodeOffset() > loc.getNodeOffset()
+        || loopLoc.getNodeOffset() + loopLoc.getNodeLength() < loc.getNodeOffset() + loc.getNodeLength()) {
+      return null;
+    }
+
+    // the expression should be evaluated to the same value before the loop statement
+    boolean memoryWritesAllowed = visitor.onlyLocals && varClassification.isPresent()
+        && !Iterables.any(visitor.variables, Predicates.in(varClassification.get().getAddressedVariables()));
+    for(CFANode node : loop.getLoopNodes()) {
+      for(CFAEdge edge : CFAUtils.allLeavingEdges(node)) {
+        if(edge.getEdgeType() == CFAEdgeType.FunctionCallEdge || edge.getEdgeType() == CFAEdgeType.CallToReturnEdge) {
+          return null;
+        }
+      }
+    }
+    for(CFAEdge edge : Iterables.concat(loop.getInnerLoopEdges(), initEdges)) {
+      if(!preservesVariables(edge, visitor.variables, memoryWritesAllowed)) {
+        return null;
+      }
+    }
+
+    if(!isExecutedOnEntry(loop, entryEdge.getSuccessor(), checkNodes)) {
+      return null;
+    }
+    return loopLoc;
+  }
+
+  private Loop findInnermostLoop(Set<CFANode> nodes) {
+    String function = nodes.iterator().next().getFunctionName();
+    Loop innermost = null;
+    for(Loop loop : loopStructure.get().getLoopsForFunction(function)) {
+      if(loop.getLoopNodes().containsAll(nodes)
+          && (innermost == null || loop.getLoopNodes().size() < innermost.getLoopNodes().size())) {
+        innermost = loop;
+      }
+    }
+    return innermost;
+  }
+
+  private static boolean isLoopStatementEdge(CFAEdge edge) {
+    return edge instanceof BlankEdge && LOOP_STATEMENTS.contains(edge.getDescription());
+  }
+
+  /**
+   * Check whether the edge never changes the values of given variables.
+   * @param memoryWritesAllowed whether writing memory through pointers, arrays and fields is harmless
+   */
+  private static boolean preservesVariables(CFAEdge edge, Set<String> variables, boolean memoryWritesAllowed) {
+    switch(edge.getEdgeType()) {
+    case BlankEdge:
+    case AssumeEdge:
+      return true;
+    case DeclarationEdge: {
+      CDeclaration decl = ((CDeclarationEdge) edge).getDeclaration();
+      return !variables.contains(decl.getQualifiedName());
+    }
+    case StatementEdge: {
+      CStatement stmt = ((CStatementEdge) edge).getStatement();
+      if(stmt instanceof CFunctionCall) {
+        return false;
+      }
+      if(stmt instanceof CAssignment) {
+        CLeftHandSide lhs = ((CAssignment) stmt).getLeftHandSide();
+        if(lhs instanceof CIdExpression) {
+          return !variables.contains(((CIdExpression) lhs).getDeclaration().getQualifiedName());
+        }
+        return memoryWritesAllowed;
+      }
+      return true;
+    }
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Check whether every path entering the loop leaves one of the check nodes before it leaves the
+   * loop, terminates, or starts another iteration. That is, there is no path from the entry to the
+   * outside of loop, a dead end, or a cycle without passing the check nodes.
+   */
+  private static boolean isExecutedOnEntry(Loop loop, CFANode entry, Set<CFANode> checkNodes) {
+    if(checkNodes.contains(entry)) {
+      return true;
+    }
+    Set<CFAEdge> innerEdges = loop.getInnerLoopEdges();
+    Set<CFANode> visited = new HashSet<>();
+    Set<CFANode> onPath = new HashSet<>();
+    Deque<CFANode> path = new ArrayDeque<>();
+    Deque<Iterator<CFAEdge>> pending = new ArrayDeque<>();
+    if(!canContinue(entry, innerEdges)) {
+      return false;
+    }
+    visited.add(entry);
+    onPath.add(entry);
+    path.push(entry);
+    pending.push(CFAUtils.leavingEdges(entry).iterator());
+    while(!pending.isEmpty()) {
+      Iterator<CFAEdge> edges = pending.peek();
+      if(!edges.hasNext()) {
+        pending.pop();
+        onPath.remove(path.pop());
+        continue;
+      }
+      CFANode succ = edges.next().getSuccessor();
+      if(checkNodes.contains(succ)) {
+        continue;
+      }
+      if(onPath.contains(succ)) {
+        // this cycle never performs the check
+        return false;
+      }
+      if(!visited.add(succ)) {
+        continue;
+      }
+      if(!canContinue(succ, innerEdges)) {
+        return false;
+      }
+      onPath.add(succ);
+      path.push(succ);
+      pending.push(CFAUtils.leavingEdges(succ).iterator());
+    }
+    return true;
+  }
+
+  private static boolean canContinue(CFANode node, Set<CFAEdge> innerEdges) {
+    if(node.getNumLeavingEdges() == 0) {
+      return false;
+    }
+    return innerEdges.containsAll(CFAUtils.leavingEdges(node).toSet());
+  }
+
+  /**
+   * Accept expressions consisting of integer variables and literals only, and collect the variables.
+   * Such expressions have no side effects and no memory accesses.
+   */
+  private static class InvariantCandidateVisitor extends DefaultCExpressionVisitor<Boolean, RuntimeException> {
+
+    private final Set<String> variables = new HashSet<>();
+    private boolean onlyLocals = true;
+
+    @Override
+    protected Boolean visitDefault(CExpression exp) {
+      return false;
+    }
+
+    @Override
+    public Boolean visit(CIdExpression exp) {
+      CSimpleDeclaration decl = exp.getDeclaration();
+      if(decl instanceof CVariableDeclaration) {
+        if(((CVariableDeclaration) decl).isGlobal()) {
+          onlyLocals = false;
+        }
+      } else if(!(decl instanceof CParameterDeclaration)) {
+        return false;
+      }
+      if(decl.getType().isVolatile()) {
+        return false;
+      }
+      variables.add(decl.getQualifiedName());
+      return true;
+    }
+
+    @Override
+    public Boolean visit(CIntegerLiteralExpression exp) {
+      return true;
+    }
+
+    @Override
+    public Boolean visit(CCharLiteralExpression exp) {
+      return true;
+    }
+
+    @Override
+    public Boolean visit(CBinaryExpression exp) {
+      return exp.getOperand1().accept(this) && exp.getOperand2().accept(this);
+    }
+
+    @Override
+    public Boolean visit(CCastExpression exp) {
+      return exp.getOperand().accept(this);
+    }
+
+    @Override
+    public Boolean visit(CUnaryExpression exp) {
+      UnaryOperator op = exp.getOperator();
+      return (op == UnaryOperator.MINUS || op == UnaryOperator.TILDE) && exp.getOperand().accept(this);
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import javax.annotation.Nullable;
+
+import org.sosy_lab.cpachecker.cfa.ast.c.CRightHandSide;
+import org.sosy_lab.cpachecker.cfa.model.CFAEdge;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An expression enclosed by a sanity check, with the edges on which it is evaluated and the join of
+ * its ranges over all evaluations. Since every reached state is evaluated by the transfer relation,
+ * the joined range covers the final ranges of the expression once the analysis terminates.
+ */
+final class SanityCheckSite {
+
+  private final CRightHandSide expression;
+  private final ImmutableSet<CFAEdge> edges;
+  /**
+   * Null if some evaluation is not bounded, e.g. the range is unknown or it overflows the type of
+   * the expression itself.
+   */
+  private final @Nullable Range range;
+
+  private SanityCheckSite(CRightHandSide expression, ImmutableSet<CFAEdge> edges, @Nullable Range range) {
+    this.expression = expression;
+    this.edges = edges;
+    this.range = range;
+  }
+
+  static SanityCheckSite of(CFAEdge edge, CRightHandSide expression, Range range, IntType type) {
+    boolean bounded = !range.isEmpty() && !type.isNotInt() && type.getTypeRange().contains(range);
+    return new SanityCheckSite(expression, ImmutableSet.of(edge), bounded ? range : null);
+  }
+
+  SanityCheckSite merge(SanityCheckSite other) {
+    ImmutableSet<CFAEdge> newEdges = edges.containsAll(other.edges) ? edges
+        : ImmutableSet.<CFAEdge>builder().addAll(edges).addAll(other.edges).build();
+    Range newRange = (range == null || other.range == null) ? null : range.union(other.range);
+    if(newEdges == edges && Objects.equal(newRange, range)) {
+      return this;
+    }
+    return new SanityCheckSite(expression, newEdges, newRange);
+  }
+
+  CRightHandSide getExpression() {
+    return expression;
+  }
+
+  ImmutableSet<CFAEdge> getEdges() {
+    return edges;
+  }
+
+  /**
+   * Check whether all the values of the expression fit in the given type, thus the check never fails.
+   */
+  boolean isProvenSafe(IntType type) {
+    return range != null && !type.isNotInt() && type.getTypeRange().contains(range);
+  }
+
+}
@@ -0,0 +1,601 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.Triple;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+import org.sosy_lab.common.log.LogManager;
+import org.sosy_lab.common.rationals.Rational;
+import org.sosy_lab.solver.AssignableTerm;
+import org.sosy_lab.solver.FormulaManagerFactory;
+import org.sosy_lab.solver.FormulaManagerFactory.Solvers;
+import org.sosy_lab.solver.Model;
+import org.sosy_lab.solver.SolverException;
+import org.sosy_lab.solver.api.BooleanFormula;
+import org.sosy_lab.solver.api.BooleanFormulaManager;
+import org.sosy_lab.solver.api.FormulaManager;
+import org.sosy_lab.solver.api.NumeralFormula.IntegerFormula;
+import org.sosy_lab.solver.api.NumeralFormulaManager;
+import org.sosy_lab.solver.api.OptEnvironment;
+import org.sosy_lab.solver.api.OptEnvironment.OptStatus;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * This class solves type constraints as a Max-SMT problem with an in-process solver.
+ * It is the counterpart of {@link ConstraintGenerator}: the same problem is built directly as formulas,
+ * thus no SMT-LIB2 text is generated and no solver process is started.
+ *
+ * Since {@link OptEnvironment} has no soft assertions, each soft constraint contributes a penalty of its
+ * weight when it is violated, and the sum of penalties is minimized. Types are encoded as integers by
+ * their indices in {@link #types}.
+ *
+ * One solver can be shared by multiple translation units. Type constraints are partitioned into
+ * independent components (see {@link ConstraintPartition}), which are solved in parallel on a pool of
+ * solver contexts since a single context is not thread-safe. Solutions of components are cached, thus
+ * components that do not change since the last run are not solved again. The cache can be saved to and
+ * loaded from a file (see {@link #saveSolutions(Path)}), thus unchanged components are also reused across runs.
+ * The solver should be closed after use to release the solver contexts and the pool of threads.
+ */
+@Options(prefix="cpa.range")
+public class TypeConstraintSolver implements AutoCloseable {
+
+  @Option(secure=true, description="which SMT solver to use for type constraints. The solver should support optimization.")
+  private Solvers typeSolver = Solvers.Z3;
+
+  @Option(secure=true, description="number of solver contexts for solving independent components of type constraints in parallel")
+  private int typeSolverThreads = Runtime.getRuntime().availableProcessors();
+
+  @Option(secure=true, description="maximum number of solved components of type constraints kept in cache, 0 to disable caching")
+  private int typeSolverCacheSize = 10000;
+
+  /**
+   * Types in the same order of datatype declaration in {@link ConstraintGenerator}
+   */
+  private static final List<String> types = ImmutableList.of("CHAR", "UCHAR", "SHORT", "USHORT", "INT", "UINT", "LINT", "ULINT", "LLINT", "ULLINT", "OVERLONG");
+  private static final int OVERLONG = types.size() - 1;
+
+  /**
+   * Predicate P(x, y): type x can hold all values of type y. The relation is the same as the definition of P in
+   * {@link ConstraintGenerator}.
+   */
+  private static final boolean[][] holds = new boolean[types.size()][types.size()];
+
+  static {
+    putHolds("CHAR", "CHAR");
+    putHolds("UCHAR", "UCHAR");
+    putHolds("SHORT", "CHAR", "UCHAR", "SHORT");
+    putHolds("USHORT", "UCHAR", "USHORT");
+    putHolds("INT", "CHAR", "UCHAR", "SHORT", "USHORT", "INT");
+    putHolds("UINT", "UCHAR", "USHORT", "UINT");
+    putHolds("LINT", "CHAR", "UCHAR", "SHORT", "USHORT", "INT", "UINT", "LINT");
+    putHolds("ULINT", "UCHAR", "USHORT", "UINT", "ULINT");
+    putHolds("LLINT", "CHAR", "UCHAR", "SHORT", "USHORT", "INT", "UINT", "LINT", "LLINT");
+    putHolds("ULLINT", "UCHAR", "USHORT", "UINT", "ULINT", "ULLINT");
+    putHolds("OVERLONG", types.toArray(new String[types.size()]));
+  }
+
+  private static void putHolds(String holder, String... holdees) {
+    for(String holdee : holdees) {
+      holds[types.indexOf(holder)][types.indexOf(holdee)] = true;
+    }
+  }
+
+  private static final String predDP = "dp";
+  private static final String predP = "p";
+  private static final String predEq = "eq";
+
+  /**
+   * Formula managers of one solver context
+   */
+  private static class SolverContext {
+
+    private final FormulaManager fmgr;
+    private final BooleanFormulaManager bfmgr;
+    private final NumeralFormulaManager<IntegerFormula, IntegerFormula> ifmgr;
+
+    private SolverContext(FormulaManager fmgr) {
+      this.fmgr = fmgr;
+      this.bfmgr = fmgr.getBooleanFormulaManager();
+      this.ifmgr = fmgr.getIntegerFormulaManager();
+    }
+  }
+
+  /**
+   * Optimal types of variables in one component and the penalty of violated soft constraints
+   */
+  private static class ComponentSolution {
+
+    private final Map<String, IntType> typeMap;
+    private final Rational penalty;
+
+    private ComponentSolution(Map<String, IntType> typeMap, Rational penalty) {
+      this.typeMap = typeMap;
+      this.penalty = penalty;
+    }
+
+    /**
+     * The same solution with variables renamed by the specified map. Variables not in the map are kept.
+     */
+    private ComponentSolution rename(Map<String, String> names) {
+      if(names.isEmpty()) {
+        return this;
+      }
+      Map<String, IntType> renamed = new HashMap<>();
+      for(Entry<String, IntType> entry : typeMap.entrySet()) {
+        String name = names.get(entry.getKey());
+        renamed.put(name == null ? entry.getKey() : name, entry.getValue());
+      }
+      return new ComponentSolution(renamed, penalty);
+    }
+  }
+
+  private final LogManager logger;
+  private final BlockingQueue<SolverContext> contexts;
+  private final ExecutorService executor;
+  /**
+   * Digest of component (constraints and their weights) -> solution, with temporary names canonicalized
+   * (see {@link #canonicalNames(List)})
+   */
+  private final Cache<String, ComponentSolution> cache;
+
+  public TypeConstraintSolver(Configuration config, LogManager logger, ShutdownNotifier shutdownNotifier) throws InvalidConfigurationException {
+    config.inject(this);
+    this.logger = logger;
+    Configuration solverConfig = Configuration.builder()
+        .copyFrom(config)
+        .setOption("solver.solver", typeSolver.name())
+        .build();
+    int threads = Math.max(1, typeSolverThreads);
+    contexts = new ArrayBlockingQueue<>(threads);
+    for(int i = 0; i < threads; i++) {
+      contexts.add(new SolverContext(new FormulaManagerFactory(solverConfig, logger, shutdownNotifier).getFormulaManager()));
+    }
+    if(threads > 1) {
+      executor = Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setNameFormat("type-solver-%d").setDaemon(true).build());
+    } else {
+      executor = null;
+    }
+    cache = CacheBuilder.newBuilder().maximumSize(Math.max(0, typeSolverCacheSize)).build();
+  }
+
+  static boolean isTypeConstant(String name) {
+    return types.contains(name);
+  }
+
+  /**
+   * Solve type constraints. This method can be called by multiple threads.
+   *
+   * @param constraints type constraints generated by range analysis
+   * @return the optimal type of each variable, keyed by qualified names
+   */
+  public Map<String, IntType> solve(Iterable<Constraint> constraints) throws SolverException, InterruptedException {
+    List<List<Constraint>> components = ConstraintPartition.partition(constraints);
+    List<ComponentSolution> solutions = new ArrayList<>(components.size());
+    List<String> keys = new ArrayList<>(components.size());
+    List<Map<String, String>> canonicalNames = new ArrayList<>(components.size());
+    Map<Integer, Future<ComponentSolution>> pending = new HashMap<>();
+    int cacheHits = 0;
+
+    for(int i = 0; i < components.size(); i++) {
+      final List<Constraint> component = components.get(i);
+      Map<String, String> names = canonicalNames(component);
+      String key = componentKey(component, names);
+      keys.add(key);
+      canonicalNames.add(names);
+      ComponentSolution solution = cache.getIfPresent(key);
+      if(solution != null) {
+        cacheHits++;
+        solution = solution.rename(inverse(names));
+      } else if(executor == null) {
+        solution = solveComponent(component);
+        cache.put(key, solution.rename(names));
+      } else {
+        pending.put(i, executor.submit(new Callable<ComponentSolution>() {
+          @Override
+          public ComponentSolution call() throws SolverException, InterruptedException {
+            return solveComponent(component);
+          }
+        }));
+      }
+      solutions.add(solution);
+    }
+
+    try {
+      for(Entry<Integer, Future<ComponentSolution>> entry : pending.entrySet()) {
+        int index = entry.getKey();
+        ComponentSolution solution = entry.getValue().get();
+        cache.put(keys.get(index), solution.rename(canonicalNames.get(index)));
+        solutions.set(index, solution);
+      }
+    } catch(ExecutionException ex) {
+      Throwables.propagateIfPossible(ex.getCause(), SolverException.class, InterruptedException.class);
+      throw new SolverException("Failed to solve type constraints", ex.getCause());
+    } finally {
+      for(Future<ComponentSolution> future : pending.values()) {
+        future.cancel(true);
+      }
+    }
+
+    // models of independent components are merged
+    Map<String, IntType> result = new HashMap<>();
+    Rational penalty = Rational.ZERO;
+    for(ComponentSolution solution : solutions) {
+      result.putAll(solution.typeMap);
+      penalty = penalty.plus(solution.penalty);
+    }
+    logger.log(Level.INFO, "Solved", components.size(), "components of type constraints,", cacheHits, "from cache.");
+    logger.log(Level.INFO, "Penalty of type constraints:", penalty);
+    return result;
+  }
+
+  /**
+   * Canonical names of temporary variables (see {@link RangeTransferRelation#intermPrefix}) in a component.
+   * Temporary variables are numbered in a translation unit, thus the same component has different temporary
+   * names if code before it changes. They are renumbered from 0 in the order of their original numbers, which
+   * are generated in the same order for the same component.
+   *
+   * @return original name -> canonical name of each temporary variable
+   */
+  static Map<String, String> canonicalNames(List<Constraint> component) {
+    Map<Long, String> temporaries = new TreeMap<>();
+    for(Constraint constraint : component) {
+      for(int i = 0; i < constraint.getPredicateSize(); i++) {
+        Triple<String, String, String> predicate = constraint.getPredicate(i);
+        putTemporary(predicate.getSecond(), temporaries);
+        putTemporary(predicate.getThird(), temporaries);
+      }
+    }
+    Map<String, String> names = new HashMap<>();
+    for(String name : temporaries.values()) {
+      names.put(name, RangeTransferRelation.intermPrefix + names.size());
+    }
+    return names;
+  }
+
+  private static void putTemporary(String name, Map<Long, String> temporaries) {
+    if(!name.startsWith(RangeTransferRelation.intermPrefix)) {
+      return;
+    }
+    try {
+      temporaries.put(Long.parseLong(name.substring(RangeTransferRelation.intermPrefix.length())), name);
+    } catch(NumberFormatException ex) {
+      // not a generated name, which is kept as it is
+    }
+  }
+
+  private static Map<String, String> inverse(Map<String, String> names) {
+    Map<String, String> inverse = new HashMap<>();
+    for(Entry<String, String> entry : names.entrySet()) {
+      inverse.put(entry.getValue(), entry.getKey());
+    }
+    return inverse;
+  }
+
+  /**
+   * The key of a component in cache. Weights are copied since they are not a part of constraint equality and
+   * interned constraints can have their weights updated. The key is a digest of the textual form of the
+   * component with canonical temporary names, which is independent of the order of constraints and stable
+   * across runs.
+   */
+  static String componentKey(List<Constraint> component) {
+    return componentKey(component, canonicalNames(component));
+  }
+
+  private static String componentKey(List<Constraint> component, Map<String, String> names) {
+    Map<Constraint, Integer> weights = new HashMap<>();
+    for(Constraint constraint : component) {
+      Integer weight = weights.get(constraint);
+      weights.put(constraint, weight == null ? constraint.getWeight() : weight + constraint.getWeight());
+    }
+    List<String> lines = new ArrayList<>(weights.size());
+    for(Entry<Constraint, Integer> entry : weights.entrySet()) {
+      Constraint constraint = entry.getKey();
+      List<Triple<String, String, String>> predicates = new ArrayList<>(constraint.getPredicateSize());
+      for(int i = 0; i < constraint.getPredicateSize(); i++) {
+        Triple<String, String, String> predicate = constraint.getPredicate(i);
+        predicates.add(Triple.of(predicate.getFirst(), rename(predicate.getSecond(), names),
+            rename(predicate.getThird(), names)));
+      }
+      lines.add((constraint.getSoftness() ? "soft" : "hard") + predicates + "*" + entry.getValue());
+    }
+    Collections.sort(lines);
+    Hasher hasher = Hashing.sha256().newHasher();
+    for(String line : lines) {
+      hasher.putString(line, StandardCharsets.UTF_8).putChar('\n');
+    }
+    return hasher.hash().toString();
+  }
+
+  private static String rename(String name, Map<String, String> names) {
+    String renamed = names.get(name);
+    return renamed == null ? name : renamed;
+  }
+
+  /**
+   * Save the cached solutions into the specified file. Each line holds the digest and the penalty of a component
+   * followed by the types of its variables.
+   */
+  public void saveSolutions(Path file) throws IOException {
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+      for(Entry<String, ComponentSolution> entry : cache.asMap().entrySet()) {
+        ComponentSolution solution = entry.getValue();
+        writer.write(entry.getKey());
+        writer.write('\t');
+        writer.write(solution.penalty.toString());
+        for(Entry<String, IntType> typeEntry : solution.typeMap.entrySet()) {
+          writer.write('\t');
+          writer.write(typeEntry.getKey());
+          writer.write('=');
+          writer.write(typeEntry.getValue().toOBJString());
+        }
+        writer.newLine();
+      }
+    }
+    // the file is replaced at once, thus a concurrent reader never sees a partial file
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Load solutions saved by {@link #saveSolutions(Path)} into the cache. Malformed lines are skipped.
+   *
+   * @return the number of loaded solutions
+   */
+  public int loadSolutions(Path file) throws IOException {
+    int loaded = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if(fields.length < 2) {
+          continue;
+        }
+        try {
+          Rational penalty = Rational.ofString(fields[1]);
+          Map<String, IntType> typeMap = new HashMap<>();
+          for(int i = 2; i < fields.length; i++) {
+            int splitter = fields[i].lastIndexOf('=');
+            if(splitter < 0) {
+              throw new IllegalArgumentException(fields[i]);
+            }
+            typeMap.put(fields[i].substring(0, splitter), IntType.fromOBJString(fields[i].substring(splitter + 1)));
+          }
+          cache.put(fields[0], new ComponentSolution(typeMap, penalty));
+          loaded++;
+        } catch(IllegalArgumentException | IndexOutOfBoundsException ex) {
+          logger.log(Level.WARNING, "Skipped malformed solution of type constraints in", file);
+        }
+      }
+    }
+    return loaded;
+  }
+
+  private ComponentSolution solveComponent(List<Constraint> component) throws SolverException, InterruptedException {
+    SolverContext context = contexts.take();
+    try {
+      return solveComponent(component, context);
+    } finally {
+      contexts.add(context);
+    }
+  }
+
+  private ComponentSolution solveComponent(List<Constraint> component, SolverContext ctx) throws SolverException, InterruptedException {
+    // symbol name -> variable, the symbol name is the qualified name with "::" replaced (see ConstraintGenerator)
+    Map<String, IntegerFormula> variables = new HashMap<>();
+    List<IntegerFormula> penalties = new ArrayList<>();
+    IntegerFormula zero = ctx.ifmgr.makeNumber(0);
+
+    try(OptEnvironment env = ctx.fmgr.newOptEnvironment()) {
+      for(Constraint assertion : component) {
+        int size = assertion.getPredicateSize();
+        if(size <= 0) {
+          continue;
+        }
+        List<BooleanFormula> clauses = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+          Triple<String, String, String> pair = assertion.getPredicate(i);
+          String pred = pair.getFirst();
+          if(pred.equals(predP) || pred.equals(predDP)) {
+            clauses.add(makeHolds(ctx, pair.getSecond(), pair.getThird(), variables));
+          } else if(pred.equals(predEq)) {
+            clauses.add(ctx.ifmgr.equal(makeType(ctx, pair.getSecond(), variables), makeType(ctx, pair.getThird(), variables)));
+          }
+        }
+        BooleanFormula clause = ctx.bfmgr.or(clauses);
+        if(assertion.getSoftness()) {
+          penalties.add(ctx.bfmgr.ifThenElse(clause, zero, ctx.ifmgr.makeNumber(ConstraintGenerator.getSoftWeight(assertion))));
+        } else {
+          env.addConstraint(clause);
+        }
+      }
+
+      // each variable is a valid type, but not OVERLONG
+      for(IntegerFormula variable : variables.values()) {
+        env.addConstraint(ctx.ifmgr.greaterOrEquals(variable, zero));
+        env.addConstraint(ctx.ifmgr.lessThan(variable, ctx.ifmgr.makeNumber(OVERLONG)));
+      }
+
+      int handle = -1;
+      if(!penalties.isEmpty()) {
+        handle = env.minimize(ctx.ifmgr.sum(penalties));
+      }
+      OptStatus status = env.check();
+      if(status != OptStatus.OPT) {
+        throw new SolverException("Failed to solve type constraints: " + status);
+      }
+      Rational penalty = Rational.ZERO;
+      if(handle >= 0) {
+        Optional<Rational> value = env.lower(handle, Rational.ZERO);
+        if(value.isPresent()) {
+          penalty = value.get();
+        }
+      }
+
+      Map<String, IntType> solution = new HashMap<>();
+      Model model = env.getModel();
+      for(Entry<AssignableTerm, Object> entry : model.entrySet()) {
+        String name = entry.getKey().getName();
+        if(!variables.containsKey(name) || !(entry.getValue() instanceof Number)) {
+          continue;
+        }
+        int index = ((Number) entry.getValue()).intValue();
+        // we should restore qualified names with "::" splitter
+        solution.put(name.replace("!!", "::"), IntType.fromOBJString(types.get(index)));
+      }
+      return new ComponentSolution(solution, penalty);
+    }
+  }
+
+  /**
+   * Stop the threads and close all solver contexts. The contexts are closed only after all threads have
+   * terminated, since a thread may still be solving a component. This method should not be called while
+   * {@link #solve(Iterable)} is running. Failures of closing a context are only logged, such that all contexts
+   * are closed.
+   */
+  @Override
+  public void close() {
+    if(executor != null) {
+      executor.shutdownNow();
+      boolean interrupted = false;
+      while(true) {
+        try {
+          if(executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            break;
+          }
+        } catch(InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if(interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    List<SolverContext> closing = new ArrayList<>();
+    contexts.drainTo(closing);
+    for(SolverContext context : closing) {
+      if(context.fmgr instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) context.fmgr).close();
+        } catch(Exception e) {
+          logger.logDebugException(e, "Could not close solver context of type constraints");
+        }
+      }
+    }
+  }
+
+  /**
+   * The formula of P(left, right)
+   */
+  private BooleanFormula makeHolds(SolverContext ctx, String left, String right, Map<String, IntegerFormula> variables) {
+    int leftIndex = types.indexOf(left);
+    int rightIndex = types.indexOf(right);
+    if(leftIndex >= 0 && rightIndex >= 0) {
+      return ctx.bfmgr.makeBoolean(holds[leftIndex][rightIndex]);
+    }
+    List<BooleanFormula> cases = new ArrayList<>();
+    if(rightIndex >= 0) {
+      // the common case: a variable holds a specific type
+      IntegerFormula leftVar = makeType(ctx, left, variables);
+      for(int i = 0; i < types.size(); i++) {
+        if(holds[i][rightIndex]) {
+          cases.add(ctx.ifmgr.equal(leftVar, ctx.ifmgr.makeNumber(i)));
+        }
+      }
+    } else if(leftIndex >= 0) {
+      IntegerFormula rightVar = makeType(ctx, right, variables);
+      for(int j = 0; j < types.size(); j++) {
+        if(holds[leftIndex][j]) {
+          cases.add(ctx.ifmgr.equal(rightVar, ctx.ifmgr.makeNumber(j)));
+        }
+      }
+    } else {
+      IntegerFormula leftVar = makeType(ctx, left, variables);
+      IntegerFormula rightVar = makeType(ctx, right, variables);
+      for(int i = 0; i < types.size(); i++) {
+        for(int j = 0; j < types.size(); j++) {
+          if(holds[i][j]) {
+            cases.add(ctx.bfmgr.and(ctx.ifmgr.equal(leftVar, ctx.ifmgr.makeNumber(i)), ctx.ifmgr.equal(rightVar, ctx.ifmgr.makeNumber(j))));
+          }
+        }
+      }
+    }
+    return ctx.bfmgr.or(cases);
+  }
+
+  /**
+   * A type constant, or the type variable of an identifier
+   */
+  private IntegerFormula makeType(SolverContext ctx, String name, Map<String, IntegerFormula> variables) {
+    int index = types.indexOf(name);
+    if(index >= 0) {
+      return ctx.ifmgr.makeNumber(index);
+    }
+    String symbol = name.replace("::", "!!");
+    IntegerFormula variable = variables.get(symbol);
+    if(variable == null) {
+      variable = ctx.ifmgr.makeVariable(symbol);
+      variables.put(symbol, variable);
+    }
+    return variable;
+  }
+
+}
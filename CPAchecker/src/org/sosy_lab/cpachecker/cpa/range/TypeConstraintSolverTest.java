@@ -0,0 +1,123 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sosy_lab.common.ShutdownNotifier;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.log.TestLogManager;
+
+public class TypeConstraintSolverTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static Constraint holds(String left, String right, boolean soft, int weight) {
+    Constraint constraint = new Constraint();
+    constraint.addConstraint("p", left, right);
+    constraint.setSoftness(soft);
+    constraint.setWeight(weight);
+    return constraint;
+  }
+
+  @Test
+  public void testComponentKeyIgnoresOrder() {
+    Constraint c1 = holds("main::x", "INT", false, 1);
+    Constraint c2 = holds("main::y", "main::x", true, 2);
+    Assert.assertEquals(TypeConstraintSolver.componentKey(Arrays.asList(c1, c2)),
+        TypeConstraintSolver.componentKey(Arrays.asList(c2, c1)));
+  }
+
+  @Test
+  public void testComponentKeyMergesWeights() {
+    Constraint c1 = holds("main::y", "main::x", true, 1);
+    Constraint c2 = holds("main::y", "main::x", true, 1);
+    Constraint merged = holds("main::y", "main::x", true, 2);
+    Assert.assertEquals(TypeConstraintSolver.componentKey(Arrays.asList(c1, c2)),
+        TypeConstraintSolver.componentKey(Arrays.asList(merged)));
+  }
+
+  @Test
+  public void testComponentKeyDistinguishesConstraints() {
+    Constraint hard = holds("main::x", "INT", false, 1);
+    Constraint soft = holds("main::x", "INT", true, 1);
+    Constraint heavy = holds("main::x", "INT", true, 3);
+    String hardKey = TypeConstraintSolver.componentKey(Arrays.asList(hard));
+    String softKey = TypeConstraintSolver.componentKey(Arrays.asList(soft));
+    String heavyKey = TypeConstraintSolver.componentKey(Arrays.asList(heavy));
+    Assert.assertNotEquals(hardKey, softKey);
+    Assert.assertNotEquals(softKey, heavyKey);
+  }
+
+  @Test
+  public void testComponentKeyIgnoresTemporaryNumbers() {
+    List<Constraint> before = Arrays.asList(holds("!INTERM_3", "main::x", true, 1), holds("!INTERM_4", "!INTERM_3", true, 1));
+    List<Constraint> after = Arrays.asList(holds("!INTERM_10", "main::x", true, 1), holds("!INTERM_11", "!INTERM_10", true, 1));
+    List<Constraint> swapped = Arrays.asList(holds("!INTERM_11", "main::x", true, 1), holds("!INTERM_10", "!INTERM_11", true, 1));
+    Assert.assertEquals(TypeConstraintSolver.componentKey(before), TypeConstraintSolver.componentKey(after));
+    Assert.assertNotEquals(TypeConstraintSolver.componentKey(before), TypeConstraintSolver.componentKey(swapped));
+  }
+
+  private static TypeConstraintSolver createSolver() throws Exception {
+    Configuration config = Configuration.builder()
+        .setOption("cpa.range.typeSolver", "SMTINTERPOL")
+        .setOption("cpa.range.typeSolverThreads", "1")
+        .build();
+    return new TypeConstraintSolver(config, TestLogManager.getInstance(), ShutdownNotifier.create());
+  }
+
+  @Test
+  public void testSavedSolutionsAreReused() throws Exception {
+    List<Constraint> before = Arrays.asList(holds("!INTERM_3", "main::x", true, 1), holds("main::x", "INT", false, 1));
+    List<Constraint> after = Arrays.asList(holds("!INTERM_7", "main::x", true, 1), holds("main::x", "INT", false, 1));
+    Path loadedFile = tempFolder.newFile("loaded.txt").toPath();
+    Path savedFile = tempFolder.getRoot().toPath().resolve("saved.txt");
+    // the cached solution is not optimal, thus it is not computed again by the solver
+    Files.write(loadedFile, Arrays.asList(TypeConstraintSolver.componentKey(before) + "\t1\t!INTERM_0=LINT\tmain::x=INT",
+        "malformed"), StandardCharsets.UTF_8);
+
+    try(TypeConstraintSolver solver = createSolver()) {
+      Assert.assertEquals(1, solver.loadSolutions(loadedFile));
+      solver.saveSolutions(savedFile);
+    }
+    try(TypeConstraintSolver solver = createSolver()) {
+      Assert.assertEquals(1, solver.loadSolutions(savedFile));
+      Map<String, IntType> solution = solver.solve(after);
+      Assert.assertEquals(2, solution.size());
+      Assert.assertEquals("LINT", solution.get("!INTERM_7").toOBJString());
+      Assert.assertEquals("INT", solution.get("main::x").toOBJString());
+    }
+  }
+
+}
@@ -0,0 +1,340 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * Immutable map from variable identifiers to values, which is backed by a sorted array of identifiers and
+ * values stored in chunks of fixed size. Lookup is a binary search, while join and comparison of states are
+ * merge scans by index.
+ *
+ * Maps derived from each other share their arrays: updating the value of an existing key copies only the
+ * chunk of the key and the array of chunk references, while the identifiers are not copied. Inserting or
+ * removing a key copies the identifiers and the chunks after the key, which are shifted.
+ */
+final class VariableIdMap<V> implements Serializable {
+
+  private static final long serialVersionUID = -4305810371470123489L;
+
+  private static final int CHUNK_BITS = 5;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private static final VariableIdMap<Object> EMPTY = new VariableIdMap<>(new int[0], new Object[0][]);
+
+  private final int[] keys;
+  /**
+   * Values in chunks of {@link #CHUNK_SIZE} entries, except that the last chunk holds the remaining ones
+   */
+  private final Object[][] chunks;
+  // 0 denotes that the hash code is not computed yet
+  private transient int hash = 0;
+
+  private VariableIdMap(int[] keys, Object[][] chunks) {
+    this.keys = keys;
+    this.chunks = chunks;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <V> VariableIdMap<V> of() {
+    return (VariableIdMap<V>) EMPTY;
+  }
+
+  private Object readResolve() {
+    return keys.length == 0 ? EMPTY : this;
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  boolean isEmpty() {
+    return keys.length == 0;
+  }
+
+  int keyAt(int index) {
+    return keys[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  V valueAt(int index) {
+    return (V) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+  }
+
+  /**
+   * @return the index of the key, or a negative value if the key does not exist
+   */
+  int indexOf(int key) {
+    return key < 0 ? -1 : Arrays.binarySearch(keys, key);
+  }
+
+  boolean containsKey(int key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * @return the value of the key, or null if the key does not exist
+   */
+  V get(int key) {
+    int index = indexOf(key);
+    return index >= 0 ? valueAt(index) : null;
+  }
+
+  VariableIdMap<V> putAndCopy(int key, V value) {
+    int index = indexOf(key);
+    if(index >= 0) {
+      int chunkIndex = index >>> CHUNK_BITS;
+      Object[] chunk = chunks[chunkIndex];
+      if(chunk[index & CHUNK_MASK] == value) {
+        return this;
+      }
+      Object[][] newChunks = chunks.clone();
+      newChunks[chunkIndex] = chunk.clone();
+      newChunks[chunkIndex][index & CHUNK_MASK] = value;
+      return new VariableIdMap<>(keys, newChunks);
+    }
+    int insertion = -(index + 1);
+    int[] newKeys = new int[keys.length + 1];
+    System.arraycopy(keys, 0, newKeys, 0, insertion);
+    newKeys[insertion] = key;
+    System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+    return new VariableIdMap<>(newKeys, shiftChunks(insertion, newKeys.length, true, value));
+  }
+
+  VariableIdMap<V> removeAndCopy(int key) {
+    int index = indexOf(key);
+    if(index < 0) {
+      return this;
+    }
+    if(keys.length == 1) {
+      return of();
+    }
+    int[] newKeys = new int[keys.length - 1];
+    System.arraycopy(keys, 0, newKeys, 0, index);
+    System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+    return new VariableIdMap<>(newKeys, shiftChunks(index, newKeys.length, false, null));
+  }
+
+  /**
+   * Chunks of values after inserting or removing the entry at the given index. Chunks before the one of the
+   * index are shared, while the following chunks are copied since their entries are shifted.
+   */
+  private Object[][] shiftChunks(int index, int newSize, boolean insert, Object inserted) {
+    Object[][] newChunks = new Object[chunkCount(newSize)][];
+    int first = index >>> CHUNK_BITS;
+    System.arraycopy(chunks, 0, newChunks, 0, first);
+    for(int c = first; c < newChunks.length; c++) {
+      int start = c << CHUNK_BITS;
+      Object[] chunk = new Object[Math.min(CHUNK_SIZE, newSize - start)];
+      for(int i = 0; i < chunk.length; i++) {
+        int newIndex = start + i;
+        if(newIndex < index) {
+          chunk[i] = valueAt(newIndex);
+        } else if(insert) {
+          chunk[i] = newIndex == index ? inserted : valueAt(newIndex - 1);
+        } else {
+          chunk[i] = valueAt(newIndex + 1);
+        }
+      }
+      newChunks[c] = chunk;
+    }
+    return newChunks;
+  }
+
+  private static int chunkCount(int size) {
+    return (size + CHUNK_MASK) >>> CHUNK_BITS;
+  }
+
+  /**
+   * Put all the entries of the given map, which override the existing entries of the same keys.
+   */
+  VariableIdMap<V> putAllAndCopy(VariableIdMap<V> updates) {
+    if(updates.isEmpty()) {
+      return this;
+    }
+    Builder<V> builder = new Builder<>(keys.length + updates.keys.length);
+    int i = 0;
+    for(int j = 0; j < updates.keys.length; j++) {
+      int key = updates.keys[j];
+      while(i < keys.length && keys[i] < key) {
+        builder.add(keys[i], valueAt(i));
+        i++;
+      }
+      if(i < keys.length && keys[i] == key) {
+        i++;
+      }
+      builder.add(key, updates.valueAt(j));
+    }
+    for(; i < keys.length; i++) {
+      builder.add(keys[i], valueAt(i));
+    }
+    return builder.build();
+  }
+
+  /**
+   * An unmodifiable view of this map keyed by the names of variables in the given registry. The view is
+   * created in constant time, and its entries are iterated in the order of identifiers.
+   */
+  Map<String, V> asNameMap(final VariableIdRegistry registry) {
+    return new AbstractMap<String, V>() {
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+
+      @Override
+      public boolean containsKey(Object name) {
+        return name instanceof String && VariableIdMap.this.containsKey(registry.lookup((String) name));
+      }
+
+      @Override
+      public V get(Object name) {
+        return name instanceof String ? VariableIdMap.this.get(registry.lookup((String) name)) : null;
+      }
+
+      @Override
+      public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+
+          @Override
+          public int size() {
+            return keys.length;
+          }
+
+          @Override
+          public Iterator<Entry<String, V>> iterator() {
+            return new UnmodifiableIterator<Entry<String, V>>() {
+
+              private int index = 0;
+
+              @Override
+              public boolean hasNext() {
+                return index < keys.length;
+              }
+
+              @Override
+              public Entry<String, V> next() {
+                if(!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                Entry<String, V> entry = Maps.immutableEntry(registry.getName(keys[index]), valueAt(index));
+                index++;
+                return entry;
+              }
+            };
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if(this == other) {
+      return true;
+    }
+    if(!(other instanceof VariableIdMap)) {
+      return false;
+    }
+    VariableIdMap<?> another = (VariableIdMap<?>) other;
+    if(hash != 0 && another.hash != 0 && hash != another.hash) {
+      return false;
+    }
+    if(!Arrays.equals(keys, another.keys)) {
+      return false;
+    }
+    // both maps have the same size, thus their chunks have the same sizes
+    for(int c = 0; c < chunks.length; c++) {
+      if(chunks[c] != another.chunks[c] && !Arrays.equals(chunks[c], another.chunks[c])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if(h == 0) {
+      h = Arrays.hashCode(keys);
+      for(Object[] chunk : chunks) {
+        h = 31 * h + Arrays.hashCode(chunk);
+      }
+      hash = h;
+    }
+    return h;
+  }
+
+  /**
+   * Builder that accepts keys in ascending order.
+   */
+  static final class Builder<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    Builder(int expectedSize) {
+      keys = new int[Math.max(expectedSize, 1)];
+      values = new Object[keys.length];
+    }
+
+    Builder<V> add(int key, V value) {
+      assert size == 0 || keys[size - 1] < key : "keys should be added in ascending order";
+      if(size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    VariableIdMap<V> build() {
+      if(size == 0) {
+        return of();
+      }
+      Object[][] chunks = new Object[chunkCount(size)][];
+      for(int c = 0; c < chunks.length; c++) {
+        int start = c << CHUNK_BITS;
+        chunks[c] = Arrays.copyOfRange(values, start, Math.min(size, start + CHUNK_SIZE));
+      }
+      return new VariableIdMap<>(Arrays.copyOf(keys, size), chunks);
+    }
+  }
+
+}
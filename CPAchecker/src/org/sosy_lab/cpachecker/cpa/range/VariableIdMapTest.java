@@ -0,0 +1,169 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VariableIdMapTest {
+
+  private static void assertSameEntries(Map<Integer, String> expected, VariableIdMap<String> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    int index = 0;
+    for(Entry<Integer, String> entry : expected.entrySet()) {
+      Assert.assertEquals(entry.getKey().intValue(), actual.keyAt(index));
+      Assert.assertEquals(entry.getValue(), actual.valueAt(index));
+      Assert.assertEquals(entry.getValue(), actual.get(entry.getKey()));
+      index++;
+    }
+  }
+
+  private static VariableIdMap<String> build(Map<Integer, String> entries) {
+    VariableIdMap.Builder<String> builder = new VariableIdMap.Builder<>(entries.size());
+    for(Entry<Integer, String> entry : entries.entrySet()) {
+      builder.add(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T copyBySerialization(T object) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (T) in.readObject();
+    }
+  }
+
+  @Test
+  public void testUpdatesAgreeWithTreeMap() {
+    // enough keys for several chunks
+    Random random = new Random(42);
+    Map<Integer, String> expected = new TreeMap<>();
+    VariableIdMap<String> actual = VariableIdMap.of();
+    for(int i = 0; i < 2000; i++) {
+      int key = random.nextInt(150);
+      if(random.nextInt(4) == 0) {
+        expected.remove(key);
+        actual = actual.removeAndCopy(key);
+      } else {
+        String value = "v" + random.nextInt(10);
+        expected.put(key, value);
+        actual = actual.putAndCopy(key, value);
+      }
+      assertSameEntries(expected, actual);
+    }
+    Assert.assertFalse(actual.containsKey(150));
+    Assert.assertNull(actual.get(-1));
+  }
+
+  @Test
+  public void testUpdatesKeepOriginal() {
+    Map<Integer, String> entries = new TreeMap<>();
+    for(int i = 0; i < 100; i += 2) {
+      entries.put(i, "v" + i);
+    }
+    VariableIdMap<String> original = build(entries);
+    original.putAndCopy(40, "changed");
+    original.putAndCopy(41, "inserted");
+    original.removeAndCopy(0);
+    assertSameEntries(entries, original);
+  }
+
+  @Test
+  public void testPutAll() {
+    Map<Integer, String> entries = new TreeMap<>();
+    Map<Integer, String> updates = new TreeMap<>();
+    for(int i = 0; i < 80; i++) {
+      if(i % 3 != 0) {
+        entries.put(i, "old" + i);
+      }
+      if(i % 2 == 0) {
+        updates.put(i, "new" + i);
+      }
+    }
+    VariableIdMap<String> result = build(entries).putAllAndCopy(build(updates));
+    entries.putAll(updates);
+    assertSameEntries(entries, result);
+  }
+
+  @Test
+  public void testEqualsIgnoresHistory() {
+    Map<Integer, String> entries = new TreeMap<>();
+    VariableIdMap<String> incremental = VariableIdMap.of();
+    for(int i = 70; i >= 0; i--) {
+      entries.put(i, "v" + i);
+      incremental = incremental.putAndCopy(i, "v" + i).putAndCopy(i + 100, "removed").removeAndCopy(i + 100);
+    }
+    VariableIdMap<String> built = build(entries);
+    Assert.assertEquals(built, incremental);
+    Assert.assertEquals(built.hashCode(), incremental.hashCode());
+    Assert.assertNotEquals(built, built.putAndCopy(35, "changed"));
+    Assert.assertSame(built, built.putAndCopy(35, built.get(35)));
+  }
+
+  @Test
+  public void testNameView() {
+    VariableIdRegistry registry = new VariableIdRegistry();
+    VariableIdMap<String> map = VariableIdMap.<String>of()
+        .putAndCopy(registry.intern("main::x"), "x")
+        .putAndCopy(registry.intern("g"), "g");
+    Map<String, String> view = map.asNameMap(registry);
+    Assert.assertEquals(2, view.size());
+    Assert.assertEquals("x", view.get("main::x"));
+    Assert.assertTrue(view.containsKey("g"));
+    Assert.assertFalse(view.containsKey("main::y"));
+    Map<String, String> expected = new TreeMap<>();
+    expected.put("main::x", "x");
+    expected.put("g", "g");
+    Assert.assertEquals(expected, view);
+  }
+
+  @Test
+  public void testRangeStateIsSerializable() throws Exception {
+    RangeState state = new RangeState(new VariableIdRegistry());
+    for(int i = 0; i < 40; i++) {
+      Range range = new Range(-i, i);
+      state.addRange("main::v" + i, range, new IntType(range));
+    }
+    RangeState copy = copyBySerialization(state);
+    Assert.assertEquals(state, copy);
+    Assert.assertEquals(state.getRangeMap(), copy.getRangeMap());
+    Assert.assertEquals(new Range(-7, 7), copy.getRange("main::v7"));
+    Assert.assertTrue(copy.getRange("main::unknown").isUnbound());
+    Assert.assertSame(VariableIdMap.of(), copyBySerialization(VariableIdMap.of()));
+  }
+
+}
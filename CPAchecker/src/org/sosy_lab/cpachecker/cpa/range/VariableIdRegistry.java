@@ -0,0 +1,127 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.range;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry which interns qualified variable names to dense integer identifiers. Each variable also belongs to
+ * a frame, which is the function declaring the variable, or the global frame if the name is not qualified.
+ * A registry is created for each CPA, thus identifiers are shared by all the states of one analysis.
+ */
+final class VariableIdRegistry implements Serializable {
+
+  private static final long serialVersionUID = -3316082592405745113L;
+
+  static final int GLOBAL_FRAME = -1;
+  private static final String FRAME_SEPARATOR = "::";
+
+  private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Integer> frameIds = new ConcurrentHashMap<>();
+
+  // arrays are replaced after growing, an identifier is published after its entries are written
+  private volatile String[] names = new String[64];
+  private volatile int[] frames = new int[64];
+  private int size = 0;
+
+  /**
+   * Get the identifier of the specified variable, or -1 if the variable is not registered yet.
+   */
+  int lookup(String varName) {
+    Integer id = ids.get(varName);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Get the identifier of the specified variable. A new identifier is assigned if necessary.
+   */
+  int intern(String varName) {
+    Integer id = ids.get(varName);
+    if(id != null) {
+      return id;
+    }
+    synchronized(this) {
+      id = ids.get(varName);
+      if(id != null) {
+        return id;
+      }
+      int newId = size;
+      String[] newNames = names;
+      int[] newFrames = frames;
+      if(newId == newNames.length) {
+        newNames = Arrays.copyOf(newNames, newId * 2);
+        newFrames = Arrays.copyOf(newFrames, newId * 2);
+      }
+      newNames[newId] = varName;
+      newFrames[newId] = internFrame(varName);
+      frames = newFrames;
+      names = newNames;
+      size = newId + 1;
+      ids.put(varName, newId);
+      return newId;
+    }
+  }
+
+  private int internFrame(String varName) {
+    int index = varName.indexOf(FRAME_SEPARATOR);
+    if(index < 0) {
+      return GLOBAL_FRAME;
+    }
+    String functionName = varName.substring(0, index);
+    Integer frame = frameIds.get(functionName);
+    if(frame == null) {
+      frame = frameIds.size();
+      frameIds.put(functionName, frame);
+    }
+    return frame;
+  }
+
+  /**
+   * Get the frame identifier of the specified function, or -1 if no variable of this function is registered.
+   */
+  int lookupFrame(String functionName) {
+    Integer frame = frameIds.get(functionName);
+    return frame == null ? -1 : frame;
+  }
+
+  String getName(int id) {
+    return names[id];
+  }
+
+  int getFrame(int id) {
+    return frames[id];
+  }
+
+  boolean isGlobal(int id) {
+    return frames[id] == GLOBAL_FRAME;
+  }
+
+  int size() {
+    return size;
+  }
+
+}
@@ -35,6 +35,8 @@ import java.util.logging.Level;
 
 import javax.annotation.Nullable;
 
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentSortedMap;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionDeclaration;
 import org.sosy_lab.cpachecker.cfa.types.MachineModel;
@@ -63,14 +65,14 @@ public class CLangSMG extends SMG {
   final private Deque<CLangStackFrame> stack_objects = new ArrayDeque<>();
 
   /**
-   * A container for objects allocated on heap
+   * A container for objects allocated on heap (persistent, like the containers of {@link SMG})
    */
-  final private Set<SMGObject> heap_objects = new HashSet<>();
+  private PersistentSortedMap<SMGObject, Boolean> heap_objects = PathCopyingPersistentTreeMap.of();
 
   /**
-   * A container for global objects
+   * A container for global objects (persistent, like the containers of {@link SMG})
    */
-  final private Map<String, SMGRegion> global_objects = new HashMap<>();
+  private PersistentSortedMap<String, SMGRegion> global_objects = PathCopyingPersistentTreeMap.of();
 
   /**
    * A flag signifying the edge leading to this state caused memory to be leaked
@@ -108,7 +110,7 @@ public class CLangSMG extends SMG {
    */
   public CLangSMG(MachineModel pMachineModel) {
     super(pMachineModel);
-    heap_objects.add(getNullObject());
+    heap_objects = heap_objects.putAndCopy(getNullObject(), true);
   }
 
   /**
@@ -126,8 +128,8 @@ public class CLangSMG extends SMG {
       stack_objects.add(new_frame);
     }
 
-    heap_objects.addAll(pHeap.heap_objects);
-    global_objects.putAll(pHeap.global_objects);
+    heap_objects = pHeap.heap_objects;
+    global_objects = pHeap.global_objects;
     has_leaks = pHeap.has_leaks;
   }
 
@@ -142,10 +144,10 @@ public class CLangSMG extends SMG {
    * @param pObject Object to add.
    */
   public void addHeapObject(SMGObject pObject) {
-    if (CLangSMG.performChecks() && heap_objects.contains(pObject)) {
+    if (CLangSMG.performChecks() && heap_objects.containsKey(pObject)) {
       throw new IllegalArgumentException("Heap object already in the SMG: [" + pObject + "]");
     }
-    heap_objects.add(pObject);
+    heap_objects = heap_objects.putAndCopy(pObject, true);
     addObject(pObject);
   }
 
@@ -169,7 +171,7 @@ public class CLangSMG extends SMG {
       throw new IllegalArgumentException("Global object with label [" + pObject.getLabel() + "] already in the SMG");
     }
 
-    global_objects.put(pObject.getLabel(), pObject);
+    global_objects = global_objects.putAndCopy(pObject.getLabel(), pObject);
     super.addObject(pObject);
   }
 
@@ -300,7 +302,7 @@ public class CLangSMG extends SMG {
           setMemoryLeak();
         }
         removeObjectAndEdges(stray_object);
-        heap_objects.remove(stray_object);
+        heap_objects = heap_objects.removeAndCopy(stray_object);
 
       }
     }
@@ -333,7 +335,7 @@ public class CLangSMG extends SMG {
    */
   @Override
   public String toString() {
-    return "CLangSMG [\n stack_objects=" + stack_objects + "\n heap_objects=" + heap_objects + "\n global_objects="
+    return "CLangSMG [\n stack_objects=" + stack_objects + "\n heap_objects=" + heap_objects.keySet() + "\n global_objects="
         + global_objects + "\n " + valuesToString() + "\n " + ptToString() + "\n " + hvToString()
         + "\n" + getMapOfMemoryLocationsWithValue().toString() + "\n]";
   }
@@ -394,7 +396,7 @@ public class CLangSMG extends SMG {
    * @return Unmodifiable view of the set of the heap objects
    */
   public Set<SMGObject> getHeapObjects() {
-    return Collections.unmodifiableSet(heap_objects);
+    return Collections.unmodifiableSet(heap_objects.keySet());
   }
 
   /**
@@ -407,7 +409,7 @@ public class CLangSMG extends SMG {
    *
    */
   public boolean isHeapObject(SMGObject object) {
-    return heap_objects.contains(object);
+    return heap_objects.containsKey(object);
   }
 
   /**
@@ -463,7 +465,7 @@ public class CLangSMG extends SMG {
   }
 
   final public void removeHeapObjectAndEdges(SMGObject pObject) {
-    heap_objects.remove(pObject);
+    heap_objects = heap_objects.removeAndCopy(pObject);
     removeObjectAndEdges(pObject);
   }
 
@@ -553,7 +555,7 @@ public class CLangSMG extends SMG {
 
   private SMGObject getHeapObjectWithId(String pLocId) {
 
-    for (SMGObject object : heap_objects) {
+    for (SMGObject object : heap_objects.keySet()) {
       if (object.getLabel().equals(pLocId)) {
         return object;
       }
@@ -564,7 +566,7 @@ public class CLangSMG extends SMG {
 
   private boolean hasHeapObjectWithId(String pLocId) {
 
-    for (SMGObject object : heap_objects) {
+    for (SMGObject object : heap_objects.keySet()) {
       if (object.getLabel().equals(pLocId)) {
         return true;
       }
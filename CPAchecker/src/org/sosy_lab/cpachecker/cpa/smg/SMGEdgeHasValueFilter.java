@@ -73,6 +73,22 @@ public class SMGEdgeHasValueFilter {
     return this;
   }
 
+  SMGObject getObject() {
+    return object;
+  }
+
+  Integer getOffset() {
+    return offset;
+  }
+
+  /**
+   * Whether this filter only restricts the object and the offset of edges,
+   * thus all edges in the index of an object at an offset hold for it.
+   */
+  boolean isObjectOffsetFilter() {
+    return value == null && type == null;
+  }
+
   public boolean holdsFor(SMGEdgeHasValue pEdge) {
     if (object != null && object != pEdge.getObject()) {
       return false;
@@ -0,0 +1,357 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.cpa.smg;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentSortedMap;
+import org.sosy_lab.cpachecker.cfa.types.MachineModel;
+import org.sosy_lab.cpachecker.cpa.smg.objects.SMGObject;
+
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * Set of Has-Value edges, indexed by their object and by their offset in the object.
+ *
+ * The edges are kept in persistent maps from objects to offsets to edges.
+ * Thus copying the index is constant-time, and the sets returned by the lookups
+ * are snapshots which do not change when the index is modified later
+ * (callers often modify the SMG while iterating over them).
+ *
+ * For each object, the index also keeps an upper bound of the sizes of its edges,
+ * such that the edges overlapping a range of offsets are found by a range query
+ * on the offsets instead of checking all edges of the object.
+ */
+final class SMGHasValueEdgeIndex {
+
+  private static final Function<PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>>, Iterable<SMGEdgeHasValue>>
+      EDGES_OF_OBJECT = new Function<PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>>, Iterable<SMGEdgeHasValue>>() {
+        @Override
+        public Iterable<SMGEdgeHasValue> apply(PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> pEdgesByOffset) {
+          return Iterables.concat(pEdgesByOffset.values());
+        }
+      };
+
+  private final MachineModel machineModel;
+  private PersistentSortedMap<SMGObject, PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>>> edgesByObject;
+  /**
+   * Maximal size of the edges added to each object since it has no edges.
+   * It is not decreased when edges are removed, thus it is only an upper bound.
+   */
+  private PersistentSortedMap<SMGObject, Integer> maxSizeByObject;
+  private int size;
+
+  SMGHasValueEdgeIndex(MachineModel pMachineModel) {
+    machineModel = pMachineModel;
+    edgesByObject = PathCopyingPersistentTreeMap.of();
+    maxSizeByObject = PathCopyingPersistentTreeMap.of();
+    size = 0;
+  }
+
+  SMGHasValueEdgeIndex(SMGHasValueEdgeIndex pIndex) {
+    machineModel = pIndex.machineModel;
+    edgesByObject = pIndex.edgesByObject;
+    maxSizeByObject = pIndex.maxSizeByObject;
+    size = pIndex.size;
+  }
+
+  /**
+   * Add an edge to the index.
+   *
+   * @return True, if the edge was not in the index before.
+   */
+  boolean addEdge(SMGEdgeHasValue pEdge) {
+    SMGObject object = pEdge.getObject();
+    PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset = edgesByObject.get(object);
+    if (edgesByOffset == null) {
+      edgesByOffset = PathCopyingPersistentTreeMap.of();
+    }
+
+    ImmutableSet<SMGEdgeHasValue> edges = edgesByOffset.get(pEdge.getOffset());
+    if (edges == null) {
+      edges = ImmutableSet.of(pEdge);
+    } else if (!edges.contains(pEdge)) {
+      edges = ImmutableSet.<SMGEdgeHasValue>builder().addAll(edges).add(pEdge).build();
+    } else {
+      return false;
+    }
+    edgesByObject = edgesByObject.putAndCopy(object, edgesByOffset.putAndCopy(pEdge.getOffset(), edges));
+    size++;
+
+    int edgeSize = pEdge.getSizeInBytes(machineModel);
+    Integer maxSize = maxSizeByObject.get(object);
+    if (maxSize == null || maxSize < edgeSize) {
+      maxSizeByObject = maxSizeByObject.putAndCopy(object, edgeSize);
+    }
+    return true;
+  }
+
+  /**
+   * Remove an edge from the index.
+   *
+   * @return True, if the edge was in the index before.
+   */
+  boolean removeEdge(SMGEdgeHasValue pEdge) {
+    SMGObject object = pEdge.getObject();
+    PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset = edgesByObject.get(object);
+    if (edgesByOffset == null) {
+      return false;
+    }
+
+    ImmutableSet<SMGEdgeHasValue> edges = edgesByOffset.get(pEdge.getOffset());
+    if (edges == null || !edges.contains(pEdge)) {
+      return false;
+    }
+
+    if (edges.size() == 1) {
+      edgesByOffset = edgesByOffset.removeAndCopy(pEdge.getOffset());
+    } else {
+      ImmutableSet.Builder<SMGEdgeHasValue> remaining = ImmutableSet.builder();
+      for (SMGEdgeHasValue edge : edges) {
+        if (!edge.equals(pEdge)) {
+          remaining.add(edge);
+        }
+      }
+      edgesByOffset = edgesByOffset.putAndCopy(pEdge.getOffset(), remaining.build());
+    }
+
+    if (edgesByOffset.isEmpty()) {
+      edgesByObject = edgesByObject.removeAndCopy(object);
+      maxSizeByObject = maxSizeByObject.removeAndCopy(object);
+    } else {
+      edgesByObject = edgesByObject.putAndCopy(object, edgesByOffset);
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Remove all edges leading from an object from the index.
+   */
+  void removeObject(SMGObject pObject) {
+    if (edgesByObject.containsKey(pObject)) {
+      size -= getEdges(pObject).size();
+      edgesByObject = edgesByObject.removeAndCopy(pObject);
+      maxSizeByObject = maxSizeByObject.removeAndCopy(pObject);
+    }
+  }
+
+  void clear() {
+    edgesByObject = PathCopyingPersistentTreeMap.of();
+    maxSizeByObject = PathCopyingPersistentTreeMap.of();
+    size = 0;
+  }
+
+  /**
+   * Get all Has-Value edges. Constant.
+   *
+   * @return An unmodifiable snapshot of all edges in the index.
+   */
+  Set<SMGEdgeHasValue> getEdges() {
+    return new AllEdges(edgesByObject, size);
+  }
+
+  /**
+   * Get the Has-Value edges leading from an object. Constant.
+   *
+   * @param pObject An object.
+   * @return An unmodifiable snapshot of the edges leading from {@link pObject}.
+   */
+  Set<SMGEdgeHasValue> getEdges(SMGObject pObject) {
+    PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset = edgesByObject.get(pObject);
+    if (edgesByOffset == null) {
+      return Collections.emptySet();
+    }
+    return new ObjectEdges(pObject, edgesByOffset);
+  }
+
+  /**
+   * Get the Has-Value edges leading from an object at an offset. Constant.
+   *
+   * @param pObject An object.
+   * @param pOffset An offset in {@link pObject}.
+   * @return An unmodifiable snapshot of the edges leading from {@link pObject} at {@link pOffset}.
+   */
+  Set<SMGEdgeHasValue> getEdges(SMGObject pObject, int pOffset) {
+    PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset = edgesByObject.get(pObject);
+    if (edgesByOffset == null) {
+      return Collections.emptySet();
+    }
+    ImmutableSet<SMGEdgeHasValue> edges = edgesByOffset.get(pOffset);
+    return edges == null ? Collections.<SMGEdgeHasValue>emptySet() : edges;
+  }
+
+  /**
+   * Get the Has-Value edges leading from an object which overlap a range of offsets
+   * (see {@link SMGEdgeHasValue#overlapsWith(int, int, MachineModel)}).
+   * Only the edges with offsets from {@code pStart} minus the maximal size of edges
+   * of the object to {@code pEnd} are checked.
+   *
+   * @param pObject An object.
+   * @param pStart The first offset of the range.
+   * @param pEnd The offset after the range.
+   * @return An unmodifiable snapshot of the overlapping edges.
+   */
+  Set<SMGEdgeHasValue> getOverlappingEdges(SMGObject pObject, int pStart, int pEnd) {
+    PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset = edgesByObject.get(pObject);
+    if (edgesByOffset == null) {
+      return Collections.emptySet();
+    }
+    // an edge starting before pStart overlaps only if it is longer than the distance,
+    // while an edge starting at pStart always overlaps
+    int from = Math.min(pStart, pStart - maxSizeByObject.get(pObject) + 1);
+    int to = Math.max(pEnd, pStart + 1);
+
+    ImmutableSet.Builder<SMGEdgeHasValue> result = ImmutableSet.builder();
+    for (ImmutableSet<SMGEdgeHasValue> edges : edgesByOffset.subMap(from, to).values()) {
+      for (SMGEdgeHasValue edge : edges) {
+        if (edge.overlapsWith(pStart, pEnd, machineModel)) {
+          result.add(edge);
+        }
+      }
+    }
+    return result.build();
+  }
+
+  @Override
+  public int hashCode() {
+    return edgesByObject.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object pObj) {
+    if (this == pObj) {
+      return true;
+    }
+    if (!(pObj instanceof SMGHasValueEdgeIndex)) {
+      return false;
+    }
+    // maps without edges are removed, thus equal sets of edges have equal maps
+    return edgesByObject.equals(((SMGHasValueEdgeIndex) pObj).edgesByObject);
+  }
+
+  @Override
+  public String toString() {
+    return getEdges().toString();
+  }
+
+  /**
+   * Set view on all edges in a snapshot of the index.
+   */
+  private static final class AllEdges extends AbstractSet<SMGEdgeHasValue> {
+
+    private final PersistentSortedMap<SMGObject, PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>>> edgesByObject;
+    private final int size;
+
+    private AllEdges(
+        PersistentSortedMap<SMGObject, PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>>> pEdgesByObject,
+        int pSize) {
+      edgesByObject = pEdgesByObject;
+      size = pSize;
+    }
+
+    @Override
+    public boolean contains(Object pO) {
+      if (!(pO instanceof SMGEdgeHasValue)) {
+        return false;
+      }
+      SMGEdgeHasValue edge = (SMGEdgeHasValue) pO;
+      PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset = edgesByObject.get(edge.getObject());
+      if (edgesByOffset == null) {
+        return false;
+      }
+      ImmutableSet<SMGEdgeHasValue> edges = edgesByOffset.get(edge.getOffset());
+      return edges != null && edges.contains(edge);
+    }
+
+    @Override
+    public Iterator<SMGEdgeHasValue> iterator() {
+      return FluentIterable.from(edgesByObject.values()).transformAndConcat(EDGES_OF_OBJECT).iterator();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Set view on the edges of an object in a snapshot of its map from offsets to edges.
+   */
+  private static final class ObjectEdges extends AbstractSet<SMGEdgeHasValue> {
+
+    private final SMGObject object;
+    private final PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> edgesByOffset;
+    private int size = -1;
+
+    private ObjectEdges(SMGObject pObject,
+        PersistentSortedMap<Integer, ImmutableSet<SMGEdgeHasValue>> pEdgesByOffset) {
+      object = pObject;
+      edgesByOffset = pEdgesByOffset;
+    }
+
+    @Override
+    public boolean contains(Object pO) {
+      if (!(pO instanceof SMGEdgeHasValue)) {
+        return false;
+      }
+      SMGEdgeHasValue edge = (SMGEdgeHasValue) pO;
+      if (edge.getObject() != object) {
+        return false;
+      }
+      ImmutableSet<SMGEdgeHasValue> edges = edgesByOffset.get(edge.getOffset());
+      return edges != null && edges.contains(edge);
+    }
+
+    @Override
+    public Iterator<SMGEdgeHasValue> iterator() {
+      return Iterables.concat(edgesByOffset.values()).iterator();
+    }
+
+    @Override
+    public int size() {
+      if (size < 0) {
+        int count = 0;
+        for (ImmutableSet<SMGEdgeHasValue> edges : edgesByOffset.values()) {
+          count += edges.size();
+        }
+        size = count;
+      }
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      // empty maps are removed from the index
+      return false;
+    }
+  }
+}
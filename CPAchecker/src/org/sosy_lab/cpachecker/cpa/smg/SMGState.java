@@ -594,10 +594,11 @@ public class SMGState implements AbstractQueryableState, LatticeAbstractState<SM
 
     SMGEdgeHasValue new_edge = new SMGEdgeHasValue(pType, pOffset, pObject, pValue);
 
-    // Check if the edge is  not present already
-    SMGEdgeHasValueFilter filter = SMGEdgeHasValueFilter.objectFilter(pObject);
+    // Only the edges overlapping the new edge are affected, including the new edge itself
+    Set<SMGEdgeHasValue> edges = heap.getOverlappingHVEdges(pObject, pOffset,
+        pOffset + new_edge.getSizeInBytes(heap.getMachineModel()));
 
-    Set<SMGEdgeHasValue> edges = heap.getHVEdges(filter);
+    // Check if the edge is  not present already
     if (edges.contains(new_edge)) {
       performConsistencyCheck(SMGRuntimeCheck.HALF);
       return new SMGStateEdgePair(this, new_edge);
@@ -615,15 +616,12 @@ public class SMGState implements AbstractQueryableState, LatticeAbstractState<SM
      */
     for (SMGEdgeHasValue hv : edges) {
 
-      boolean hvEdgeOverlaps = new_edge.overlapsWith(hv, heap.getMachineModel());
       boolean hvEdgeIsZero = hv.getValue() == heap.getNullValue();
 
-      if (hvEdgeOverlaps) {
-        if (hvEdgeIsZero) {
-          overlappingZeroEdges.add(hv);
-        } else {
-          heap.removeHasValueEdge(hv);
-        }
+      if (hvEdgeIsZero) {
+        overlappingZeroEdges.add(hv);
+      } else {
+        heap.removeHasValueEdge(hv);
       }
     }
 
@@ -992,31 +990,22 @@ public class SMGState implements AbstractQueryableState, LatticeAbstractState<SM
 
     int targetRangeSize = pTargetRangeOffset + copyRange;
 
-    SMGEdgeHasValueFilter filterSource = new SMGEdgeHasValueFilter();
-    filterSource.filterByObject(pSource);
-    SMGEdgeHasValueFilter filterTarget = new SMGEdgeHasValueFilter();
-    filterTarget.filterByObject(pTarget);
-
     //Remove all Target edges in range
-    Set<SMGEdgeHasValue> targetEdges = getHVEdges(filterTarget);
+    Set<SMGEdgeHasValue> targetEdges = heap.getOverlappingHVEdges(pTarget, pTargetRangeOffset, targetRangeSize);
 
     for (SMGEdgeHasValue edge : targetEdges) {
-      if (edge.overlapsWith(pTargetRangeOffset, targetRangeSize, heap.getMachineModel())) {
-        heap.removeHasValueEdge(edge);
-      }
+      heap.removeHasValueEdge(edge);
     }
 
-    // Copy all Source edges
-    Set<SMGEdgeHasValue> sourceEdges = getHVEdges(filterSource);
+    // Copy all Source edges in range
+    Set<SMGEdgeHasValue> sourceEdges = heap.getOverlappingHVEdges(pSource, pSourceRangeOffset, pSourceRangeSize);
 
     // Shift the source edge offset depending on the target range offset
     int copyShift = pTargetRangeOffset - pSourceRangeOffset;
 
     for (SMGEdgeHasValue edge : sourceEdges) {
-      if (edge.overlapsWith(pSourceRangeOffset, pSourceRangeSize, heap.getMachineModel())) {
-        int offset = edge.getOffset() + copyShift;
-        newSMGState = writeValue(pTarget, offset, edge.getType(), edge.getValue()).getState();
-      }
+      int offset = edge.getOffset() + copyShift;
+      newSMGState = writeValue(pTarget, offset, edge.getType(), edge.getValue()).getState();
     }
 
     performConsistencyCheck(SMGRuntimeCheck.FULL);
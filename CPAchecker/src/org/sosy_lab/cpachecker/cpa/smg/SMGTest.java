@@ -37,6 +37,8 @@ import org.sosy_lab.cpachecker.cfa.types.c.CType;
 import org.sosy_lab.cpachecker.cpa.smg.objects.SMGObject;
 import org.sosy_lab.cpachecker.cpa.smg.objects.SMGRegion;
 
+import com.google.common.collect.ImmutableSet;
+
 
 public class SMGTest {
   private LogManager logger = TestLogManager.getInstance();
@@ -424,6 +426,95 @@ public class SMGTest {
     Assert.assertTrue(smg.getHVEdges().containsAll(set));
   }
 
+  @Test
+  public void getFilteredHVEdgesTest() {
+    SMGEdgeHasValueFilter objectFilter = SMGEdgeHasValueFilter.objectFilter(obj2);
+    Assert.assertEquals(ImmutableSet.of(hv2has2at0, hv2has1at4), smg.getHVEdges(objectFilter));
+
+    SMGEdgeHasValueFilter offsetFilter = SMGEdgeHasValueFilter.objectFilter(obj2).filterAtOffset(4);
+    Assert.assertEquals(ImmutableSet.of(hv2has1at4), smg.getHVEdges(offsetFilter));
+
+    SMGEdgeHasValueFilter valueFilter = SMGEdgeHasValueFilter.objectFilter(obj2).filterHavingValue(val2);
+    Assert.assertEquals(ImmutableSet.of(hv2has2at0), smg.getHVEdges(valueFilter));
+
+    SMGEdgeHasValueFilter otherValueFilter = new SMGEdgeHasValueFilter().filterHavingValue(val1);
+    Assert.assertEquals(ImmutableSet.of(hv2has1at4), smg.getHVEdges(otherValueFilter));
+
+    Assert.assertTrue(smg.getHVEdges(SMGEdgeHasValueFilter.objectFilter(obj1)).isEmpty());
+  }
+
+  @Test
+  public void getOverlappingHVEdgesTest() {
+    // obj2 = yyyyzzzz
+    Assert.assertEquals(ImmutableSet.of(hv2has2at0), smg.getOverlappingHVEdges(obj2, 0, 4));
+    Assert.assertEquals(ImmutableSet.of(hv2has2at0, hv2has1at4), smg.getOverlappingHVEdges(obj2, 3, 5));
+    Assert.assertEquals(ImmutableSet.of(hv2has1at4), smg.getOverlappingHVEdges(obj2, 7, 8));
+    Assert.assertTrue(smg.getOverlappingHVEdges(obj2, 8, 12).isEmpty());
+    Assert.assertTrue(smg.getOverlappingHVEdges(obj1, 0, 8).isEmpty());
+
+    // a long edge starting before the range still overlaps it
+    SMGObject obj3 = new SMGRegion(16, "object-3");
+    SMGEdgeHasValue longEdge = new SMGEdgeHasValue(AnonymousTypes.createTypeWithLength(12), 0, obj3, val1);
+    smg.addObject(obj3);
+    smg.addHasValueEdge(longEdge);
+    smg.addHasValueEdge(new SMGEdgeHasValue(mockType, 12, obj3, val2));
+    Assert.assertEquals(ImmutableSet.of(longEdge), smg.getOverlappingHVEdges(obj3, 8, 10));
+
+    // the bound of edge sizes is kept after removing the long edge
+    smg.removeHasValueEdge(longEdge);
+    Assert.assertTrue(smg.getOverlappingHVEdges(obj3, 8, 10).isEmpty());
+  }
+
+  @Test
+  public void filteredHVEdgesAreSnapshotsTest() {
+    SMGEdgeHasValueFilter objectFilter = SMGEdgeHasValueFilter.objectFilter(obj2);
+    Set<SMGEdgeHasValue> edges = smg.getHVEdges(objectFilter);
+    SMG smg_copy = new SMG(smg);
+
+    // modifications while iterating must not change the returned set
+    for (SMGEdgeHasValue edge : edges) {
+      smg.removeHasValueEdge(edge);
+    }
+    Assert.assertEquals(2, edges.size());
+    Assert.assertTrue(smg.getHVEdges(objectFilter).isEmpty());
+    Assert.assertEquals(edges, smg_copy.getHVEdges(objectFilter));
+
+    smg_copy.mergeValues(val1, val2);
+    SMGEdgeHasValue hv2has1at0 = new SMGEdgeHasValue(mockType, 0, obj2, val1);
+    Assert.assertEquals(ImmutableSet.of(hv2has1at0, hv2has1at4), smg_copy.getHVEdges(objectFilter));
+
+    smg_copy.removeObjectAndEdges(obj2);
+    Assert.assertTrue(smg_copy.getHVEdges(objectFilter).isEmpty());
+    Assert.assertTrue(smg_copy.getHVEdges().isEmpty());
+  }
+
+  @Test
+  public void copiesAreIndependentTest() {
+    SMG smg_copy = new SMG(smg);
+    Assert.assertEquals(smg, smg_copy);
+
+    SMGObject obj3 = new SMGRegion(4, "object-3");
+    Integer val3 = Integer.valueOf(3);
+    smg_copy.addObject(obj3);
+    smg_copy.addValue(val3);
+    smg_copy.addPointsToEdge(new SMGEdgePointsTo(val3, obj3, 0));
+    smg_copy.addHasValueEdge(new SMGEdgeHasValue(mockType, 0, obj3, val3));
+    smg_copy.setValidity(obj1, false);
+    smg_copy.removeObjectAndEdges(obj2);
+
+    Assert.assertNotEquals(smg, smg_copy);
+    Assert.assertFalse(smg.getObjects().contains(obj3));
+    Assert.assertFalse(smg.getValues().contains(val3));
+    Assert.assertFalse(smg.isPointer(val3));
+    Assert.assertTrue(smg.isObjectValid(obj1));
+    Assert.assertTrue(smg.getObjects().contains(obj2));
+    Assert.assertEquals(ImmutableSet.of(hv2has2at0, hv2has1at4), smg.getHVEdges());
+
+    Assert.assertTrue(smg_copy.isPointer(val3));
+    Assert.assertFalse(smg_copy.isObjectValid(obj1));
+    Assert.assertEquals(1, smg_copy.getHVEdges().size());
+  }
+
   @Test
   public void getPTEdgesTest() {
     HashSet<SMGEdgePointsTo> set = new HashSet<>();
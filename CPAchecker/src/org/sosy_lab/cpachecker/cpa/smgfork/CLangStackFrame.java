@@ -24,12 +24,13 @@
 package org.sosy_lab.cpachecker.cpa.smgfork;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentSortedMap;
 import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionDeclaration;
 import org.sosy_lab.cpachecker.cfa.types.MachineModel;
 import org.sosy_lab.cpachecker.cfa.types.c.CType;
@@ -50,9 +51,9 @@ final public class CLangStackFrame {
 
   /**
    * A mapping from variable names to a set of SMG objects, representing
-   * local variables.
+   * local variables. It is persistent, thus copies of a frame share it.
    */
-  final HashMap <String, SMGRegion> stack_variables = new HashMap<>();
+  private PersistentSortedMap<String, SMGRegion> stack_variables = PathCopyingPersistentTreeMap.of();
 
   /**
    * An object to store function return value
@@ -85,7 +86,7 @@ final public class CLangStackFrame {
    */
   public CLangStackFrame(CLangStackFrame pFrame) {
     stack_function = pFrame.stack_function;
-    stack_variables.putAll(pFrame.stack_variables);
+    stack_variables = pFrame.stack_variables;
     returnValueObject = pFrame.returnValueObject;
   }
 
@@ -107,7 +108,7 @@ final public class CLangStackFrame {
                                        pVariableName + "'");
     }
 
-    stack_variables.put(pVariableName, pObject);
+    stack_variables = stack_variables.putAndCopy(pVariableName, pObject);
   }
 
   /* ********************************************* */
@@ -75,6 +75,22 @@ public class SMGEdgeHasValueFilter {
     return this;
   }
 
+  public SMGObject getObject() {
+    return object;
+  }
+
+  public Integer getOffset() {
+    return offset;
+  }
+
+  /**
+   * Whether this filter only restricts the object and the offset of edges,
+   * thus all edges in the index of an object at an offset hold for it.
+   */
+  public boolean isObjectOffsetFilter() {
+    return value == null && type == null;
+  }
+
   public boolean holdsFor(SMGEdgeHasValue pEdge) {
     if (object != null && object != pEdge.getObject()) {
       return false;
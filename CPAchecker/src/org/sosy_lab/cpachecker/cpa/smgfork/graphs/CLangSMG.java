@@ -25,7 +25,6 @@ package org.sosy_lab.cpachecker.cpa.smgfork.graphs;
 
 import java.util.ArrayDeque;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Queue;
@@ -33,6 +32,8 @@ import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentSortedMap;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.cfa.ast.c.CFunctionDeclaration;
 import org.sosy_lab.cpachecker.cfa.types.MachineModel;
@@ -60,14 +61,14 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
   final private ArrayDeque<CLangStackFrame> stack_objects = new ArrayDeque<>();
 
   /**
-   * A container for objects allocated on heap
+   * A container for objects allocated on heap (persistent, like the containers of {@link SMG})
    */
-  final private HashSet<SMGObject> heap_objects = new HashSet<>();
+  private PersistentSortedMap<SMGObject, Boolean> heap_objects = PathCopyingPersistentTreeMap.of();
 
   /**
-   * A container for global objects
+   * A container for global objects (persistent, like the containers of {@link SMG})
    */
-  final private HashMap<String, SMGRegion> global_objects = new HashMap<>();
+  private PersistentSortedMap<String, SMGRegion> global_objects = PathCopyingPersistentTreeMap.of();
 
   /**
    * A flag signifying the edge leading to this state caused memory to be leaked
@@ -105,7 +106,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
    */
   public CLangSMG(MachineModel pMachineModel) {
     super(pMachineModel);
-    heap_objects.add(getNullObject());
+    heap_objects = heap_objects.putAndCopy(getNullObject(), true);
   }
 
   /**
@@ -123,8 +124,8 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
       stack_objects.add(new_frame);
     }
 
-    heap_objects.addAll(pHeap.heap_objects);
-    global_objects.putAll(pHeap.global_objects);
+    heap_objects = pHeap.heap_objects;
+    global_objects = pHeap.global_objects;
     has_leaks = pHeap.has_leaks;
   }
 
@@ -139,10 +140,10 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
    * @param pObject Object to add.
    */
   public void addHeapObject(SMGObject pObject) {
-    if (CLangSMG.performChecks() && heap_objects.contains(pObject)) {
+    if (CLangSMG.performChecks() && heap_objects.containsKey(pObject)) {
       throw new IllegalArgumentException("Heap object already in the SMG: [" + pObject + "]");
     }
-    heap_objects.add(pObject);
+    heap_objects = heap_objects.putAndCopy(pObject, true);
     addObject(pObject);
   }
 
@@ -167,7 +168,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
       throw new IllegalArgumentException("Global object with label [" + pObject.getLabel() + "] already in the SMG");
     }
 
-    global_objects.put(pObject.getLabel(), pObject);
+    global_objects = global_objects.putAndCopy(pObject.getLabel(), pObject);
     super.addObject(pObject);
   }
 
@@ -300,7 +301,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
           setMemoryLeak();
         }
         removeObjectAndEdges(stray_object);
-        heap_objects.remove(stray_object);
+        heap_objects = heap_objects.removeAndCopy(stray_object);
 
       }
     }
@@ -333,7 +334,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
    */
   @Override
   public String toString() {
-    return "CLangSMG [\n stack_objects=" + stack_objects + "\n heap_objects=" + heap_objects + "\n global_objects="
+    return "CLangSMG [\n stack_objects=" + stack_objects + "\n heap_objects=" + heap_objects.keySet() + "\n global_objects="
         + global_objects + "\n " + valuesToString() + "\n " + ptToString() + "\n " + hvToString() + "\n]";
   }
 
@@ -382,7 +383,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
    */
   @Override
   public Set<SMGObject> getHeapObjects() {
-    return Collections.unmodifiableSet(heap_objects);
+    return Collections.unmodifiableSet(heap_objects.keySet());
   }
 
   /**
@@ -395,7 +396,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
    *
    */
   public boolean isHeapObject(SMGObject object) {
-    return heap_objects.contains(object);
+    return heap_objects.containsKey(object);
   }
 
   /**
@@ -451,7 +452,7 @@ public class CLangSMG extends SMG implements WritableSMG, ReadableSMG {
   }
 
   final public void removeHeapObjectAndEdges(SMGObject pObject) {
-    heap_objects.remove(pObject);
+    heap_objects = heap_objects.removeAndCopy(pObject);
     removeObjectAndEdges(pObject);
   }
 }
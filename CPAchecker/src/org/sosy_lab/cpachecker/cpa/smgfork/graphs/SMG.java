@@ -27,14 +27,13 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 
+import org.sosy_lab.common.collect.PathCopyingPersistentTreeMap;
+import org.sosy_lab.common.collect.PersistentSortedMap;
 import org.sosy_lab.common.log.LogManager;
 import org.sosy_lab.cpachecker.cfa.types.MachineModel;
 import org.sosy_lab.cpachecker.cfa.types.c.CType;
@@ -45,13 +44,21 @@ import org.sosy_lab.cpachecker.cpa.smgfork.SMGEdgePointsTo;
 import org.sosy_lab.cpachecker.cpa.smgfork.objects.SMGObject;
 import org.sosy_lab.cpachecker.cpa.smgfork.objects.SMGRegion;
 
+import com.google.common.collect.ImmutableSet;
 
+/**
+ * The graph is stored in persistent data structures. A copy of an SMG shares
+ * them with the original, thus copying is cheap and each SMG only stores
+ * its own modifications.
+ */
 public class SMG {
-  final private HashSet<SMGObject> objects = new HashSet<>();
-  final private HashSet<Integer> values = new HashSet<>();
-  final private HashSet<SMGEdgeHasValue> hv_edges = new HashSet<>();
-  final private HashMap<Integer, SMGEdgePointsTo> pt_edges = new HashMap<>();
-  final private HashMap<SMGObject, Boolean> object_validity = new HashMap<>();
+  /**
+   * Objects of the SMG with their validity
+   */
+  private PersistentSortedMap<SMGObject, Boolean> object_validity = PathCopyingPersistentTreeMap.of();
+  private PersistentSortedMap<Integer, Boolean> values = PathCopyingPersistentTreeMap.of();
+  final private SMGHasValueEdgeIndex hv_edges;
+  private PersistentSortedMap<Integer, SMGEdgePointsTo> pt_edges = PathCopyingPersistentTreeMap.of();
   final private NeqRelation neq = new NeqRelation();
 
   final private MachineModel machine_model;
@@ -75,10 +82,11 @@ public class SMG {
    *
    */
   public SMG(final MachineModel pMachineModel) {
+    hv_edges = new SMGHasValueEdgeIndex();
+
     SMGEdgePointsTo nullPointer = new SMGEdgePointsTo(nullAddress, nullObject, 0);
 
-    addObject(nullObject);
-    object_validity.put(nullObject, false);
+    addObject(nullObject, false);
 
     addValue(nullAddress);
     addPointsToEdge(nullPointer);
@@ -94,12 +102,10 @@ public class SMG {
    * @param pHeap Original SMG.
    */
   public SMG(final SMG pHeap) {
-    objects.addAll(pHeap.objects);
-    values.addAll(pHeap.values);
-    hv_edges.addAll(pHeap.hv_edges);
-    pt_edges.putAll(pHeap.pt_edges);
-
-    object_validity.putAll(pHeap.object_validity);
+    object_validity = pHeap.object_validity;
+    values = pHeap.values;
+    hv_edges = new SMGHasValueEdgeIndex(pHeap.hv_edges);
+    pt_edges = pHeap.pt_edges;
 
     machine_model = pHeap.machine_model;
 
@@ -114,7 +120,6 @@ public class SMG {
     result = prime * result + ((machine_model == null) ? 0 : machine_model.hashCode());
     result = prime * result + ((neq == null) ? 0 : neq.hashCode());
     result = prime * result + ((object_validity == null) ? 0 : object_validity.hashCode());
-    result = prime * result + ((objects == null) ? 0 : objects.hashCode());
     result = prime * result + ((pt_edges == null) ? 0 : pt_edges.hashCode());
     result = prime * result + ((values == null) ? 0 : values.hashCode());
     return result;
@@ -156,13 +161,6 @@ public class SMG {
     } else if (!object_validity.equals(other.object_validity)) {
       return false;
     }
-    if (objects == null) {
-      if (other.objects != null) {
-        return false;
-      }
-    } else if (!objects.equals(other.objects)) {
-      return false;
-    }
     if (pt_edges == null) {
       if (other.pt_edges != null) {
         return false;
@@ -201,7 +199,7 @@ public class SMG {
    * @param pValue Value to remove
    */
   final public void removeValue(final Integer pValue) {
-    values.remove(pValue);
+    values = values.removeAndCopy(pValue);
     neq.removeValue(pValue);
   }
   /**
@@ -213,8 +211,7 @@ public class SMG {
    * @param pObj Object to remove
    */
   final public void removeObject(final SMGObject pObj) {
-    objects.remove(pObj);
-    object_validity.remove(pObj);
+    object_validity = object_validity.removeAndCopy(pObj);
   }
 
   /**
@@ -226,17 +223,11 @@ public class SMG {
    */
   final public void removeObjectAndEdges(final SMGObject pObj) {
     removeObject(pObj);
-    Iterator<SMGEdgeHasValue> hv_iter = hv_edges.iterator();
-    Iterator<SMGEdgePointsTo> pt_iter = pt_edges.values().iterator();
-    while (hv_iter.hasNext()) {
-      if (hv_iter.next().getObject() == pObj) {
-        hv_iter.remove();
-      }
-    }
+    hv_edges.removeObject(pObj);
 
-    while (pt_iter.hasNext()) {
-      if (pt_iter.next().getObject() == pObj) {
-        pt_iter.remove();
+    for (SMGEdgePointsTo pt : pt_edges.values()) {
+      if (pt.getObject() == pObj) {
+        pt_edges = pt_edges.removeAndCopy(pt.getValue());
       }
     }
   }
@@ -251,8 +242,7 @@ public class SMG {
    *
    */
   final public void addObject(final SMGObject pObj, final boolean pValidity) {
-    objects.add(pObj);
-    object_validity.put(pObj, pValidity);
+    object_validity = object_validity.putAndCopy(pObj, pValidity);
   }
 
   /**
@@ -263,7 +253,7 @@ public class SMG {
    * @param pValue  Value to add.
    */
   final public void addValue(Integer pValue) {
-    values.add(pValue);
+    values = values.putAndCopy(pValue, true);
   }
 
   /**
@@ -274,7 +264,7 @@ public class SMG {
    * @param pEdge Points-To edge to add.
    */
   final public void addPointsToEdge(SMGEdgePointsTo pEdge) {
-    pt_edges.put(pEdge.getValue(), pEdge);
+    pt_edges = pt_edges.putAndCopy(pEdge.getValue(), pEdge);
   }
 
   /**
@@ -285,7 +275,7 @@ public class SMG {
    * @param pEdge Has-Value edge to add
    */
   final public void addHasValueEdge(SMGEdgeHasValue pEdge) {
-    hv_edges.add(pEdge);
+    hv_edges.addEdge(pEdge);
   }
 
   /**
@@ -296,7 +286,7 @@ public class SMG {
    * @param pEdge Has-Value edge to remove
    */
   final public void removeHasValueEdge(SMGEdgeHasValue pEdge) {
-    hv_edges.remove(pEdge);
+    hv_edges.removeEdge(pEdge);
   }
 
   /**
@@ -307,7 +297,7 @@ public class SMG {
    * @param pValue the Source of the Points-To edge to be removed
    */
   final public void removePointsToEdge(int pValue) {
-    pt_edges.remove(pValue);
+    pt_edges = pt_edges.removeAndCopy(pValue);
   }
 
   /**
@@ -321,11 +311,11 @@ public class SMG {
    * @param pValidity Validity to set.
    */
   public void setValidity(SMGRegion pObject, boolean pValidity) {
-    if (! objects.contains(pObject)) {
+    if (! object_validity.containsKey(pObject)) {
       throw new IllegalArgumentException("Object [" + pObject + "] not in SMG");
     }
 
-    object_validity.put(pObject, pValidity);
+    object_validity = object_validity.putAndCopy(pObject, pValidity);
   }
 
   /**
@@ -336,7 +326,9 @@ public class SMG {
    */
   public void replaceHVSet(Set<SMGEdgeHasValue> pNewHV) {
     hv_edges.clear();
-    hv_edges.addAll(pNewHV);
+    for (SMGEdgeHasValue edge : pNewHV) {
+      hv_edges.addEdge(edge);
+    }
   }
 
   /**
@@ -376,7 +368,7 @@ public class SMG {
    * @return String representation of values set
    */
   final public String valuesToString() {
-    return "values=" + values.toString();
+    return "values=" + values.keySet().toString();
   }
 
   /**
@@ -400,7 +392,7 @@ public class SMG {
    * @return Unmodifiable view on values set.
    */
   final public Set<Integer> getValues() {
-    return Collections.unmodifiableSet(values);
+    return Collections.unmodifiableSet(values.keySet());
   }
 
   /**
@@ -408,7 +400,7 @@ public class SMG {
    * @return Unmodifiable view on objects set.
    */
   final public Set<SMGObject> getObjects() {
-    return Collections.unmodifiableSet(objects);
+    return Collections.unmodifiableSet(object_validity.keySet());
   }
 
   /**
@@ -416,17 +408,30 @@ public class SMG {
    * @return Unmodifiable view on Has-Value edges set.
    */
   final public Set<SMGEdgeHasValue> getHVEdges() {
-    return Collections.unmodifiableSet(hv_edges);
+    return hv_edges.getEdges();
   }
 
   /**
    * Getter for obtaining unmodifiable view on Has-Value edges set, filtered by
-   * a certain set of criteria.
+   * a certain set of criteria. Filters by object (and offset) are answered
+   * from the index of edges, other filters have to check all edges.
    * @param pFilter Filtering object
    * @return A set of Has-Value edges for which the criteria in p hold
    */
   final public Set<SMGEdgeHasValue> getHVEdges(SMGEdgeHasValueFilter pFilter) {
-    return Collections.unmodifiableSet(pFilter.filterSet(hv_edges));
+    SMGObject object = pFilter.getObject();
+    if (object == null) {
+      return pFilter.filterSet(hv_edges.getEdges());
+    }
+
+    Integer offset = pFilter.getOffset();
+    Set<SMGEdgeHasValue> candidates = (offset == null)
+        ? hv_edges.getEdges(object)
+        : hv_edges.getEdges(object, offset);
+    if (pFilter.isObjectOffsetFilter()) {
+      return candidates;
+    }
+    return pFilter.filterSet(candidates);
   }
 
   /**
@@ -452,7 +457,7 @@ public class SMG {
    * TODO: Consistency check: no value can point to more objects
    */
   final public SMGObject getObjectPointedBy(Integer pValue) {
-    if ( ! values.contains(pValue)) {
+    if ( ! values.containsKey(pValue)) {
       throw new IllegalArgumentException("Value [" + pValue + "] not in SMG");
     }
 
@@ -472,11 +477,12 @@ public class SMG {
    * @return True if {@link pObject} is valid, False if it is invalid.
    */
   final public boolean isObjectValid(SMGObject pObject) {
-    if ( ! objects.contains(pObject)) {
+    Boolean validity = object_validity.get(pObject);
+    if (validity == null) {
       throw new IllegalArgumentException("Object [" + pObject + "] not in SMG");
     }
 
-    return object_validity.get(pObject).booleanValue();
+    return validity.booleanValue();
   }
 
   /**
@@ -561,16 +567,18 @@ public class SMG {
 
     neq.mergeValues(pV1, pV2);
     removeValue(pV2);
-    HashSet<SMGEdgeHasValue> new_hv_edges = new HashSet<>();
-    for (SMGEdgeHasValue hv : hv_edges) {
-      if (hv.getValue() != pV2) {
-        new_hv_edges.add(hv);
-      } else {
-        new_hv_edges.add(new SMGEdgeHasValue(hv.getType(), hv.getOffset(), hv.getObject(), pV1));
+    List<SMGEdgeHasValue> merged_hv_edges = new ArrayList<>();
+    for (SMGEdgeHasValue hv : hv_edges.getEdges()) {
+      if (hv.getValue() == pV2) {
+        merged_hv_edges.add(hv);
       }
     }
-    hv_edges.clear();
-    hv_edges.addAll(new_hv_edges);
+    for (SMGEdgeHasValue hv : merged_hv_edges) {
+      removeHasValueEdge(hv);
+    }
+    for (SMGEdgeHasValue hv : merged_hv_edges) {
+      addHasValueEdge(new SMGEdgeHasValue(hv.getType(), hv.getOffset(), hv.getObject(), pV1));
+    }
     // TODO: Handle PT Edges: I'm not entirely sure how they should be handled
   }
 
@@ -837,6 +845,11 @@ final class SMGConsistencyVerifier {
 }
 
 final class NeqRelation {
+  /**
+   * Values mapped to the values they are not equal to. The relation is symmetric.
+   */
+  private PersistentSortedMap<Integer, ImmutableSet<Integer>> smgValues = PathCopyingPersistentTreeMap.of();
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -846,10 +859,8 @@ final class NeqRelation {
   }
 
   public Set<Integer> getNeqsForValue(Integer pV) {
-    if (smgValues.containsKey(pV)) {
-      return Collections.unmodifiableSet(new HashSet<>(smgValues.get(pV)));
-    }
-    return Collections.unmodifiableSet(new HashSet<Integer>());
+    ImmutableSet<Integer> neqs = smgValues.get(pV);
+    return neqs == null ? ImmutableSet.<Integer>of() : neqs;
   }
 
   @Override
@@ -874,75 +885,77 @@ final class NeqRelation {
     return true;
   }
 
-  private final Map<Integer, List<Integer>> smgValues = new HashMap<>();
-
   public void add_relation(Integer pOne, Integer pTwo) {
-    if (! smgValues.containsKey(pOne)) {
-      smgValues.put(pOne, new ArrayList<Integer>());
-    }
-    if (! smgValues.containsKey(pTwo)) {
-      smgValues.put(pTwo, new ArrayList<Integer>());
-    }
-
-    if (! smgValues.get(pOne).contains(pTwo)) {
-      smgValues.get(pOne).add(pTwo);
-      smgValues.get(pTwo).add(pOne);
+    if (! neq_exists(pOne, pTwo)) {
+      addNeq(pOne, pTwo);
+      addNeq(pTwo, pOne);
     }
   }
 
+  /**
+   * The relation is shared with {@link pNeq} until one of them is modified.
+   */
   public void putAll(NeqRelation pNeq) {
-    for (Integer key : pNeq.smgValues.keySet()) {
-      smgValues.put(key, new ArrayList<Integer>());
-      smgValues.get(key).addAll(pNeq.smgValues.get(key));
-    }
+    smgValues = pNeq.smgValues;
   }
 
   public void remove_relation(Integer pOne, Integer pTwo) {
-    if (smgValues.containsKey(pOne) && smgValues.containsKey(pTwo)) {
-      List<Integer> listOne = smgValues.get(pOne);
-      List<Integer> listTwo = smgValues.get(pTwo);
-
-      if (listOne.contains(pTwo)) {
-        listOne.remove(pTwo);
-        listTwo.remove(pOne);
-      }
+    if (neq_exists(pOne, pTwo)) {
+      removeNeq(pOne, pTwo);
+      removeNeq(pTwo, pOne);
     }
   }
 
   public boolean neq_exists(Integer pOne, Integer pTwo) {
-    if (smgValues.containsKey(pOne) && smgValues.get(pOne).contains(pTwo)) {
-      return true;
-    }
-    return false;
+    return getNeqsForValue(pOne).contains(pTwo);
   }
 
   public void removeValue(Integer pOne) {
-    if (smgValues.containsKey(pOne)) {
-      for (Integer other : smgValues.get(pOne)) {
-        smgValues.get(other).remove(pOne);
+    ImmutableSet<Integer> neqs = smgValues.get(pOne);
+    if (neqs != null) {
+      for (Integer other : neqs) {
+        removeNeq(other, pOne);
       }
-      smgValues.remove(pOne);
+      smgValues = smgValues.removeAndCopy(pOne);
     }
   }
 
   public void mergeValues(Integer pOne, Integer pTwo) {
-    if (! smgValues.containsKey(pOne)) {
-      smgValues.put(pOne, new ArrayList<Integer>());
-    }
-    if (! smgValues.containsKey(pTwo)) {
-      smgValues.put(pTwo, new ArrayList<Integer>());
-    }
-
-    List<Integer> values = smgValues.get(pTwo);
+    Set<Integer> values = getNeqsForValue(pTwo);
     removeValue(pTwo);
 
-    List<Integer> my = smgValues.get(pOne);
     for (Integer value : values) {
-      List<Integer> other = smgValues.get(value);
-      if ((! value.equals(pOne)) && (! other.contains(pOne))) {
-        other.add(pOne);
-        my.add(value);
+      if (! value.equals(pOne)) {
+        add_relation(pOne, value);
+      }
+    }
+  }
+
+  private void addNeq(Integer pValue, Integer pNeq) {
+    ImmutableSet<Integer> neqs = smgValues.get(pValue);
+    if (neqs == null) {
+      neqs = ImmutableSet.of(pNeq);
+    } else {
+      neqs = ImmutableSet.<Integer>builder().addAll(neqs).add(pNeq).build();
+    }
+    smgValues = smgValues.putAndCopy(pValue, neqs);
+  }
+
+  private void removeNeq(Integer pValue, Integer pNeq) {
+    ImmutableSet<Integer> neqs = smgValues.get(pValue);
+    if (neqs == null || ! neqs.contains(pNeq)) {
+      return;
+    }
+    if (neqs.size() == 1) {
+      smgValues = smgValues.removeAndCopy(pValue);
+    } else {
+      ImmutableSet.Builder<Integer> remaining = ImmutableSet.builder();
+      for (Integer neq : neqs) {
+        if (! neq.equals(pNeq)) {
+          remaining.add(neq);
+        }
       }
+      smgValues = smgValues.putAndCopy(pValue, remaining.build());
     }
   }
 }
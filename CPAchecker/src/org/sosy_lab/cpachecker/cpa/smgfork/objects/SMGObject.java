@@ -23,9 +23,16 @@
  */
 package org.sosy_lab.cpachecker.cpa.smgfork.objects;
 
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Objects are compared by their identity. The order of objects is the order
+ * of their creation, such that SMGs can keep them in persistent sorted maps.
+ */
+public abstract class SMGObject implements Comparable<SMGObject> {
+  static private final AtomicInteger idCounter = new AtomicInteger();
 
-public abstract class SMGObject {
+  final private int id = idCounter.getAndIncrement();
   final private int size;
   final private String label;
 
@@ -84,4 +91,9 @@ public abstract class SMGObject {
   public SMGObject join(SMGObject pOther) {
     throw new UnsupportedOperationException("join() called on SMGObject instance, not on a subclass");
   }
+
+  @Override
+  public final int compareTo(SMGObject pOther) {
+    return Integer.compare(id, pOther.id);
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates;
+
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.Option;
+import org.sosy_lab.common.configuration.Options;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * Factory for the caches of predicate analysis (abstractions, path formulas).
+ * By default the caches are unbounded. With a bound, the least-recently used
+ * entries are evicted, so a known amount of recomputation is traded
+ * for predictable heap usage in long analyses.
+ * All caches record hits, misses and evictions for statistics.
+ */
+@Options(prefix="cpa.predicate.cache")
+public class BoundedCacheFactory {
+
+  @Option(secure=true, description="maximal number of entries of each cache "
+      + "of abstractions and path formulas (0 for unbounded)")
+  private long maximumSize = 0;
+
+  @Option(secure=true, description="maximal total weight of each cache "
+      + "of abstractions and path formulas (0 for unbounded). "
+      + "The weight of an entry approximates the size of its formula, "
+      + "i.e., the length of a path formula or the number of predicates of an abstraction. "
+      + "This cannot be combined with cpa.predicate.cache.maximumSize.")
+  private long maximumWeight = 0;
+
+  @Option(secure=true, description="reference cached values softly, "
+      + "such that the garbage collector can evict them if memory is low")
+  private boolean softValues = false;
+
+  private static final BoundedCacheFactory UNBOUNDED = new BoundedCacheFactory();
+
+  private BoundedCacheFactory() {
+  }
+
+  public BoundedCacheFactory(Configuration pConfig) throws InvalidConfigurationException {
+    pConfig.inject(this);
+    if (maximumSize > 0 && maximumWeight > 0) {
+      throw new InvalidConfigurationException(
+          "Caches of predicate analysis can be bounded either by size or by weight, but not both.");
+    }
+  }
+
+  /**
+   * Factory for unbounded caches, which behave like a plain map.
+   */
+  public static BoundedCacheFactory unbounded() {
+    return UNBOUNDED;
+  }
+
+  /**
+   * Create a cache whose entries have weight 1.
+   */
+  public <K, V> Cache<K, V> newCache() {
+    return newCache(new Weigher<K, V>() {
+      @Override
+      public int weigh(K pKey, V pValue) {
+        return 1;
+      }
+    });
+  }
+
+  /**
+   * Create a cache, the given weigher is only used if the caches are bounded by weight.
+   * Weights should be positive, entries with weight 0 are never evicted because of the bound.
+   */
+  public <K, V> Cache<K, V> newCache(Weigher<? super K, ? super V> pWeigher) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+    if (softValues) {
+      builder.softValues();
+    }
+    if (maximumWeight > 0) {
+      return builder.maximumWeight(maximumWeight).<K, V>weigher(pWeigher).build();
+    }
+    if (maximumSize > 0) {
+      builder.maximumSize(maximumSize);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Format the statistics of the given caches as one line.
+   */
+  public static String formatStatistics(Cache<?, ?>... pCaches) {
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    long size = 0;
+    for (Cache<?, ?> cache : pCaches) {
+      if (cache != null) {
+        stats = stats.plus(cache.stats());
+        size += cache.size();
+      }
+    }
+    return stats.hitCount() + " hits, " + stats.missCount() + " misses, "
+        + stats.evictionCount() + " evictions (" + size + " entries)";
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.predicates;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
+
+public class BoundedCacheFactoryTest {
+
+  private static BoundedCacheFactory factory(String pOption, String pValue) throws InvalidConfigurationException {
+    return new BoundedCacheFactory(Configuration.builder().setOption(pOption, pValue).build());
+  }
+
+  @Test
+  public void testUnbounded() {
+    Cache<Integer, Integer> cache = BoundedCacheFactory.unbounded().newCache();
+    for (int i = 0; i < 1000; i++) {
+      cache.put(i, i);
+    }
+    assertEquals(1000, cache.size());
+    assertEquals(0, cache.stats().evictionCount());
+  }
+
+  @Test
+  public void testMaximumSize() throws InvalidConfigurationException {
+    Cache<Integer, Integer> cache = factory("cpa.predicate.cache.maximumSize", "2").newCache();
+    cache.put(1, 1);
+    cache.put(2, 2);
+    assertNotNull(cache.getIfPresent(1));
+    cache.put(3, 3);
+
+    // 2 is the least-recently used entry
+    assertNull(cache.getIfPresent(2));
+    assertNotNull(cache.getIfPresent(1));
+    assertEquals(1, cache.stats().evictionCount());
+    assertEquals(2, cache.stats().hitCount());
+    assertEquals(1, cache.stats().missCount());
+  }
+
+  @Test
+  public void testMaximumWeight() throws InvalidConfigurationException {
+    Cache<Integer, Integer> cache = factory("cpa.predicate.cache.maximumWeight", "10").newCache(
+        new Weigher<Integer, Integer>() {
+          @Override
+          public int weigh(Integer pKey, Integer pValue) {
+            return pValue;
+          }
+        });
+    cache.put(1, 6);
+    cache.put(2, 6);
+    assertEquals(1, cache.size());
+    assertNotNull(cache.getIfPresent(2));
+  }
+
+  @Test(expected = InvalidConfigurationException.class)
+  public void testSizeAndWeight() throws InvalidConfigurationException {
+    new BoundedCacheFactory(Configuration.builder()
+        .setOption("cpa.predicate.cache.maximumSize", "2")
+        .setOption("cpa.predicate.cache.maximumWeight", "2")
+        .build());
+  }
+
+  @Test
+  public void testFormatStatistics() {
+    Cache<Integer, Integer> cache = BoundedCacheFactory.unbounded().newCache();
+    cache.put(1, 1);
+    cache.getIfPresent(1);
+    cache.getIfPresent(2);
+    assertEquals("1 hits, 1 misses, 0 evictions (1 entries)",
+        BoundedCacheFactory.formatStatistics(cache, null));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ *  CPAchecker is a tool for configurable software verification.
+ *  This file is part of CPAchecker.
+ *
+ *  Copyright (C) 2007-2015  Dirk Beyer
+ *  All rights reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *
+ *  CPAchecker web page:
+ *    http://cpachecker.sosy-lab.org
+ */
+package org.sosy_lab.cpachecker.util.resources;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * A limit that measures the used heap memory of the current JVM.
+ * Note that the heap is shared by all threads of the JVM,
+ * so this limit is only an approximation if several tasks run concurrently.
+ */
+public class HeapUsageLimit implements ResourceLimit {
+
+  // Heap usage can grow fast, so we check it regularly.
+  private static final long CHECK_INTERVAL = 1000L * 1000 * 1000;
+
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+  private final long limit;
+
+  private HeapUsageLimit(long pLimit) {
+    checkArgument(pLimit > 0);
+    limit = pLimit;
+  }
+
+  public static HeapUsageLimit ofBytes(long bytes) {
+    return new HeapUsageLimit(bytes);
+  }
+
+  public static HeapUsageLimit ofMegabytes(long megabytes) {
+    return new HeapUsageLimit(megabytes * 1024 * 1024);
+  }
+
+  @Override
+  public long getCurrentValue() {
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  @Override
+  public boolean isExceeded(long pCurrentValue) {
+    return pCurrentValue >= limit;
+  }
+
+  @Override
+  public long nanoSecondsToNextCheck(long pCurrentValue) {
+    return CHECK_INTERVAL;
+  }
+
+  @Override
+  public String getName() {
+    return "heap-usage limit of " + (limit / (1024 * 1024)) + "MB";
+  }
+}